@@ -0,0 +1,585 @@
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+// Real arithmetic in a precision wider than double, for HighPrecision:
+// DOUBLE_DOUBLE (about 31 digits, DoubleDouble) or decimal(digits) (BigDecimal
+// with a MathContext). Implementations supply the field operations; the
+// elementary functions are built on them here, each starting from the double
+// result and refining it, so every implementation gets the same algorithms:
+//   exp   - reduce by k*ln2, halve 8 times, Taylor series of expm1, then
+//           undo the halvings with e^2a - 1 = E(E + 2), which keeps small
+//           results accurate
+//   log   - Halley's iteration on exp (triples the correct digits per step)
+//   sin, cos - reduce by k*pi/2 to |r| <= pi/4, then the Taylor series
+//   atan  - Newton's iteration on tan
+//   pi, ln2 - Machin's formula and 2 atanh(1/3), once per instance
+// Numbers from the expression (literals and parameters) are taken as the
+// decimal they print as, so 0.1 is one tenth rather than the nearest double,
+// and exp4j's pi and e become the exact constants.
+public abstract class Arithmetic<T> {
+    public static final Arithmetic<DoubleDouble> DOUBLE_DOUBLE = new DoubleDoubleArithmetic();
+
+    public static final int MAX_DIGITS = 2000;
+
+    private static final int HALVINGS = 8;
+
+    private T pi, ln2, ln10;
+
+    public static Arithmetic<BigDecimal> decimal(int digits) {
+        if (digits < 1 || digits > MAX_DIGITS) {
+            throw new IllegalArgumentException("Digits must be between 1 and " + MAX_DIGITS + ".");
+        }
+        return new DecimalArithmetic(digits);
+    }
+
+    // Significant decimal digits this arithmetic carries
+    public abstract int digits();
+
+    // Unit roundoff: terms smaller than this relative to a sum are dropped
+    abstract T epsilon();
+
+    public abstract T of(double v);
+
+    public abstract T of(BigDecimal v);
+
+    public abstract double toDouble(T a);
+
+    public abstract BigDecimal toBigDecimal(T a);
+
+    public abstract T add(T a, T b);
+
+    public abstract T subtract(T a, T b);
+
+    public abstract T multiply(T a, T b);
+
+    public abstract T divide(T a, T b);
+
+    public abstract T negate(T a);
+
+    // a * 2^n
+    abstract T scalb(T a, int n);
+
+    public abstract int signum(T a);
+
+    abstract T floor(T a);
+
+    // The result of an undefined operation (log of a negative number, ...)
+    abstract T nan();
+
+    // False for NaN and infinities (BigDecimal has neither)
+    public abstract boolean isFinite(T a);
+
+    public int compare(T a, T b) {
+        return signum(subtract(a, b));
+    }
+
+    public T abs(T a) {
+        return signum(a) < 0 ? negate(a) : a;
+    }
+
+    // |term| <= epsilon * |sum|
+    private boolean negligible(T term, T sum) {
+        return compare(abs(term), multiply(abs(sum), epsilon())) <= 0;
+    }
+
+    // |step| within a few units in the last place of x: iterating further in
+    // this precision only moves x around its rounding error
+    boolean atLimit(T step, T x) {
+        return compare(abs(step), multiply(abs(x), scalb(epsilon(), 6))) <= 0;
+    }
+
+    // Newton/Halley refinements stop once a correction is this small, or after
+    // enough steps to reach digits() from double's 16
+    private boolean converged(T correction, T value, int step) {
+        return negligible(correction, signum(value) == 0 ? of(1) : value)
+            || step > 4 + 32 - Integer.numberOfLeadingZeros(digits() / 16 + 1);
+    }
+
+    public T pi() {
+        if (pi == null) {
+            // pi = 16 atan(1/5) - 4 atan(1/239)
+            pi = subtract(multiply(of(16), atanOfInverse(5)), multiply(of(4), atanOfInverse(239)));
+        }
+        return pi;
+    }
+
+    private T ln2() {
+        if (ln2 == null) {
+            // ln 2 = 2 atanh(1/3)
+            T third = divide(of(1), of(3));
+            T ninth = multiply(third, third);
+            T sum = third, power = third;
+            for (int k = 1; ; k++) {
+                power = multiply(power, ninth);
+                T term = divide(power, of(2 * k + 1));
+                sum = add(sum, term);
+                if (negligible(term, sum)) {
+                    break;
+                }
+            }
+            ln2 = scalb(sum, 1);
+        }
+        return ln2;
+    }
+
+    private T ln10() {
+        if (ln10 == null) {
+            ln10 = log(of(10));
+        }
+        return ln10;
+    }
+
+    // atan(1/n) by its Taylor series, for n > 1
+    private T atanOfInverse(int n) {
+        T x = divide(of(1), of(n));
+        T x2 = multiply(x, x);
+        T sum = x, power = x;
+        for (int k = 1; ; k++) {
+            power = negate(multiply(power, x2));
+            T term = divide(power, of(2 * k + 1));
+            sum = add(sum, term);
+            if (negligible(term, sum)) {
+                return sum;
+            }
+        }
+    }
+
+    public T sqrt(T a) {
+        if (!isFinite(a)) {
+            return of(Math.sqrt(toDouble(a)));
+        }
+        int sign = signum(a);
+        if (sign <= 0) {
+            return sign == 0 ? a : nan();
+        }
+        T y = of(Math.sqrt(toDouble(a)));
+        for (int step = 0; ; step++) {
+            T correction = scalb(subtract(divide(a, y), y), -1);
+            y = add(y, correction);
+            if (converged(correction, y, step)) {
+                return y;
+            }
+        }
+    }
+
+    public T cbrt(T a) {
+        if (signum(a) == 0 || !isFinite(a)) {
+            return a;
+        }
+        T y = of(Math.cbrt(toDouble(a)));
+        for (int step = 0; ; step++) {
+            // y -= (y^3 - a) / (3 y^2)
+            T correction = divide(subtract(a, multiply(y, multiply(y, y))), multiply(of(3), multiply(y, y)));
+            y = add(y, correction);
+            if (converged(correction, y, step)) {
+                return y;
+            }
+        }
+    }
+
+    public T exp(T x) {
+        return exp(x, false);
+    }
+
+    public T expm1(T x) {
+        return exp(x, true);
+    }
+
+    // e^x, or e^x - 1 without cancellation near 0
+    private T exp(T x, boolean minusOne) {
+        if (!isFinite(x)) {
+            return of(minusOne ? Math.expm1(toDouble(x)) : Math.exp(toDouble(x)));
+        }
+        double xd = toDouble(x);
+        if (Math.abs(xd) > 1e6) {
+            return xd > 0 ? overflow() : of(minusOne ? -1 : 0);
+        }
+        long k = Math.round(xd / Math.log(2));
+        T r = k == 0 ? x : subtract(x, multiply(of(k), ln2()));
+        r = scalb(r, -HALVINGS);
+        T sum = r, term = r;
+        for (int n = 2; ; n++) {
+            term = divide(multiply(term, r), of(n));
+            sum = add(sum, term);
+            if (negligible(term, sum)) {
+                break;
+            }
+        }
+        for (int i = 0; i < HALVINGS; i++) {
+            sum = multiply(sum, add(sum, of(2)));
+        }
+        if (minusOne && k == 0) {
+            return sum;
+        }
+        // e^x = 2^k (E + 1)
+        T e = scalb(add(sum, of(1)), (int) k);
+        return minusOne ? subtract(e, of(1)) : e;
+    }
+
+    // What exp returns when the result does not fit
+    T overflow() {
+        return of(Double.POSITIVE_INFINITY);
+    }
+
+    public T log(T x) {
+        if (!isFinite(x)) {
+            return of(Math.log(toDouble(x)));
+        }
+        int sign = signum(x);
+        if (sign <= 0) {
+            return sign == 0 ? of(Double.NEGATIVE_INFINITY) : nan();
+        }
+        T y = of(approximateLog(x));
+        for (int step = 0; ; step++) {
+            // Halley: y += 2 (x - e^y) / (x + e^y)
+            T e = exp(y);
+            T correction = scalb(divide(subtract(x, e), add(x, e)), 1);
+            y = add(y, correction);
+            if (converged(correction, y, step)) {
+                return y;
+            }
+        }
+    }
+
+    double approximateLog(T x) {
+        return Math.log(toDouble(x));
+    }
+
+    public T log1p(T x) {
+        return log(add(of(1), x));
+    }
+
+    public T sin(T x) {
+        return sinCos(x)[0];
+    }
+
+    public T cos(T x) {
+        return sinCos(x)[1];
+    }
+
+    // {sin x, cos x}; only for use in here, as the array is really an Object[]
+    @SuppressWarnings("unchecked")
+    private T[] sinCos(T x) {
+        if (!isFinite(x)) {
+            return (T[]) new Object[]{nan(), nan()};
+        }
+        T halfPi = scalb(pi(), -1);
+        long k = Math.round(toDouble(x) / (Math.PI / 2));
+        T r = k == 0 ? x : subtract(x, multiply(of(k), halfPi));
+        T r2 = multiply(r, r);
+        T sin = r, cos = of(1);
+        T sinTerm = r, cosTerm = of(1);
+        for (int n = 1; ; n++) {
+            sinTerm = negate(divide(multiply(sinTerm, r2), of((2 * n) * (2 * n + 1))));
+            cosTerm = negate(divide(multiply(cosTerm, r2), of((2 * n - 1) * (2 * n))));
+            sin = add(sin, sinTerm);
+            cos = add(cos, cosTerm);
+            if (negligible(cosTerm, cos) && (signum(sin) == 0 || negligible(sinTerm, sin))) {
+                break;
+            }
+        }
+        switch ((int) (k & 3)) {
+            case 1:  return (T[]) new Object[]{cos, negate(sin)};
+            case 2:  return (T[]) new Object[]{negate(sin), negate(cos)};
+            case 3:  return (T[]) new Object[]{negate(cos), sin};
+            default: return (T[]) new Object[]{sin, cos};
+        }
+    }
+
+    public T atan(T x) {
+        if (!isFinite(x)) {
+            return of(Math.atan(toDouble(x)));
+        }
+        T y = of(Math.atan(toDouble(x)));
+        for (int step = 0; ; step++) {
+            // Newton on tan y = x: y -= cos y (sin y - x cos y)
+            T[] sc = sinCos(y);
+            T correction = negate(multiply(sc[1], subtract(sc[0], multiply(x, sc[1]))));
+            y = add(y, correction);
+            if (converged(correction, y, step)) {
+                return y;
+            }
+        }
+    }
+
+    public T asin(T x) {
+        int c = compare(abs(x), of(1));
+        if (c > 0) {
+            return nan();
+        }
+        if (c == 0) {
+            return signum(x) > 0 ? scalb(pi(), -1) : negate(scalb(pi(), -1));
+        }
+        return atan(divide(x, sqrt(subtract(of(1), multiply(x, x)))));
+    }
+
+    public T pow(T a, T b) {
+        T n = floor(b);
+        if (compare(n, b) == 0 && Math.abs(toDouble(n)) <= Integer.MAX_VALUE) {
+            // Integer exponent: square and multiply
+            long e = (long) toDouble(n);
+            T result = of(1), base = a;
+            for (long m = Math.abs(e); m > 0; m >>= 1) {
+                if ((m & 1) != 0) {
+                    result = multiply(result, base);
+                }
+                if (m > 1) {
+                    base = multiply(base, base);
+                }
+            }
+            return e < 0 ? divide(of(1), result) : result;
+        }
+        int sign = signum(a);
+        if (sign < 0) {
+            return nan();
+        }
+        if (sign == 0) {
+            return signum(b) > 0 ? a : of(Double.POSITIVE_INFINITY);
+        }
+        return exp(multiply(b, log(a)));
+    }
+
+    // A literal or parameter value: pi and e exactly, anything else as the
+    // decimal it prints as
+    public T constant(double v) {
+        if (v == Math.PI) {
+            return pi();
+        }
+        if (v == Math.E) {
+            return exp(of(1));
+        }
+        if (Double.isNaN(v) || Double.isInfinite(v)) {
+            return of(v);
+        }
+        return of(BigDecimal.valueOf(v));
+    }
+
+    // node as a function of variable; other variables take their values from
+    // parameters. Throws IllegalArgumentException for custom functions and
+    // operators, which only exist in double.
+    public UnaryOperator<T> function(ExpressionNode node, String variable, Map<String, Double> parameters) {
+        Map<String, T> values = new HashMap<>();
+        for (String name : node.variables()) {
+            if (!name.equals(variable)) {
+                Double v = parameters.get(name);
+                if (v == null) {
+                    throw new IllegalArgumentException("No value for variable " + name + ".");
+                }
+                values.put(name, constant(v));
+            }
+        }
+        return bind(node, variable, values);
+    }
+
+    private UnaryOperator<T> bind(ExpressionNode n, String variable, Map<String, T> values) {
+        switch (n.kind) {
+            case CONSTANT: {
+                T c = constant(n.value);
+                return x -> c;
+            }
+            case VARIABLE: {
+                if (n.name.equals(variable)) {
+                    return x -> x;
+                }
+                T c = values.get(n.name);
+                return x -> c;
+            }
+            case NEGATE: {
+                UnaryOperator<T> a = bind(n.args[0], variable, values);
+                return x -> negate(a.apply(x));
+            }
+            case FUNCTION:
+                return builtin(n, variable, values);
+            case USER_FUNCTION:
+            case USER_OPERATOR:
+                throw new IllegalArgumentException("Custom function " + n.name + " cannot be evaluated in extended precision.");
+            default:
+                break;
+        }
+        UnaryOperator<T> a = bind(n.args[0], variable, values);
+        UnaryOperator<T> b = bind(n.args[1], variable, values);
+        switch (n.kind) {
+            case ADD:      return x -> add(a.apply(x), b.apply(x));
+            case SUBTRACT: return x -> subtract(a.apply(x), b.apply(x));
+            case MULTIPLY: return x -> multiply(a.apply(x), b.apply(x));
+            case DIVIDE:   return x -> divide(a.apply(x), nonZero(b.apply(x)));
+            case POWER:    return x -> pow(a.apply(x), b.apply(x));
+            default:       return x -> {
+                // Java's %: the result takes the sign of the dividend
+                T p = a.apply(x), q = nonZero(b.apply(x));
+                T quotient = divide(p, q);
+                T truncated = signum(quotient) < 0 ? negate(floor(negate(quotient))) : floor(quotient);
+                return subtract(p, multiply(q, truncated));
+            };
+        }
+    }
+
+    private T nonZero(T divisor) {
+        if (signum(divisor) == 0) {
+            throw new ArithmeticException("Division by zero!");
+        }
+        return divisor;
+    }
+
+    private UnaryOperator<T> builtin(ExpressionNode n, String variable, Map<String, T> values) {
+        if (n.name.equals("pow") && n.args.length == 2) {
+            UnaryOperator<T> a = bind(n.args[0], variable, values);
+            UnaryOperator<T> b = bind(n.args[1], variable, values);
+            return x -> pow(a.apply(x), b.apply(x));
+        }
+        if (n.args.length != 1) {
+            throw new IllegalArgumentException("Function " + n.name + " cannot be evaluated in extended precision.");
+        }
+        UnaryOperator<T> u = bind(n.args[0], variable, values);
+        switch (n.name) {
+            case "sin":   return x -> sinCos(u.apply(x))[0];
+            case "cos":   return x -> sinCos(u.apply(x))[1];
+            case "tan":   return x -> { T[] sc = sinCos(u.apply(x)); return divide(sc[0], sc[1]); };
+            case "cot":   return x -> {
+                T[] sc = sinCos(u.apply(x));
+                if (signum(sc[0]) == 0) {
+                    throw new ArithmeticException("Division by zero in cotangent!");
+                }
+                return divide(sc[1], sc[0]);
+            };
+            case "asin":  return x -> asin(u.apply(x));
+            case "acos":  return x -> subtract(scalb(pi(), -1), asin(u.apply(x)));
+            case "atan":  return x -> atan(u.apply(x));
+            case "sinh":  return x -> {
+                // (e^u - e^-u) / 2 = (E + E / (E + 1)) / 2 with E = e^u - 1
+                T e = expm1(u.apply(x));
+                return scalb(add(e, divide(e, add(e, of(1)))), -1);
+            };
+            case "cosh":  return x -> { T e = exp(u.apply(x)); return scalb(add(e, divide(of(1), e)), -1); };
+            case "tanh":  return x -> {
+                // (e^2u - 1) / (e^2u + 1)
+                T e = expm1(scalb(u.apply(x), 1));
+                return isFinite(e) ? divide(e, add(e, of(2))) : of(1);
+            };
+            case "exp":   return x -> exp(u.apply(x));
+            case "expm1": return x -> expm1(u.apply(x));
+            case "log":   return x -> log(u.apply(x));
+            case "log10": return x -> divide(log(u.apply(x)), ln10());
+            case "log2":  return x -> divide(log(u.apply(x)), ln2());
+            case "log1p": return x -> log1p(u.apply(x));
+            case "sqrt":  return x -> sqrt(u.apply(x));
+            case "cbrt":  return x -> cbrt(u.apply(x));
+            case "abs":   return x -> abs(u.apply(x));
+            case "ceil":  return x -> negate(floor(negate(u.apply(x))));
+            case "floor": return x -> floor(u.apply(x));
+            case "signum": return x -> of(signum(u.apply(x)));
+            default:
+                throw new IllegalArgumentException("Function " + n.name + " cannot be evaluated in extended precision.");
+        }
+    }
+
+    private static final class DoubleDoubleArithmetic extends Arithmetic<DoubleDouble> {
+        private static final DoubleDouble EPSILON = DoubleDouble.of(0x1p-106);
+
+        @Override public int digits() { return 31; }
+        @Override DoubleDouble epsilon() { return EPSILON; }
+        @Override public DoubleDouble of(double v) { return DoubleDouble.of(v); }
+        @Override public DoubleDouble of(BigDecimal v) { return DoubleDouble.of(v); }
+        @Override public double toDouble(DoubleDouble a) { return a.doubleValue(); }
+        @Override public BigDecimal toBigDecimal(DoubleDouble a) { return a.toBigDecimal(); }
+        @Override public DoubleDouble add(DoubleDouble a, DoubleDouble b) { return a.add(b); }
+        @Override public DoubleDouble subtract(DoubleDouble a, DoubleDouble b) { return a.subtract(b); }
+        @Override public DoubleDouble multiply(DoubleDouble a, DoubleDouble b) { return a.multiply(b); }
+        @Override public DoubleDouble divide(DoubleDouble a, DoubleDouble b) { return a.divide(b); }
+        @Override public DoubleDouble negate(DoubleDouble a) { return a.negate(); }
+        @Override DoubleDouble scalb(DoubleDouble a, int n) { return a.scalb(n); }
+        @Override public int signum(DoubleDouble a) { return a.signum(); }
+        @Override DoubleDouble floor(DoubleDouble a) { return a.floor(); }
+        @Override DoubleDouble nan() { return DoubleDouble.of(Double.NaN); }
+        @Override public boolean isFinite(DoubleDouble a) { return a.isFinite(); }
+
+        @Override
+        public int compare(DoubleDouble a, DoubleDouble b) {
+            return a.compareTo(b);
+        }
+    }
+
+    // BigDecimal rounded to digits plus a few guard digits. It has no NaN or
+    // infinity, so operations that would produce one throw ArithmeticException.
+    private static final class DecimalArithmetic extends Arithmetic<BigDecimal> {
+        private static final int GUARD_DIGITS = 10;
+
+        private final int digits;
+        private final MathContext mc;
+        private final BigDecimal epsilon;
+
+        DecimalArithmetic(int digits) {
+            this.digits = digits;
+            this.mc = new MathContext(digits + GUARD_DIGITS, RoundingMode.HALF_EVEN);
+            this.epsilon = BigDecimal.ONE.scaleByPowerOfTen(-mc.getPrecision());
+        }
+
+        @Override public int digits() { return digits; }
+        @Override BigDecimal epsilon() { return epsilon; }
+        @Override public BigDecimal toBigDecimal(BigDecimal a) { return a; }
+        @Override public BigDecimal add(BigDecimal a, BigDecimal b) { return a.add(b, mc); }
+        @Override public BigDecimal subtract(BigDecimal a, BigDecimal b) { return a.subtract(b, mc); }
+        @Override public BigDecimal multiply(BigDecimal a, BigDecimal b) { return a.multiply(b, mc); }
+        @Override public BigDecimal divide(BigDecimal a, BigDecimal b) { return a.divide(b, mc); }
+        @Override public BigDecimal negate(BigDecimal a) { return a.negate(); }
+        @Override public int signum(BigDecimal a) { return a.signum(); }
+        @Override BigDecimal floor(BigDecimal a) { return a.setScale(0, RoundingMode.FLOOR); }
+        @Override public boolean isFinite(BigDecimal a) { return true; }
+        @Override public int compare(BigDecimal a, BigDecimal b) { return a.compareTo(b); }
+
+        @Override
+        public BigDecimal of(double v) {
+            if (Double.isNaN(v) || Double.isInfinite(v)) {
+                return nan();
+            }
+            return new BigDecimal(v);
+        }
+
+        @Override
+        public BigDecimal of(BigDecimal v) {
+            return v.round(mc);
+        }
+
+        @Override
+        public double toDouble(BigDecimal a) {
+            return a.doubleValue();
+        }
+
+        @Override
+        BigDecimal scalb(BigDecimal a, int n) {
+            if (Math.abs(n) > 64) {
+                return a.multiply(BigDecimal.valueOf(2).pow(n, mc), mc);
+            }
+            // 2^-m = 5^m / 10^m, exactly
+            BigDecimal factor = n >= 0 ? new BigDecimal(BigInteger.ONE.shiftLeft(n))
+                                       : new BigDecimal(BigInteger.valueOf(5).pow(-n), -n);
+            return a.multiply(factor, mc);
+        }
+
+        @Override
+        BigDecimal nan() {
+            throw new ArithmeticException("Function evaluated to NaN or Infinity.");
+        }
+
+        @Override
+        BigDecimal overflow() {
+            return nan();
+        }
+
+        // From the digits and exponent, for values outside double's range
+        @Override
+        double approximateLog(BigDecimal x) {
+            double d = x.doubleValue();
+            if (d > 0 && !Double.isInfinite(d)) {
+                return Math.log(d);
+            }
+            BigDecimal mantissa = x.movePointLeft(x.precision() - x.scale() - 1);
+            return Math.log(mantissa.doubleValue()) + (x.precision() - x.scale() - 1) * Math.log(10);
+        }
+    }
+}
@@ -0,0 +1,344 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinTask;
+// For Windows:
+// javac -cp ".;lib\exp4j-0.4.8.jar" BatchSolver.java
+// java -cp ".;lib\exp4j-0.4.8.jar" BatchSolver problems.csv results.csv [threads] [--trace dir]
+// Non-interactive mode: streams a file of problems through RootSolverBatch and
+// writes one result line per input line, in input order. Use - for stdin/stdout.
+//
+// CSV input (a header line starting with "method" is skipped; quote fields that
+// contain commas; extra name=value fields set parameters of the function):
+//   method,function,a,b,tolerance,maxIterations
+//   newton,x^2 - p,1,,1e-8,50,p=2
+//   brent,"pow(x,3) - 2",0,2,1e-10
+//
+// NDJSON input (one object per line; x0/x1 may be used instead of a/b):
+//   {"method": "secant", "function": "cos(x) - x", "x0": 0, "x1": 1, "tolerance": 1e-9}
+//
+// Output is CSV (line,root,iterations,error) or NDJSON, following the input file
+// extension. Lines are read in blocks; a few blocks are solved in parallel while
+// the next is read and the oldest is written, so memory stays bounded however
+// large the file is. The run ends with a throughput summary on stderr.
+// With --trace, every solve's iteration history is also written to
+// dir/<method>.nmtrace (see TraceFile).
+public class BatchSolver {
+    private static final int BLOCK_SIZE = 4096;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // One input line: either a job or the reason it could not be read
+    private static final class Line {
+        final long number;
+        final RootSolverBatch.Job job;
+        final String error;
+
+        Line(long number, RootSolverBatch.Job job, String error) {
+            this.number = number;
+            this.job = job;
+            this.error = error;
+        }
+    }
+
+    private static final class Block {
+        final List<Line> lines;
+        final ForkJoinTask<List<RootSolverBatch.Result>> results;
+
+        Block(List<Line> lines, ForkJoinTask<List<RootSolverBatch.Result>> results) {
+            this.lines = lines;
+            this.results = results;
+        }
+    }
+
+    private final boolean json;
+    private long solved, failed;
+
+    BatchSolver(boolean json) {
+        this.json = json;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java BatchSolver <input.csv|input.ndjson|-> <output|-> [threads] [--ndjson] [--trace dir]");
+            System.exit(2);
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean json = args[0].endsWith(".ndjson") || args[0].endsWith(".jsonl");
+        Path traceDirectory = null;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--ndjson")) {
+                json = true;
+            } else if (args[i].equals("--trace") && i + 1 < args.length) {
+                traceDirectory = Files.createDirectories(Paths.get(args[++i]));
+            } else {
+                threads = Integer.parseInt(args[i]);
+            }
+        }
+
+        try (ReadableByteChannel in = args[0].equals("-") ? Channels.newChannel(System.in)
+                     : FileChannel.open(Paths.get(args[0]), StandardOpenOption.READ);
+             WritableByteChannel out = args[1].equals("-") ? Channels.newChannel(System.out)
+                     : FileChannel.open(Paths.get(args[1]), StandardOpenOption.WRITE,
+                                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+             RootSolverBatch batch = new RootSolverBatch(threads)) {
+            if (traceDirectory != null) {
+                batch.traceTo(traceDirectory);
+            }
+            new BatchSolver(json).run(in, out, batch, threads);
+        }
+    }
+
+    void run(ReadableByteChannel in, WritableByteChannel out, RootSolverBatch batch, int threads) throws IOException {
+        long start = System.nanoTime();
+        // Enough blocks in flight to keep every worker busy while one is written
+        int maxInFlight = threads + 1;
+        ArrayDeque<Block> inFlight = new ArrayDeque<>();
+        long lineNumber = 0;
+
+        BufferedReader reader = new BufferedReader(
+                Channels.newReader(in, StandardCharsets.UTF_8.newDecoder(), BUFFER_SIZE), BUFFER_SIZE);
+        Writer writer = new BufferedWriter(Channels.newWriter(out, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), BUFFER_SIZE);
+        if (!json) {
+            writer.write("line,root,iterations,error\n");
+        }
+
+        List<Line> lines = new ArrayList<>(BLOCK_SIZE);
+        String text;
+        while (true) {
+            text = reader.readLine();
+            if (text != null) {
+                lineNumber++;
+                String trimmed = text.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")
+                        || (!json && lineNumber == 1 && trimmed.toLowerCase(Locale.ROOT).startsWith("method"))) {
+                    continue;
+                }
+                lines.add(parse(lineNumber, trimmed));
+                if (lines.size() < BLOCK_SIZE) {
+                    continue;
+                }
+            }
+            if (!lines.isEmpty()) {
+                inFlight.add(submit(batch, lines));
+                lines = new ArrayList<>(BLOCK_SIZE);
+            }
+            while (inFlight.size() >= maxInFlight || (text == null && !inFlight.isEmpty())) {
+                write(inFlight.poll(), writer);
+            }
+            if (text == null) {
+                break;
+            }
+        }
+        writer.flush();
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long total = solved + failed;
+        System.err.printf("Solved %d problems (%d failed) in %.3f s: %.0f problems/s on %d threads%n",
+                          total, failed, seconds, total / Math.max(seconds, 1e-9), threads);
+        System.err.println(ExpressionCache.SHARED);
+        if (SolverMetrics.ENABLED) {
+            System.err.print(SolverMetrics.text());
+        }
+    }
+
+    private static Block submit(RootSolverBatch batch, List<Line> lines) {
+        List<RootSolverBatch.Job> jobs = new ArrayList<>(lines.size());
+        for (Line line : lines) {
+            if (line.job != null) {
+                jobs.add(line.job);
+            }
+        }
+        return new Block(lines, batch.submit(jobs));
+    }
+
+    private void write(Block block, Writer writer) throws IOException {
+        Iterator<RootSolverBatch.Result> results = block.results.join().iterator();
+        StringBuilder sb = new StringBuilder(64);
+        for (Line line : block.lines) {
+            RootSolverBatch.Result r = line.job != null ? results.next() : null;
+            double root = r != null ? r.root : Double.NaN;
+            int iterations = r != null ? r.iterations : 0;
+            String error = r != null ? r.error : line.error;
+            if (error == null) {
+                solved++;
+            } else {
+                failed++;
+            }
+
+            sb.setLength(0);
+            if (json) {
+                sb.append("{\"line\":").append(line.number).append(",\"root\":");
+                Json.write(root, sb);
+                sb.append(",\"iterations\":").append(iterations).append(",\"error\":");
+                Json.write(error, sb);
+                sb.append('}');
+            } else {
+                sb.append(line.number).append(',');
+                if (error == null) {
+                    sb.append(root);
+                }
+                sb.append(',').append(iterations).append(',');
+                if (error != null) {
+                    quote(error, sb);
+                }
+            }
+            sb.append('\n');
+            writer.append(sb);
+        }
+    }
+
+    private Line parse(long number, String text) {
+        try {
+            return new Line(number, json ? parseJson(text) : parseCsv(text), null);
+        } catch (RuntimeException e) {
+            return new Line(number, null, e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+    }
+
+    static RootSolverBatch.Job parseCsv(String text) {
+        List<String> fields = splitCsv(text);
+        if (fields.size() < 5) {
+            throw new IllegalArgumentException("Expected method,function,a,b,tolerance[,maxIterations][,name=value...]");
+        }
+        RootSolverBatch.Job job = job(fields.get(0), fields.get(1), number(fields.get(2)),
+                                      fields.get(3).trim().isEmpty() ? Double.NaN : number(fields.get(3)),
+                                      number(fields.get(4)));
+        for (int i = 5; i < fields.size(); i++) {
+            String field = fields.get(i).trim();
+            int eq = field.indexOf('=');
+            if (eq > 0) {
+                job.parameter(field.substring(0, eq).trim(), number(field.substring(eq + 1)));
+            } else if (i == 5 && !field.isEmpty()) {
+                job.maxIterations((int) number(field));
+            }
+        }
+        return job;
+    }
+
+    static RootSolverBatch.Job parseJson(String text) {
+        Map<String, Object> object = Json.parseObject(text);
+        double a = value(object, "a", "x0");
+        double b = value(object, "b", "x1");
+        Object tolerance = object.get("tolerance");
+        RootSolverBatch.Job job = job(String.valueOf(object.get("method")),
+                                      object.get("function") instanceof String ? (String) object.get("function") : null, a, b,
+                                      tolerance instanceof Double ? (Double) tolerance : 1e-6);
+        if (object.get("maxIterations") instanceof Double) {
+            job.maxIterations(((Double) object.get("maxIterations")).intValue());
+        }
+        if (object.get("parameters") instanceof Map) {
+            for (Map.Entry<?, ?> p : ((Map<?, ?>) object.get("parameters")).entrySet()) {
+                if (!(p.getValue() instanceof Double)) {
+                    throw new IllegalArgumentException("Parameter " + p.getKey() + " must be a number.");
+                }
+                job.parameter(String.valueOf(p.getKey()), (Double) p.getValue());
+            }
+        }
+        return job;
+    }
+
+    private static double value(Map<String, Object> object, String key, String alias) {
+        Object value = object.containsKey(key) ? object.get(key) : object.get(alias);
+        return value instanceof Double ? (Double) value : Double.NaN;
+    }
+
+    static RootSolverBatch.Job job(String method, String function, double a, double b, double tolerance) {
+        if (function == null || function.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing function.");
+        }
+        if (!(tolerance > 0)) {
+            throw new IllegalArgumentException("Tolerance must be greater than 0.");
+        }
+        if (Double.isNaN(a)) {
+            throw new IllegalArgumentException("Missing initial guess or bracket.");
+        }
+        String name = method.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+        RootSolverBatch.Method m;
+        try {
+            m = RootSolverBatch.Method.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown method: " + method);
+        }
+        boolean needsB = m != RootSolverBatch.Method.NEWTON && m != RootSolverBatch.Method.FIXED_POINT;
+        if (needsB && Double.isNaN(b)) {
+            throw new IllegalArgumentException("Method " + method + " needs a second value (b or x1).");
+        }
+        switch (m) {
+            case BISECTION: return RootSolverBatch.Job.bisection(function, a, b, tolerance);
+            case BRENT: return RootSolverBatch.Job.brent(function, a, b, tolerance);
+            case ILLINOIS: return RootSolverBatch.Job.illinois(function, a, b, tolerance);
+            case ITP: return RootSolverBatch.Job.itp(function, a, b, tolerance);
+            case SECANT: return RootSolverBatch.Job.secant(function, a, b, tolerance);
+            case NEWTON: return RootSolverBatch.Job.newton(function, a, tolerance);
+            default: return RootSolverBatch.Job.fixedPoint(function, a, tolerance);
+        }
+    }
+
+    private static double number(String field) {
+        try {
+            return Double.parseDouble(field.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + field.trim());
+        }
+    }
+
+    // Splits one CSV record; fields may be quoted with "" as the escaped quote
+    static List<String> splitCsv(String text) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field.");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static void quote(String s, StringBuilder sb) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') {
+                sb.append('"');
+            }
+            sb.append(c == '\n' || c == '\r' ? ' ' : c);
+        }
+        sb.append('"');
+    }
+}
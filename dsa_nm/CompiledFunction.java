@@ -0,0 +1,173 @@
+import net.objecthunter.exp4j.Expression;
+import net.objecthunter.exp4j.function.Function;
+import net.objecthunter.exp4j.operator.Operator;
+import java.util.Map;
+import java.util.function.DoubleUnaryOperator;
+
+// f(x) as a plain DoubleUnaryOperator. Subclasses are generated at runtime by
+// ExpressionCompiler; Interpreted wraps exp4j when an expression cannot be compiled.
+// Instances hold mutable parameter values, so use copy() for each thread.
+public abstract class CompiledFunction implements DoubleUnaryOperator {
+    // Set -Dnm.interpret=true to force the exp4j interpreter everywhere
+    public static final boolean ENABLED = !Boolean.getBoolean("nm.interpret");
+
+    protected final String[] parameterNames;
+    protected final double[] parameters;
+    protected final Function[] functions;
+    protected final Operator[] operators;
+
+    protected CompiledFunction(String[] parameterNames, double[] parameters, Function[] functions, Operator[] operators) {
+        this.parameterNames = parameterNames;
+        this.parameters = parameters;
+        this.functions = functions;
+        this.operators = operators;
+    }
+
+    @Override
+    public abstract double applyAsDouble(double x);
+
+    // Compile an exp4j expression in x; other variables become parameters
+    public static CompiledFunction of(Expression expression) {
+        if (ENABLED) {
+            try {
+                ExpressionNode node = ExpressionNode.of(expression);
+                if (node != null) {
+                    return compile(node, expression);
+                }
+            } catch (RuntimeException | LinkageError e) {
+                // fall through to the interpreter
+            }
+        }
+        return new Interpreted(expression);
+    }
+
+    // Compile a tree derived from expression, taking parameter values from it
+    static CompiledFunction compile(ExpressionNode node, Expression expression) {
+        // Polynomials in x alone skip code generation and use Horner's scheme,
+        // unless expanding them would lose accuracy (see forEvaluation). They
+        // still round differently from exp4j in the last bits, and cancel
+        // terms like x*0 and x-x even at an infinite x.
+        Polynomial polynomial = Polynomial.forEvaluation(node, "x");
+        if (polynomial != null) {
+            return polynomial;
+        }
+        CompiledFunction compiled = ExpressionCompiler.compile(node, "x");
+        Map<String, Double> values = ExpressionNode.variableValues(expression);
+        for (String name : compiled.parameterNames) {
+            Double v = values.get(name);
+            if (v != null) {
+                compiled.setParameter(name, v);
+            }
+        }
+        return compiled;
+    }
+
+    // out[i] = f(xs[i]) for every i; out may be xs itself. Generated classes
+    // override this with a loop of their own (see ExpressionCompiler), which
+    // the JIT vectorizes where the expression allows; this is the scalar
+    // fallback for Interpreted.
+    public void evaluateBatch(double[] xs, double[] out) {
+        checkBatch(xs, out);
+        for (int i = 0; i < xs.length; i++) {
+            out[i] = applyAsDouble(xs[i]);
+        }
+    }
+
+    protected static void checkBatch(double[] xs, double[] out) {
+        if (out.length < xs.length) {
+            throw new IndexOutOfBoundsException("Batch of " + xs.length + " points does not fit the output array");
+        }
+    }
+
+    public boolean isCompiled() {
+        return !(this instanceof Interpreted);
+    }
+
+    public String[] getParameterNames() {
+        return parameterNames.clone();
+    }
+
+    // Like Expression.setVariable, names the function does not use are ignored
+    public CompiledFunction setParameter(String name, double value) {
+        for (int i = 0; i < parameterNames.length; i++) {
+            if (parameterNames[i].equals(name)) {
+                parameters[i] = value;
+                break;
+            }
+        }
+        return this;
+    }
+
+    // Independent instance with its own parameter values
+    public CompiledFunction copy() {
+        try {
+            return getClass()
+                    .getConstructor(String[].class, double[].class, Function[].class, Operator[].class)
+                    .newInstance(parameterNames, parameters.clone(), functions, operators);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot copy compiled function", e);
+        }
+    }
+
+    // Helpers called from generated code; they keep exp4j's semantics
+    protected static double div(double a, double b) {
+        if (b == 0d) {
+            throw new ArithmeticException("Division by zero!");
+        }
+        return a / b;
+    }
+
+    protected static double mod(double a, double b) {
+        if (b == 0d) {
+            throw new ArithmeticException("Division by zero!");
+        }
+        return a % b;
+    }
+
+    protected static double cot(double a) {
+        double tan = Math.tan(a);
+        if (tan == 0d) {
+            throw new ArithmeticException("Division by zero in cotangent!");
+        }
+        return 1d / tan;
+    }
+
+    protected static double log2(double a) {
+        return Math.log(a) / Math.log(2d);
+    }
+
+    protected static double signum(double a) {
+        if (a > 0) {
+            return 1;
+        } else if (a < 0) {
+            return -1;
+        }
+        return 0;
+    }
+
+    // Fallback: evaluate through exp4j's interpreter
+    static final class Interpreted extends CompiledFunction {
+        private final Expression expression;
+
+        Interpreted(Expression expression) {
+            super(new String[0], new double[0], new Function[0], new Operator[0]);
+            this.expression = expression;
+        }
+
+        @Override
+        public double applyAsDouble(double x) {
+            return expression.setVariable("x", x).evaluate();
+        }
+
+        @Override
+        public CompiledFunction setParameter(String name, double value) {
+            expression.setVariable(name, value);
+            return this;
+        }
+
+        @Override
+        public CompiledFunction copy() {
+            return new Interpreted(new Expression(expression));
+        }
+    }
+}
@@ -0,0 +1,209 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// LU factorization with partial pivoting, PA = LU, of a dense n x n matrix
+// stored as rows (double[][]). Right-looking and blocked: each panel of BLOCK
+// columns is factored, then the trailing submatrix gets one rank-BLOCK update
+// whose rows are independent and, for large matrices, split across a pool.
+// Row exchanges swap row references, so pivoting costs O(1) per swap.
+// solve() and solveTransposed() then cost O(n^2) each.
+public final class DenseLU {
+    private static final int BLOCK = 64;
+    // Trailing updates smaller than this (rows * columns) stay on one thread
+    private static final long MIN_PARALLEL_WORK = 1 << 16;
+
+    private final double[][] lu;     // L below the diagonal (unit diagonal implied), U on and above
+    private final int[] perm;        // row i of PA is row perm[i] of A
+    private final int n;
+
+    private DenseLU(double[][] lu, int[] perm) {
+        this.lu = lu;
+        this.perm = perm;
+        this.n = lu.length;
+    }
+
+    // Factors a in place (its rows are overwritten, their order in a is kept).
+    // pool may be null. Throws ArithmeticException if a is singular.
+    public static DenseLU factor(double[][] a, ForkJoinPool pool) {
+        int n = a.length;
+        double[][] rows = a.clone();
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (rows[i].length != n) {
+                throw new IllegalArgumentException("Matrix must be square: row " + i + " has " + rows[i].length + " entries, expected " + n);
+            }
+            perm[i] = i;
+        }
+
+        for (int k0 = 0; k0 < n; k0 += BLOCK) {
+            int k1 = Math.min(k0 + BLOCK, n);
+            factorPanel(rows, perm, k0, k1);
+            if (k1 == n) {
+                break;
+            }
+            // U12 = L11^-1 A12 (L11 is unit lower triangular)
+            for (int k = k0 + 1; k < k1; k++) {
+                double[] rowK = rows[k];
+                for (int p = k0; p < k; p++) {
+                    double l = rowK[p];
+                    if (l != 0) {
+                        double[] rowP = rows[p];
+                        for (int j = k1; j < n; j++) {
+                            rowK[j] -= l * rowP[j];
+                        }
+                    }
+                }
+            }
+            // A22 -= L21 U12
+            TrailingUpdate update = new TrailingUpdate(rows, k0, k1, k1, n);
+            if (pool != null && pool.getParallelism() > 1 && (long) (n - k1) * (n - k1) >= MIN_PARALLEL_WORK) {
+                pool.invoke(update);
+            } else {
+                update.updateRows(k1, n);
+            }
+        }
+        return new DenseLU(rows, perm);
+    }
+
+    // Unblocked LU of columns [k0, k1) over rows [k0, n), pivoting on the largest entry
+    private static void factorPanel(double[][] rows, int[] perm, int k0, int k1) {
+        int n = rows.length;
+        for (int k = k0; k < k1; k++) {
+            int pivot = k;
+            double max = Math.abs(rows[k][k]);
+            for (int i = k + 1; i < n; i++) {
+                double v = Math.abs(rows[i][k]);
+                if (v > max) {
+                    max = v;
+                    pivot = i;
+                }
+            }
+            if (max == 0 || Double.isNaN(max) || Double.isInfinite(max)) {
+                throw new ArithmeticException("Matrix is singular (no usable pivot in column " + (k + 1) + ").");
+            }
+            if (pivot != k) {
+                double[] t = rows[k]; rows[k] = rows[pivot]; rows[pivot] = t;
+                int p = perm[k]; perm[k] = perm[pivot]; perm[pivot] = p;
+            }
+            double[] rowK = rows[k];
+            double inverse = 1 / rowK[k];
+            for (int i = k + 1; i < n; i++) {
+                double[] rowI = rows[i];
+                double l = rowI[k] * inverse;
+                rowI[k] = l;
+                if (l != 0) {
+                    for (int j = k + 1; j < k1; j++) {
+                        rowI[j] -= l * rowK[j];
+                    }
+                }
+            }
+        }
+    }
+
+    // Rows [from, to) of the trailing update; rows are independent of each other
+    private static final class TrailingUpdate extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private static final int MIN_ROWS = 16;
+
+        private final double[][] rows;
+        private final int k0, k1, from, to;
+
+        TrailingUpdate(double[][] rows, int k0, int k1, int from, int to) {
+            this.rows = rows;
+            this.k0 = k0;
+            this.k1 = k1;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            int n = rows.length;
+            if (to - from <= MIN_ROWS || (long) (to - from) * (n - k1) < MIN_PARALLEL_WORK / 4) {
+                updateRows(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new TrailingUpdate(rows, k0, k1, from, mid), new TrailingUpdate(rows, k0, k1, mid, to));
+        }
+
+        void updateRows(int from, int to) {
+            int n = rows.length;
+            for (int i = from; i < to; i++) {
+                double[] rowI = rows[i];
+                for (int p = k0; p < k1; p++) {
+                    double l = rowI[p];
+                    if (l != 0) {
+                        double[] rowP = rows[p];
+                        for (int j = k1; j < n; j++) {
+                            rowI[j] -= l * rowP[j];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return n;
+    }
+
+    // x = A^-1 b; x may be b itself
+    public void solve(double[] b, double[] x) {
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            y[i] = b[perm[i]];
+        }
+        // L y = Pb
+        for (int i = 1; i < n; i++) {
+            double[] row = lu[i];
+            double sum = y[i];
+            for (int j = 0; j < i; j++) {
+                sum -= row[j] * y[j];
+            }
+            y[i] = sum;
+        }
+        // U x = y
+        for (int i = n - 1; i >= 0; i--) {
+            double[] row = lu[i];
+            double sum = y[i];
+            for (int j = i + 1; j < n; j++) {
+                sum -= row[j] * y[j];
+            }
+            y[i] = sum / row[i];
+        }
+        System.arraycopy(y, 0, x, 0, n);
+    }
+
+    // x = A^-T b; x may be b itself. A^T = U^T L^T P, solved row by row so the
+    // factor is still read along its rows.
+    public void solveTransposed(double[] b, double[] x) {
+        double[] w = b.clone();
+        // U^T w = b: forward, scattering each solved entry into the rest
+        for (int i = 0; i < n; i++) {
+            double[] row = lu[i];
+            double wi = w[i] / row[i];
+            w[i] = wi;
+            if (wi != 0) {
+                for (int j = i + 1; j < n; j++) {
+                    w[j] -= row[j] * wi;
+                }
+            }
+        }
+        // L^T v = w: backward
+        for (int i = n - 1; i > 0; i--) {
+            double[] row = lu[i];
+            double vi = w[i];
+            if (vi != 0) {
+                for (int j = 0; j < i; j++) {
+                    w[j] -= row[j] * vi;
+                }
+            }
+        }
+        // P x = v
+        for (int i = 0; i < n; i++) {
+            x[perm[i]] = w[i];
+        }
+    }
+}
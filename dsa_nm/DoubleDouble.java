@@ -0,0 +1,153 @@
+import java.math.BigDecimal;
+
+// An unevaluated sum hi + lo of two doubles with |lo| <= ulp(hi)/2, giving
+// about 32 significant digits (unit roundoff 2^-106) at the cost of roughly
+// ten double operations per multiply. The error-free transformations below use
+// Dekker's splitting instead of Math.fma so they also run on Java 8.
+// Non-finite values are carried in hi with lo = 0.
+public final class DoubleDouble {
+    public static final DoubleDouble ZERO = new DoubleDouble(0, 0);
+    public static final DoubleDouble ONE = new DoubleDouble(1, 0);
+
+    private static final double SPLITTER = 134217729.0;   // 2^27 + 1
+
+    public final double hi;
+    public final double lo;
+
+    private DoubleDouble(double hi, double lo) {
+        this.hi = hi;
+        this.lo = lo;
+    }
+
+    public static DoubleDouble of(double v) {
+        return new DoubleDouble(v, 0);
+    }
+
+    // Nearest double-double to v
+    public static DoubleDouble of(BigDecimal v) {
+        double hi = v.doubleValue();
+        if (Double.isInfinite(hi)) {
+            return new DoubleDouble(hi, 0);
+        }
+        return normalize(hi, v.subtract(new BigDecimal(hi)).doubleValue());
+    }
+
+    public double doubleValue() {
+        return hi + lo;
+    }
+
+    public BigDecimal toBigDecimal() {
+        if (!isFinite()) {
+            throw new ArithmeticException("Function evaluated to NaN or Infinity.");
+        }
+        return new BigDecimal(hi).add(new BigDecimal(lo));
+    }
+
+    public boolean isFinite() {
+        return !Double.isNaN(hi) && !Double.isInfinite(hi);
+    }
+
+    public int signum() {
+        return hi > 0 ? 1 : hi < 0 ? -1 : (int) Math.signum(lo);
+    }
+
+    public DoubleDouble negate() {
+        return new DoubleDouble(-hi, -lo);
+    }
+
+    public DoubleDouble add(DoubleDouble b) {
+        double s = hi + b.hi;
+        if (Double.isNaN(s) || Double.isInfinite(s)) {
+            return new DoubleDouble(s, 0);
+        }
+        // s + e = hi + b.hi and t + f = lo + b.lo exactly
+        double bb = s - hi;
+        double e = (hi - (s - bb)) + (b.hi - bb);
+        double t = lo + b.lo;
+        bb = t - lo;
+        double f = (lo - (t - bb)) + (b.lo - bb);
+        e += t;
+        double u = s + e;
+        e = e - (u - s);
+        e += f;
+        return normalize(u, e);
+    }
+
+    public DoubleDouble subtract(DoubleDouble b) {
+        return add(b.negate());
+    }
+
+    public DoubleDouble multiply(DoubleDouble b) {
+        double p = hi * b.hi;
+        if (Double.isNaN(p) || Double.isInfinite(p)) {
+            return new DoubleDouble(p, 0);
+        }
+        double e = productError(hi, b.hi, p) + (hi * b.lo + lo * b.hi);
+        return normalize(p, e);
+    }
+
+    public DoubleDouble multiply(double b) {
+        double p = hi * b;
+        if (Double.isNaN(p) || Double.isInfinite(p)) {
+            return new DoubleDouble(p, 0);
+        }
+        return normalize(p, productError(hi, b, p) + lo * b);
+    }
+
+    // Long division: three double quotients, each correcting the last
+    public DoubleDouble divide(DoubleDouble b) {
+        double q1 = hi / b.hi;
+        if (Double.isNaN(q1) || Double.isInfinite(q1)) {
+            return new DoubleDouble(q1, 0);
+        }
+        DoubleDouble r = subtract(b.multiply(q1));
+        double q2 = r.hi / b.hi;
+        r = r.subtract(b.multiply(q2));
+        double q3 = r.hi / b.hi;
+        return normalize(q1, q2).add(of(q3));
+    }
+
+    // this * 2^n, exact unless it overflows or becomes subnormal
+    public DoubleDouble scalb(int n) {
+        return new DoubleDouble(Math.scalb(hi, n), Math.scalb(lo, n));
+    }
+
+    public DoubleDouble floor() {
+        double h = Math.floor(hi);
+        if (h != hi) {
+            return new DoubleDouble(h, 0);
+        }
+        return normalize(h, Math.floor(lo));
+    }
+
+    // Numeric order; NaN compares equal to everything, so iterations that
+    // test "term <= epsilon * sum" stop on it instead of looping
+    public int compareTo(DoubleDouble b) {
+        if (hi != b.hi) {
+            return hi < b.hi ? -1 : hi > b.hi ? 1 : 0;
+        }
+        return lo < b.lo ? -1 : lo > b.lo ? 1 : 0;
+    }
+
+    @Override
+    public String toString() {
+        return isFinite() ? toBigDecimal().toString() : Double.toString(hi);
+    }
+
+    // a + b as hi + lo, for |a| >= |b| (or a = 0)
+    private static DoubleDouble normalize(double a, double b) {
+        double s = a + b;
+        return new DoubleDouble(s, b - (s - a));
+    }
+
+    // The rounding error of p = a * b, exactly
+    private static double productError(double a, double b, double p) {
+        double t = SPLITTER * a;
+        double aHi = t - (t - a);
+        double aLo = a - aHi;
+        t = SPLITTER * b;
+        double bHi = t - (t - b);
+        double bLo = b - bHi;
+        return ((aHi * bHi - p) + aHi * bLo + aLo * bHi) + aLo * bLo;
+    }
+}
@@ -0,0 +1,184 @@
+import net.objecthunter.exp4j.Expression;
+import net.objecthunter.exp4j.ExpressionBuilder;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+// Bounded LRU cache of parsed and compiled functions, keyed by the normalized
+// function text and its variable names, so the same input string is parsed,
+// rewritten and compiled only once. The entries are split over independently
+// locked segments (each an access-ordered LinkedHashMap), so threads looking
+// up different functions rarely wait for each other. A miss compiles outside
+// any lock; two threads missing on the same key at once both compile and the
+// first one stored wins. Cached objects hold mutable variable values, so
+// callers always get copies.
+public final class ExpressionCache {
+    // Precompiled once instead of on every String.replaceAll call
+    static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    static final Pattern E_POWER = Pattern.compile("e\\^([\\w\\-\\+\\(\\)]+)");
+
+    // Shared by the solvers and the GUI; -Dnm.cache.size sets its capacity
+    public static final ExpressionCache SHARED = new ExpressionCache(Integer.getInteger("nm.cache.size", 1024));
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ExpressionCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be greater than 0.");
+        }
+        int count = Math.min(SEGMENTS, capacity);
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            // Spread the capacity so the segments add up to exactly capacity
+            segments[i] = new Segment(capacity / count + (i < capacity % count ? 1 : 0));
+        }
+    }
+
+    // Lowercase, no whitespace, and e^(...) rewritten to exp(...), the way the
+    // solvers have always preprocessed user input
+    public static String normalize(String funcStr) {
+        String s = WHITESPACE.matcher(funcStr.trim().toLowerCase()).replaceAll("");
+        return E_POWER.matcher(s).replaceAll("exp($1)");
+    }
+
+    // A compiled, parsed function together with its lazily compiled derivative
+    public static final class CachedExpression {
+        private final Expression expression;
+        private final CompiledFunction function;
+        private volatile CompiledFunction derivative;
+        private volatile boolean derived;
+
+        CachedExpression(Expression expression) {
+            this.expression = expression;
+            this.function = CompiledFunction.of(expression);
+        }
+
+        // A private copy of the exp4j expression
+        public Expression expression() {
+            return new Expression(expression);
+        }
+
+        public CompiledFunction function() {
+            return function.copy();
+        }
+
+        // f'(x), or null when it has to be approximated numerically
+        public CompiledFunction derivative() {
+            if (!derived) {
+                synchronized (this) {
+                    if (!derived) {
+                        derivative = SymbolicDerivative.compile(new Expression(expression));
+                        derived = true;
+                    }
+                }
+            }
+            return derivative != null ? derivative.copy() : null;
+        }
+    }
+
+    // Cached expression for a function of x (and any other listed variables);
+    // parse errors propagate as IllegalArgumentException and are not cached
+    public CachedExpression get(String funcStr, String... variables) {
+        if (variables.length == 0) {
+            variables = new String[]{"x"};
+        }
+        String normalized = normalize(funcStr);
+        String key = normalized + "|" + String.join(",", variables);
+        Segment segment = segments[(key.hashCode() & 0x7fffffff) % segments.length];
+
+        CachedExpression entry = segment.lookup(key);
+        if (entry != null) {
+            hits.increment();
+            return entry;
+        }
+        misses.increment();
+        Expression expression = new ExpressionBuilder(normalized).variables(variables).build();
+        return segment.store(key, new CachedExpression(expression));
+    }
+
+    public CompiledFunction function(String funcStr, String... variables) {
+        return get(funcStr, variables).function();
+    }
+
+    public CompiledFunction derivative(String funcStr, String... variables) {
+        return get(funcStr, variables).derivative();
+    }
+
+    public Expression expression(String funcStr, String... variables) {
+        return get(funcStr, variables).expression();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        long h = hits(), m = misses();
+        double hitRate = h + m == 0 ? 0 : 100.0 * h / (h + m);
+        return String.format("ExpressionCache[size=%d, hits=%d, misses=%d, evictions=%d, hit rate=%.1f%%]",
+                             size(), h, m, evictions(), hitRate);
+    }
+
+    private final class Segment {
+        private final LinkedHashMap<String, CachedExpression> map;
+
+        Segment(int capacity) {
+            this.map = new LinkedHashMap<String, CachedExpression>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedExpression> eldest) {
+                    if (size() > capacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized CachedExpression lookup(String key) {
+            return map.get(key);
+        }
+
+        synchronized CachedExpression store(String key, CachedExpression entry) {
+            CachedExpression existing = map.putIfAbsent(key, entry);
+            return existing != null ? existing : entry;
+        }
+
+        synchronized int size() {
+            return map.size();
+        }
+
+        synchronized void clear() {
+            map.clear();
+        }
+    }
+}
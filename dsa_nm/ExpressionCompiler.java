@@ -0,0 +1,532 @@
+import net.objecthunter.exp4j.function.Function;
+import net.objecthunter.exp4j.operator.Operator;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Turns an ExpressionNode tree into a generated CompiledFunction subclass whose
+// applyAsDouble is straight-line bytecode (dload/dmul/invokestatic Math.sin ...),
+// so the JIT can inline the whole expression into the solver loop. Each class
+// also gets its own evaluateBatch loop, so batches never go through a shared
+// (megamorphic) call site. The tree is first rewritten by ExpressionOptimizer,
+// and a subexpression that occurs more than once (sin(x) in sin(x)^2 +
+// sin(x)*cos(x)) is evaluated once and kept in a local variable.
+public final class ExpressionCompiler {
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private static final String BASE = "CompiledFunction";
+    private static final String FUNCTION = "net/objecthunter/exp4j/function/Function";
+    private static final String OPERATOR = "net/objecthunter/exp4j/operator/Operator";
+    private static final String CTOR_DESC = "([Ljava/lang/String;[D[L" + FUNCTION + ";[L" + OPERATOR + ";)V";
+
+    // Built-ins that map directly onto java.lang.Math
+    private static final Set<String> MATH_UNARY = new LinkedHashSet<>(Arrays.asList(
+        "sin", "cos", "tan", "asin", "acos", "atan", "sinh", "cosh", "tanh",
+        "exp", "expm1", "log", "log10", "log1p", "sqrt", "cbrt", "abs", "ceil", "floor"));
+
+    // Built-ins that need exp4j's exact behaviour (see CompiledFunction helpers)
+    private static final Set<String> HELPER_UNARY = new LinkedHashSet<>(Arrays.asList("cot", "log2", "signum"));
+
+    private ExpressionCompiler() {
+    }
+
+    // Compile root as a function of variable; every other variable becomes a parameter (initially NaN)
+    public static CompiledFunction compile(ExpressionNode root, String variable) {
+        // Parameters come from the tree as written, so setParameter accepts a
+        // name even if optimizing removed it (u*0)
+        List<String> params = new ArrayList<>(root.variables());
+        params.remove(variable);
+        String[] paramNames = params.toArray(new String[0]);
+        root = ExpressionOptimizer.optimize(root);
+
+        String className = "GeneratedFunction" + COUNTER.incrementAndGet();
+        Emitter emitter = new Emitter(variable, paramNames);
+        byte[] bytes = emitter.classFile(className, root);
+
+        double[] values = new double[paramNames.length];
+        Arrays.fill(values, Double.NaN);
+        try {
+            Class<?> cls = new Loader(CompiledFunction.class.getClassLoader()).define(className, bytes);
+            return (CompiledFunction) cls
+                    .getConstructor(String[].class, double[].class, Function[].class, Operator[].class)
+                    .newInstance(paramNames, values,
+                                 emitter.functions.toArray(new Function[0]),
+                                 emitter.operators.toArray(new Operator[0]));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot load compiled expression", e);
+        }
+    }
+
+    private static final class Loader extends ClassLoader {
+        Loader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    // Minimal class file writer. Version 49 so straight-line code needs no stack map frames.
+    private static final class Emitter {
+        private final String variable;
+        private final String[] paramNames;
+        final List<Function> functions = new ArrayList<>();
+        final List<Operator> operators = new ArrayList<>();
+
+        private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        private final DataOutputStream cp = new DataOutputStream(pool);
+        private final Map<String, Integer> entries = new HashMap<>();
+        private int poolCount = 1;
+
+        private ByteArrayOutputStream code;
+        private int stack, maxStack;
+
+        // Common subexpressions: structurally equal nodes share an id, and ids
+        // emitted more than once get a local slot (after this and x)
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final Map<ExpressionNode, Integer> nodeIds = new IdentityHashMap<>();
+        private final List<Integer> uses = new ArrayList<>();
+        private final Map<Integer, Integer> slots = new HashMap<>();
+        private final Set<Integer> stored = new HashSet<>();
+        private int maxLocals = 3;
+
+        Emitter(String variable, String[] paramNames) {
+            this.variable = variable;
+            this.paramNames = paramNames;
+        }
+
+        byte[] classFile(String className, ExpressionNode root) {
+            try {
+                int thisClass = classRef(className);
+                int superClass = classRef(BASE);
+
+                // <init>: super(names, params, functions, operators)
+                code = new ByteArrayOutputStream();
+                stack = maxStack = 0;
+                op(0x2a); op(0x2b); op(0x2c); op(0x2d); op(0x19); code.write(4);
+                op(0xb7); u2(methodRef(BASE, "<init>", CTOR_DESC));
+                op(0xb1);
+                byte[] ctor = code.toByteArray();
+
+                // applyAsDouble(x)
+                code = new ByteArrayOutputStream();
+                stack = maxStack = 0;
+                countUses(root);
+                for (int id = 0; id < uses.size(); id++) {
+                    if (uses.get(id) > 1) {
+                        slots.put(id, maxLocals);
+                        maxLocals += 2;
+                    }
+                }
+                if (maxLocals > 65535) {
+                    throw new IllegalStateException("Expression too large to compile");
+                }
+                emit(root);
+                op(0xaf); // dreturn
+                byte[] body = code.toByteArray();
+                if (body.length > 65535) {
+                    throw new IllegalStateException("Expression too large to compile");
+                }
+
+                // evaluateBatch(xs, out): a counted loop over this.applyAsDouble. The
+                // call is to a final class, so C2 inlines it and can unroll and
+                // vectorize the loop for each expression separately.
+                code = new ByteArrayOutputStream();
+                op(0x2b); op(0x2c);          // aload_1, aload_2
+                op(0xb8); u2(methodRef(BASE, "checkBatch", "([D[D)V"));
+                op(0x2b); op(0xbe);          // aload_1, arraylength
+                op(0x36); code.write(4);     // istore 4 (n)
+                op(0x03); op(0x3e);          // iconst_0, istore_3 (i)
+                int loop = code.size();
+                op(0x1d); op(0x15); code.write(4); // iload_3, iload 4
+                op(0xa2); u2(19);            // if_icmpge end (+19 bytes, the return)
+                op(0x2c); op(0x1d);          // aload_2, iload_3
+                op(0x2a); op(0x2b); op(0x1d); op(0x31); // aload_0, aload_1, iload_3, daload
+                op(0xb6); u2(methodRef(className, "applyAsDouble", "(D)D")); // invokevirtual
+                op(0x52);                    // dastore
+                op(0x84); code.write(3); code.write(1); // iinc 3, 1
+                op(0xa7); u2(loop - code.size() + 1); // goto loop
+                op(0xb1);                    // return
+                byte[] batch = code.toByteArray();
+
+                int codeName = utf8("Code");
+                int initName = utf8("<init>");
+                int initDesc = utf8(CTOR_DESC);
+                int applyName = utf8("applyAsDouble");
+                int applyDesc = utf8("(D)D");
+                int batchName = utf8("evaluateBatch");
+                int batchDesc = utf8("([D[D)V");
+
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(0xCAFEBABE);
+                out.writeShort(0);
+                out.writeShort(49);
+                out.writeShort(poolCount);
+                pool.writeTo(out);
+                out.writeShort(0x0031);      // public final super
+                out.writeShort(thisClass);
+                out.writeShort(superClass);
+                out.writeShort(0);           // interfaces
+                out.writeShort(0);           // fields
+                out.writeShort(3);           // methods
+                writeMethod(out, initName, initDesc, codeName, 5, 5, ctor);
+                writeMethod(out, applyName, applyDesc, codeName, maxStack, maxLocals, body);
+                writeMethod(out, batchName, batchDesc, codeName, 6, 5, batch);
+                out.writeShort(0);           // attributes
+                return bytes.toByteArray();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void writeMethod(DataOutputStream out, int name, int desc, int codeName,
+                                 int maxStack, int maxLocals, byte[] body) throws IOException {
+            out.writeShort(0x0001);          // public
+            out.writeShort(name);
+            out.writeShort(desc);
+            out.writeShort(1);
+            out.writeShort(codeName);
+            out.writeInt(12 + body.length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(body.length);
+            out.write(body);
+            out.writeShort(0);               // exception table
+            out.writeShort(0);               // code attributes
+        }
+
+        // Id of n's structure; user functions and operators are never shared,
+        // as exp4j does not promise they are pure
+        private int id(ExpressionNode n) {
+            Integer id = nodeIds.get(n);
+            if (id != null) {
+                return id;
+            }
+            StringBuilder key = new StringBuilder().append(n.kind.ordinal()).append(':');
+            switch (n.kind) {
+                case CONSTANT:
+                    key.append(Double.doubleToRawLongBits(n.value));
+                    break;
+                case USER_FUNCTION:
+                case USER_OPERATOR:
+                    key.append('#').append(nodeIds.size());
+                    break;
+                default:
+                    if (n.name != null) {
+                        key.append(n.name);
+                    }
+            }
+            for (ExpressionNode arg : n.args) {
+                key.append(',').append(id(arg));
+            }
+            id = ids.get(key.toString());
+            if (id == null) {
+                id = uses.size();
+                ids.put(key.toString(), id);
+                uses.add(0);
+            }
+            nodeIds.put(n, id);
+            return id;
+        }
+
+        // How often each subexpression will be emitted: a repeat is loaded from
+        // its slot, so the subtrees inside it are not counted again
+        private void countUses(ExpressionNode n) {
+            int id = id(n);
+            int count = uses.get(id);
+            if (n.args.length > 0 && n.kind != ExpressionNode.Kind.USER_FUNCTION
+                    && n.kind != ExpressionNode.Kind.USER_OPERATOR) {
+                uses.set(id, count + 1);
+                if (count > 0) {
+                    return;
+                }
+            }
+            for (ExpressionNode arg : n.args) {
+                countUses(arg);
+            }
+        }
+
+        // applyAsDouble is straight-line code, so the first occurrence of a shared
+        // subexpression always runs (and stores it) before any later one loads it
+        private void emit(ExpressionNode n) {
+            Integer slot = n.args.length > 0 ? slots.get(nodeIds.get(n)) : null;
+            if (slot == null) {
+                emitNode(n);
+            } else if (stored.contains(slot)) {
+                local(0x18, slot);           // dload
+                push(2);
+            } else {
+                emitNode(n);
+                op(0x5c);                    // dup2
+                push(2);
+                local(0x39, slot);           // dstore
+                pop(2);
+                stored.add(slot);
+            }
+        }
+
+        private void local(int opcode, int slot) {
+            if (slot > 255) {
+                op(0xc4);                    // wide
+                op(opcode);
+                u2(slot);
+            } else {
+                op(opcode);
+                code.write(slot);
+            }
+        }
+
+        private void emitNode(ExpressionNode n) {
+            switch (n.kind) {
+                case CONSTANT:
+                    if (Double.doubleToRawLongBits(n.value) == 0L) {
+                        op(0x0e);            // dconst_0
+                    } else if (n.value == 1d) {
+                        op(0x0f);            // dconst_1
+                    } else {
+                        op(0x14); u2(doubleConst(n.value)); // ldc2_w
+                    }
+                    push(2);
+                    break;
+                case VARIABLE:
+                    if (n.name.equals(variable)) {
+                        op(0x27);            // dload_1
+                        push(2);
+                    } else {
+                        op(0x2a);            // aload_0
+                        push(1);
+                        op(0xb4); u2(fieldRef(BASE, "parameters", "[D"));
+                        pushInt(indexOf(paramNames, n.name));
+                        op(0x31);            // daload
+                        pop(2);
+                        push(2);
+                    }
+                    break;
+                case NEGATE:
+                    emit(n.args[0]);
+                    op(0x77);                // dneg
+                    break;
+                case ADD:
+                    binary(n, 0x63);
+                    break;
+                case SUBTRACT:
+                    binary(n, 0x67);
+                    break;
+                case MULTIPLY:
+                    binary(n, 0x6b);
+                    break;
+                case DIVIDE:
+                    emitArgs(n);
+                    invokeStatic(BASE, "div", 2);
+                    break;
+                case MODULO:
+                    emitArgs(n);
+                    invokeStatic(BASE, "mod", 2);
+                    break;
+                case POWER:
+                    emitArgs(n);
+                    invokeStatic("java/lang/Math", "pow", 2);
+                    break;
+                case FUNCTION:
+                    emitArgs(n);
+                    if (MATH_UNARY.contains(n.name) && n.args.length == 1) {
+                        invokeStatic("java/lang/Math", n.name, 1);
+                    } else if (HELPER_UNARY.contains(n.name) && n.args.length == 1) {
+                        invokeStatic(BASE, n.name, 1);
+                    } else if (n.name.equals("pow") && n.args.length == 2) {
+                        invokeStatic("java/lang/Math", "pow", 2);
+                    } else {
+                        throw new IllegalStateException("Unsupported function: " + n.name);
+                    }
+                    break;
+                case USER_FUNCTION:
+                    functions.add(n.function);
+                    callVarargs(n, "functions", FUNCTION, functions.size() - 1);
+                    break;
+                case USER_OPERATOR:
+                    operators.add(n.operator);
+                    callVarargs(n, "operators", OPERATOR, operators.size() - 1);
+                    break;
+                default:
+                    throw new IllegalStateException("Unsupported node: " + n.kind);
+            }
+        }
+
+        private void binary(ExpressionNode n, int opcode) {
+            emitArgs(n);
+            op(opcode);
+            pop(2);
+        }
+
+        private void emitArgs(ExpressionNode n) {
+            for (ExpressionNode arg : n.args) {
+                emit(arg);
+            }
+        }
+
+        private void invokeStatic(String owner, String name, int arity) {
+            String desc = arity == 1 ? "(D)D" : "(DD)D";
+            op(0xb8); u2(methodRef(owner, name, desc));
+            pop(2 * arity);
+            push(2);
+        }
+
+        // this.<field>[index].apply(new double[]{args...})
+        private void callVarargs(ExpressionNode n, String field, String type, int index) {
+            op(0x2a);                        // aload_0
+            push(1);
+            op(0xb4); u2(fieldRef(BASE, field, "[L" + type + ";"));
+            pushInt(index);
+            op(0x32);                        // aaload
+            pop(1);
+            pushInt(n.args.length);
+            op(0xbc); code.write(7);         // newarray double
+            for (int i = 0; i < n.args.length; i++) {
+                op(0x59);                    // dup
+                push(1);
+                pushInt(i);
+                emit(n.args[i]);
+                op(0x52);                    // dastore
+                pop(4);
+            }
+            op(0xb6); u2(methodRef(type, "apply", "([D)D")); // invokevirtual
+            pop(2);
+            push(2);
+        }
+
+        private void pushInt(int v) {
+            if (v >= -1 && v <= 5) {
+                op(0x03 + v);                // iconst_<v>
+            } else if (v <= Byte.MAX_VALUE) {
+                op(0x10); code.write(v);     // bipush
+            } else {
+                op(0x11); u2(v);             // sipush
+            }
+            push(1);
+        }
+
+        private void push(int slots) {
+            stack += slots;
+            maxStack = Math.max(maxStack, stack);
+            if (maxStack > 65535) {
+                throw new IllegalStateException("Expression too deep to compile");
+            }
+        }
+
+        private void pop(int slots) {
+            stack -= slots;
+        }
+
+        private void op(int opcode) {
+            code.write(opcode);
+        }
+
+        private void u2(int v) {
+            code.write(v >>> 8);
+            code.write(v);
+        }
+
+        private static int indexOf(String[] names, String name) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(name)) {
+                    return i;
+                }
+            }
+            throw new IllegalStateException("Unknown variable: " + name);
+        }
+
+        // Constant pool
+
+        private int utf8(String s) throws IOException {
+            Integer idx = entries.get("U" + s);
+            if (idx != null) return idx;
+            cp.writeByte(1);
+            cp.writeUTF(s);
+            return register("U" + s, 1);
+        }
+
+        private int classRef(String internalName) {
+            try {
+                Integer idx = entries.get("C" + internalName);
+                if (idx != null) return idx;
+                int name = utf8(internalName);
+                cp.writeByte(7);
+                cp.writeShort(name);
+                return register("C" + internalName, 1);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private int nameAndType(String name, String desc) throws IOException {
+            String key = "N" + name + ":" + desc;
+            Integer idx = entries.get(key);
+            if (idx != null) return idx;
+            int n = utf8(name);
+            int d = utf8(desc);
+            cp.writeByte(12);
+            cp.writeShort(n);
+            cp.writeShort(d);
+            return register(key, 1);
+        }
+
+        private int memberRef(int tag, String owner, String name, String desc) {
+            try {
+                String key = tag + owner + "." + name + ":" + desc;
+                Integer idx = entries.get(key);
+                if (idx != null) return idx;
+                int c = classRef(owner);
+                int nt = nameAndType(name, desc);
+                cp.writeByte(tag);
+                cp.writeShort(c);
+                cp.writeShort(nt);
+                return register(key, 1);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private int fieldRef(String owner, String name, String desc) {
+            return memberRef(9, owner, name, desc);
+        }
+
+        private int methodRef(String owner, String name, String desc) {
+            return memberRef(10, owner, name, desc);
+        }
+
+        private int doubleConst(double v) {
+            try {
+                String key = "D" + Double.doubleToRawLongBits(v);
+                Integer idx = entries.get(key);
+                if (idx != null) return idx;
+                cp.writeByte(6);
+                cp.writeDouble(v);
+                return register(key, 2);  // doubles take two pool slots
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private int register(String key, int slots) {
+            int idx = poolCount;
+            poolCount += slots;
+            if (poolCount > 65535) {
+                throw new IllegalStateException("Expression too large to compile");
+            }
+            entries.put(key, idx);
+            return idx;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+import net.objecthunter.exp4j.Expression;
+import net.objecthunter.exp4j.function.Function;
+import net.objecthunter.exp4j.function.Functions;
+import net.objecthunter.exp4j.operator.Operator;
+import net.objecthunter.exp4j.operator.Operators;
+import net.objecthunter.exp4j.shuntingyard.ShuntingYard;
+import net.objecthunter.exp4j.tokenizer.FunctionToken;
+import net.objecthunter.exp4j.tokenizer.NumberToken;
+import net.objecthunter.exp4j.tokenizer.OperatorToken;
+import net.objecthunter.exp4j.tokenizer.Token;
+import net.objecthunter.exp4j.tokenizer.VariableToken;
+import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// Expression tree rebuilt from exp4j's RPN token list.
+// exp4j only exposes a stack interpreter, so the compiler and the other
+// expression passes work on this tree instead.
+public class ExpressionNode {
+    public enum Kind {
+        CONSTANT, VARIABLE, NEGATE,
+        ADD, SUBTRACT, MULTIPLY, DIVIDE, POWER, MODULO,
+        FUNCTION, USER_FUNCTION, USER_OPERATOR
+    }
+
+    // Same values exp4j registers as default variables
+    static final Map<String, Double> DEFAULT_CONSTANTS = new HashMap<>();
+    static {
+        DEFAULT_CONSTANTS.put("pi", Math.PI);
+        DEFAULT_CONSTANTS.put("π", Math.PI);
+        DEFAULT_CONSTANTS.put("e", Math.E);
+        DEFAULT_CONSTANTS.put("φ", 1.61803398874d);
+    }
+
+    private static final ExpressionNode[] NO_ARGS = new ExpressionNode[0];
+
+    public final Kind kind;
+    public final double value;           // CONSTANT
+    public final String name;            // VARIABLE, FUNCTION, USER_FUNCTION, USER_OPERATOR
+    public final ExpressionNode[] args;
+    final Function function;             // USER_FUNCTION
+    final Operator operator;             // USER_OPERATOR
+
+    private ExpressionNode(Kind kind, double value, String name, ExpressionNode[] args, Function function, Operator operator) {
+        this.kind = kind;
+        this.value = value;
+        this.name = name;
+        this.args = args;
+        this.function = function;
+        this.operator = operator;
+    }
+
+    public static ExpressionNode constant(double value) {
+        return new ExpressionNode(Kind.CONSTANT, value, null, NO_ARGS, null, null);
+    }
+
+    public static ExpressionNode variable(String name) {
+        return new ExpressionNode(Kind.VARIABLE, 0, name, NO_ARGS, null, null);
+    }
+
+    public static ExpressionNode negate(ExpressionNode a) {
+        return new ExpressionNode(Kind.NEGATE, 0, null, new ExpressionNode[]{a}, null, null);
+    }
+
+    public static ExpressionNode binary(Kind kind, ExpressionNode a, ExpressionNode b) {
+        return new ExpressionNode(kind, 0, null, new ExpressionNode[]{a, b}, null, null);
+    }
+
+    // Built-in exp4j function by name (sin, cos, exp, log, sqrt, pow, ...)
+    public static ExpressionNode function(String name, ExpressionNode... args) {
+        return new ExpressionNode(Kind.FUNCTION, 0, name, args, null, null);
+    }
+
+    static ExpressionNode userFunction(Function function, ExpressionNode... args) {
+        return new ExpressionNode(Kind.USER_FUNCTION, 0, function.getName(), args, function, null);
+    }
+
+    static ExpressionNode userOperator(Operator operator, ExpressionNode... args) {
+        return new ExpressionNode(Kind.USER_OPERATOR, 0, operator.getSymbol(), args, null, operator);
+    }
+
+    public Function getFunction() {
+        return function;
+    }
+
+    public Operator getOperator() {
+        return operator;
+    }
+
+    public boolean isConstant() {
+        return kind == Kind.CONSTANT;
+    }
+
+    public boolean isConstant(double v) {
+        return kind == Kind.CONSTANT && value == v;
+    }
+
+    // Structural equality: same shape, constants (bit for bit), names and
+    // user functions or operators
+    public boolean sameAs(ExpressionNode other) {
+        if (this == other) {
+            return true;
+        }
+        if (kind != other.kind || args.length != other.args.length
+                || Double.doubleToLongBits(value) != Double.doubleToLongBits(other.value)
+                || !Objects.equals(name, other.name) || function != other.function || operator != other.operator) {
+            return false;
+        }
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].sameAs(other.args[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Parse a normalized function string (see GUI/solver pre-processing)
+    public static ExpressionNode parse(String funcStr, String... variables) {
+        Set<String> names = new HashSet<>(DEFAULT_CONSTANTS.keySet());
+        Collections.addAll(names, variables);
+        Token[] tokens = ShuntingYard.convertToRPN(funcStr, Collections.<String, Function>emptyMap(),
+                Collections.<String, Operator>emptyMap(), names, true);
+        return fromTokens(tokens);
+    }
+
+    // Rebuild the tree of an already built Expression; null if its tokens cannot be read
+    public static ExpressionNode of(Expression expression) {
+        Token[] tokens = (Token[]) readField(expression, "tokens");
+        return tokens == null ? null : fromTokens(tokens);
+    }
+
+    // Variable values currently set on an Expression (includes exp4j's defaults)
+    @SuppressWarnings("unchecked")
+    static Map<String, Double> variableValues(Expression expression) {
+        Map<String, Double> values = (Map<String, Double>) readField(expression, "variables");
+        return values == null ? Collections.<String, Double>emptyMap() : values;
+    }
+
+    private static Object readField(Expression expression, String name) {
+        try {
+            Field field = Expression.class.getDeclaredField(name);
+            field.setAccessible(true);
+            return field.get(expression);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    public static ExpressionNode fromTokens(Token[] tokens) {
+        ArrayDeque<ExpressionNode> stack = new ArrayDeque<>();
+        for (Token token : tokens) {
+            switch (token.getType()) {
+                case Token.TOKEN_NUMBER:
+                    stack.push(constant(((NumberToken) token).getValue()));
+                    break;
+                case Token.TOKEN_VARIABLE: {
+                    String name = ((VariableToken) token).getName();
+                    Double c = DEFAULT_CONSTANTS.get(name);
+                    stack.push(c != null ? constant(c) : variable(name));
+                    break;
+                }
+                case Token.TOKEN_OPERATOR: {
+                    Operator op = ((OperatorToken) token).getOperator();
+                    ExpressionNode[] args = popArgs(stack, op.getNumOperands());
+                    stack.push(operatorNode(op, args));
+                    break;
+                }
+                case Token.TOKEN_FUNCTION: {
+                    Function fn = ((FunctionToken) token).getFunction();
+                    ExpressionNode[] args = popArgs(stack, fn.getNumArguments());
+                    boolean builtin = Functions.getBuiltinFunction(fn.getName()) == fn;
+                    stack.push(builtin ? function(fn.getName(), args) : userFunction(fn, args));
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("Unexpected token in expression.");
+            }
+        }
+        if (stack.size() != 1) {
+            throw new IllegalArgumentException("Invalid expression: operands and operators do not match.");
+        }
+        return stack.pop();
+    }
+
+    private static ExpressionNode[] popArgs(ArrayDeque<ExpressionNode> stack, int n) {
+        if (stack.size() < n) {
+            throw new IllegalArgumentException("Invalid expression: missing operand.");
+        }
+        ExpressionNode[] args = new ExpressionNode[n];
+        for (int i = n - 1; i >= 0; i--) {
+            args[i] = stack.pop();
+        }
+        return args;
+    }
+
+    private static ExpressionNode operatorNode(Operator op, ExpressionNode[] args) {
+        String symbol = op.getSymbol();
+        boolean builtin = symbol.length() == 1
+                && Operators.getBuiltinOperator(symbol.charAt(0), args.length) == op;
+        if (!builtin) {
+            return userOperator(op, args);
+        }
+        if (args.length == 1) {
+            return symbol.equals("-") ? negate(args[0]) : args[0];
+        }
+        switch (symbol.charAt(0)) {
+            case '+': return binary(Kind.ADD, args[0], args[1]);
+            case '-': return binary(Kind.SUBTRACT, args[0], args[1]);
+            case '*': return binary(Kind.MULTIPLY, args[0], args[1]);
+            case '/': return binary(Kind.DIVIDE, args[0], args[1]);
+            case '^': return binary(Kind.POWER, args[0], args[1]);
+            case '%': return binary(Kind.MODULO, args[0], args[1]);
+            default: return userOperator(op, args);
+        }
+    }
+
+    // Variable names in first-use order
+    public Set<String> variables() {
+        Set<String> names = new LinkedHashSet<>();
+        collectVariables(names);
+        return names;
+    }
+
+    private void collectVariables(Set<String> names) {
+        if (kind == Kind.VARIABLE) {
+            names.add(name);
+        }
+        for (ExpressionNode arg : args) {
+            arg.collectVariables(names);
+        }
+    }
+
+    public int size() {
+        int n = 1;
+        for (ExpressionNode arg : args) {
+            n += arg.size();
+        }
+        return n;
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case CONSTANT:
+                if (Double.isNaN(value) || Double.isInfinite(value)) {
+                    return Double.toString(value);
+                }
+                // Plain notation so the text can be parsed back by exp4j
+                String text = java.math.BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+                return value < 0 ? "(" + text + ")" : text;
+            case VARIABLE: return name;
+            case NEGATE: return "-(" + args[0] + ")";
+            case ADD: return "(" + args[0] + " + " + args[1] + ")";
+            case SUBTRACT: return "(" + args[0] + " - " + args[1] + ")";
+            case MULTIPLY: return "(" + args[0] + " * " + args[1] + ")";
+            case DIVIDE: return "(" + args[0] + " / " + args[1] + ")";
+            case POWER: return "(" + args[0] + ")^(" + args[1] + ")";
+            case MODULO: return "(" + args[0] + " % " + args[1] + ")";
+            default: {
+                StringBuilder sb = new StringBuilder(name).append('(');
+                for (int i = 0; i < args.length; i++) {
+                    if (i > 0) sb.append(", ");
+                    sb.append(args[i]);
+                }
+                return sb.append(')').toString();
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+// Rewrites an ExpressionNode tree into a cheaper equivalent before it is
+// compiled (see ExpressionCompiler.compile, which every solver goes through):
+//   - constant folding, e.g. 2*3 -> 6 and sin(0) -> 0
+//   - dead constant terms, e.g. u+0, u*1, u^1
+//   - strength reduction: u^2 -> u*u, u^3 -> u*u*u, u^4 -> (u*u)*(u*u),
+//     u^0.5 -> sqrt(u), e^u -> exp(u), u/c -> u*(1/c) when 1/c is exact
+// The rewrites are SymbolicDerivative's simplifications in strict mode, which
+// never drop a non-constant operand: u*0, 0/u, u^0 and u-u are evaluated as
+// exp4j does, so a division by zero inside u still raises and an infinite or
+// negative u still gives NaN or -0.0. What remains can differ from exp4j in
+// the last bit (u*u against pow(u, 2), merged constants in c1*(c2*u)), in the
+// sign of a zero result (u+0 for u = -0.0), and for u^0.5 at -0.0 and
+// -Infinity, where sqrt differs from pow.
+// Repeated subexpressions are left in the tree; the compiler evaluates each
+// distinct one once and keeps it in a local slot.
+public final class ExpressionOptimizer {
+    private ExpressionOptimizer() {
+    }
+
+    public static ExpressionNode optimize(ExpressionNode n) {
+        if (n.args.length == 0) {
+            return n;
+        }
+        ExpressionNode[] args = new ExpressionNode[n.args.length];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = optimize(n.args[i]);
+        }
+        switch (n.kind) {
+            case NEGATE:   return SymbolicDerivative.neg(args[0]);
+            case ADD:      return SymbolicDerivative.add(args[0], args[1], true);
+            case SUBTRACT: return SymbolicDerivative.sub(args[0], args[1], true);
+            case MULTIPLY: return SymbolicDerivative.mul(args[0], args[1], true);
+            case DIVIDE:   return divide(args[0], args[1]);
+            case POWER:    return power(args[0], args[1]);
+            case MODULO:   return ExpressionNode.binary(ExpressionNode.Kind.MODULO, args[0], args[1]);
+            case FUNCTION:
+                if (n.name.equals("pow") && args.length == 2) {
+                    return power(args[0], args[1]);
+                }
+                return SymbolicDerivative.fn(n.name, args);
+            case USER_FUNCTION: return ExpressionNode.userFunction(n.getFunction(), args);
+            default:       return ExpressionNode.userOperator(n.getOperator(), args);
+        }
+    }
+
+    private static ExpressionNode divide(ExpressionNode a, ExpressionNode b) {
+        if (b.isConstant() && !a.isConstant() && exactReciprocal(b.value)) {
+            return SymbolicDerivative.mul(ExpressionNode.constant(1 / b.value), a, true);
+        }
+        return SymbolicDerivative.div(a, b, true);
+    }
+
+    // True for (normal) powers of two, whose reciprocal is exact
+    private static boolean exactReciprocal(double c) {
+        long mantissa = Double.doubleToRawLongBits(c) & 0x000fffffffffffffL;
+        int exponent = Math.getExponent(c);
+        return mantissa == 0 && exponent > Double.MIN_EXPONENT && exponent < Double.MAX_EXPONENT;
+    }
+
+    private static ExpressionNode power(ExpressionNode a, ExpressionNode b) {
+        if (a.isConstant(Math.E) && !b.isConstant()) {
+            return SymbolicDerivative.fn("exp", b);
+        }
+        ExpressionNode p = SymbolicDerivative.pow(a, b, true);
+        if (p.kind != ExpressionNode.Kind.POWER || !p.args[1].isConstant()) {
+            return p;
+        }
+        // Reuse the same base node so the compiler evaluates it only once
+        ExpressionNode u = p.args[0];
+        double e = p.args[1].value;
+        if (e == 2) {
+            return square(u);
+        }
+        if (e == 3) {
+            return ExpressionNode.binary(ExpressionNode.Kind.MULTIPLY, square(u), u);
+        }
+        if (e == 4) {
+            ExpressionNode s = square(u);
+            return ExpressionNode.binary(ExpressionNode.Kind.MULTIPLY, s, s);
+        }
+        if (e == 0.5) {
+            return ExpressionNode.function("sqrt", u);
+        }
+        return p;
+    }
+
+    private static ExpressionNode square(ExpressionNode u) {
+        return ExpressionNode.binary(ExpressionNode.Kind.MULTIPLY, u, u);
+    }
+}
@@ -1,16 +1,12 @@
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 import com.formdev.flatlaf.FlatLightLaf;
 import net.objecthunter.exp4j.Expression;
-import net.objecthunter.exp4j.ExpressionBuilder;
 
 //javac -cp ".;lib\exp4j-0.4.8.jar;lib\flatlaf-3.2.5.jar" *.java
 //java -cp ".;lib\exp4j-0.4.8.jar;lib\flatlaf-3.2.5.jar" GUI
@@ -38,7 +34,14 @@ public class GUI {
     private JTextField jacobiTolField;
     private JTextField[] jacobiEquationFields;
 
+    // Background solve
+    private JButton calculateButton, cancelButton;
+    private SolveWorker solveWorker;
+    private TraceFile.Reader traceReader;   // trace file shown in the table, if any
+
     private static final int MAX_DECIMAL_PLACES = 6; // Maximum decimal places for display
+    // Below this tolerance, bisection, Newton-Raphson and secant roots are refined in extended precision
+    private static final double EXTENDED_TOLERANCE = 1e-6;
 
     public GUI() {
         try {
@@ -109,6 +112,10 @@ public class GUI {
     }
 
     private void showCalculatorScreen() {
+        if (solveWorker != null) {
+            solveWorker.cancel(true);
+            solveWorker = null;
+        }
         functionField = null;
         lowerBoundField = null;
         upperBoundField = null;
@@ -131,8 +138,12 @@ public class GUI {
 
         String[] methods = {
             "Bisection Method",
+            "Brent's Method",
+            "Illinois Method",
+            "ITP Method",
             "Fixed-Point Iteration",
             "Newton-Raphson",
+            "Polynomial Roots",
             "Secant Method",
             "Jacobi Method"
         };
@@ -201,7 +212,7 @@ public class GUI {
         inputPanel.setMaximumSize(new Dimension(600, 200));
 
         // Dynamic input fields based on method
-        if (selectedMethod.equals("Bisection Method")) {
+        if (isBracketed(selectedMethod)) {
             inputPanel.add(new JLabel("Function f(x):"));
             functionField = createInputField();
             functionField.setToolTipText("Enter your function using any variable name.\n" +
@@ -221,7 +232,7 @@ public class GUI {
 
             inputPanel.add(new JLabel("Tolerance:"));
             toleranceField = createInputField();
-            toleranceField.setToolTipText("Enter a value greater than 1e-6 (e.g., 0.001 or 1e-3)");
+            toleranceField.setToolTipText("Enter a value greater than 1e-6 (e.g., 0.001 or 1e-3); bisection also accepts smaller ones");
             inputPanel.add(toleranceField);
 
         } else if (selectedMethod.equals("Fixed-Point Iteration")) {
@@ -257,6 +268,21 @@ public class GUI {
             guessField = createInputField();
             inputPanel.add(guessField);
 
+            inputPanel.add(new JLabel("Tolerance:"));
+            toleranceField = createInputField();
+            toleranceField.setToolTipText("e.g., 0.001 or 1e-3; below 1e-6 the root is refined in extended precision");
+            inputPanel.add(toleranceField);
+
+        } else if (selectedMethod.equals("Polynomial Roots")) {
+            inputPanel.add(new JLabel("Polynomial p(x):"));
+            functionField = createInputField();
+            functionField.setToolTipText("Enter a polynomial in x.\n" +
+                                       "Examples:\n" +
+                                       "• x^3 - 2*x - 5\n" +
+                                       "• (x-1)^2*(x+3)\n" +
+                                       "• x^5 - 1");
+            inputPanel.add(functionField);
+
             inputPanel.add(new JLabel("Tolerance:"));
             toleranceField = createInputField();
             toleranceField.setToolTipText("Enter a value greater than 1e-6 (e.g., 0.001 or 1e-3)");
@@ -282,7 +308,7 @@ public class GUI {
 
             inputPanel.add(new JLabel("Tolerance:"));
             toleranceField = createInputField();
-            toleranceField.setToolTipText("Enter a value greater than 1e-6 (e.g., 0.001 or 1e-3)");
+            toleranceField.setToolTipText("e.g., 0.001 or 1e-3; below 1e-6 the root is refined in extended precision");
             inputPanel.add(toleranceField);
 
         } else if (selectedMethod.equals("Jacobi Method")) {
@@ -325,15 +351,14 @@ public class GUI {
                 
                 // Update table columns when number of equations changes
                 if (resultTable != null) {
-                    DefaultTableModel model = (DefaultTableModel) resultTable.getModel();
+                    HistoryTableModel model = (HistoryTableModel) resultTable.getModel();
                     String[] newColumns;
                     if (n == 2) {
                         newColumns = new String[]{"Iteration", "x", "y", "Error"};
                     } else {
                         newColumns = new String[]{"Iteration", "x", "y", "z", "Error"};
                     }
-                    model.setColumnIdentifiers(newColumns);
-                    model.setRowCount(0); // Clear existing data
+                    model.setColumns(newColumns); // Also clears existing data
                     
                     // Reset column renderers
                     resultTable.getColumnModel().getColumn(0).setCellRenderer(leftRenderer);
@@ -366,20 +391,58 @@ public class GUI {
                 calculateBtn.setBackground(ACCENT_BLUE);
             }
         });
-        calculateBtn.setAlignmentX(Component.LEFT_ALIGNMENT);
-        calculateBtn.setMaximumSize(new Dimension(150, 40));
         calculateBtn.addActionListener(this::calculate);
-        rightPanel.add(calculateBtn);
+        calculateButton = calculateBtn;
+
+        // Cancel button (enabled while a calculation is running)
+        cancelButton = new JButton("Cancel");
+        cancelButton.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        cancelButton.setBackground(DARK_SECONDARY);
+        cancelButton.setForeground(TEXT_COLOR);
+        cancelButton.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createLineBorder(ACCENT_BLUE.darker(), 1),
+            BorderFactory.createEmptyBorder(9, 19, 9, 19)
+        ));
+        cancelButton.setEnabled(false);
+        cancelButton.addActionListener(e -> {
+            if (solveWorker != null) {
+                solveWorker.cancel(true);
+            }
+        });
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        buttonPanel.setOpaque(false);
+        buttonPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        buttonPanel.setMaximumSize(new Dimension(600, 40));
+        buttonPanel.add(calculateBtn);
+        buttonPanel.add(Box.createHorizontalStrut(10));
+        buttonPanel.add(cancelButton);
+
+        // Browse iteration histories saved by BatchSolver --trace
+        JButton traceButton = new JButton("Open Trace");
+        traceButton.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        traceButton.setBackground(DARK_SECONDARY);
+        traceButton.setForeground(TEXT_COLOR);
+        traceButton.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createLineBorder(ACCENT_BLUE.darker(), 1),
+            BorderFactory.createEmptyBorder(9, 19, 9, 19)
+        ));
+        traceButton.addActionListener(e -> openTrace());
+        buttonPanel.add(Box.createHorizontalStrut(10));
+        buttonPanel.add(traceButton);
+        rightPanel.add(buttonPanel);
         rightPanel.add(Box.createVerticalStrut(20));
 
         // Results table
         String[] columnNames;
-        if (selectedMethod.equals("Bisection Method")) {
+        if (isBracketed(selectedMethod)) {
             columnNames = new String[]{"Iteration", "x0", "x1", "x2", "f(x2)", "Error"};
         } else if (selectedMethod.equals("Fixed-Point Iteration")) {
             columnNames = new String[]{"Iteration", "x", "g(x)", "Error"};
         } else if (selectedMethod.equals("Newton-Raphson")) {
             columnNames = new String[]{"Iteration", "x", "f(x)", "f'(x)", "x_new"};
+        } else if (selectedMethod.equals("Polynomial Roots")) {
+            columnNames = new String[]{"Iteration", "Max Correction", "Converged"};
         } else if (selectedMethod.equals("Secant Method")) {
             columnNames = new String[]{"Iteration", "x0", "x1", "x2", "f(x0)", "f(x1)", "Error"};
         } else if (selectedMethod.equals("Jacobi Method")) {
@@ -395,9 +458,8 @@ public class GUI {
             
             // Update existing table if it exists
             if (resultTable != null) {
-                DefaultTableModel model = (DefaultTableModel) resultTable.getModel();
-                model.setColumnIdentifiers(columnNames);
-                model.setRowCount(0);
+                HistoryTableModel model = (HistoryTableModel) resultTable.getModel();
+                model.setColumns(columnNames);
                 
                 // Reset column renderers
                 resultTable.getColumnModel().getColumn(0).setCellRenderer(leftRenderer);
@@ -410,7 +472,7 @@ public class GUI {
         } else {
             columnNames = new String[]{"Iteration", "Value"};
         }
-        DefaultTableModel tableModel = new DefaultTableModel(columnNames, 0);
+        HistoryTableModel tableModel = new HistoryTableModel(columnNames);
         resultTable = new JTable(tableModel) {
             @Override
             public boolean isCellEditable(int row, int column) {
@@ -526,6 +588,13 @@ public class GUI {
         return "%." + decimalPlaces + "f";
     }
 
+    // A refined root to the tolerance's decimal places, and how it was computed
+    private String extended(HighPrecision.Result result, double tolerance) {
+        String arithmetic = result.tier == HighPrecision.Tier.DOUBLE ? "double"
+                          : result.tier == HighPrecision.Tier.DOUBLE_DOUBLE ? "double-double" : result.digits + "-digit decimal";
+        return result.format(getDecimalPlaces(tolerance)) + "  (" + arithmetic + ")";
+    }
+
     private int getDecimalPlaces(double tolerance) {
         String tolStr = String.format("%e", tolerance);
         int idx = tolStr.indexOf('e');
@@ -537,13 +606,19 @@ public class GUI {
         return (parts.length > 1) ? parts[1].length() : 0;
     }
 
+    // Methods that take f(x) and a sign-changing bracket [a, b] (same inputs and table as bisection)
+    private static boolean isBracketed(String method) {
+        return method.equals("Bisection Method") || method.equals("Brent's Method")
+            || method.equals("Illinois Method") || method.equals("ITP Method");
+    }
+
     private void calculate(ActionEvent e) {
         try {
-            DefaultTableModel tableModel = (DefaultTableModel) resultTable.getModel();
-            tableModel.setRowCount(0); // Clear previous results
+            HistoryTableModel tableModel = (HistoryTableModel) resultTable.getModel();
+            tableModel.clear(); // Clear previous results
             int maxIterations = 100;
             
-            if (selectedMethod.equals("Bisection Method")) {
+            if (isBracketed(selectedMethod)) {
                 String function = functionField.getText().toLowerCase().trim().replaceAll("\\s+", "");
                 if (function.isEmpty()) {
                     JOptionPane.showMessageDialog(frame, "Please enter a function.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
@@ -583,42 +658,80 @@ public class GUI {
                     JOptionPane.showMessageDialog(frame, "Tolerance must be greater than 0.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
                     return;
                 }
-                if (tolerance < 1e-6) {
-                    JOptionPane.showMessageDialog(frame, "Tolerance cannot be smaller than 1e-6.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
+                if (tolerance < EXTENDED_TOLERANCE && !selectedMethod.equals("Bisection Method")) {
+                    JOptionPane.showMessageDialog(frame, "Tolerance cannot be smaller than 1e-6 (only bisection supports extended precision).", "Invalid Input", JOptionPane.ERROR_MESSAGE);
                     return;
                 }
 
                 String format = getFormatString(tolerance);
-                Expression expression = new ExpressionBuilder(function).variable("x").build();
+                Expression expression = ExpressionCache.SHARED.expression(function);
                 
                 // Verify that f(a) and f(b) have opposite signs
                 double fa = expression.setVariable("x", x0).evaluate();
                 double fb = expression.setVariable("x", x1).evaluate();
+                double lower = x0, upper = x1;
                 if (fa * fb >= 0) {
-                    JOptionPane.showMessageDialog(frame, "The function must have opposite signs at the bounds.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
-                    return;
+                    // Look for a sign change inside [a, b] instead of failing outright
+                    RootScanner.Bracket found = null;
+                    if (x0 < x1) {
+                        for (RootScanner.Bracket bracket : RootScanner.brackets(ExpressionCache.SHARED.function(function), x0, x1, tolerance, RootScanner.DEFAULT_SAMPLES)) {
+                            if (!bracket.isTangent()) {
+                                found = bracket;
+                                break;
+                            }
+                        }
+                    }
+                    if (found == null) {
+                        JOptionPane.showMessageDialog(frame, "The function must have opposite signs at the bounds.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
+                        return;
+                    }
+                    int choice = JOptionPane.showConfirmDialog(frame,
+                        String.format("The function has the same sign at both bounds, but changes sign on [%.6g, %.6g].\nSolve on that interval?", found.lo, found.hi),
+                        "Bracket Found", JOptionPane.YES_NO_OPTION);
+                    if (choice != JOptionPane.YES_OPTION) {
+                        return;
+                    }
+                    lower = found.lo;
+                    upper = found.hi;
                 }
-
-                java.util.Stack<bisection_method.IterationData> history = new java.util.Stack<>();
-                double result = bisection_method.bisectionMethod(expression, x0, x1, tolerance, maxIterations, history);
-
-                for (bisection_method.IterationData d : history) {
-                    tableModel.addRow(new Object[]{
-                        history.indexOf(d) + 1,
-                        String.format(format, d.a),
-                        String.format(format, d.b),
-                        String.format(format, d.c),
-                        String.format(format, d.fc),
-                        String.format(format, Math.abs(d.b - d.a) / 2)
+                final double a = lower, b = upper;
+
+                String method = selectedMethod;
+                runSolve(
+                    recorder -> {
+                        CompiledFunction f = ExpressionCache.SHARED.function(function);
+                        double result;
+                        switch (method) {
+                            case "Brent's Method":
+                                result = bracketing_methods.brentMethod(f, a, b, tolerance, maxIterations, recorder);
+                                break;
+                            case "Illinois Method":
+                                result = bracketing_methods.illinoisMethod(f, a, b, tolerance, maxIterations, recorder);
+                                break;
+                            case "ITP Method":
+                                result = bracketing_methods.itpMethod(f, a, b, tolerance, maxIterations, recorder);
+                                break;
+                            default:
+                                if (tolerance < EXTENDED_TOLERANCE) {
+                                    return "Final Result: " + extended(HighPrecision.bisection(function, a, b, tolerance, 0, maxIterations, recorder), tolerance);
+                                }
+                                result = bisection_method.bisectionMethod(f, a, b, tolerance, maxIterations, recorder);
+                                break;
+                        }
+                        return "Final Result: " + String.format(format, result);
+                    },
+                    (h, row, col) -> {
+                        switch (col) {
+                            case 1: return String.format(format, h.get(row, 0));   // a
+                            case 2: return String.format(format, h.get(row, 1));   // b
+                            case 3: return String.format(format, h.get(row, 2));   // c
+                            case 4: return String.format(format, h.get(row, 5));   // f(c)
+                            default: return String.format(format, Math.abs(h.get(row, 1) - h.get(row, 0)) / 2);
+                        }
                     });
-                }
-                finalResultLabel.setText("Final Result: " + String.format(format, result));
             }
             else if (selectedMethod.equals("Fixed-Point Iteration")) {
-                String function = gxField.getText().trim()
-                                    .toLowerCase()  // Convert everything to lowercase first
-                                    .replaceAll("\\s+", "")  // Remove all whitespace
-                                    .replaceAll("e\\^([\\w\\-\\+\\(\\)]+)", "exp($1)");  // Convert e^expression to exp(expression)
+                String function = ExpressionCache.normalize(gxField.getText());  // lowercase, no whitespace, e^(...) as exp(...)
                 
                 if (function.isEmpty()) {
                     JOptionPane.showMessageDialog(frame, "Please enter g(x) function.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
@@ -662,33 +775,28 @@ public class GUI {
 
                 String format = getFormatString(tolerance);
 
-                Expression expression = new ExpressionBuilder(function).variable("x").build();
+                Expression expression = ExpressionCache.SHARED.expression(function);
                 double derivative = fixed_point.derive(expression, x0);
                 if (Math.abs(derivative) > 1) {
                     JOptionPane.showMessageDialog(frame, "Warning: |g'(x)| > 1 at initial guess. Method may not converge.", "Convergence Warning", JOptionPane.WARNING_MESSAGE);
                     return;
                 }
 
-                ArrayList<fixed_point.IterationData> history = new ArrayList<>();
-                double result = fixed_point.fixedPointRecursive(expression, x0, tolerance, maxIterations, 1, history);
-
-                for (int i = 0; i < history.size(); i++) {
-                    fixed_point.IterationData d = history.get(i);
-                    double error = (i == 0) ? Double.NaN : Math.abs(d.gx - history.get(i - 1).gx);
-                    tableModel.addRow(new Object[]{
-                        i + 1,
-                        String.format(format, d.x),
-                        String.format(format, d.gx),
-                        (Double.isNaN(error) ? "N/A" : String.format(format, error))
+                runSolve(
+                    recorder -> {
+                        double result = fixed_point.fixedPoint(ExpressionCache.SHARED.function(function), x0, tolerance, maxIterations, recorder);
+                        return "Final Result: " + String.format(format, result);
+                    },
+                    (h, row, col) -> {
+                        if (col < 3) {
+                            return String.format(format, h.get(row, col - 1));    // x, g(x)
+                        }
+                        double error = (row == 0) ? Double.NaN : Math.abs(h.get(row, 1) - h.get(row - 1, 1));
+                        return (Double.isNaN(error) ? "N/A" : String.format(format, error));
                     });
-                }
-                finalResultLabel.setText("Final Result: " + String.format(format, result));
             }
             else if (selectedMethod.equals("Newton-Raphson")) {
-                String function = functionField.getText().trim()
-                                    .toLowerCase()  // Convert everything to lowercase first
-                                    .replaceAll("\\s+", "")  // Remove all whitespace
-                                    .replaceAll("e\\^([\\w\\-\\+\\(\\)]+)", "exp($1)");  // Convert e^expression to exp(expression)
+                String function = ExpressionCache.normalize(functionField.getText());  // lowercase, no whitespace, e^(...) as exp(...)
 
                 if (function.isEmpty()) {
                     JOptionPane.showMessageDialog(frame, "Please enter a function.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
@@ -725,39 +833,64 @@ public class GUI {
                     JOptionPane.showMessageDialog(frame, "Tolerance must be greater than 0.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
                     return;
                 }
-                if (tolerance < 1e-6) {
-                    JOptionPane.showMessageDialog(frame, "Tolerance cannot be smaller than 1e-6.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
+
+                String format = getFormatString(tolerance);
+
+                runSolve(
+                    recorder -> {
+                        if (tolerance < EXTENDED_TOLERANCE) {
+                            return "Final Result: " + extended(HighPrecision.newton(function, x0, tolerance, 0, maxIterations, recorder), tolerance);
+                        }
+                        double result = newton_raphson.newtonRaphson(function, x0, tolerance, maxIterations, recorder);
+                        return "Final Result: " + String.format(format, result);
+                    },
+                    (h, row, col) -> String.format(format, h.get(row, col - 1)));
+            }
+            else if (selectedMethod.equals("Polynomial Roots")) {
+                String function = functionField.getText().toLowerCase().trim().replaceAll("\\s+", "");
+                if (function.isEmpty()) {
+                    JOptionPane.showMessageDialog(frame, "Please enter a polynomial.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
                     return;
                 }
 
-                String format = getFormatString(tolerance);
+                String tolInput = toleranceField.getText().trim().replaceAll("\\s+", "");
+                if (tolInput.isEmpty()) {
+                    JOptionPane.showMessageDialog(frame, "Please enter a tolerance value.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
 
+                double tolerance;
                 try {
-                    Queue<newton_raphson.IterationData> iterations = newton_raphson.newtonRaphson(function, x0, tolerance, maxIterations);
-                    newton_raphson.IterationData last = null;
-
-                    for (newton_raphson.IterationData data : iterations) {
-                        tableModel.addRow(new Object[]{
-                            data.iteration,
-                            String.format(format, data.x),
-                            String.format(format, data.fx),
-                            String.format(format, data.dfx),
-                            String.format(format, data.xNew)
-                        });
-                        last = data;
-                    }
+                    tolerance = Double.parseDouble(tolInput);
+                } catch (NumberFormatException ex) {
+                    JOptionPane.showMessageDialog(frame, "Invalid number format. Please enter valid numbers.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
 
-                    if (last != null) {
-                        finalResultLabel.setText("Final Result: " + String.format(format, last.xNew));
-                    }
-                } catch (ArithmeticException ex) {
-                    JOptionPane.showMessageDialog(frame, ex.getMessage(), "Calculation Error", JOptionPane.ERROR_MESSAGE);
-                } catch (Exception ex) {
-                    JOptionPane.showMessageDialog(frame,
-                        "Error: " + ex.getMessage() + "\nNote: For exponential expressions, use e^(-x) or exp(-x)",
-                        "Calculation Error",
-                        JOptionPane.ERROR_MESSAGE);
+                if (tolerance <= 0) {
+                    JOptionPane.showMessageDialog(frame, "Tolerance must be greater than 0.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                if (tolerance < 1e-6) {
+                    JOptionPane.showMessageDialog(frame, "Tolerance cannot be smaller than 1e-6.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
+                    return;
                 }
+
+                String format = getFormatString(tolerance);
+
+                runSolve(
+                    recorder -> {
+                        Polynomial.Root[] roots = polynomial_roots.solve(function, tolerance, maxIterations, recorder);
+                        StringBuilder result = new StringBuilder(
+                            Polynomial.Root.allConverged(roots) ? "Roots: " : "Did not converge. Last estimates: ");
+                        for (int i = 0; i < roots.length; i++) {
+                            result.append(i > 0 ? ",  " : "").append(roots[i].format(format));
+                        }
+                        return result.toString();
+                    },
+                    (h, row, col) -> col == 1
+                        ? String.format(format, h.get(row, 0))
+                        : String.valueOf((int) h.get(row, 1)));
             }
             else if (selectedMethod.equals("Secant Method")) {
                 String function = functionField.getText().toLowerCase().trim().replaceAll("\\s+", "");
@@ -799,29 +932,19 @@ public class GUI {
                     JOptionPane.showMessageDialog(frame, "Tolerance must be greater than 0.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
                     return;
                 }
-                if (tolerance < 1e-6) {
-                    JOptionPane.showMessageDialog(frame, "Tolerance cannot be smaller than 1e-6.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
 
                 String format = getFormatString(tolerance);
 
-                Expression expression = new ExpressionBuilder(function).variable("x").build();
-                LinkedList<secant_method.IterationData> history = new LinkedList<>();
-                double result = secant_method.secantIteration(expression, x0, x1, tolerance, maxIterations, history);
-
-                for (secant_method.IterationData d : history) {
-                    tableModel.addRow(new Object[]{
-                        history.indexOf(d) + 1,
-                        String.format(format, d.x0),
-                        String.format(format, d.x1),
-                        String.format(format, d.x2),
-                        String.format(format, d.fx0),
-                        String.format(format, d.fx1),
-                        String.format(format, d.error)
-                    });
-                }
-                finalResultLabel.setText("Final Result: " + String.format(format, result));
+                ExpressionCache.SHARED.get(function);   // parse errors show up before solving
+                runSolve(
+                    recorder -> {
+                        if (tolerance < EXTENDED_TOLERANCE) {
+                            return "Final Result: " + extended(HighPrecision.secant(function, x0, x1, tolerance, 0, maxIterations, recorder), tolerance);
+                        }
+                        double result = secant_method.secantIteration(ExpressionCache.SHARED.function(function), x0, x1, tolerance, maxIterations, recorder);
+                        return "Final Result: " + String.format(format, result);
+                    },
+                    (h, row, col) -> String.format(format, h.get(row, col - 1)));
             }
             else if (selectedMethod.equals("Jacobi Method")) {
                 int n = jacobiEquationFields.length;
@@ -862,55 +985,276 @@ public class GUI {
 
                 String format = getFormatString(tolerance);
 
-                try {
-                    ArrayList<jacobi_method.IterationData> iterations = new ArrayList<>();
-                    double[] solution = jacobi_method.solveJacobi(equations, tolerance, maxIterations, iterations);
-                    
-                    // Clear existing table data
-                    tableModel.setRowCount(0);
-                    
-                    // Populate table
-                    for (int iter = 0; iter < iterations.size(); iter++) {
-                        jacobi_method.IterationData data = iterations.get(iter);
-                        
-                        // Create row with correct number of columns
-                        Object[] row = new Object[tableModel.getColumnCount()];
-                        row[0] = iter + 1;  // Iteration number
-                        
-                        // Add values (x, y, z)
-                        for (int i = 0; i < n; i++) {
-                            row[i + 1] = String.format(format, data.x[i]);
+                runSolve(
+                    recorder -> {
+                        double[] solution = jacobi_method.solveJacobi(equations, tolerance, maxIterations, recorder);
+
+                        // Display final result
+                        StringBuilder result = new StringBuilder("Solution: ");
+                        String[] varNames = {"x", "y", "z"};
+                        for (int i = 0; i < solution.length; i++) {
+                            result.append(varNames[i]).append(" = ").append(String.format(format, solution[i]));
+                            if (i < solution.length - 1) {
+                                result.append(",  ");
+                            }
                         }
-                        
-                        // Add error in last column
-                        row[row.length - 1] = iter == 0 ? "N/A" : String.format(format, data.error);
-                        
-                        tableModel.addRow(row);
-                    }
-                    
-                    // Display final result
-                    StringBuilder result = new StringBuilder("Solution: ");
-                    String[] varNames = {"x", "y", "z"};
-                    for (int i = 0; i < solution.length; i++) {
-                        result.append(varNames[i]).append(" = ").append(String.format(format, solution[i]));
-                        if (i < solution.length - 1) {
-                            result.append(",  ");
+                        return result.toString();
+                    },
+                    (h, row, col) -> {
+                        // Values (x, y, z), then the error in the last column
+                        if (col <= n) {
+                            return String.format(format, h.get(row, col - 1));
                         }
-                    }
-                    finalResultLabel.setText(result.toString());
-                } catch (ArithmeticException ex) {
-                    int choice = JOptionPane.showConfirmDialog(frame,
-                        "The system is not diagonally dominant. The method may not converge.\nDo you want to continue?",
-                        "Convergence Warning",
-                        JOptionPane.YES_NO_OPTION,
-                        JOptionPane.WARNING_MESSAGE);
-                    if (choice != JOptionPane.YES_OPTION) {
-                        return;
+                        return row == 0 ? "N/A" : String.format(format, h.get(row, n));
+                    });
+            }
+
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(frame,
+                    "Error: " + ex.getMessage(),
+                    "Calculation Error",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    // Solver body run off the EDT; returns the text for the final result label
+    private interface SolveTask {
+        String solve(IterationRecorder recorder) throws Exception;
+    }
+
+    private void runSolve(SolveTask task, HistoryTableModel.CellFormatter formatter) {
+        if (solveWorker != null) {
+            solveWorker.cancel(true);
+        }
+        HistoryTableModel tableModel = (HistoryTableModel) resultTable.getModel();
+        solveWorker = new SolveWorker(selectedMethod, tableModel, formatter, task);
+        tableModel.attach(solveWorker.shown, formatter);
+        calculateButton.setEnabled(false);
+        cancelButton.setEnabled(true);
+        finalResultLabel.setText("Calculating...");
+        solveWorker.execute();
+    }
+
+    // Rows copied out of a worker's history for the EDT; never changed after publish()
+    private static final class PublishedRows {
+        final int generation;       // start() calls so far; a new one restarts the table
+        final String[] columns;
+        final int first;            // history index of rows[0]
+        final double[][] rows;
+
+        PublishedRows(int generation, String[] columns, int first, double[][] rows) {
+            this.generation = generation;
+            this.columns = columns;
+            this.first = first;
+            this.rows = rows;
+        }
+    }
+
+    // Runs one solve in the background. The solver records into a history only
+    // the worker touches; copies of new rows are published now and then and
+    // appended on the EDT to the history the table reads.
+    private class SolveWorker extends SwingWorker<String, PublishedRows> {
+        private static final long PUBLISH_INTERVAL_NANOS = 50_000_000L;
+
+        private final String method;
+        private final HistoryTableModel tableModel;
+        private final HistoryTableModel.CellFormatter formatter;
+        private final SolveTask task;
+        private final PublishingRecorder history = new PublishingRecorder();
+        // Rows shown in the table; only touched on the EDT
+        final IterationRecorder.Columnar shown = IterationRecorder.full();
+        private int shownGeneration;
+
+        SolveWorker(String method, HistoryTableModel tableModel, HistoryTableModel.CellFormatter formatter, SolveTask task) {
+            this.method = method;
+            this.tableModel = tableModel;
+            this.formatter = formatter;
+            this.task = task;
+        }
+
+        @Override
+        protected String doInBackground() throws Exception {
+            return task.solve(history);
+        }
+
+        @Override
+        protected void process(java.util.List<PublishedRows> published) {
+            // A cancelled or replaced worker no longer owns the table
+            if (isCancelled() || solveWorker != this) {
+                return;
+            }
+            for (PublishedRows rows : published) {
+                show(rows);
+            }
+            tableModel.rowsAvailable(shown.rows());
+        }
+
+        private void show(PublishedRows published) {
+            if (published.generation != shownGeneration) {
+                shownGeneration = published.generation;
+                shown.start(published.columns);
+                tableModel.attach(shown, formatter);
+            }
+            for (int r = Math.max(0, shown.rows() - published.first); r < published.rows.length; r++) {
+                shown.record(published.rows[r]);
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (solveWorker != this) {
+                // Replaced by a newer solve, which owns the table and the label now
+                return;
+            }
+            solveWorker = null;
+            calculateButton.setEnabled(true);
+            cancelButton.setEnabled(false);
+            if (!isCancelled()) {
+                // doInBackground has returned, so its history is safe to read here
+                show(history.newRows());
+            }
+            tableModel.complete();
+            if (isCancelled()) {
+                finalResultLabel.setText("Calculation cancelled.");
+                return;
+            }
+            try {
+                finalResultLabel.setText(get());
+            } catch (InterruptedException | CancellationException ex) {
+                finalResultLabel.setText("Calculation cancelled.");
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof NotConvergedException) {
+                    // The table already shows how far the method got
+                    finalResultLabel.setText(ex.getCause().getMessage());
+                    return;
+                }
+                finalResultLabel.setText(" ");
+                showSolveError(method, ex.getCause());
+            }
+        }
+
+        // Keeps the full history, publishes the new rows now and then,
+        // and stops the solver loop once the worker is cancelled
+        private class PublishingRecorder extends IterationRecorder.Columnar {
+            private long lastPublish = System.nanoTime();
+            private int generation;
+            private int published;
+
+            @Override
+            public void start(String... columns) {
+                super.start(columns);
+                generation++;
+                published = 0;
+            }
+
+            @Override
+            public void record(double[] row) {
+                if (isCancelled() || Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("Calculation cancelled.");
+                }
+                super.record(row);
+                long now = System.nanoTime();
+                if (now - lastPublish >= PUBLISH_INTERVAL_NANOS) {
+                    lastPublish = now;
+                    publish(newRows());
+                }
+            }
+
+            // Copies of the rows recorded since the last call
+            PublishedRows newRows() {
+                int width = columns().length;
+                double[][] rows = new double[rows() - published][width];
+                for (int r = 0; r < rows.length; r++) {
+                    for (int c = 0; c < width; c++) {
+                        rows[r][c] = get(published + r, c);
                     }
                 }
+                PublishedRows copy = new PublishedRows(generation, columns(), published, rows);
+                published = rows();
+                return copy;
             }
+        }
+    }
 
+    // Shows one solve from a trace file; rows are read from the mapped file as the table scrolls
+    private void openTrace() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("Trace files (*.nmtrace)", "nmtrace"));
+        if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            TraceFile.Reader reader = TraceFile.open(chooser.getSelectedFile().toPath());
+            if (reader.traceCount() == 0) {
+                reader.close();
+                JOptionPane.showMessageDialog(frame, "The file contains no traces.", "Open Trace", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            int index = 0;
+            if (reader.traceCount() > 1) {
+                String answer = JOptionPane.showInputDialog(frame,
+                        "The file holds " + reader.traceCount() + " " + reader.method() + " solves. Show which one (1-"
+                        + reader.traceCount() + ")?", "1");
+                if (answer == null) {
+                    reader.close();
+                    return;
+                }
+                try {
+                    index = Integer.parseInt(answer.trim()) - 1;
+                    reader.trace(index);
+                } catch (RuntimeException ex) {
+                    reader.close();
+                    throw ex;
+                }
+            }
+            TraceFile.Reader.Trace trace = reader.trace(index);
+
+            if (solveWorker != null) {
+                solveWorker.cancel(true);
+            }
+            if (traceReader != null) {
+                traceReader.close();
+            }
+            traceReader = reader;
+
+            String[] columns = reader.columns();
+            String[] columnNames = new String[columns.length + 1];
+            columnNames[0] = "Iteration";
+            System.arraycopy(columns, 0, columnNames, 1, columns.length);
+            HistoryTableModel model = (HistoryTableModel) resultTable.getModel();
+            model.setColumns(columnNames);
+            resultTable.getColumnModel().getColumn(0).setCellRenderer(leftRenderer);
+            for (int i = 1; i < resultTable.getColumnCount(); i++) {
+                resultTable.getColumnModel().getColumn(i).setCellRenderer(centerRenderer);
+            }
+            String format = "%." + MAX_DECIMAL_PLACES + "f";
+            model.attach(trace, (h, row, col) -> String.format(format, h.get(row, col - 1)));
+            model.complete();
+            finalResultLabel.setText("Trace " + (index + 1) + " of " + reader.traceCount() + " (" + reader.method()
+                                     + "): " + trace.rows() + " iterations");
         } catch (Exception ex) {
+            JOptionPane.showMessageDialog(frame, "Could not open the trace: " + ex.getMessage(),
+                                          "Open Trace", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void showSolveError(String method, Throwable ex) {
+        if (method.equals("Newton-Raphson")) {
+            if (ex instanceof ArithmeticException) {
+                JOptionPane.showMessageDialog(frame, ex.getMessage(), "Calculation Error", JOptionPane.ERROR_MESSAGE);
+            } else {
+                JOptionPane.showMessageDialog(frame,
+                    "Error: " + ex.getMessage() + "\nNote: For exponential expressions, use e^(-x) or exp(-x)",
+                    "Calculation Error",
+                    JOptionPane.ERROR_MESSAGE);
+            }
+        } else if (method.equals("Jacobi Method") && ex instanceof ArithmeticException) {
+            JOptionPane.showConfirmDialog(frame,
+                "The system is not diagonally dominant. The method may not converge.\nDo you want to continue?",
+                "Convergence Warning",
+                JOptionPane.YES_NO_OPTION,
+                JOptionPane.WARNING_MESSAGE);
+        } else {
             JOptionPane.showMessageDialog(frame,
                     "Error: " + ex.getMessage(),
                     "Calculation Error",
@@ -0,0 +1,325 @@
+import net.objecthunter.exp4j.Expression;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+
+// Newton's method, the secant method and bisection to more digits than a
+// double holds. The ordinary double solver runs first, on the same recorder,
+// until it gets within HANDOVER (relative) of the root; only the last few
+// iterations are then done in extended precision, starting from its result.
+// How many digits are needed follows from the tolerance and the size of the
+// root the double phase found (digitsFor), or can be given; up to 15 stays in
+// double, up to 30 uses double-double arithmetic and anything more BigDecimal
+// (see Arithmetic). When the digits are not given, the result is checked with
+// one Newton correction in twice the precision, and the extended phase is
+// repeated with twice the digits while that correction is above the tolerance
+// (cancellation inside f can eat more than the guard digits). The extended
+// iterations are recorded in the solver's usual columns, rounded to double.
+public final class HighPrecision {
+    public enum Tier { DOUBLE, DOUBLE_DOUBLE, DECIMAL }
+
+    // Roughly where double iterations stop making progress
+    static final int DOUBLE_DIGITS = 15;
+    static final int DOUBLE_DOUBLE_DIGITS = 30;
+
+    // Relative distance to the root at which the double phase hands over; the
+    // secant method stops earlier, before its 1e-12 guard on f(x1) - f(x0)
+    private static final double HANDOVER = 1e-13;
+    private static final double SECANT_HANDOVER = 1e-8;
+    private static final int MAX_REFINEMENTS = 50;
+    // Times the digits may be doubled before giving up on the tolerance
+    private static final int MAX_ESCALATIONS = 3;
+
+    private HighPrecision() {
+    }
+
+    public static final class Result {
+        public final BigDecimal root;
+        public final Tier tier;
+        public final int digits;           // significant digits of root
+        public final int refinements;      // extended-precision iterations
+
+        Result(BigDecimal root, Tier tier, int digits, int refinements) {
+            this.root = root.round(new MathContext(digits, RoundingMode.HALF_EVEN));
+            this.tier = tier;
+            this.digits = digits;
+            this.refinements = refinements;
+        }
+
+        // root with a fixed number of decimal places
+        public String format(int decimals) {
+            return root.setScale(decimals, RoundingMode.HALF_EVEN).toPlainString();
+        }
+
+        @Override
+        public String toString() {
+            return root.toString();
+        }
+    }
+
+    // Significant digits needed to locate a root of magnitude about scale to
+    // within tolerance, plus two guard digits; the solvers check the result and
+    // add more if f cancels
+    public static int digitsFor(double tolerance, double scale) {
+        if (!(tolerance > 0)) {
+            throw new IllegalArgumentException("Tolerance must be greater than 0.");
+        }
+        double digits = Math.ceil(Math.log10(Math.max(1, Math.abs(scale)) / tolerance)) + 2;
+        return (int) Math.max(1, Math.min(Arithmetic.MAX_DIGITS, digits));
+    }
+
+    public static Tier tier(int digits) {
+        return digits <= DOUBLE_DIGITS ? Tier.DOUBLE : digits <= DOUBLE_DOUBLE_DIGITS ? Tier.DOUBLE_DOUBLE : Tier.DECIMAL;
+    }
+
+    // digits <= 0 means digitsFor(tolerance, ...). Throws NotConvergedException
+    // if no precision up to Arithmetic.MAX_DIGITS meets the tolerance.
+    public static Result newton(String function, double x0, double tolerance, int digits, int maxIterations, IterationRecorder recorder) {
+        int estimate = digits > 0 ? digits : digitsFor(tolerance, x0);
+        if (tier(estimate) == Tier.DOUBLE) {
+            double root = newton_raphson.newtonRaphson(function, x0, tolerance, maxIterations, recorder);
+            return new Result(new BigDecimal(root), Tier.DOUBLE, estimate, 0);
+        }
+        double handover = Math.max(tolerance, HANDOVER * Math.max(1, Math.abs(x0)));
+        double root = handOver(() -> newton_raphson.newtonRaphson(function, x0, handover, maxIterations, recorder));
+        return refine(function, tolerance, digits, root, recorder,
+                      d -> newton(arithmetic(tier(d), d), function, root, tolerance, tier(d), d, recorder));
+    }
+
+    public static Result secant(String function, double x0, double x1, double tolerance, int digits, int maxIterations, IterationRecorder recorder) {
+        double scale = Math.max(Math.abs(x0), Math.abs(x1));
+        int estimate = digits > 0 ? digits : digitsFor(tolerance, scale);
+        if (tier(estimate) == Tier.DOUBLE) {
+            double root = secant_method.secantIteration(ExpressionCache.SHARED.function(function), x0, x1, tolerance, maxIterations, recorder);
+            return new Result(new BigDecimal(root), Tier.DOUBLE, estimate, 0);
+        }
+        double handover = Math.max(tolerance, SECANT_HANDOVER * Math.max(1, scale));
+        double root = handOver(() -> secant_method.secantIteration(ExpressionCache.SHARED.function(function), x0, x1, handover, maxIterations, recorder));
+        // A second point about as far off as the double phase left the root
+        double previous = root + handover;
+        return refine(function, tolerance, digits, root, recorder,
+                      d -> secant(arithmetic(tier(d), d), function, previous, root, tolerance, tier(d), d, recorder));
+    }
+
+    public static Result bisection(String function, double a, double b, double tolerance, int digits, int maxIterations, IterationRecorder recorder) {
+        double scale = Math.max(Math.abs(a), Math.abs(b));
+        int estimate = digits > 0 ? digits : digitsFor(tolerance, scale);
+        if (tier(estimate) == Tier.DOUBLE) {
+            double root = bisection_method.bisectionMethod(ExpressionCache.SHARED.function(function), a, b, tolerance, maxIterations, recorder);
+            return new Result(new BigDecimal(root), Tier.DOUBLE, estimate, 0);
+        }
+        double handover = Math.max(tolerance, HANDOVER * Math.max(1, scale));
+        double root = handOver(() -> bisection_method.bisectionMethod(ExpressionCache.SHARED.function(function), a, b, handover, maxIterations, recorder));
+        return refine(function, tolerance, digits, root, recorder,
+                      d -> bisection(arithmetic(tier(d), d), function, a, b, root, 2 * handover, tolerance, tier(d), d, recorder));
+    }
+
+    // The double phase's root. For a large root the handover can be finer than
+    // the spacing of doubles there, so running out of iterations just means
+    // double precision is used up; the extended phase starts from the last
+    // estimate and fails on its own if the method really diverges.
+    private static double handOver(DoubleSupplier phase) {
+        try {
+            return phase.getAsDouble();
+        } catch (NotConvergedException e) {
+            return e.estimate();
+        }
+    }
+
+    // Runs the extended phase with the given digits, or with digitsFor the
+    // double phase's root (at least double-double), checking the result and
+    // doubling the digits while its Newton correction exceeds the tolerance
+    private static Result refine(String function, double tolerance, int digits, double root, IterationRecorder recorder,
+                                 IntFunction<Result> phase) {
+        if (digits > 0) {
+            return phase.apply(digits);
+        }
+        int d = Math.max(DOUBLE_DIGITS + 1, digitsFor(tolerance, root));
+        int start = recorder.iterations();
+        for (int round = 0; ; round++) {
+            Result result = phase.apply(d);
+            BigDecimal error = correction(function, result.root, Math.min(Arithmetic.MAX_DIGITS, 2 * d));
+            if (error == null || error.compareTo(new BigDecimal(tolerance)) <= 0) {
+                return new Result(result.root, result.tier, d, recorder.iterations() - start);
+            }
+            if (round == MAX_ESCALATIONS || d == Arithmetic.MAX_DIGITS) {
+                throw new NotConvergedException(recorder.iterations(), result.root.doubleValue());
+            }
+            d = Math.min(Arithmetic.MAX_DIGITS, 2 * d);
+        }
+    }
+
+    // |f(x) / f'(x)| with the given digits, or null if f' is not available or
+    // vanishes at x
+    private static BigDecimal correction(String function, BigDecimal x, int digits) {
+        Arithmetic<BigDecimal> ar = Arithmetic.decimal(digits);
+        try {
+            BigDecimal dfx = bind(ar, function, true).apply(x);
+            if (dfx.signum() == 0) {
+                return null;
+            }
+            return ar.abs(ar.divide(bind(ar, function, false).apply(x), dfx));
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            return null;
+        }
+    }
+
+    // Console output for the solvers' mains: every iteration, then the root
+    static void print(IterationHistory history, Result result) {
+        String[] columns = history.columns();
+        System.out.println("\nIteration Table:");
+        System.out.printf("%-6s", "Iter");
+        for (String column : columns) {
+            System.out.printf(" %-24s", column);
+        }
+        System.out.println();
+        for (int row = 0; row < history.rows(); row++) {
+            System.out.printf("%-6d", row + 1);
+            for (int c = 0; c < columns.length; c++) {
+                System.out.printf(" %-24.16e", history.get(row, c));
+            }
+            System.out.println();
+        }
+        System.out.println("\nRoot (" + result.digits + " significant digits): " + result.root.toPlainString());
+        System.out.println("Iterations: " + history.rows() + " (" + result.refinements + " in extended precision)");
+    }
+
+    private static Arithmetic<?> arithmetic(Tier tier, int digits) {
+        return tier == Tier.DOUBLE_DOUBLE ? Arithmetic.DOUBLE_DOUBLE : Arithmetic.decimal(digits);
+    }
+
+    // f, or f' if derivative, in the given arithmetic
+    private static <T> UnaryOperator<T> bind(Arithmetic<T> arithmetic, String function, boolean derivative) {
+        Expression expression = ExpressionCache.SHARED.expression(function);
+        ExpressionNode node = ExpressionNode.of(expression);
+        if (node == null) {
+            throw new IllegalArgumentException("This function cannot be evaluated in extended precision.");
+        }
+        if (derivative) {
+            node = SymbolicDerivative.differentiate(node, "x");
+        }
+        // f itself is not optimized: the optimizer folds constants in double,
+        // which would round e.g. 1/3 before the extended arithmetic sees it
+        return arithmetic.function(derivative ? ExpressionOptimizer.optimize(node) : node, "x",
+                                   ExpressionNode.variableValues(expression));
+    }
+
+    private static <T> T finite(Arithmetic<T> arithmetic, T v) {
+        if (!arithmetic.isFinite(v)) {
+            throw new ArithmeticException("Function evaluated to NaN or Infinity. Try a different initial guess.");
+        }
+        return v;
+    }
+
+    private static <T> boolean below(Arithmetic<T> arithmetic, T v, T tolerance) {
+        return arithmetic.compare(arithmetic.abs(v), tolerance) < 0;
+    }
+
+    private static <T> Result newton(Arithmetic<T> ar, String function, double start, double tolerance, Tier tier, int digits, IterationRecorder recorder) {
+        UnaryOperator<T> f = bind(ar, function, false);
+        UnaryOperator<T> df = bind(ar, function, true);
+        T tol = ar.of(tolerance);
+        double[] row = new double[4];
+        T x = ar.of(start);
+        for (int i = 1; i <= MAX_REFINEMENTS; i++) {
+            T fx = finite(ar, f.apply(x));
+            if (ar.signum(fx) == 0) {
+                return new Result(ar.toBigDecimal(x), tier, digits, i - 1);
+            }
+            T dfx = finite(ar, df.apply(x));
+            if (ar.signum(dfx) == 0) {
+                throw new ArithmeticException("Derivative is zero, division by zero risk.");
+            }
+            T step = ar.divide(fx, dfx);
+            T xNew = ar.subtract(x, step);
+
+            row[0] = ar.toDouble(x); row[1] = ar.toDouble(fx); row[2] = ar.toDouble(dfx); row[3] = ar.toDouble(xNew);
+            recorder.record(row);
+
+            if (below(ar, step, tol) || ar.atLimit(step, xNew)) {
+                return new Result(ar.toBigDecimal(xNew), tier, digits, i);
+            }
+            x = xNew;
+        }
+        throw new NotConvergedException(recorder.iterations(), ar.toDouble(x));
+    }
+
+    private static <T> Result secant(Arithmetic<T> ar, String function, double first, double second, double tolerance, Tier tier, int digits, IterationRecorder recorder) {
+        UnaryOperator<T> f = bind(ar, function, false);
+        T tol = ar.of(tolerance);
+        double[] row = new double[6];
+        T x0 = ar.of(first), x1 = ar.of(second);
+        T fx0 = finite(ar, f.apply(x0)), fx1 = finite(ar, f.apply(x1));
+        for (int i = 1; i <= MAX_REFINEMENTS; i++) {
+            if (ar.signum(fx1) == 0) {
+                return new Result(ar.toBigDecimal(x1), tier, digits, i - 1);
+            }
+            T df = ar.subtract(fx1, fx0);
+            if (ar.signum(df) == 0) {
+                throw new ArithmeticException("Division by zero in the Secant formula. Try different initial guesses.");
+            }
+            T step = ar.divide(ar.multiply(fx1, ar.subtract(x1, x0)), df);
+            T x2 = ar.subtract(x1, step);
+
+            row[0] = ar.toDouble(x0); row[1] = ar.toDouble(x1); row[2] = ar.toDouble(x2);
+            row[3] = ar.toDouble(fx0); row[4] = ar.toDouble(fx1); row[5] = Math.abs(ar.toDouble(step));
+            recorder.record(row);
+
+            if (below(ar, step, tol) || ar.atLimit(step, x2)) {
+                return new Result(ar.toBigDecimal(x2), tier, digits, i);
+            }
+            x0 = x1;
+            fx0 = fx1;
+            x1 = x2;
+            fx1 = finite(ar, f.apply(x1));
+        }
+        throw new NotConvergedException(recorder.iterations(), ar.toDouble(x1));
+    }
+
+    // Bisects [c - width, c + width] (within [a, b]), or all of [a, b] if f does
+    // not change sign on the smaller interval in this precision
+    private static <T> Result bisection(Arithmetic<T> ar, String function, double a, double b, double c, double width,
+                                        double tolerance, Tier tier, int digits, IterationRecorder recorder) {
+        UnaryOperator<T> f = bind(ar, function, false);
+        T tol = ar.of(tolerance);
+        double[] row = new double[6];
+        T lo = ar.of(Math.max(Math.min(a, b), c - width));
+        T hi = ar.of(Math.min(Math.max(a, b), c + width));
+        T flo = finite(ar, f.apply(lo)), fhi = finite(ar, f.apply(hi));
+        if (ar.signum(flo) * ar.signum(fhi) >= 0) {
+            lo = ar.of(a);
+            hi = ar.of(b);
+            flo = finite(ar, f.apply(lo));
+            fhi = finite(ar, f.apply(hi));
+            if (ar.signum(flo) * ar.signum(fhi) >= 0) {
+                throw new IllegalArgumentException("Function must have opposite signs at endpoints.");
+            }
+        }
+        // Each step gains a bit; enough steps for every digit, and a few more
+        int maxSteps = (int) (digits * 3.33) + 64;
+        for (int i = 1; i <= maxSteps; i++) {
+            T half = ar.scalb(ar.subtract(hi, lo), -1);
+            T mid = ar.add(lo, half);
+            T fmid = finite(ar, f.apply(mid));
+
+            row[0] = ar.toDouble(lo); row[1] = ar.toDouble(hi); row[2] = ar.toDouble(mid);
+            row[3] = ar.toDouble(flo); row[4] = ar.toDouble(fhi); row[5] = ar.toDouble(fmid);
+            recorder.record(row);
+
+            if (ar.signum(fmid) == 0 || below(ar, half, tol) || ar.atLimit(half, mid)) {
+                return new Result(ar.toBigDecimal(mid), tier, digits, i);
+            }
+            if (ar.signum(fmid) * ar.signum(flo) < 0) {
+                hi = mid;
+                fhi = fmid;
+            } else {
+                lo = mid;
+                flo = fmid;
+            }
+        }
+        throw new NotConvergedException(recorder.iterations(), ar.toDouble(ar.add(lo, ar.scalb(ar.subtract(hi, lo), -1))));
+    }
+}
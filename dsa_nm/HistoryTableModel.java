@@ -0,0 +1,85 @@
+import javax.swing.table.AbstractTableModel;
+
+// Table model that reads straight from a solver's recorded history (or a trace
+// read from a file). Cells are formatted only when JTable asks for them, i.e.
+// for visible rows.
+public class HistoryTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    // Text for one cell (column >= 1; column 0 is the iteration number)
+    public interface CellFormatter {
+        Object format(IterationHistory history, int row, int column);
+    }
+
+    private String[] columnNames;
+    private IterationHistory history;
+    private CellFormatter formatter;
+    private int rowCount;
+
+    public HistoryTableModel(String[] columnNames) {
+        this.columnNames = columnNames;
+    }
+
+    // New headers; clears the rows
+    public void setColumns(String[] columnNames) {
+        this.columnNames = columnNames;
+        history = null;
+        rowCount = 0;
+        fireTableStructureChanged();
+    }
+
+    public void clear() {
+        history = null;
+        rowCount = 0;
+        fireTableDataChanged();
+    }
+
+    // Start showing a history that a solver is filling in
+    public void attach(IterationHistory history, CellFormatter formatter) {
+        this.history = history;
+        this.formatter = formatter;
+        rowCount = 0;
+        fireTableDataChanged();
+    }
+
+    // More rows of the attached history are ready (called on the EDT)
+    public void rowsAvailable(int count) {
+        if (history == null || count <= rowCount) {
+            return;
+        }
+        int first = rowCount;
+        rowCount = count;
+        fireTableRowsInserted(first, count - 1);
+    }
+
+    // The solve has finished; show every recorded row
+    public void complete() {
+        if (history != null) {
+            rowCount = history.rows();
+        }
+        fireTableDataChanged();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        if (column == 0) {
+            return row + 1;
+        }
+        return formatter.format(history, row, column);
+    }
+}
@@ -0,0 +1,11 @@
+// A recorded iteration table, read only: rows() rows of columns().length
+// doubles. Recorders and traces read back from a file both provide one, so the
+// table model and the trace writer accept either.
+public interface IterationHistory {
+    // Rows available through get(); oldest first
+    int rows();
+
+    double get(int row, int column);
+
+    String[] columns();
+}
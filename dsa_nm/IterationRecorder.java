@@ -0,0 +1,180 @@
+import java.util.Arrays;
+
+// Receives one row of doubles per solver iteration. The solver reuses the same
+// row array for every call, so recorders copy what they keep and a solve
+// allocates nothing per iteration. What is kept is read through IterationHistory.
+public interface IterationRecorder extends IterationHistory {
+    // Called once before the first iteration; resets any previous history
+    void start(String... columns);
+
+    void record(double[] row);
+
+    // Iterations seen since start(); rows() may keep fewer
+    int iterations();
+
+    static NoOp none() {
+        return new NoOp();
+    }
+
+    static RingBuffer lastRows(int capacity) {
+        return new RingBuffer(capacity);
+    }
+
+    static Columnar full() {
+        return new Columnar();
+    }
+
+    // Keeps only the iteration count (and the latest row, which the solver owns)
+    class NoOp implements IterationRecorder {
+        private String[] columns = new String[0];
+        private int iterations;
+
+        @Override
+        public void start(String... columns) {
+            this.columns = columns;
+            iterations = 0;
+        }
+
+        @Override
+        public void record(double[] row) {
+            iterations++;
+        }
+
+        @Override
+        public int iterations() {
+            return iterations;
+        }
+
+        @Override
+        public int rows() {
+            return 0;
+        }
+
+        @Override
+        public double get(int row, int column) {
+            throw new IndexOutOfBoundsException("No rows are kept");
+        }
+
+        @Override
+        public String[] columns() {
+            return columns;
+        }
+    }
+
+    // Last `capacity` rows in one flat double[] (row-major, circular)
+    class RingBuffer implements IterationRecorder {
+        private final int capacity;
+        private String[] columns = new String[0];
+        private double[] data = new double[0];
+        private int width;
+        private int iterations;
+
+        RingBuffer(int capacity) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("Capacity must be greater than 0.");
+            }
+            this.capacity = capacity;
+        }
+
+        @Override
+        public void start(String... columns) {
+            this.columns = columns;
+            width = columns.length;
+            if (data.length != capacity * width) {
+                data = new double[capacity * width];
+            }
+            iterations = 0;
+        }
+
+        @Override
+        public void record(double[] row) {
+            int slot = iterations % capacity;
+            System.arraycopy(row, 0, data, slot * width, width);
+            iterations++;
+        }
+
+        @Override
+        public int iterations() {
+            return iterations;
+        }
+
+        @Override
+        public int rows() {
+            return Math.min(iterations, capacity);
+        }
+
+        // Iteration number (1-based) of a retained row
+        public int iterationOf(int row) {
+            return iterations - rows() + row + 1;
+        }
+
+        @Override
+        public double get(int row, int column) {
+            if (row < 0 || row >= rows()) {
+                throw new IndexOutOfBoundsException("Row " + row);
+            }
+            int slot = (iterations - rows() + row) % capacity;
+            return data[slot * width + column];
+        }
+
+        @Override
+        public String[] columns() {
+            return columns;
+        }
+    }
+
+    // Complete history as one growable double[] per column (struct of arrays)
+    class Columnar implements IterationRecorder {
+        private String[] columns = new String[0];
+        private double[][] data = new double[0][];
+        private int iterations;
+
+        @Override
+        public void start(String... columns) {
+            this.columns = columns;
+            data = new double[columns.length][16];
+            iterations = 0;
+        }
+
+        @Override
+        public void record(double[] row) {
+            if (data.length > 0 && iterations == data[0].length) {
+                for (int c = 0; c < data.length; c++) {
+                    data[c] = Arrays.copyOf(data[c], iterations * 2);
+                }
+            }
+            for (int c = 0; c < data.length; c++) {
+                data[c][iterations] = row[c];
+            }
+            iterations++;
+        }
+
+        @Override
+        public int iterations() {
+            return iterations;
+        }
+
+        @Override
+        public int rows() {
+            return iterations;
+        }
+
+        @Override
+        public double get(int row, int column) {
+            if (row < 0 || row >= iterations) {
+                throw new IndexOutOfBoundsException("Row " + row);
+            }
+            return data[column][row];
+        }
+
+        // Backing array of a column; only the first rows() entries are valid
+        public double[] column(int column) {
+            return data[column];
+        }
+
+        @Override
+        public String[] columns() {
+            return columns;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lock-free latency histogram with HDR-style log-linear buckets: exact up to
+// 64 ns, then 32 buckets per power of two, so any recorded value is known to
+// within about 3%. Covers 0 ns to about an hour in 1248 counters, with no
+// allocation when recording.
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;          // buckets per power of two
+    private static final int LINEAR = 2 * SUB_COUNT;              // values below this are exact
+    private static final int MAX_EXPONENT = 42;                   // 2^42 ns is about 73 minutes
+    private static final int BUCKETS = LINEAR + (MAX_EXPONENT - SUB_BITS) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(index(nanos));
+        total.increment();
+        sum.add(nanos);
+        long m = max.get();
+        while (nanos > m && !max.compareAndSet(m, nanos)) {
+            m = max.get();
+        }
+    }
+
+    private static int index(long v) {
+        if (v < LINEAR) {
+            return (int) v;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(v);   // >= SUB_BITS + 1
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int shift = exponent - SUB_BITS;
+        int sub = (int) (v >>> shift) - SUB_COUNT;           // 0 .. SUB_COUNT - 1
+        return LINEAR + (exponent - SUB_BITS - 1) * SUB_COUNT + sub;
+    }
+
+    // Largest value that falls in bucket i
+    private static long upperBound(int i) {
+        if (i < LINEAR) {
+            return i;
+        }
+        int exponent = (i - LINEAR) / SUB_COUNT + SUB_BITS + 1;
+        int sub = (i - LINEAR) % SUB_COUNT + SUB_COUNT;
+        int shift = exponent - SUB_BITS;
+        return ((long) (sub + 1) << shift) - 1;
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    public double mean() {
+        long n = count();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    // Value at or below which p (0..100) percent of the recordings fall
+    public long percentile(double p) {
+        long n = count();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(p / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max());
+            }
+        }
+        return max();
+    }
+
+    // count, mean, p50, p90, p99, p99.9 and max, in milliseconds
+    public Map<String, Object> summary() {
+        return summary(1e6, "Ms");
+    }
+
+    // Same for any recorded quantity (e.g. iteration counts): values are divided
+    // by scale and the keys get the unit suffix
+    public Map<String, Object> summary(double scale, String unit) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", count());
+        map.put("mean" + unit, mean() / scale);
+        map.put("p50" + unit, percentile(50) / scale);
+        map.put("p90" + unit, percentile(90) / scale);
+        map.put("p99" + unit, percentile(99) / scale);
+        map.put("p999" + unit, percentile(99.9) / scale);
+        map.put("max" + unit, max() / scale);
+        return map;
+    }
+}
@@ -0,0 +1,291 @@
+import net.objecthunter.exp4j.Expression;
+import net.objecthunter.exp4j.ExpressionBuilder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// F(x) = 0 for n equations in n named variables, each equation an exp4j
+// expression ("lhs = rhs" means lhs - (rhs)). Every equation and every nonzero
+// Jacobian entry is compiled (see ExpressionCompiler) as a function of the
+// variables it actually uses, so evaluating a row costs only its own terms and
+// the Jacobian's sparsity comes for free. Partial derivatives are symbolic
+// (constant ones are folded to numbers) unless finite differences are asked
+// for or an entry cannot be differentiated. Rows are independent, so F and J
+// are filled in parallel blocks of rows; each row's functions are only ever
+// touched by the thread filling that row.
+public final class NonlinearSystem {
+    public enum Jacobian { SYMBOLIC, FINITE_DIFFERENCE }
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+    private static final double FD_STEP = Math.sqrt(Math.ulp(1.0));
+
+    final String[] variables;
+    private final Row[] rows;
+    private final Jacobian mode;
+
+    // One equation: F_i and the nonzero entries of row i of J
+    private static final class Row {
+        final Term f;
+        final int[] columns;           // variables used, as indices into x
+        final Term[] partials;         // null where the entry is constant or finite-differenced
+        final double[] constants;      // value of constant entries
+        final boolean[] numeric;       // finite-differenced entries
+
+        Row(Term f, int[] columns) {
+            this.f = f;
+            this.columns = columns;
+            this.partials = new Term[columns.length];
+            this.constants = new double[columns.length];
+            this.numeric = new boolean[columns.length];
+        }
+    }
+
+    // A function of some of the variables, evaluated at a full vector x
+    private abstract static class Term {
+        abstract double evaluate(double[] x);
+    }
+
+    // Generated code; the first used variable is the argument, the rest are
+    // parameters written straight into the instance
+    private static final class CompiledTerm extends Term {
+        private final CompiledFunction f;
+        private final int argument;
+        private final int[] parameters;
+
+        CompiledTerm(CompiledFunction f, int argument, int[] parameters) {
+            this.f = f;
+            this.argument = argument;
+            this.parameters = parameters;
+        }
+
+        @Override
+        double evaluate(double[] x) {
+            double[] values = f.parameters;
+            for (int k = 0; k < parameters.length; k++) {
+                values[k] = x[parameters[k]];
+            }
+            return f.applyAsDouble(argument >= 0 ? x[argument] : 0);
+        }
+    }
+
+    // exp4j's interpreter (-Dnm.interpret=true, or code generation failed)
+    private static final class InterpretedTerm extends Term {
+        private final Expression expression;
+        private final String[] names;
+        private final int[] columns;
+
+        InterpretedTerm(Expression expression, String[] names, int[] columns) {
+            this.expression = expression;
+            this.names = names;
+            this.columns = columns;
+        }
+
+        @Override
+        double evaluate(double[] x) {
+            for (int k = 0; k < names.length; k++) {
+                expression.setVariable(names[k], x[columns[k]]);
+            }
+            return expression.evaluate();
+        }
+    }
+
+    // variables may be null, in which case every name that is not a function or
+    // constant becomes a variable, in order of first appearance
+    public NonlinearSystem(String[] equations, String[] variables, Jacobian mode) {
+        if (equations.length == 0) {
+            throw new IllegalArgumentException("Enter at least one equation.");
+        }
+        String[] normalized = new String[equations.length];
+        for (int i = 0; i < equations.length; i++) {
+            normalized[i] = toZeroForm(equations[i]);
+        }
+        this.variables = variables != null ? variables.clone() : findVariables(normalized);
+        if (this.variables.length != equations.length) {
+            throw new IllegalArgumentException("The system has " + equations.length + " equations in "
+                    + this.variables.length + " variables " + Arrays.toString(this.variables) + "; it must be square.");
+        }
+        Map<String, Integer> index = new HashMap<>();
+        for (int j = 0; j < this.variables.length; j++) {
+            if (index.put(this.variables[j], j) != null) {
+                throw new IllegalArgumentException("Variable " + this.variables[j] + " is listed twice.");
+            }
+        }
+        this.mode = mode;
+        this.rows = new Row[equations.length];
+        for (int i = 0; i < equations.length; i++) {
+            try {
+                rows[i] = buildRow(normalized[i], index);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Equation " + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    public int size() {
+        return rows.length;
+    }
+
+    public String[] variables() {
+        return variables.clone();
+    }
+
+    // Nonzero entries of the Jacobian
+    public long nonzeros() {
+        long count = 0;
+        for (Row row : rows) {
+            count += row.columns.length;
+        }
+        return count;
+    }
+
+    // "lhs = rhs" -> "(lhs)-(rhs)", normalized like the other solvers' input
+    static String toZeroForm(String equation) {
+        String s = ExpressionCache.normalize(equation);
+        int eq = s.indexOf('=');
+        if (eq < 0) {
+            return s;
+        }
+        if (s.indexOf('=', eq + 1) >= 0) {
+            throw new IllegalArgumentException("More than one '=' in " + equation);
+        }
+        return "(" + s.substring(0, eq) + ")-(" + s.substring(eq + 1) + ")";
+    }
+
+    private static String[] findVariables(String[] equations) {
+        Set<String> names = new LinkedHashSet<>();
+        for (String equation : equations) {
+            names.addAll(identifiers(equation));
+        }
+        names.removeAll(ExpressionNode.DEFAULT_CONSTANTS.keySet());
+        return names.toArray(new String[0]);
+    }
+
+    // Names in s that are not followed by '(' (i.e. not function calls)
+    private static Set<String> identifiers(String s) {
+        Set<String> names = new LinkedHashSet<>();
+        Matcher m = IDENTIFIER.matcher(s);
+        while (m.find()) {
+            if (m.end() >= s.length() || s.charAt(m.end()) != '(') {
+                names.add(m.group());
+            }
+        }
+        return names;
+    }
+
+    private Row buildRow(String equation, Map<String, Integer> index) {
+        List<String> used = new ArrayList<>();
+        for (String name : identifiers(equation)) {
+            if (index.containsKey(name)) {
+                used.add(name);
+            }
+        }
+        String[] names = used.toArray(new String[0]);
+        int[] columns = new int[names.length];
+        for (int k = 0; k < names.length; k++) {
+            columns[k] = index.get(names[k]);
+        }
+        Expression expression = new ExpressionBuilder(equation).variables(names).build();
+        ExpressionNode node = CompiledFunction.ENABLED ? ExpressionNode.of(expression) : null;
+
+        Row row = new Row(term(node, expression, names, columns, index), columns);
+        for (int k = 0; k < names.length; k++) {
+            if (mode == Jacobian.FINITE_DIFFERENCE || node == null) {
+                row.numeric[k] = true;
+                continue;
+            }
+            try {
+                ExpressionNode d = SymbolicDerivative.differentiate(node, names[k]);
+                if (d.isConstant()) {
+                    row.constants[k] = d.value;
+                } else {
+                    Term partial = compiled(d, index);
+                    if (partial != null) {
+                        row.partials[k] = partial;
+                    } else {
+                        row.numeric[k] = true;
+                    }
+                }
+            } catch (RuntimeException e) {
+                row.numeric[k] = true;
+            }
+        }
+        return row;
+    }
+
+    private static Term term(ExpressionNode node, Expression expression, String[] names, int[] columns, Map<String, Integer> index) {
+        Term compiled = node != null ? compiled(node, index) : null;
+        return compiled != null ? compiled : new InterpretedTerm(expression, names, columns);
+    }
+
+    // node as generated code, or null if it cannot be compiled
+    private static Term compiled(ExpressionNode node, Map<String, Integer> index) {
+        try {
+            Set<String> used = node.variables();
+            String argument = used.isEmpty() ? "" : used.iterator().next();
+            CompiledFunction f = ExpressionCompiler.compile(node, argument);
+            String[] parameterNames = f.parameterNames;
+            int[] parameters = new int[parameterNames.length];
+            for (int k = 0; k < parameterNames.length; k++) {
+                Integer column = index.get(parameterNames[k]);
+                if (column == null) {
+                    return null;   // a name that is not a variable (cannot happen for built expressions)
+                }
+                parameters[k] = column;
+            }
+            return new CompiledTerm(f, used.isEmpty() ? -1 : index.get(argument), parameters);
+        } catch (RuntimeException | LinkageError e) {
+            return null;
+        }
+    }
+
+    // f = F(x); returns max |f_i|. pool may be null.
+    public double evaluate(double[] x, double[] f, ForkJoinPool pool) {
+        double[] blockErrors = new double[jacobi_method.blockCount(rows.length, pool)];
+        return jacobi_method.runBlocks((from, to) -> {
+            double max = 0;
+            for (int i = from; i < to; i++) {
+                f[i] = rows[i].f.evaluate(x);
+                max = Math.max(max, Math.abs(f[i]));
+            }
+            return max;
+        }, rows.length, pool, blockErrors);
+    }
+
+    // j = J(x), dense n x n; f must hold F(x) (used by finite differences)
+    public void jacobian(double[] x, double[] f, double[][] j, ForkJoinPool pool) {
+        double[] blockErrors = new double[jacobi_method.blockCount(rows.length, pool)];
+        jacobi_method.runBlocks((from, to) -> {
+            double[] xh = null;      // this block's copy of x for finite differences
+            for (int i = from; i < to; i++) {
+                Row row = rows[i];
+                double[] ji = j[i];
+                Arrays.fill(ji, 0);
+                for (int k = 0; k < row.columns.length; k++) {
+                    int c = row.columns[k];
+                    if (row.partials[k] != null) {
+                        ji[c] = row.partials[k].evaluate(x);
+                    } else if (!row.numeric[k]) {
+                        ji[c] = row.constants[k];
+                    } else {
+                        if (xh == null) {
+                            xh = x.clone();
+                        }
+                        // Forward difference with a step scaled to x_c
+                        double h = FD_STEP * Math.max(1, Math.abs(x[c]));
+                        xh[c] = x[c] + h;
+                        ji[c] = (row.f.evaluate(xh) - f[i]) / h;
+                        xh[c] = x[c];
+                    }
+                }
+            }
+            return 0;
+        }, rows.length, pool, blockErrors);
+    }
+}
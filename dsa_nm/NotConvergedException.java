@@ -0,0 +1,35 @@
+// Thrown by a solver that uses up its maximum iterations without meeting the
+// tolerance. The last estimate comes with it, so an interactive caller can
+// still show how far the method got, while batch and service callers report
+// the solve as failed instead of returning a root that was never found.
+public class NotConvergedException extends ArithmeticException {
+    private static final long serialVersionUID = 1L;
+    static final String MESSAGE = "Method did not converge within maximum iterations.";
+
+    private final int iterations;
+    private final double[] estimate;
+
+    public NotConvergedException(int iterations, double estimate) {
+        this(iterations, new double[] {estimate});
+    }
+
+    public NotConvergedException(int iterations, double[] estimate) {
+        super(MESSAGE);
+        this.iterations = iterations;
+        this.estimate = estimate.clone();
+    }
+
+    public int iterations() {
+        return iterations;
+    }
+
+    // Last estimate of the root (the first component for a system)
+    public double estimate() {
+        return estimate[0];
+    }
+
+    // Last iterate of a system
+    public double[] solution() {
+        return estimate.clone();
+    }
+}
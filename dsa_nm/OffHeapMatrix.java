@@ -0,0 +1,324 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+// For Windows:
+// javac -cp ".;lib\exp4j-0.4.8.jar" OffHeapMatrix.java
+// java -cp ".;lib\exp4j-0.4.8.jar" OffHeapMatrix matrix.mtx matrix.nmcsr
+// A square or rectangular CSR matrix (see SparseMatrix) whose arrays live
+// outside the Java heap: in direct memory, or memory-mapped from an .nmcsr
+// file so that a system larger than RAM is paged in row by row as a sweep
+// walks it. Heap use is O(1) in the size of the matrix. Row pointers are longs,
+// so nnz may exceed 2^31. The file is little-endian:
+//
+//   header  "NMCSR001", int rows, int cols, long nnz, long capacity
+//   rowPtr  long[rows + 1]
+//   colIdx  int[capacity], zero padding to 8 bytes
+//   values  double[capacity]
+//
+// where only the first nnz entries of colIdx and values are used.
+public final class OffHeapMatrix {
+    private static final byte[] MAGIC = "NMCSR001".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER = 32;
+
+    public final int rows;
+    public final int cols;
+    private long nnz;
+    private final OffHeapMemory rowPtr;
+    private final OffHeapMemory colIdx;
+    private final OffHeapMemory values;
+
+    private OffHeapMatrix(int rows, int cols, long nnz, OffHeapMemory rowPtr, OffHeapMemory colIdx, OffHeapMemory values) {
+        this.rows = rows;
+        this.cols = cols;
+        this.nnz = nnz;
+        this.rowPtr = rowPtr;
+        this.colIdx = colIdx;
+        this.values = values;
+    }
+
+    public long nnz() {
+        return nnz;
+    }
+
+    // Index of the first nonzero of row i in colIdx/values; rowStart(rows) == nnz
+    long rowStart(int i) {
+        return rowPtr.getLong(8L * i);
+    }
+
+    int column(long k) {
+        return colIdx.getInt(4L * k);
+    }
+
+    double value(long k) {
+        return values.getDouble(8L * k);
+    }
+
+    public double get(int row, int col) {
+        for (long k = rowStart(row), end = rowStart(row + 1); k < end; k++) {
+            int c = column(k);
+            if (c == col) {
+                return value(k);
+            }
+            if (c > col) {
+                break;
+            }
+        }
+        return 0.0;
+    }
+
+    // Diagonal entries (0 where a row has none)
+    public OffHeapVector diagonal() {
+        OffHeapVector d = OffHeapVector.allocate(Math.min(rows, cols));
+        for (int i = 0; i < d.length; i++) {
+            d.set(i, get(i, i));
+        }
+        return d;
+    }
+
+    // y = A x
+    public void multiply(OffHeapVector x, OffHeapVector y) {
+        for (int i = 0; i < rows; i++) {
+            double sum = 0;
+            for (long k = rowStart(i), end = rowStart(i + 1); k < end; k++) {
+                sum += value(k) * x.get(column(k));
+            }
+            y.set(i, sum);
+        }
+    }
+
+    // Copies an in-heap matrix into direct memory
+    public static OffHeapMatrix copyOf(SparseMatrix a) {
+        int nnz = a.nnz();
+        OffHeapMatrix m = new OffHeapMatrix(a.rows, a.cols, nnz, OffHeapMemory.allocate(8L * (a.rows + 1)),
+                                            OffHeapMemory.allocate(4L * nnz), OffHeapMemory.allocate(8L * nnz));
+        for (int i = 0; i <= a.rows; i++) {
+            m.rowPtr.putLong(8L * i, a.rowPtr[i]);
+        }
+        for (int k = 0; k < nnz; k++) {
+            m.colIdx.putInt(4L * k, a.colIdx[k]);
+            m.values.putDouble(8L * k, a.values[k]);
+        }
+        return m;
+    }
+
+    // Maps an .nmcsr file read-only
+    public static OffHeapMatrix open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER) {
+                throw new IOException("Not an .nmcsr matrix file: " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not an .nmcsr matrix file: " + file);
+            }
+            int rows = header.getInt();
+            int cols = header.getInt();
+            long nnz = header.getLong();
+            long capacity = header.getLong();
+            if (rows < 0 || cols < 0 || nnz < 0 || nnz > capacity || channel.size() < fileSize(rows, capacity)) {
+                throw new IOException("Truncated or corrupt .nmcsr file: " + file);
+            }
+            return map(channel, FileChannel.MapMode.READ_ONLY, rows, cols, nnz, capacity);
+        }
+    }
+
+    private static OffHeapMatrix map(FileChannel channel, FileChannel.MapMode mode, int rows, int cols, long nnz, long capacity) throws IOException {
+        long colIdxAt = HEADER + 8L * (rows + 1);
+        long valuesAt = valuesOffset(rows, capacity);
+        return new OffHeapMatrix(rows, cols, nnz,
+                                 OffHeapMemory.map(channel, mode, HEADER, 8L * (rows + 1)),
+                                 OffHeapMemory.map(channel, mode, colIdxAt, 4L * capacity),
+                                 OffHeapMemory.map(channel, mode, valuesAt, 8L * capacity));
+    }
+
+    private static long valuesOffset(int rows, long capacity) {
+        return (HEADER + 8L * (rows + 1) + 4L * capacity + 7) & ~7L;
+    }
+
+    private static long fileSize(int rows, long capacity) {
+        return valuesOffset(rows, capacity) + 8L * capacity;
+    }
+
+    // Converts a "coordinate" Matrix Market file (real, integer or pattern;
+    // general or symmetric) into an .nmcsr file and maps it. The input is read
+    // twice, line by line: once to count the entries of each row, once to drop
+    // each entry into its row's slot in the mapping. Rows are then sorted by
+    // column and duplicates summed, as SparseMatrix.Builder does, so nothing
+    // proportional to the matrix is ever held on the heap.
+    public static OffHeapMatrix convert(Path matrixMarket, Path target) throws IOException {
+        int rows, cols;
+        boolean pattern, symmetric;
+        double mirror;
+        int entries;
+        try (BufferedReader in = Files.newBufferedReader(matrixMarket, StandardCharsets.US_ASCII)) {
+            String[] header = SparseMatrix.readHeader(in);
+            if (!header[2].equals("coordinate")) {
+                throw new IOException("Only coordinate Matrix Market files can be converted; dense arrays fit in memory anyway");
+            }
+            if (header[3].equals("complex")) {
+                throw new IOException("Complex Matrix Market files are not supported");
+            }
+            pattern = header[3].equals("pattern");
+            boolean skew = header[4].equals("skew-symmetric");
+            symmetric = header[4].equals("symmetric") || skew;
+            mirror = skew ? -1 : 1;
+            SparseMatrix.Tokens size = new SparseMatrix.Tokens(SparseMatrix.nextDataLine(in));
+            rows = size.nextInt();
+            cols = size.nextInt();
+            entries = size.nextInt();
+        }
+
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // Pass 1: rowPtr[i + 1] = number of entries in row i
+            OffHeapMemory rowPtr = OffHeapMemory.map(channel, FileChannel.MapMode.READ_WRITE, HEADER, 8L * (rows + 1));
+            try (BufferedReader in = dataLines(matrixMarket)) {
+                for (int k = 0; k < entries; k++) {
+                    SparseMatrix.Tokens t = new SparseMatrix.Tokens(SparseMatrix.nextDataLine(in));
+                    int i = t.nextInt() - 1;
+                    int j = t.nextInt() - 1;
+                    if (i < 0 || i >= rows || j < 0 || j >= cols) {
+                        throw new IOException("Entry (" + (i + 1) + ", " + (j + 1) + ") outside the " + rows + "x" + cols + " matrix");
+                    }
+                    increment(rowPtr, i + 1);
+                    if (symmetric && i != j) {
+                        increment(rowPtr, j + 1);
+                    }
+                }
+            }
+            for (int i = 0; i < rows; i++) {
+                rowPtr.putLong(8L * (i + 1), rowPtr.getLong(8L * (i + 1)) + rowPtr.getLong(8L * i));
+            }
+            long capacity = rowPtr.getLong(8L * rows);
+
+            // Pass 2: rowPtr[i] is the next free slot of row i, so afterwards it
+            // holds the end of row i; shifting by one restores the starts
+            OffHeapMatrix m = map(channel, FileChannel.MapMode.READ_WRITE, rows, cols, capacity, capacity);
+            try (BufferedReader in = dataLines(matrixMarket)) {
+                for (int k = 0; k < entries; k++) {
+                    SparseMatrix.Tokens t = new SparseMatrix.Tokens(SparseMatrix.nextDataLine(in));
+                    int i = t.nextInt() - 1;
+                    int j = t.nextInt() - 1;
+                    double value = pattern ? 1.0 : t.nextDouble();
+                    m.place(i, j, value);
+                    if (symmetric && i != j) {
+                        m.place(j, i, mirror * value);
+                    }
+                }
+            }
+            for (int i = rows - 1; i > 0; i--) {
+                m.rowPtr.putLong(8L * i, m.rowPtr.getLong(8L * (i - 1)));
+            }
+            m.rowPtr.putLong(0, 0);
+
+            m.sortAndMerge();
+            writeHeader(channel, rows, cols, m.nnz, capacity);
+            m.rowPtr.force();
+            m.colIdx.force();
+            m.values.force();
+            return m;
+        }
+    }
+
+    private static BufferedReader dataLines(Path matrixMarket) throws IOException {
+        BufferedReader in = Files.newBufferedReader(matrixMarket, StandardCharsets.US_ASCII);
+        in.readLine();
+        SparseMatrix.nextDataLine(in);
+        return in;
+    }
+
+    private static void increment(OffHeapMemory memory, int index) {
+        memory.putLong(8L * index, memory.getLong(8L * index) + 1);
+    }
+
+    private void place(int row, int col, double value) {
+        long slot = rowStart(row);
+        rowPtr.putLong(8L * row, slot + 1);
+        colIdx.putInt(4L * slot, col);
+        values.putDouble(8L * slot, value);
+    }
+
+    // Sorts each row by column and merges duplicates, compacting in place
+    private void sortAndMerge() {
+        long out = 0;
+        long start = 0;
+        for (int i = 0; i < rows; i++) {
+            long end = rowStart(i + 1);
+            sortRow(start, end);
+            long first = out;
+            rowPtr.putLong(8L * i, first);
+            for (long k = start; k < end; k++) {
+                int c = column(k);
+                if (out > first && column(out - 1) == c) {
+                    values.putDouble(8L * (out - 1), value(out - 1) + value(k));
+                } else {
+                    colIdx.putInt(4L * out, c);
+                    values.putDouble(8L * out, value(k));
+                    out++;
+                }
+            }
+            start = end;
+        }
+        rowPtr.putLong(8L * rows, out);
+        nnz = out;
+    }
+
+    // Insertion sort; rows of discretized PDEs hold only a handful of entries
+    private void sortRow(long from, long to) {
+        for (long i = from + 1; i < to; i++) {
+            int c = column(i);
+            double v = value(i);
+            long j = i - 1;
+            while (j >= from && column(j) > c) {
+                colIdx.putInt(4L * (j + 1), column(j));
+                values.putDouble(8L * (j + 1), value(j));
+                j--;
+            }
+            colIdx.putInt(4L * (j + 1), c);
+            values.putDouble(8L * (j + 1), v);
+        }
+    }
+
+    private static void writeHeader(FileChannel channel, int rows, int cols, long nnz, long capacity) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC).putInt(rows).putInt(cols).putLong(nnz).putLong(capacity).flip();
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+    }
+
+    // Converts a Matrix Market file to .nmcsr, or reports on an existing .nmcsr file
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: java OffHeapMatrix matrix.mtx [matrix.nmcsr]");
+            System.out.println("       java OffHeapMatrix matrix.nmcsr");
+            return;
+        }
+        try {
+            Path source = Paths.get(args[0]);
+            OffHeapMatrix m;
+            if (args[0].endsWith(".nmcsr")) {
+                m = open(source);
+            } else {
+                String name = source.getFileName().toString().replaceFirst("\\.mtx$", "");
+                Path target = args.length > 1 ? Paths.get(args[1]) : source.resolveSibling(name + ".nmcsr");
+                m = convert(source, target);
+                System.out.println("Wrote " + target);
+            }
+            System.out.println(m.rows + "x" + m.cols + " matrix with " + m.nnz() + " nonzeros.");
+        } catch (IOException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+}
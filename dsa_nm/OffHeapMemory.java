@@ -0,0 +1,87 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// A run of off-heap bytes addressed by a long offset. One ByteBuffer is limited
+// to 2 GiB, so the bytes are split into 1 GiB windows; callers keep each value
+// aligned to its size so none straddles two windows. The memory is either
+// direct (freed when this object becomes unreachable) or a mapping of part of
+// a file (paged in and out by the OS, so it may be larger than RAM).
+// Little-endian, like TraceFile.
+final class OffHeapMemory {
+    private static final int WINDOW_BITS = 30;
+    private static final long WINDOW_MASK = (1L << WINDOW_BITS) - 1;
+
+    final long size;
+    private final ByteBuffer[] windows;
+
+    private OffHeapMemory(long size, ByteBuffer[] windows) {
+        this.size = size;
+        this.windows = windows;
+    }
+
+    static OffHeapMemory allocate(long bytes) {
+        ByteBuffer[] windows = new ByteBuffer[windowCount(bytes)];
+        for (int i = 0; i < windows.length; i++) {
+            windows[i] = ByteBuffer.allocateDirect(windowSize(bytes, i)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new OffHeapMemory(bytes, windows);
+    }
+
+    // Maps [position, position + bytes) of the file; READ_WRITE grows the file
+    // to cover it. The mapping stays valid after the channel is closed.
+    static OffHeapMemory map(FileChannel channel, FileChannel.MapMode mode, long position, long bytes) throws IOException {
+        ByteBuffer[] windows = new ByteBuffer[windowCount(bytes)];
+        for (int i = 0; i < windows.length; i++) {
+            long start = position + ((long) i << WINDOW_BITS);
+            windows[i] = channel.map(mode, start, windowSize(bytes, i)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new OffHeapMemory(bytes, windows);
+    }
+
+    private static int windowCount(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("Negative size: " + bytes);
+        }
+        return (int) ((bytes + WINDOW_MASK) >>> WINDOW_BITS);
+    }
+
+    private static int windowSize(long bytes, int window) {
+        return (int) Math.min(bytes - ((long) window << WINDOW_BITS), 1L << WINDOW_BITS);
+    }
+
+    double getDouble(long offset) {
+        return windows[(int) (offset >>> WINDOW_BITS)].getDouble((int) (offset & WINDOW_MASK));
+    }
+
+    void putDouble(long offset, double value) {
+        windows[(int) (offset >>> WINDOW_BITS)].putDouble((int) (offset & WINDOW_MASK), value);
+    }
+
+    long getLong(long offset) {
+        return windows[(int) (offset >>> WINDOW_BITS)].getLong((int) (offset & WINDOW_MASK));
+    }
+
+    void putLong(long offset, long value) {
+        windows[(int) (offset >>> WINDOW_BITS)].putLong((int) (offset & WINDOW_MASK), value);
+    }
+
+    int getInt(long offset) {
+        return windows[(int) (offset >>> WINDOW_BITS)].getInt((int) (offset & WINDOW_MASK));
+    }
+
+    void putInt(long offset, int value) {
+        windows[(int) (offset >>> WINDOW_BITS)].putInt((int) (offset & WINDOW_MASK), value);
+    }
+
+    // Writes changes of a mapping back to its file; a no-op for direct memory
+    void force() {
+        for (ByteBuffer window : windows) {
+            if (window instanceof MappedByteBuffer) {
+                ((MappedByteBuffer) window).force();
+            }
+        }
+    }
+}
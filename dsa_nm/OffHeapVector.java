@@ -0,0 +1,115 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// A vector of doubles stored outside the Java heap, either in direct memory or
+// in a memory-mapped file, so a 10^7-entry iterate costs the GC nothing.
+// get and set use absolute indices and keep no position, so threads may read
+// concurrently and write disjoint entries.
+public final class OffHeapVector {
+    public final int length;
+    private final OffHeapMemory memory;
+
+    private OffHeapVector(int length, OffHeapMemory memory) {
+        this.length = length;
+        this.memory = memory;
+    }
+
+    // Zero-filled direct memory
+    public static OffHeapVector allocate(int length) {
+        checkLength(length);
+        return new OffHeapVector(length, OffHeapMemory.allocate(8L * length));
+    }
+
+    // Maps a file of length doubles (little-endian), creating or growing it as
+    // needed; existing contents are kept
+    public static OffHeapVector map(Path file, int length) throws IOException {
+        checkLength(length);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.CREATE)) {
+            return new OffHeapVector(length, OffHeapMemory.map(channel, FileChannel.MapMode.READ_WRITE, 0, 8L * length));
+        }
+    }
+
+    public static OffHeapVector of(double[] values) {
+        OffHeapVector v = allocate(values.length);
+        for (int i = 0; i < values.length; i++) {
+            v.set(i, values[i]);
+        }
+        return v;
+    }
+
+    // Reads a Matrix Market vector (a one-column "array" file or a coordinate
+    // n x 1 matrix) straight into direct memory, one line at a time
+    public static OffHeapVector readMatrixMarket(Path file) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+            String[] header = SparseMatrix.readHeader(in);
+            if (header[3].equals("complex")) {
+                throw new IOException("Complex Matrix Market files are not supported");
+            }
+            boolean pattern = header[3].equals("pattern");
+            SparseMatrix.Tokens size = new SparseMatrix.Tokens(SparseMatrix.nextDataLine(in));
+            int rows = size.nextInt();
+            int cols = size.nextInt();
+            if (cols != 1) {
+                throw new IOException("Expected a single-column vector, found " + rows + "x" + cols);
+            }
+            OffHeapVector v = allocate(rows);
+            if (header[2].equals("coordinate")) {
+                int entries = size.nextInt();
+                for (int k = 0; k < entries; k++) {
+                    SparseMatrix.Tokens t = new SparseMatrix.Tokens(SparseMatrix.nextDataLine(in));
+                    int i = t.nextInt() - 1;
+                    t.nextInt();
+                    if (i < 0 || i >= rows) {
+                        throw new IOException("Entry " + (i + 1) + " outside the " + rows + "-entry vector");
+                    }
+                    v.set(i, v.get(i) + (pattern ? 1.0 : t.nextDouble()));
+                }
+            } else {
+                for (int i = 0; i < rows; i++) {
+                    v.set(i, new SparseMatrix.Tokens(SparseMatrix.nextDataLine(in)).nextDouble());
+                }
+            }
+            return v;
+        }
+    }
+
+    private static void checkLength(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Vector length must not be negative: " + length);
+        }
+    }
+
+    public double get(int i) {
+        return memory.getDouble(8L * i);
+    }
+
+    public void set(int i, double value) {
+        memory.putDouble(8L * i, value);
+    }
+
+    public void fill(double value) {
+        for (int i = 0; i < length; i++) {
+            set(i, value);
+        }
+    }
+
+    // Copies the first count entries onto the heap (e.g. for printing)
+    public double[] toArray(int count) {
+        double[] values = new double[Math.min(count, length)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = get(i);
+        }
+        return values;
+    }
+
+    // Writes a mapped vector back to its file
+    public void force() {
+        memory.force();
+    }
+}
@@ -0,0 +1,458 @@
+import net.objecthunter.exp4j.Expression;
+import net.objecthunter.exp4j.function.Function;
+import net.objecthunter.exp4j.operator.Operator;
+import java.util.Arrays;
+import java.util.Comparator;
+
+// p(x) = c[0] + c[1] x + ... + c[n] x^n, evaluated with Horner's scheme (n
+// multiply-adds, no Math.pow). CompiledFunction.compile returns one of these
+// when the expression is a polynomial in x that expanding does not make less
+// accurate (see forEvaluation), so every solver gets the fast path without
+// asking for it. Immutable, so copy() returns this.
+public final class Polynomial extends CompiledFunction {
+    public static final int MAX_DEGREE = 256;
+    // How much larger sum |c[i]| may be than the terms as written before
+    // forEvaluation keeps the written form
+    static final double MAX_GROWTH = 4;
+
+    private final double[] c;   // ascending powers; c[n] != 0 unless p is constant
+
+    public Polynomial(double... coefficients) {
+        super(new String[0], new double[0], new Function[0], new Operator[0]);
+        int n = coefficients.length - 1;
+        while (n > 0 && coefficients[n] == 0) {
+            n--;
+        }
+        this.c = n < 0 ? new double[1] : Arrays.copyOf(coefficients, n + 1);
+    }
+
+    // The polynomial an exp4j expression in x stands for, or null if it is not one
+    public static Polynomial of(Expression expression) {
+        ExpressionNode node = ExpressionNode.of(expression);
+        return node != null ? of(node, "x") : null;
+    }
+
+    // Expands sums, products, integer powers and division by constants; null as
+    // soon as anything else (another variable, sin(x), x^0.5, 1/x) turns up
+    public static Polynomial of(ExpressionNode node, String variable) {
+        double[] coefficients = expand(node, variable);
+        return coefficients != null ? new Polynomial(coefficients) : null;
+    }
+
+    // of(node, variable) if Horner's scheme on the expanded coefficients is about
+    // as accurate as node as written, otherwise null. Horner's rounding error is
+    // about eps * sum |c[i] x^i|, and multiplying out factors inflates that sum:
+    // (x - 2)^30 has sum |c[i]| = 3^30, so near x = 2 the expanded form returns
+    // rounding noise where the factored one is exact to a few ulps. Sums of c*x^k
+    // terms pass unchanged; products pass while the expanded sum |c[i]| stays
+    // within MAX_GROWTH of the largest factor's.
+    public static Polynomial forEvaluation(ExpressionNode node, String variable) {
+        double[] coefficients = expand(node, variable);
+        if (coefficients == null) {
+            return null;
+        }
+        double sum = 0;
+        for (double c : coefficients) {
+            sum += Math.abs(c);
+        }
+        return sum <= MAX_GROWTH * written(node, variable) ? new Polynomial(coefficients) : null;
+    }
+
+    // Sum |c[i]| of node before any product of non-constant factors is
+    // multiplied out; such a product counts as its largest factor. Only called
+    // on trees that expand.
+    private static double written(ExpressionNode n, String v) {
+        double[] value = expand(n, v);
+        if (degree(value) == 0) {
+            return Math.abs(value[0]);
+        }
+        switch (n.kind) {
+            case VARIABLE:
+                return 1;
+            case NEGATE:
+                return written(n.args[0], v);
+            case ADD:
+            case SUBTRACT:
+                return written(n.args[0], v) + written(n.args[1], v);
+            case MULTIPLY: {
+                double a = written(n.args[0], v), b = written(n.args[1], v);
+                if (degree(expand(n.args[0], v)) == 0 || degree(expand(n.args[1], v)) == 0) {
+                    return a * b;
+                }
+                return Math.max(a, b);
+            }
+            case DIVIDE:
+                return written(n.args[0], v) / written(n.args[1], v);
+            default:
+                // A power of x alone is one term; of anything longer, its base
+                return written(n.args[0], v);
+        }
+    }
+
+    private static double[] expand(ExpressionNode n, String v) {
+        switch (n.kind) {
+            case CONSTANT:
+                return new double[]{n.value};
+            case VARIABLE:
+                return n.name.equals(v) ? new double[]{0, 1} : null;
+            case NEGATE: {
+                double[] a = expand(n.args[0], v);
+                if (a == null) return null;
+                for (int i = 0; i < a.length; i++) a[i] = -a[i];
+                return a;
+            }
+            case ADD:
+            case SUBTRACT: {
+                double[] a = expand(n.args[0], v);
+                double[] b = expand(n.args[1], v);
+                if (a == null || b == null) return null;
+                double sign = n.kind == ExpressionNode.Kind.ADD ? 1 : -1;
+                double[] r = Arrays.copyOf(a, Math.max(a.length, b.length));
+                for (int i = 0; i < b.length; i++) r[i] += sign * b[i];
+                return r;
+            }
+            case MULTIPLY: {
+                double[] a = expand(n.args[0], v);
+                double[] b = expand(n.args[1], v);
+                return a == null || b == null ? null : multiply(a, b);
+            }
+            case DIVIDE: {
+                double[] a = expand(n.args[0], v);
+                double[] b = expand(n.args[1], v);
+                // exp4j throws for a zero divisor; leave that to the generic path
+                if (a == null || b == null || degree(b) != 0 || b[0] == 0) return null;
+                for (int i = 0; i < a.length; i++) a[i] /= b[0];
+                return a;
+            }
+            case MODULO: {
+                double[] a = expand(n.args[0], v);
+                double[] b = expand(n.args[1], v);
+                if (a == null || b == null || degree(a) != 0 || degree(b) != 0 || b[0] == 0) return null;
+                return new double[]{a[0] % b[0]};
+            }
+            case POWER:
+                return power(n.args[0], n.args[1], v);
+            case FUNCTION:
+                return n.name.equals("pow") && n.args.length == 2 ? power(n.args[0], n.args[1], v) : null;
+            default:
+                return null;
+        }
+    }
+
+    private static double[] power(ExpressionNode baseNode, ExpressionNode exponentNode, String v) {
+        double[] base = expand(baseNode, v);
+        double[] exponent = expand(exponentNode, v);
+        if (base == null || exponent == null || degree(exponent) != 0) return null;
+        double e = exponent[0];
+        if (degree(base) == 0) {
+            return new double[]{Math.pow(base[0], e)};
+        }
+        if (e < 0 || e != Math.rint(e) || degree(base) * e > MAX_DEGREE) return null;
+        // Square and multiply
+        double[] result = {1};
+        for (int k = (int) e; k > 0; k >>= 1) {
+            if ((k & 1) != 0) result = multiply(result, base);
+            if (k > 1) base = multiply(base, base);
+        }
+        return result;
+    }
+
+    private static double[] multiply(double[] a, double[] b) {
+        int da = degree(a), db = degree(b);
+        double[] r = new double[da + db + 1];
+        for (int i = 0; i <= da; i++) {
+            for (int j = 0; j <= db; j++) {
+                r[i + j] += a[i] * b[j];
+            }
+        }
+        return r;
+    }
+
+    private static int degree(double[] a) {
+        int n = a.length - 1;
+        while (n > 0 && a[n] == 0) {
+            n--;
+        }
+        return n;
+    }
+
+    public int degree() {
+        return c.length - 1;
+    }
+
+    // Ascending powers: c[i] multiplies x^i
+    public double[] coefficients() {
+        return c.clone();
+    }
+
+    @Override
+    public double applyAsDouble(double x) {
+        double[] c = this.c;
+        double p = c[c.length - 1];
+        for (int i = c.length - 2; i >= 0; i--) {
+            p = p * x + c[i];
+        }
+        return p;
+    }
+
+    // One Horner step for all points at a time: the inner loop is a plain
+    // multiply-add over arrays, which the JIT vectorizes
+    @Override
+    public void evaluateBatch(double[] xs, double[] out) {
+        checkBatch(xs, out);
+        if (out == xs) {
+            for (int i = 0; i < xs.length; i++) {
+                out[i] = applyAsDouble(xs[i]);
+            }
+            return;
+        }
+        int n = xs.length;
+        Arrays.fill(out, 0, n, c[c.length - 1]);
+        for (int k = c.length - 2; k >= 0; k--) {
+            double ck = c[k];
+            for (int i = 0; i < n; i++) {
+                out[i] = out[i] * xs[i] + ck;
+            }
+        }
+    }
+
+    // p'(x) by synthetic division: dividing p by (x - x0) leaves p(x0) as the
+    // remainder and a quotient q with q(x0) = p'(x0), both in one pass
+    public double derivativeAt(double x) {
+        double p = c[c.length - 1];
+        double q = 0;
+        for (int i = c.length - 2; i >= 0; i--) {
+            q = q * x + p;
+            p = p * x + c[i];
+        }
+        return q;
+    }
+
+    public Polynomial derivative() {
+        if (c.length == 1) {
+            return new Polynomial(0);
+        }
+        double[] d = new double[c.length - 1];
+        for (int i = 1; i < c.length; i++) {
+            d[i - 1] = i * c[i];
+        }
+        return new Polynomial(d);
+    }
+
+    // Quotient of p / (x - root), dropping the remainder
+    public Polynomial deflate(double root) {
+        if (c.length == 1) {
+            return this;
+        }
+        double[] q = new double[c.length - 1];
+        double carry = c[c.length - 1];
+        for (int i = c.length - 2; i >= 0; i--) {
+            q[i] = carry;
+            carry = carry * root + c[i];
+        }
+        return new Polynomial(q);
+    }
+
+    // Sum of |c[i] x^i|: the scale that rounding errors in p(x) are relative to
+    private double magnitudeAt(double x) {
+        double m = Math.abs(c[c.length - 1]);
+        for (int i = c.length - 2; i >= 0; i--) {
+            m = m * Math.abs(x) + Math.abs(c[i]);
+        }
+        return m;
+    }
+
+    @Override
+    public CompiledFunction copy() {
+        return this;
+    }
+
+    // A root re + im*i; roots of real polynomials come in conjugate pairs
+    public static class Root {
+        public final double re, im;
+        // false when maxIterations ran out before this root met the tolerance
+        public final boolean converged;
+
+        Root(double re, double im, boolean converged) {
+            this.re = re;
+            this.im = im;
+            this.converged = converged;
+        }
+
+        public static boolean allConverged(Root[] roots) {
+            for (Root root : roots) {
+                if (!root.converged) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public boolean isReal() {
+            return im == 0;
+        }
+
+        public String format(String formatStr) {
+            if (isReal()) {
+                return String.format(formatStr, re);
+            }
+            return String.format(formatStr, re) + (im < 0 ? " - " : " + ") + String.format(formatStr, Math.abs(im)) + "i";
+        }
+    }
+
+    // All n roots at once with the Aberth-Ehrlich method: Newton's correction
+    // for each approximation, repelled from all the others so that no two
+    // converge to the same root. Cubic convergence for simple roots. Writes
+    // one (max correction, converged) row per sweep. Imaginary parts below the
+    // tolerance are rounded to 0; roots are sorted by real, then imaginary part.
+    // Roots still moving after maxIterations sweeps come back with converged
+    // set to false.
+    public Root[] roots(double tolerance, int maxIterations, IterationRecorder recorder) {
+        if (SolverMetrics.ENABLED) {
+            return SolverMetrics.measure("aberth", recorder, () -> aberth(tolerance, maxIterations, recorder));
+        }
+        return aberth(tolerance, maxIterations, recorder);
+    }
+
+    private Root[] aberth(double tolerance, int maxIterations, IterationRecorder recorder) {
+        int n = degree();
+        if (n == 0) {
+            throw new IllegalArgumentException("A constant polynomial has no roots to find.");
+        }
+        recorder.start("max correction", "converged");
+        double[] row = new double[2];
+
+        // x = 0 roots are exact; take them out first
+        int zeros = 0;
+        while (c[zeros] == 0) {
+            zeros++;
+        }
+        double[] a = Arrays.copyOfRange(c, zeros, c.length);
+        int m = a.length - 1;
+        double[] zr = new double[m];
+        double[] zi = new double[m];
+        boolean[] done = new boolean[m];
+
+        if (m > 0) {
+            // Start on a circle around the centroid of the roots, with a radius
+            // matching the size of the roots about it; the angle offset avoids
+            // symmetric starts that stall on real polynomials
+            double center = -a[m - 1] / (m * a[m]);
+            Polynomial reduced = new Polynomial(a);
+            double radius = Math.pow(Math.abs(reduced.applyAsDouble(center) / a[m]), 1.0 / m);
+            if (!(radius > 0) || Double.isInfinite(radius)) {
+                radius = 1;
+            }
+            for (int k = 0; k < m; k++) {
+                double angle = 2 * Math.PI * k / m + 0.4;
+                zr[k] = center + radius * Math.cos(angle);
+                zi[k] = radius * Math.sin(angle);
+            }
+
+            int converged = 0;
+            for (int iter = 0; iter < maxIterations && converged < m; iter++) {
+                double maxCorrection = 0;
+                for (int k = 0; k < m; k++) {
+                    if (done[k]) {
+                        continue;
+                    }
+                    // p(z) and p'(z) by complex synthetic division
+                    double pr = a[m], pi = 0, dr = 0, di = 0;
+                    double xr = zr[k], xi = zi[k];
+                    for (int j = m - 1; j >= 0; j--) {
+                        double t = dr * xr - di * xi + pr;
+                        di = dr * xi + di * xr + pi;
+                        dr = t;
+                        t = pr * xr - pi * xi + a[j];
+                        pi = pr * xi + pi * xr;
+                        pr = t;
+                    }
+                    if (pr == 0 && pi == 0) {
+                        done[k] = true;
+                        converged++;
+                        continue;
+                    }
+                    // Newton ratio p / p'
+                    double den = dr * dr + di * di;
+                    if (den == 0) {
+                        // Stationary point: nudge off it and try again next sweep
+                        zr[k] += tolerance;
+                        zi[k] += tolerance;
+                        maxCorrection = Math.max(maxCorrection, tolerance);
+                        continue;
+                    }
+                    double nr = (pr * dr + pi * di) / den;
+                    double ni = (pi * dr - pr * di) / den;
+                    // Repulsion sum of 1 / (z_k - z_j)
+                    double sr = 0, si = 0;
+                    for (int j = 0; j < m; j++) {
+                        if (j != k) {
+                            double ur = xr - zr[j], ui = xi - zi[j];
+                            double u = ur * ur + ui * ui;
+                            sr += ur / u;
+                            si -= ui / u;
+                        }
+                    }
+                    // w = ratio / (1 - ratio * sum)
+                    double br = 1 - (nr * sr - ni * si);
+                    double bi = -(nr * si + ni * sr);
+                    double bb = br * br + bi * bi;
+                    double wr = (nr * br + ni * bi) / bb;
+                    double wi = (ni * br - nr * bi) / bb;
+                    zr[k] = xr - wr;
+                    zi[k] = xi - wi;
+
+                    double correction = Math.hypot(wr, wi);
+                    maxCorrection = Math.max(maxCorrection, correction);
+                    if (correction <= tolerance * Math.max(1, Math.hypot(zr[k], zi[k]))) {
+                        done[k] = true;
+                        converged++;
+                    }
+                }
+                row[0] = maxCorrection;
+                row[1] = converged + zeros;
+                recorder.record(row);
+            }
+            if (converged < m) {
+                SolverMetrics.notConverged();
+            }
+        }
+
+        Root[] roots = new Root[n];
+        for (int k = 0; k < zeros; k++) {
+            roots[k] = new Root(0, 0, true);
+        }
+        for (int k = 0; k < m; k++) {
+            // Multiple roots only converge to about sqrt(tolerance), so also accept a
+            // small imaginary part when p is negligible at the real part alone
+            boolean real = Math.abs(zi[k]) <= tolerance * Math.max(1, Math.abs(zr[k]))
+                || (Math.abs(zi[k]) <= Math.sqrt(tolerance) * Math.max(1, Math.abs(zr[k]))
+                    && Math.abs(applyAsDouble(zr[k])) <= tolerance * magnitudeAt(zr[k]));
+            roots[zeros + k] = new Root(zr[k] + 0.0, real ? 0 : zi[k], done[k]);
+        }
+        Arrays.sort(roots, Comparator.<Root>comparingDouble(r -> r.re).thenComparingDouble(r -> r.im));
+        return roots;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = c.length - 1; i >= 0; i--) {
+            if (c[i] == 0 && c.length > 1) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append(c[i] < 0 ? " - " : " + ");
+            } else if (c[i] < 0) {
+                sb.append('-');
+            }
+            double coefficient = Math.abs(c[i]);
+            if (coefficient != 1 || i == 0) {
+                sb.append(coefficient);
+                if (i > 0) sb.append('*');
+            }
+            if (i > 0) sb.append(i == 1 ? "x" : "x^" + i);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,282 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.DoubleUnaryOperator;
+
+//javac -cp ".;lib\exp4j-0.4.8.jar;lib\flatlaf-3.2.5.jar" *.java
+//java -cp ".;lib\exp4j-0.4.8.jar" RootScanner
+// Finds every root of f in [a, b] without the user supplying a bracket.
+// f is sampled on a uniform grid (one evaluateBatch call); each sign change
+// becomes a bracket, and each local minimum of |f| that does not change sign
+// is zoomed into on a finer grid, which either uncovers a pair of close sign
+// changes or a tangent (even multiplicity) root. The brackets are then solved
+// in parallel with the chosen method and the roots returned sorted and
+// without duplicates.
+public class RootScanner {
+    public static final int DEFAULT_SAMPLES = 1000;
+
+    private static final int ZOOM_SAMPLES = 16;
+    private static final int MAX_ZOOM_DEPTH = 60;
+    private static final int SPLIT_THRESHOLD = 8;
+
+    // A sign change [lo, hi], or a tangent root found while zooming (lo == hi)
+    public static class Bracket {
+        public final double lo, hi;
+
+        Bracket(double lo, double hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        public boolean isTangent() {
+            return lo == hi;
+        }
+    }
+
+    public static List<Double> findRoots(String function, double a, double b, double tolerance, RootSolverBatch.Method method) {
+        ExpressionCache.CachedExpression entry = ExpressionCache.SHARED.get(function);
+        return findRoots(entry.function(), entry.derivative(),
+                         a, b, tolerance, method, DEFAULT_SAMPLES, ForkJoinPool.commonPool());
+    }
+
+    // df is only used by NEWTON and may be null (central differences). With a
+    // null pool the brackets are solved one after another on this thread.
+    public static List<Double> findRoots(CompiledFunction f, CompiledFunction df, double a, double b, double tolerance,
+                                         RootSolverBatch.Method method, int samples, ForkJoinPool pool) {
+        if (method == RootSolverBatch.Method.FIXED_POINT) {
+            throw new IllegalArgumentException("Fixed-point iteration cannot be used to scan for roots.");
+        }
+        Bracket[] brackets = brackets(f, a, b, tolerance, samples).toArray(new Bracket[0]);
+        double[] roots = new double[brackets.length];
+        if (pool != null) {
+            pool.invoke(new Solve(f, df, brackets, roots, tolerance, method, 0, brackets.length));
+        } else {
+            solveRange(f, df, brackets, roots, tolerance, method, 0, brackets.length);
+        }
+
+        Arrays.sort(roots);
+        List<Double> result = new ArrayList<>();
+        for (double r : roots) {
+            if (Double.isNaN(r)) {
+                continue;   // sorted last: poles and failed solves
+            }
+            if (result.isEmpty() || r - result.get(result.size() - 1) > 2 * tolerance) {
+                result.add(r);
+            }
+        }
+        return result;
+    }
+
+    // Sign changes and tangent roots of f in [a, b], in increasing order
+    public static List<Bracket> brackets(CompiledFunction f, double a, double b, double tolerance, int samples) {
+        if (!(a < b)) {
+            throw new IllegalArgumentException("Lower bound must be smaller than upper bound.");
+        }
+        if (samples < 2) {
+            throw new IllegalArgumentException("At least 2 samples are needed.");
+        }
+        List<Bracket> brackets = new ArrayList<>();
+        scan(f, a, b, samples, tolerance, 0, brackets);
+        return brackets;
+    }
+
+    // Samples [a, b] at n + 1 points and adds what it finds to out
+    private static void scan(CompiledFunction f, double a, double b, int n, double tolerance, int depth, List<Bracket> out) {
+        double[] xs = new double[n + 1];
+        double step = (b - a) / n;
+        for (int i = 0; i < n; i++) {
+            xs[i] = a + i * step;
+        }
+        xs[n] = b;
+        double[] fs = new double[n + 1];
+        evaluate(f, xs, fs);
+
+        for (int i = 0; i <= n; i++) {
+            if (fs[i] == 0) {
+                out.add(new Bracket(xs[i], xs[i]));
+                continue;
+            }
+            if (i < n && fs[i] * fs[i + 1] < 0) {
+                out.add(new Bracket(xs[i], xs[i + 1]));
+                continue;
+            }
+            // |f| dips without reaching zero between two neighbours: either two
+            // roots closer than the grid spacing or a root where f only touches 0
+            if (i > 0 && i < n && isDip(fs[i - 1], fs[i], fs[i + 1])) {
+                double width = xs[i + 1] - xs[i - 1];
+                if (width < tolerance) {
+                    if (Math.abs(fs[i]) < tolerance) {
+                        out.add(new Bracket(xs[i], xs[i]));
+                    }
+                } else if (depth < MAX_ZOOM_DEPTH) {
+                    scan(f, xs[i - 1], xs[i + 1], ZOOM_SAMPLES, tolerance, depth + 1, out);
+                }
+            }
+        }
+    }
+
+    // Same sign throughout and |f| lowest in the middle
+    private static boolean isDip(double left, double mid, double right) {
+        return (left > 0) == (mid > 0) && (mid > 0) == (right > 0)
+            && Math.abs(mid) <= Math.abs(left) && Math.abs(mid) < Math.abs(right);
+    }
+
+    // Functions like log(x) throw for some x; evaluate point by point then, and
+    // treat the failures as NaN, which never takes part in a sign change
+    private static void evaluate(CompiledFunction f, double[] xs, double[] fs) {
+        try {
+            f.evaluateBatch(xs, fs);
+        } catch (ArithmeticException e) {
+            for (int i = 0; i < xs.length; i++) {
+                try {
+                    fs[i] = f.applyAsDouble(xs[i]);
+                } catch (ArithmeticException notDefined) {
+                    fs[i] = Double.NaN;
+                }
+            }
+        }
+    }
+
+    // Solves brackets[from, to) into roots[from, to); NaN for poles and failures
+    private static final class Solve extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CompiledFunction f, df;
+        private final Bracket[] brackets;
+        private final double[] roots;
+        private final double tolerance;
+        private final RootSolverBatch.Method method;
+        private final int from, to;
+
+        Solve(CompiledFunction f, CompiledFunction df, Bracket[] brackets, double[] roots, double tolerance,
+              RootSolverBatch.Method method, int from, int to) {
+            this.f = f;
+            this.df = df;
+            this.brackets = brackets;
+            this.roots = roots;
+            this.tolerance = tolerance;
+            this.method = method;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Solve(f, df, brackets, roots, tolerance, method, from, mid),
+                          new Solve(f, df, brackets, roots, tolerance, method, mid, to));
+                return;
+            }
+            // Compiled functions hold mutable state, so each task works on its own copies
+            solveRange(f.copy(), df != null ? df.copy() : null, brackets, roots, tolerance, method, from, to);
+        }
+    }
+
+    private static void solveRange(CompiledFunction f, CompiledFunction df, Bracket[] brackets, double[] roots,
+                                   double tolerance, RootSolverBatch.Method method, int from, int to) {
+        for (int i = from; i < to; i++) {
+            roots[i] = solve(f, df, brackets[i], tolerance, method);
+        }
+    }
+
+    private static double solve(CompiledFunction f, CompiledFunction df, Bracket bracket, double tolerance, RootSolverBatch.Method method) {
+        if (bracket.isTangent()) {
+            return bracket.lo;
+        }
+        double lo = bracket.lo, hi = bracket.hi;
+        IterationRecorder recorder = IterationRecorder.none();
+        double root = Double.NaN;
+        try {
+            switch (method) {
+                case SECANT:
+                    root = secant_method.secantIteration(f, lo, hi, tolerance, 100, recorder);
+                    break;
+                case NEWTON:
+                    root = newton_raphson.newtonRaphson(f, df, (lo + hi) / 2, tolerance, 100, recorder);
+                    break;
+                case BRENT:
+                    root = bracketing_methods.brentMethod(f, lo, hi, tolerance, 100, recorder);
+                    break;
+                case ILLINOIS:
+                    root = bracketing_methods.illinoisMethod(f, lo, hi, tolerance, 100, recorder);
+                    break;
+                case ITP:
+                    root = bracketing_methods.itpMethod(f, lo, hi, tolerance, 100, recorder);
+                    break;
+                default:
+                    break;
+            }
+        } catch (ArithmeticException e) {
+            // fall back to bisection below
+        }
+        // The open methods can leave the bracket and find a neighbouring root
+        // (or none); bisection on the bracket always stays inside it
+        if (!(root >= lo && root <= hi)) {
+            try {
+                root = bisection_method.bisectionMethod(f, lo, hi, tolerance, 100, recorder);
+            } catch (NotConvergedException e) {
+                // A tolerance below the spacing of doubles near the root; the
+                // midpoint of the last bracket is as close as doubles get
+                root = e.estimate();
+            }
+        }
+        return isPole(f, root, lo, hi) ? Double.NaN : root;
+    }
+
+    // A sign change across a pole (1/x, tan x) converges to the pole, where |f|
+    // grows instead of vanishing
+    private static boolean isPole(DoubleUnaryOperator f, double root, double lo, double hi) {
+        double fr;
+        try {
+            fr = Math.abs(f.applyAsDouble(root));
+        } catch (ArithmeticException e) {
+            return true;
+        }
+        return !(fr <= Math.max(Math.abs(f.applyAsDouble(lo)), Math.abs(f.applyAsDouble(hi))));
+    }
+
+    public static void main(String[] args) {
+        Scanner scanner = new Scanner(System.in);
+
+        try {
+            System.out.println("Enter function f(x) (e.g., sin(x), x^3 - 2*x - 5, (x-1)^2*(x+2)):");
+            String function = scanner.nextLine();
+
+            System.out.println("Enter lower bound (a):");
+            double a = Double.parseDouble(scanner.nextLine().trim());
+
+            System.out.println("Enter upper bound (b):");
+            double b = Double.parseDouble(scanner.nextLine().trim());
+
+            System.out.println("Enter tolerance (e.g., 0.001 or 1e-3):");
+            double tolerance = Double.parseDouble(scanner.nextLine().trim());
+            if (tolerance <= 0) {
+                System.out.println("Tolerance must be greater than 0.");
+                return;
+            }
+            if (tolerance < 1e-6) {
+                System.out.println("Tolerance cannot be smaller than 1e-6.");
+                return;
+            }
+
+            System.out.println("Choose method (bisection, brent, illinois, itp, secant or newton):");
+            RootSolverBatch.Method method = RootSolverBatch.Method.valueOf(scanner.nextLine().trim().toUpperCase());
+
+            List<Double> roots = findRoots(function, a, b, tolerance, method);
+            int decimalPlaces = bisection_method.getDecimalPlaces(tolerance);
+            String formatStr = "%." + decimalPlaces + "f";
+            System.out.println("Roots found in [" + a + ", " + b + "]: " + roots.size());
+            for (double root : roots) {
+                System.out.println("  x = " + String.format(formatStr, root));
+            }
+
+        } catch (Exception e) {
+            System.out.println("An error occurred: " + e.getMessage());
+            System.out.println("Please check your input and try again.");
+        }
+    }
+}
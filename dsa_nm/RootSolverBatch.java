@@ -0,0 +1,293 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Solves many independent root-finding jobs on a work-stealing ForkJoinPool.
+// Each function string is compiled once (through ExpressionCache.SHARED); every
+// worker thread then works on its own copy because compiled functions (like
+// exp4j Expressions) hold mutable variable state. Results are returned in job order.
+public class RootSolverBatch implements AutoCloseable {
+    public enum Method { BISECTION, BRENT, ILLINOIS, ITP, SECANT, NEWTON, FIXED_POINT }
+
+    public static class Job {
+        final Method method;
+        final String function;
+        final double a, b;               // bracket for bisection/Brent/Illinois/ITP, guesses otherwise
+        final double tolerance;
+        int maxIterations = 100;
+        final Map<String, Double> parameters = new LinkedHashMap<>();
+
+        private Job(Method method, String function, double a, double b, double tolerance) {
+            this.method = method;
+            this.function = function;
+            this.a = a;
+            this.b = b;
+            this.tolerance = tolerance;
+        }
+
+        public static Job bisection(String function, double a, double b, double tolerance) {
+            return new Job(Method.BISECTION, function, a, b, tolerance);
+        }
+
+        public static Job brent(String function, double a, double b, double tolerance) {
+            return new Job(Method.BRENT, function, a, b, tolerance);
+        }
+
+        public static Job illinois(String function, double a, double b, double tolerance) {
+            return new Job(Method.ILLINOIS, function, a, b, tolerance);
+        }
+
+        public static Job itp(String function, double a, double b, double tolerance) {
+            return new Job(Method.ITP, function, a, b, tolerance);
+        }
+
+        public static Job secant(String function, double x0, double x1, double tolerance) {
+            return new Job(Method.SECANT, function, x0, x1, tolerance);
+        }
+
+        public static Job newton(String function, double x0, double tolerance) {
+            return new Job(Method.NEWTON, function, x0, Double.NaN, tolerance);
+        }
+
+        public static Job fixedPoint(String function, double x0, double tolerance) {
+            return new Job(Method.FIXED_POINT, function, x0, Double.NaN, tolerance);
+        }
+
+        // Value for another variable in the function, e.g. p in x^2 - p
+        public Job parameter(String name, double value) {
+            parameters.put(name, value);
+            return this;
+        }
+
+        public Job maxIterations(int maxIterations) {
+            this.maxIterations = maxIterations;
+            return this;
+        }
+    }
+
+    public static class Result {
+        public final double root;
+        public final int iterations;
+        public final String error;       // null when the solver returned normally
+
+        Result(double root, int iterations, String error) {
+            this.root = root;
+            this.iterations = iterations;
+            this.error = error;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    // A worker's own copies of f and f'
+    private static final class Template {
+        final CompiledFunction f;
+        final CompiledFunction df;       // null if f' has to be approximated
+
+        Template(CompiledFunction f, CompiledFunction df) {
+            this.f = f;
+            this.df = df;
+        }
+    }
+
+    private static final int SPLIT_THRESHOLD = 64;
+    private static final int LOCAL_CAPACITY = 256;
+
+    private final ForkJoinPool pool;
+    // Keyed by the raw job text, so repeated jobs skip even the normalization
+    private final ThreadLocal<Map<String, Template>> local = ThreadLocal.withInitial(() ->
+        new LinkedHashMap<String, Template>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Template> eldest) {
+                return size() > LOCAL_CAPACITY;
+            }
+        });
+    // Set by traceTo; one trace file per method, opened on first use
+    private Path traceDirectory;
+    private final Map<Method, TraceFile.Writer> traces = new EnumMap<>(Method.class);
+    private final ThreadLocal<IterationRecorder.Columnar> traceRecorder = ThreadLocal.withInitial(IterationRecorder::full);
+
+    public RootSolverBatch() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public RootSolverBatch(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public List<Result> solve(Stream<Job> jobs) {
+        return solve(jobs.collect(Collectors.toList()));
+    }
+
+    public List<Result> solve(List<Job> jobs) {
+        Job[] input = jobs.toArray(new Job[0]);
+        Result[] output = new Result[input.length];
+        pool.invoke(new Chunk(input, output, 0, input.length));
+        List<Result> results = new ArrayList<>(output.length);
+        for (Result r : output) {
+            results.add(r);
+        }
+        return results;
+    }
+
+    // Starts solving in the background; join() returns the results in job order
+    public ForkJoinTask<List<Result>> submit(List<Job> jobs) {
+        Job[] input = jobs.toArray(new Job[0]);
+        Result[] output = new Result[input.length];
+        return pool.submit(() -> {
+            new Chunk(input, output, 0, input.length).invoke();
+            return Arrays.asList(output);
+        });
+    }
+
+    // Also write every successful solve's iteration history to
+    // <directory>/<method>.nmtrace (see TraceFile)
+    public RootSolverBatch traceTo(Path directory) {
+        this.traceDirectory = directory;
+        return this;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+        synchronized (traces) {
+            for (TraceFile.Writer writer : traces.values()) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    System.err.println("Could not close trace file: " + e.getMessage());
+                }
+            }
+            traces.clear();
+        }
+    }
+
+    private final class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Job[] jobs;
+        private final Result[] results;
+        private final int from, to;
+
+        Chunk(Job[] jobs, Result[] results, int from, int to) {
+            this.jobs = jobs;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    results[i] = solveOne(jobs[i]);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Chunk(jobs, results, from, mid), new Chunk(jobs, results, mid, to));
+        }
+    }
+
+    private Result solveOne(Job job) {
+        try {
+            Template t = functionsFor(job);
+            for (Map.Entry<String, Double> p : job.parameters.entrySet()) {
+                t.f.setParameter(p.getKey(), p.getValue());
+                if (t.df != null) {
+                    t.df.setParameter(p.getKey(), p.getValue());
+                }
+            }
+            // Unless tracing, only the iteration count is kept, so solving allocates nothing per step
+            IterationRecorder recorder = traceDirectory != null ? traceRecorder.get() : IterationRecorder.none();
+            double root;
+            NotConvergedException notConverged = null;
+            try {
+                root = solve(job, t, recorder);
+            } catch (NotConvergedException e) {
+                // Still traced: the history of a failed solve is the one worth looking at
+                root = Double.NaN;
+                notConverged = e;
+            }
+            if (traceDirectory != null) {
+                try {
+                    traceFor(job.method).append(recorder);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not write trace: " + e.getMessage(), e);
+                }
+            }
+            if (notConverged != null) {
+                return new Result(Double.NaN, notConverged.iterations(), notConverged.getMessage());
+            }
+            return new Result(root, recorder.iterations(), null);
+        } catch (RuntimeException | StackOverflowError e) {
+            return new Result(Double.NaN, 0, e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+    }
+
+    private static double solve(Job job, Template t, IterationRecorder recorder) {
+        switch (job.method) {
+            case BISECTION:
+                return bisection_method.bisectionMethod(t.f, job.a, job.b, job.tolerance, job.maxIterations, recorder);
+            case BRENT:
+                return bracketing_methods.brentMethod(t.f, job.a, job.b, job.tolerance, job.maxIterations, recorder);
+            case ILLINOIS:
+                return bracketing_methods.illinoisMethod(t.f, job.a, job.b, job.tolerance, job.maxIterations, recorder);
+            case ITP:
+                return bracketing_methods.itpMethod(t.f, job.a, job.b, job.tolerance, job.maxIterations, recorder);
+            case SECANT:
+                return secant_method.secantIteration(t.f, job.a, job.b, job.tolerance, job.maxIterations, recorder);
+            case NEWTON:
+                return newton_raphson.newtonRaphson(t.f, t.df, job.a, job.tolerance, job.maxIterations, recorder);
+            default:
+                return fixed_point.fixedPoint(t.f, job.a, job.tolerance, job.maxIterations, recorder);
+        }
+    }
+
+    private TraceFile.Writer traceFor(Method method) {
+        synchronized (traces) {
+            TraceFile.Writer writer = traces.get(method);
+            if (writer == null) {
+                String name = method.name().toLowerCase();
+                try {
+                    writer = TraceFile.create(traceDirectory.resolve(name + ".nmtrace"), name);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not create trace file: " + e.getMessage(), e);
+                }
+                traces.put(method, writer);
+            }
+            return writer;
+        }
+    }
+
+    // This thread's copy of the compiled function for the job
+    private Template functionsFor(Job job) {
+        TreeSet<String> parameters = new TreeSet<>(job.parameters.keySet());
+        String key = job.function + "|" + parameters;
+        Map<String, Template> mine = local.get();
+        Template t = mine.get(key);
+        if (t == null) {
+            List<String> variables = new ArrayList<>();
+            variables.add("x");
+            variables.addAll(parameters);
+            ExpressionCache.CachedExpression entry = ExpressionCache.SHARED.get(job.function, variables.toArray(new String[0]));
+            t = new Template(entry.function(), entry.derivative());
+            mine.put(key, t);
+        }
+        return t;
+    }
+}
@@ -0,0 +1,340 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Supplier;
+
+// Per-method solver metrics: runs, function evaluations, iterations per run,
+// wall time per run and failure reasons, plus a JFR SolveEvent per run when
+// jfr/SolveEvent.java has been compiled (JDK 11+).
+//
+// Off unless the JVM is started with -Dnm.metrics=true. ENABLED is a static
+// final, so the JIT folds the solvers' "if (SolverMetrics.ENABLED)" checks away
+// and a disabled build runs exactly the uninstrumented loops. When enabled, f is
+// wrapped in a counter local to the run and everything shared (LongAdders and
+// LatencyHistograms) is updated once per run, never per iteration.
+//
+// Exposition: text() in the Prometheus text format and snapshot() for JSON.
+// With -Dnm.metrics.port=N they are also served on 127.0.0.1:N at /metrics and
+// /metrics.json; the server thread keeps the JVM alive, so this is meant for
+// long-running processes (the GUI, SolverService). BatchSolver prints text()
+// when it finishes instead.
+public final class SolverMetrics {
+    public static final boolean ENABLED = Boolean.getBoolean("nm.metrics");
+
+    private static final int MAX_REASONS = 32;   // per method; the rest count as "other"
+    private static final ConcurrentMap<String, MethodMetrics> METHODS = new ConcurrentHashMap<>();
+    private static final String NOT_CONVERGED_REASON = "did not converge within the maximum iterations";
+    // Set by notConverged() during a run, read when the run ends
+    private static final ThreadLocal<boolean[]> NOT_CONVERGED = ThreadLocal.withInitial(() -> new boolean[1]);
+    private static final RunEvent NO_EVENT = (method, iterations, evaluations, failure) -> { };
+    private static final Supplier<RunEvent> EVENTS = ENABLED ? eventFactory() : () -> NO_EVENT;
+
+    static {
+        Integer port = Integer.getInteger("nm.metrics.port");
+        if (ENABLED && port != null) {
+            try {
+                serve(port);
+            } catch (IOException e) {
+                System.err.println("Could not start the metrics endpoint: " + e.getMessage());
+            }
+        }
+    }
+
+    private SolverMetrics() {
+    }
+
+    public interface ScalarSolve {
+        double run(DoubleUnaryOperator f);
+    }
+
+    public interface NewtonSolve {
+        double run(DoubleUnaryOperator f, DoubleUnaryOperator df);
+    }
+
+    // A Flight Recorder event for one run, begun when the run starts
+    interface RunEvent {
+        default void begin() {
+        }
+
+        void finish(String method, int iterations, long evaluations, String failure);
+    }
+
+    // SolveEvent links jdk.jfr, so it is only referenced by name: on a JDK
+    // without Flight Recorder, or when jfr/ was not compiled, runs are still
+    // measured but emit no events
+    private static Supplier<RunEvent> eventFactory() {
+        try {
+            Constructor<? extends RunEvent> constructor =
+                Class.forName("SolveEvent").asSubclass(RunEvent.class).getConstructor();
+            constructor.newInstance();
+            return () -> {
+                try {
+                    return constructor.newInstance();
+                } catch (ReflectiveOperationException e) {
+                    return NO_EVENT;
+                }
+            };
+        } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+            return () -> NO_EVENT;
+        }
+    }
+
+    private static final class MethodMetrics {
+        final LongAdder runs = new LongAdder();
+        final LongAdder evaluations = new LongAdder();
+        final LongAdder iterations = new LongAdder();
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LatencyHistogram iterationsPerRun = new LatencyHistogram();
+        final ConcurrentMap<String, LongAdder> failures = new ConcurrentHashMap<>();
+
+        void fail(String reason) {
+            LongAdder count = failures.get(reason);
+            if (count == null) {
+                if (failures.size() >= MAX_REASONS) {
+                    reason = "other";
+                }
+                count = failures.computeIfAbsent(reason, k -> new LongAdder());
+            }
+            count.increment();
+        }
+    }
+
+    // f(x) with a plain (unshared) call count; one run uses it from one thread
+    private static final class Counting implements DoubleUnaryOperator {
+        private final DoubleUnaryOperator f;
+        long count;
+
+        Counting(DoubleUnaryOperator f) {
+            this.f = f;
+        }
+
+        @Override
+        public double applyAsDouble(double x) {
+            count++;
+            return f.applyAsDouble(x);
+        }
+    }
+
+    // Runs a scalar solver on a counting copy of f and records the run
+    public static double measure(String method, DoubleUnaryOperator f, IterationRecorder recorder, ScalarSolve solve) {
+        Counting counted = new Counting(f);
+        Run run = new Run(method);
+        try {
+            return solve.run(counted);
+        } catch (RuntimeException | Error e) {
+            run.failure = reason(e);
+            throw e;
+        } finally {
+            run.end(recorder, counted.count);
+        }
+    }
+
+    // Same for Newton's method; df may be null (finite differences, counted through f)
+    public static double measure(String method, DoubleUnaryOperator f, DoubleUnaryOperator df, IterationRecorder recorder, NewtonSolve solve) {
+        Counting counted = new Counting(f);
+        Counting countedDf = df != null ? new Counting(df) : null;
+        Run run = new Run(method);
+        try {
+            return solve.run(counted, countedDf);
+        } catch (RuntimeException | Error e) {
+            run.failure = reason(e);
+            throw e;
+        } finally {
+            run.end(recorder, counted.count + (countedDf != null ? countedDf.count : 0));
+        }
+    }
+
+    // Runs that evaluate no user function (linear systems, polynomials)
+    public static <T> T measure(String method, IterationRecorder recorder, Supplier<T> solve) {
+        Run run = new Run(method);
+        try {
+            return solve.get();
+        } catch (RuntimeException | Error e) {
+            run.failure = reason(e);
+            throw e;
+        } finally {
+            run.end(recorder, 0);
+        }
+    }
+
+    // Called by a solver that stops at maxIterations without converging
+    public static void notConverged() {
+        if (ENABLED) {
+            NOT_CONVERGED.get()[0] = true;
+        }
+    }
+
+    private static final class Run {
+        final String method;
+        final long start;
+        final RunEvent event = EVENTS.get();
+        // The flag of an enclosing run (a solver measured inside another one),
+        // put back when this run ends
+        final boolean outerNotConverged;
+        String failure;
+
+        Run(String method) {
+            this.method = method;
+            boolean[] notConverged = NOT_CONVERGED.get();
+            outerNotConverged = notConverged[0];
+            notConverged[0] = false;
+            event.begin();
+            start = System.nanoTime();
+        }
+
+        void end(IterationRecorder recorder, long evaluations) {
+            long elapsed = System.nanoTime() - start;
+            boolean[] notConverged = NOT_CONVERGED.get();
+            if (failure == null && notConverged[0]) {
+                failure = NOT_CONVERGED_REASON;
+            }
+            notConverged[0] = outerNotConverged;
+
+            int iterations = recorder.iterations();
+            MethodMetrics m = METHODS.computeIfAbsent(method, k -> new MethodMetrics());
+            m.runs.increment();
+            m.evaluations.add(evaluations);
+            m.iterations.add(iterations);
+            m.latency.record(elapsed);
+            m.iterationsPerRun.record(iterations);
+            if (failure != null) {
+                m.fail(failure);
+            }
+
+            event.finish(method, iterations, evaluations, failure);
+        }
+    }
+
+    // Exception type and the first sentence of its message, so messages that
+    // carry numbers or input text do not make every failure a new reason
+    static String reason(Throwable e) {
+        if (e instanceof NotConvergedException) {
+            return NOT_CONVERGED_REASON;
+        }
+        String message = e.getMessage();
+        String reason = e.getClass().getSimpleName();
+        if (message == null) {
+            return reason;
+        }
+        int end = message.length();
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c == '.' || c == ':' || c == '\n' || c == '\'' || c == '"' || Character.isDigit(c)) {
+                end = i;
+                break;
+            }
+        }
+        return end > 0 ? reason + ": " + message.substring(0, Math.min(end, 80)).trim() : reason;
+    }
+
+    // Method name -> runs, evaluations, iterations, latency, failures
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> methods = new LinkedHashMap<>();
+        for (Map.Entry<String, MethodMetrics> e : new TreeMap<>(METHODS).entrySet()) {
+            MethodMetrics m = e.getValue();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("runs", m.runs.sum());
+            map.put("evaluations", m.evaluations.sum());
+            map.put("iterations", m.iterations.sum());
+            map.put("iterationsPerRun", m.iterationsPerRun.summary(1, ""));
+            map.put("latency", m.latency.summary());
+            Map<String, Object> failures = new TreeMap<>();
+            for (Map.Entry<String, LongAdder> f : m.failures.entrySet()) {
+                failures.put(f.getKey(), f.getValue().sum());
+            }
+            map.put("failures", failures);
+            methods.put(e.getKey(), map);
+        }
+        return methods;
+    }
+
+    // Prometheus text exposition format
+    public static String text() {
+        StringBuilder sb = new StringBuilder();
+        Map<String, MethodMetrics> methods = new TreeMap<>(METHODS);
+        counter(sb, "nm_solver_runs_total", "Solver runs", methods, m -> m.runs.sum());
+        counter(sb, "nm_solver_evaluations_total", "Function evaluations", methods, m -> m.evaluations.sum());
+        counter(sb, "nm_solver_iterations_total", "Iterations", methods, m -> m.iterations.sum());
+
+        sb.append("# HELP nm_solver_failures_total Failed or non-converged runs by reason\n");
+        sb.append("# TYPE nm_solver_failures_total counter\n");
+        for (Map.Entry<String, MethodMetrics> e : methods.entrySet()) {
+            for (Map.Entry<String, LongAdder> f : new TreeMap<>(e.getValue().failures).entrySet()) {
+                sb.append("nm_solver_failures_total{method=\"").append(e.getKey()).append("\",reason=\"")
+                  .append(f.getKey().replace("\\", "\\\\").replace("\"", "\\\"")).append("\"} ")
+                  .append(f.getValue().sum()).append('\n');
+            }
+        }
+
+        summary(sb, "nm_solver_seconds", "Wall time per run", methods, m -> m.latency, 1e9);
+        summary(sb, "nm_solver_run_iterations", "Iterations per run", methods, m -> m.iterationsPerRun, 1);
+        return sb.toString();
+    }
+
+    private interface Field<T> {
+        T of(MethodMetrics m);
+    }
+
+    private static void counter(StringBuilder sb, String name, String help, Map<String, MethodMetrics> methods, Field<Long> field) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(" counter\n");
+        for (Map.Entry<String, MethodMetrics> e : methods.entrySet()) {
+            sb.append(name).append("{method=\"").append(e.getKey()).append("\"} ").append(field.of(e.getValue())).append('\n');
+        }
+    }
+
+    private static void summary(StringBuilder sb, String name, String help, Map<String, MethodMetrics> methods,
+                                Field<LatencyHistogram> field, double scale) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(" summary\n");
+        double[] quantiles = {0.5, 0.9, 0.99, 0.999};
+        for (Map.Entry<String, MethodMetrics> e : methods.entrySet()) {
+            LatencyHistogram h = field.of(e.getValue());
+            for (double q : quantiles) {
+                sb.append(name).append("{method=\"").append(e.getKey()).append("\",quantile=\"").append(q).append("\"} ")
+                  .append(h.percentile(q * 100) / scale).append('\n');
+            }
+            sb.append(name).append("_sum{method=\"").append(e.getKey()).append("\"} ").append(h.mean() * h.count() / scale).append('\n');
+            sb.append(name).append("_count{method=\"").append(e.getKey()).append("\"} ").append(h.count()).append('\n');
+        }
+    }
+
+    public static void reset() {
+        METHODS.clear();
+    }
+
+    // Serves text() at /metrics and snapshot() at /metrics.json on the loopback interface
+    public static HttpServer serve(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> send(exchange, "text/plain; version=0.0.4", text()));
+        server.createContext("/metrics.json", exchange -> send(exchange, "application/json", Json.write(snapshot())));
+        server.setExecutor(null);
+        server.start();
+        return server;
+    }
+
+    private static void send(HttpExchange exchange, String contentType, String body) throws IOException {
+        try {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
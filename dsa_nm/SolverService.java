@@ -0,0 +1,346 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+// For Windows:
+// javac -cp ".;lib\exp4j-0.4.8.jar" SolverService.java
+// java -cp ".;lib\exp4j-0.4.8.jar" SolverService [port] [workers] [queue]
+// Headless JSON-over-HTTP front end for the five methods, on the JDK's built-in
+// server. Each endpoint takes a JSON object and answers with the root (or the
+// solution vector for Jacobi), the iteration count, whether the method
+// converged and, if "trace" is true, the last rows of the iteration table:
+//
+//   POST /solve/bisection    {"function": "x^3-x-2", "a": 1, "b": 2, "tolerance": 1e-6}
+//   POST /solve/fixed-point  {"function": "cos(x)", "x0": 1, "acceleration": "aitken"}
+//   POST /solve/newton       {"function": "x^2-2", "x0": 1}
+//   POST /solve/secant       {"function": "x^2-2", "x0": 1, "x1": 2}
+//   POST /solve/jacobi       {"equations": ["4x - y = 3", "x - 5y = -4"]}
+//   GET  /metrics            request counts and latency percentiles per endpoint
+//                            (and per-solver metrics with -Dnm.metrics=true)
+//
+// A method that runs out of iterations answers 422 with "converged": false, the
+// error and its last estimate. maxIterations is capped at MAX_ITERATIONS and a
+// trace at its last MAX_TRACE_ROWS rows, so one request cannot hold a worker
+// or build a response of unbounded size.
+//
+// Requests run on a fixed pool of workers fed by a bounded queue. When the queue
+// is full the server answers 503 with Retry-After straight away instead of
+// letting work pile up, so a burst cannot exhaust memory or push every caller's
+// latency up.
+public class SolverService {
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_MAX_ITERATIONS = 100;
+    static final int MAX_ITERATIONS = 100_000;
+    static final int MAX_TRACE_ROWS = 1_000;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final String[] ENDPOINTS = {"bisection", "fixed-point", "newton", "secant", "jacobi"};
+
+    // Set while the rejection handler runs a request on the accepting thread
+    private static final ThreadLocal<Boolean> OVERLOADED = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private final HttpServer server;
+    private final ThreadPoolExecutor workers;
+    private final Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+    private final Map<String, LongAdder> errors = new LinkedHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+
+    public SolverService(int port, int workerCount, int queueCapacity) throws IOException {
+        if (workerCount <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Worker count and queue capacity must be greater than 0.");
+        }
+        AtomicInteger threadId = new AtomicInteger();
+        workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "solver-" + threadId.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                (r, executor) -> {
+                    // Run on the accepting thread, which only writes a 503 (see handle)
+                    rejected.increment();
+                    OVERLOADED.set(Boolean.TRUE);
+                    try {
+                        r.run();
+                    } finally {
+                        OVERLOADED.set(Boolean.FALSE);
+                    }
+                });
+
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(workers);
+        for (String name : ENDPOINTS) {
+            latencies.put(name, new LatencyHistogram());
+            errors.put(name, new LongAdder());
+            server.createContext("/solve/" + name, exchange -> handle(name, exchange));
+        }
+        server.createContext("/metrics", this::metrics);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        workers.shutdown();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(String name, HttpExchange exchange) throws IOException {
+        try {
+            if (OVERLOADED.get()) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 503, error("Server is busy. Try again shortly."));
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                send(exchange, 405, error("Use POST with a JSON body."));
+                return;
+            }
+
+            long start = System.nanoTime();
+            int status = 200;
+            String body;
+            try {
+                Map<String, Object> request = Json.parseObject(readBody(exchange));
+                Map<String, Object> response = solve(name, request);
+                if (Boolean.FALSE.equals(response.get("converged"))) {
+                    status = 422;
+                }
+                body = Json.write(response);
+            } catch (IllegalArgumentException | ArithmeticException e) {
+                // Bad input and solver failures (no sign change, zero derivative, ...)
+                status = 400;
+                body = error(e.getMessage());
+            } catch (RuntimeException e) {
+                status = 500;
+                body = error(e.toString());
+            } catch (StackOverflowError e) {
+                // Json limits its own nesting; this covers deeply nested functions
+                status = 400;
+                body = error("Input is nested too deeply.");
+            }
+            if (status != 200) {
+                errors.get(name).increment();
+            }
+            latencies.get(name).record(System.nanoTime() - start);
+            send(exchange, status, body);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    static Map<String, Object> solve(String name, Map<String, Object> request) {
+        double tolerance = number(request, "tolerance", 1e-6);
+        double maxIterations = number(request, "maxIterations", DEFAULT_MAX_ITERATIONS);
+        if (tolerance <= 0) {
+            throw new IllegalArgumentException("Tolerance must be greater than 0.");
+        }
+        if (!(maxIterations >= 1)) {
+            throw new IllegalArgumentException("Maximum iterations must be greater than 0.");
+        }
+        boolean trace = Boolean.TRUE.equals(request.get("trace"));
+        // Jacobi's convergence is read off the last recorded error, so keep one row even without a trace
+        IterationRecorder.RingBuffer recorder = IterationRecorder.lastRows(trace ? MAX_TRACE_ROWS : 1);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        boolean converged;
+        try {
+            solve(name, request, tolerance, (int) Math.min(maxIterations, MAX_ITERATIONS), recorder, response);
+            // Jacobi returns its last iterate either way; the last column is its error
+            int last = recorder.rows() - 1;
+            converged = !response.containsKey("solution")
+                        || (last >= 0 && recorder.get(last, recorder.columns().length - 1) < tolerance);
+        } catch (NotConvergedException e) {
+            response.put("root", e.estimate());
+            converged = false;
+        }
+        if (!converged) {
+            response.put("error", NotConvergedException.MESSAGE);
+        }
+        response.put("converged", converged);
+        response.put("iterations", recorder.iterations());
+        if (trace) {
+            Map<String, Object> table = new LinkedHashMap<>();
+            table.put("columns", recorder.columns());
+            // Earlier rows are dropped once a solve runs past MAX_TRACE_ROWS iterations
+            table.put("firstIteration", recorder.rows() > 0 ? recorder.iterationOf(0) : 0);
+            double[][] rows = new double[recorder.rows()][recorder.columns().length];
+            for (int i = 0; i < rows.length; i++) {
+                for (int j = 0; j < rows[i].length; j++) {
+                    rows[i][j] = recorder.get(i, j);
+                }
+            }
+            table.put("rows", rows);
+            response.put("trace", table);
+        }
+        return response;
+    }
+
+    private static void solve(String name, Map<String, Object> request, double tolerance, int maxIterations,
+                              IterationRecorder recorder, Map<String, Object> response) {
+        if (name.equals("jacobi")) {
+            response.put("solution", jacobi_method.solveJacobi(equations(request), tolerance, maxIterations, recorder));
+        } else {
+            ExpressionCache.CachedExpression entry = ExpressionCache.SHARED.get(text(request, "function"));
+            double root;
+            switch (name) {
+                case "bisection":
+                    root = bisection_method.bisectionMethod(entry.function(), number(request, "a"), number(request, "b"),
+                                                            tolerance, maxIterations, recorder);
+                    break;
+                case "fixed-point":
+                    root = fixed_point.fixedPoint(entry.function(), number(request, "x0"), tolerance, maxIterations,
+                                                  acceleration(request), recorder);
+                    break;
+                case "newton":
+                    root = newton_raphson.newtonRaphson(entry.function(), entry.derivative(), number(request, "x0"),
+                                                        tolerance, maxIterations, recorder);
+                    break;
+                case "secant":
+                    root = secant_method.secantIteration(entry.function(), number(request, "x0"), number(request, "x1"),
+                                                         tolerance, maxIterations, recorder);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown method: " + name);
+            }
+            response.put("root", root);
+        }
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        try {
+            Map<String, Object> body = new LinkedHashMap<>();
+            Map<String, Object> endpoints = new LinkedHashMap<>();
+            for (String name : ENDPOINTS) {
+                Map<String, Object> summary = latencies.get(name).summary();
+                summary.put("errors", errors.get(name).sum());
+                endpoints.put(name, summary);
+            }
+            body.put("endpoints", endpoints);
+            body.put("rejected", rejected.sum());
+            body.put("queued", workers.getQueue().size());
+            body.put("active", workers.getActiveCount());
+            body.put("cache", ExpressionCache.SHARED.toString());
+            if (SolverMetrics.ENABLED) {
+                body.put("solvers", SolverMetrics.snapshot());
+            }
+            send(exchange, 200, Json.write(body));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        try (InputStream in = exchange.getRequestBody()) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                if (bytes.size() + n > MAX_BODY_BYTES) {
+                    throw new IllegalArgumentException("Request body is larger than " + MAX_BODY_BYTES + " bytes.");
+                }
+                bytes.write(buffer, 0, n);
+            }
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String error(String message) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", message);
+        return Json.write(body);
+    }
+
+    private static double number(Map<String, Object> request, String key) {
+        if (!request.containsKey(key)) {
+            throw new IllegalArgumentException("Missing \"" + key + "\".");
+        }
+        return number(request, key, Double.NaN);
+    }
+
+    private static double number(Map<String, Object> request, String key, double defaultValue) {
+        Object value = request.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (!(value instanceof Double)) {
+            throw new IllegalArgumentException("\"" + key + "\" must be a number.");
+        }
+        return (Double) value;
+    }
+
+    private static String text(Map<String, Object> request, String key) {
+        Object value = request.get(key);
+        if (!(value instanceof String) || ((String) value).trim().isEmpty()) {
+            throw new IllegalArgumentException("\"" + key + "\" must be a non-empty string.");
+        }
+        return (String) value;
+    }
+
+    private static String[] equations(Map<String, Object> request) {
+        Object value = request.get("equations");
+        if (!(value instanceof List) || ((List<?>) value).size() < 2) {
+            throw new IllegalArgumentException("\"equations\" must be an array of at least 2 equations.");
+        }
+        List<?> list = (List<?>) value;
+        String[] equations = new String[list.size()];
+        for (int i = 0; i < equations.length; i++) {
+            if (!(list.get(i) instanceof String)) {
+                throw new IllegalArgumentException("Each equation must be a string.");
+            }
+            equations[i] = (String) list.get(i);
+        }
+        return equations;
+    }
+
+    private static fixed_point.Acceleration acceleration(Map<String, Object> request) {
+        Object value = request.get("acceleration");
+        if (value == null) {
+            return fixed_point.Acceleration.NONE;
+        }
+        try {
+            return fixed_point.Acceleration.valueOf(String.valueOf(value).trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("\"acceleration\" must be none, aitken or steffensen.");
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int workerCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int queueCapacity = args.length > 2 ? Integer.parseInt(args[2]) : 64 * workerCount;
+
+        SolverService service = new SolverService(port, workerCount, queueCapacity);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> service.stop(1)));
+        service.start();
+        System.out.println("Solver service listening on port " + service.port() + " with " + workerCount
+                           + " workers and a queue of " + queueCapacity);
+    }
+}
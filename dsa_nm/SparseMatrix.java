@@ -0,0 +1,332 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Square or rectangular matrix in compressed sparse row (CSR) form.
+// Row i's nonzeros are values[rowPtr[i] .. rowPtr[i+1]-1], in column order,
+// with their columns in colIdx. Memory is O(rows + nnz).
+public class SparseMatrix {
+    public final int rows;
+    public final int cols;
+    final int[] rowPtr;
+    final int[] colIdx;
+    final double[] values;
+
+    SparseMatrix(int rows, int cols, int[] rowPtr, int[] colIdx, double[] values) {
+        this.rows = rows;
+        this.cols = cols;
+        this.rowPtr = rowPtr;
+        this.colIdx = colIdx;
+        this.values = values;
+    }
+
+    public int nnz() {
+        return rowPtr[rows];
+    }
+
+    public double get(int row, int col) {
+        int k = Arrays.binarySearch(colIdx, rowPtr[row], rowPtr[row + 1], col);
+        return k >= 0 ? values[k] : 0.0;
+    }
+
+    // Main diagonal (0 where a row has no diagonal entry)
+    public double[] diagonal() {
+        double[] d = new double[Math.min(rows, cols)];
+        for (int i = 0; i < d.length; i++) {
+            d[i] = get(i, i);
+        }
+        return d;
+    }
+
+    // y = A * x
+    public void multiply(double[] x, double[] y) {
+        for (int i = 0; i < rows; i++) {
+            double sum = 0;
+            for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                sum += values[k] * x[colIdx[k]];
+            }
+            y[i] = sum;
+        }
+    }
+
+    // Greedy multicolour ordering of a square matrix: rows i and j get different
+    // colours whenever a[i][j] or a[j][i] is nonzero, so all rows of one colour
+    // can be updated in place at the same time. A 5-point stencil in natural
+    // order gives the classic red-black split. Returns the rows of each colour.
+    public int[][] colourRows() {
+        int n = rows;
+        // Transposed pattern, so a[j][i] != 0 can be found from row i
+        int[] colPtr = new int[n + 1];
+        for (int k = 0; k < nnz(); k++) {
+            colPtr[colIdx[k] + 1]++;
+        }
+        for (int j = 0; j < n; j++) {
+            colPtr[j + 1] += colPtr[j];
+        }
+        int[] rowIdx = new int[nnz()];
+        int[] next = Arrays.copyOf(colPtr, n);
+        for (int i = 0; i < n; i++) {
+            for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                rowIdx[next[colIdx[k]]++] = i;
+            }
+        }
+
+        int[] colour = new int[n];
+        int[] seenBy = new int[n + 1];    // seenBy[c] == i + 1 when a neighbour of row i has colour c
+        int colours = 0;
+        for (int i = 0; i < n; i++) {
+            for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                int j = colIdx[k];
+                if (j < i) seenBy[colour[j]] = i + 1;
+            }
+            for (int k = colPtr[i]; k < colPtr[i + 1]; k++) {
+                int j = rowIdx[k];
+                if (j < i) seenBy[colour[j]] = i + 1;
+            }
+            int c = 0;
+            while (seenBy[c] == i + 1) c++;
+            colour[i] = c;
+            colours = Math.max(colours, c + 1);
+        }
+
+        int[] counts = new int[colours];
+        for (int i = 0; i < n; i++) {
+            counts[colour[i]]++;
+        }
+        int[][] classes = new int[colours][];
+        for (int c = 0; c < colours; c++) {
+            classes[c] = new int[counts[c]];
+            counts[c] = 0;
+        }
+        for (int i = 0; i < n; i++) {
+            classes[colour[i]][counts[colour[i]]++] = i;
+        }
+        return classes;
+    }
+
+    // Coefficient part (all but the last column) of an augmented n x (n+1) matrix
+    public static SparseMatrix fromAugmented(double[][] matrix) {
+        int n = matrix.length;
+        Builder builder = new Builder(n, n);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (matrix[i][j] != 0) {
+                    builder.add(i, j, matrix[i][j]);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    // Collects (row, col, value) entries in any order; duplicates are summed
+    public static class Builder {
+        private final int rows, cols;
+        private int[] r = new int[16];
+        private int[] c = new int[16];
+        private double[] v = new double[16];
+        private int size;
+
+        public Builder(int rows, int cols) {
+            if (rows <= 0 || cols <= 0) {
+                throw new IllegalArgumentException("Matrix dimensions must be greater than 0.");
+            }
+            this.rows = rows;
+            this.cols = cols;
+        }
+
+        public Builder add(int row, int col, double value) {
+            if (row < 0 || row >= rows || col < 0 || col >= cols) {
+                throw new IndexOutOfBoundsException("Entry (" + row + ", " + col + ") is outside a " + rows + "x" + cols + " matrix");
+            }
+            if (size == r.length) {
+                r = Arrays.copyOf(r, size * 2);
+                c = Arrays.copyOf(c, size * 2);
+                v = Arrays.copyOf(v, size * 2);
+            }
+            r[size] = row;
+            c[size] = col;
+            v[size] = value;
+            size++;
+            return this;
+        }
+
+        public SparseMatrix build() {
+            // Bucket the entries by row (counting sort)
+            int[] rowPtr = new int[rows + 1];
+            for (int k = 0; k < size; k++) {
+                rowPtr[r[k] + 1]++;
+            }
+            for (int i = 0; i < rows; i++) {
+                rowPtr[i + 1] += rowPtr[i];
+            }
+            int[] next = Arrays.copyOf(rowPtr, rows);
+            int[] colIdx = new int[size];
+            double[] values = new double[size];
+            for (int k = 0; k < size; k++) {
+                int slot = next[r[k]]++;
+                colIdx[slot] = c[k];
+                values[slot] = v[k];
+            }
+
+            // Sort each row by column and merge duplicates in place
+            int out = 0;
+            int start = 0;
+            for (int i = 0; i < rows; i++) {
+                int end = rowPtr[i + 1];
+                sortRow(colIdx, values, start, end);
+                rowPtr[i] = out;
+                for (int k = start; k < end; k++) {
+                    if (out > rowPtr[i] && colIdx[out - 1] == colIdx[k]) {
+                        values[out - 1] += values[k];
+                    } else {
+                        colIdx[out] = colIdx[k];
+                        values[out] = values[k];
+                        out++;
+                    }
+                }
+                start = end;
+            }
+            rowPtr[rows] = out;
+            return new SparseMatrix(rows, cols, rowPtr, Arrays.copyOf(colIdx, out), Arrays.copyOf(values, out));
+        }
+
+        // Insertion sort; rows of discretized PDEs hold only a handful of entries
+        private static void sortRow(int[] cols, double[] vals, int from, int to) {
+            for (int i = from + 1; i < to; i++) {
+                int c = cols[i];
+                double v = vals[i];
+                int j = i - 1;
+                while (j >= from && cols[j] > c) {
+                    cols[j + 1] = cols[j];
+                    vals[j + 1] = vals[j];
+                    j--;
+                }
+                cols[j + 1] = c;
+                vals[j + 1] = v;
+            }
+        }
+    }
+
+    // Reads a Matrix Market file: "coordinate" (real, integer or pattern;
+    // general or symmetric) or dense "array" storage
+    public static SparseMatrix readMatrixMarket(Path file) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+            String[] header = readHeader(in);
+            boolean coordinate = header[2].equals("coordinate");
+            boolean pattern = header[3].equals("pattern");
+            boolean skew = header[4].equals("skew-symmetric");
+            boolean symmetric = header[4].equals("symmetric") || skew;
+            double mirror = skew ? -1 : 1;
+            if (header[3].equals("complex")) {
+                throw new IOException("Complex Matrix Market files are not supported");
+            }
+
+            Tokens size = new Tokens(nextDataLine(in));
+            int rows = size.nextInt();
+            int cols = size.nextInt();
+            Builder builder = new Builder(rows, cols);
+            if (coordinate) {
+                int entries = size.nextInt();
+                for (int k = 0; k < entries; k++) {
+                    Tokens t = new Tokens(nextDataLine(in));
+                    int i = t.nextInt() - 1;
+                    int j = t.nextInt() - 1;
+                    double value = pattern ? 1.0 : t.nextDouble();
+                    builder.add(i, j, value);
+                    if (symmetric && i != j) {
+                        builder.add(j, i, mirror * value);
+                    }
+                }
+            } else {
+                // Column-major; symmetric arrays store only the lower triangle
+                // (without the zero diagonal when skew-symmetric)
+                for (int j = 0; j < cols; j++) {
+                    for (int i = skew ? j + 1 : symmetric ? j : 0; i < rows; i++) {
+                        double value = new Tokens(nextDataLine(in)).nextDouble();
+                        if (value != 0) {
+                            builder.add(i, j, value);
+                            if (symmetric && i != j) {
+                                builder.add(j, i, mirror * value);
+                            }
+                        }
+                    }
+                }
+            }
+            return builder.build();
+        }
+    }
+
+    // Reads a dense vector (an "array" file with one column, or a coordinate n x 1 matrix)
+    public static double[] readMatrixMarketVector(Path file) throws IOException {
+        SparseMatrix m = readMatrixMarket(file);
+        if (m.cols != 1) {
+            throw new IOException("Expected a single-column vector, found " + m.rows + "x" + m.cols);
+        }
+        double[] v = new double[m.rows];
+        for (int i = 0; i < m.rows; i++) {
+            if (m.rowPtr[i + 1] > m.rowPtr[i]) {
+                v[i] = m.values[m.rowPtr[i]];
+            }
+        }
+        return v;
+    }
+
+    static String[] readHeader(BufferedReader in) throws IOException {
+        String line = in.readLine();
+        if (line == null || !line.toLowerCase().startsWith("%%matrixmarket")) {
+            throw new IOException("Missing %%MatrixMarket header");
+        }
+        String[] header = line.trim().toLowerCase().split("\\s+");
+        if (header.length < 5 || !header[1].equals("matrix")) {
+            throw new IOException("Unsupported Matrix Market header: " + line);
+        }
+        return header;
+    }
+
+    static String nextDataLine(BufferedReader in) throws IOException {
+        String line;
+        do {
+            line = in.readLine();
+            if (line == null) {
+                throw new IOException("Unexpected end of Matrix Market file");
+            }
+        } while (line.isEmpty() || line.charAt(0) == '%' || line.trim().isEmpty());
+        return line;
+    }
+
+    // Whitespace tokenizer without the per-line regex cost of String.split
+    static final class Tokens {
+        private final String line;
+        private int pos;
+
+        Tokens(String line) {
+            this.line = line;
+        }
+
+        private String next() throws IOException {
+            int n = line.length();
+            while (pos < n && Character.isWhitespace(line.charAt(pos))) {
+                pos++;
+            }
+            int start = pos;
+            while (pos < n && !Character.isWhitespace(line.charAt(pos))) {
+                pos++;
+            }
+            if (start == pos) {
+                throw new IOException("Missing value in line: " + line);
+            }
+            return line.substring(start, pos);
+        }
+
+        int nextInt() throws IOException {
+            return Integer.parseInt(next());
+        }
+
+        double nextDouble() throws IOException {
+            return Double.parseDouble(next());
+        }
+    }
+}
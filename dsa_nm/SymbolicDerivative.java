@@ -0,0 +1,362 @@
+import net.objecthunter.exp4j.Expression;
+import net.objecthunter.exp4j.function.Function;
+import net.objecthunter.exp4j.function.Functions;
+import net.objecthunter.exp4j.operator.Operator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Symbolic differentiation over ExpressionNode trees with algebraic simplification.
+// Built-ins are differentiated exactly; user functions and operators use the
+// chain rule with a central-difference partial for each argument.
+public final class SymbolicDerivative {
+    private static final AtomicInteger PARTIAL_ID = new AtomicInteger();
+
+    private SymbolicDerivative() {
+    }
+
+    // d(node)/d(variable), simplified
+    public static ExpressionNode differentiate(ExpressionNode node, String variable) {
+        return simplify(d(node, variable));
+    }
+
+    // Compiled f'(x) for an exp4j expression, or null if it has to be approximated numerically
+    public static CompiledFunction compile(Expression expression) {
+        if (!CompiledFunction.ENABLED) {
+            return null;
+        }
+        try {
+            ExpressionNode node = ExpressionNode.of(expression);
+            if (node == null) {
+                return null;
+            }
+            Polynomial polynomial = Polynomial.forEvaluation(node, "x");
+            if (polynomial != null) {
+                return polynomial.derivative();
+            }
+            return CompiledFunction.compile(differentiate(node, "x"), expression);
+        } catch (RuntimeException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static ExpressionNode d(ExpressionNode n, String v) {
+        switch (n.kind) {
+            case CONSTANT:
+                return ExpressionNode.constant(0);
+            case VARIABLE:
+                return ExpressionNode.constant(n.name.equals(v) ? 1 : 0);
+            case NEGATE:
+                return neg(d(n.args[0], v));
+            case ADD:
+                return add(d(n.args[0], v), d(n.args[1], v));
+            case SUBTRACT:
+                return sub(d(n.args[0], v), d(n.args[1], v));
+            case MULTIPLY: {
+                ExpressionNode a = n.args[0], b = n.args[1];
+                return add(mul(d(a, v), b), mul(a, d(b, v)));
+            }
+            case DIVIDE: {
+                ExpressionNode a = n.args[0], b = n.args[1];
+                ExpressionNode db = d(b, v);
+                if (db.isConstant(0)) {
+                    return div(d(a, v), b);
+                }
+                return div(sub(mul(d(a, v), b), mul(a, db)), pow(b, ExpressionNode.constant(2)));
+            }
+            case POWER:
+                return power(n, n.args[0], n.args[1], v);
+            case MODULO: {
+                // a % b = a - b*trunc(a/b), trunc is piecewise constant
+                ExpressionNode a = n.args[0], b = n.args[1];
+                ExpressionNode q = div(a, b);
+                ExpressionNode trunc = mul(fn("signum", q), fn("floor", fn("abs", q)));
+                return sub(d(a, v), mul(d(b, v), trunc));
+            }
+            case FUNCTION:
+                return function(n, v);
+            default:
+                return userCall(n, v);
+        }
+    }
+
+    // d(a^b): power rule, exponential rule, or the general form
+    private static ExpressionNode power(ExpressionNode n, ExpressionNode a, ExpressionNode b, String v) {
+        ExpressionNode da = d(a, v);
+        ExpressionNode db = d(b, v);
+        if (db.isConstant(0)) {
+            return mul(mul(b, pow(a, sub(b, ExpressionNode.constant(1)))), da);
+        }
+        if (da.isConstant(0)) {
+            return mul(mul(n, fn("log", a)), db);
+        }
+        return mul(n, add(mul(db, fn("log", a)), div(mul(b, da), a)));
+    }
+
+    private static ExpressionNode function(ExpressionNode n, String v) {
+        if (n.name.equals("pow")) {
+            return power(n, n.args[0], n.args[1], v);
+        }
+        ExpressionNode u = n.args[0];
+        ExpressionNode du = d(u, v);
+        if (du.isConstant(0)) {
+            return du;
+        }
+        ExpressionNode one = ExpressionNode.constant(1);
+        ExpressionNode two = ExpressionNode.constant(2);
+        ExpressionNode outer;
+        switch (n.name) {
+            case "sin":   outer = fn("cos", u); break;
+            case "cos":   outer = neg(fn("sin", u)); break;
+            case "tan":   outer = div(one, pow(fn("cos", u), two)); break;
+            case "cot":   outer = neg(div(one, pow(fn("sin", u), two))); break;
+            case "asin":  outer = div(one, fn("sqrt", sub(one, pow(u, two)))); break;
+            case "acos":  outer = neg(div(one, fn("sqrt", sub(one, pow(u, two))))); break;
+            case "atan":  outer = div(one, add(one, pow(u, two))); break;
+            case "sinh":  outer = fn("cosh", u); break;
+            case "cosh":  outer = fn("sinh", u); break;
+            case "tanh":  outer = div(one, pow(fn("cosh", u), two)); break;
+            case "exp":
+            case "expm1": outer = fn("exp", u); break;
+            case "log":   outer = div(one, u); break;
+            case "log10": outer = div(one, mul(u, ExpressionNode.constant(Math.log(10)))); break;
+            case "log2":  outer = div(one, mul(u, ExpressionNode.constant(Math.log(2)))); break;
+            case "log1p": outer = div(one, add(one, u)); break;
+            case "sqrt":  outer = div(one, mul(two, fn("sqrt", u))); break;
+            case "cbrt":  outer = div(one, mul(ExpressionNode.constant(3), pow(fn("cbrt", u), two))); break;
+            case "abs":   outer = fn("signum", u); break;
+            case "ceil":
+            case "floor":
+            case "signum": return ExpressionNode.constant(0);
+            default:
+                throw new IllegalArgumentException("Cannot differentiate function: " + n.name);
+        }
+        return mul(outer, du);
+    }
+
+    // Chain rule through a user function/operator: sum of dF/dargs[i] * d(args[i])
+    private static ExpressionNode userCall(ExpressionNode n, String v) {
+        ExpressionNode result = ExpressionNode.constant(0);
+        for (int i = 0; i < n.args.length; i++) {
+            ExpressionNode di = d(n.args[i], v);
+            if (di.isConstant(0)) {
+                continue;
+            }
+            NumericPartial partial = new NumericPartial(n, i);
+            result = add(result, mul(ExpressionNode.userFunction(partial, n.args), di));
+        }
+        return result;
+    }
+
+    // Central difference of a user function/operator in one argument
+    static final class NumericPartial extends Function {
+        private final Function function;
+        private final Operator operator;
+        private final int index;
+
+        NumericPartial(ExpressionNode call, int index) {
+            super("d_partial" + PARTIAL_ID.incrementAndGet(), call.args.length);
+            this.function = call.getFunction();
+            this.operator = call.getOperator();
+            this.index = index;
+        }
+
+        @Override
+        public double apply(double... args) {
+            double x = args[index];
+            double h = 1e-5 * (1 + Math.abs(x));
+            double[] shifted = args.clone();
+            shifted[index] = x + h;
+            double up = call(shifted);
+            shifted[index] = x - h;
+            double down = call(shifted);
+            return (up - down) / (2 * h);
+        }
+
+        private double call(double[] args) {
+            return function != null ? function.apply(args) : operator.apply(args);
+        }
+    }
+
+    // Rebuild bottom-up through the simplifying constructors
+    public static ExpressionNode simplify(ExpressionNode n) {
+        if (n.args.length == 0) {
+            return n;
+        }
+        ExpressionNode[] args = new ExpressionNode[n.args.length];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = simplify(n.args[i]);
+        }
+        switch (n.kind) {
+            case NEGATE:   return neg(args[0]);
+            case ADD:      return add(args[0], args[1]);
+            case SUBTRACT: return sub(args[0], args[1]);
+            case MULTIPLY: return mul(args[0], args[1]);
+            case DIVIDE:   return div(args[0], args[1]);
+            case POWER:    return pow(args[0], args[1]);
+            case MODULO:   return ExpressionNode.binary(ExpressionNode.Kind.MODULO, args[0], args[1]);
+            case FUNCTION: return fn(n.name, args);
+            case USER_FUNCTION: return ExpressionNode.userFunction(n.getFunction(), args);
+            default:       return ExpressionNode.userOperator(n.getOperator(), args);
+        }
+    }
+
+    // Simplifying constructors. With strict set they only fold away constant
+    // operands: u*0, 0/u, u^0 and u-u are kept, since exp4j evaluates u there
+    // and may raise division by zero or give NaN or -0.0 instead. Derivatives
+    // use the folds; ExpressionOptimizer, which must match exp4j, does not.
+
+    static ExpressionNode neg(ExpressionNode a) {
+        if (a.isConstant()) {
+            return ExpressionNode.constant(-a.value);
+        }
+        if (a.kind == ExpressionNode.Kind.NEGATE) {
+            return a.args[0];
+        }
+        return ExpressionNode.negate(a);
+    }
+
+    static ExpressionNode add(ExpressionNode a, ExpressionNode b) {
+        return add(a, b, false);
+    }
+
+    static ExpressionNode add(ExpressionNode a, ExpressionNode b, boolean strict) {
+        if (a.isConstant() && b.isConstant()) {
+            return ExpressionNode.constant(a.value + b.value);
+        }
+        if (a.isConstant(0)) {
+            return b;
+        }
+        if (b.isConstant(0)) {
+            return a;
+        }
+        if (b.kind == ExpressionNode.Kind.NEGATE) {
+            return sub(a, b.args[0], strict);
+        }
+        if (a.kind == ExpressionNode.Kind.NEGATE) {
+            return sub(b, a.args[0], strict);
+        }
+        return ExpressionNode.binary(ExpressionNode.Kind.ADD, a, b);
+    }
+
+    static ExpressionNode sub(ExpressionNode a, ExpressionNode b) {
+        return sub(a, b, false);
+    }
+
+    static ExpressionNode sub(ExpressionNode a, ExpressionNode b, boolean strict) {
+        if (a.isConstant() && b.isConstant()) {
+            return ExpressionNode.constant(a.value - b.value);
+        }
+        if (b.isConstant(0)) {
+            return a;
+        }
+        if (a.isConstant(0)) {
+            return neg(b);
+        }
+        if (b.kind == ExpressionNode.Kind.NEGATE) {
+            return add(a, b.args[0], strict);
+        }
+        if (!strict && a.sameAs(b)) {
+            return ExpressionNode.constant(0);
+        }
+        return ExpressionNode.binary(ExpressionNode.Kind.SUBTRACT, a, b);
+    }
+
+    static ExpressionNode mul(ExpressionNode a, ExpressionNode b) {
+        return mul(a, b, false);
+    }
+
+    static ExpressionNode mul(ExpressionNode a, ExpressionNode b, boolean strict) {
+        if (a.isConstant() && b.isConstant()) {
+            return ExpressionNode.constant(a.value * b.value);
+        }
+        if (b.isConstant()) {
+            ExpressionNode t = a;
+            a = b;
+            b = t;
+        }
+        if (a.isConstant(0)) {
+            return strict ? ExpressionNode.binary(ExpressionNode.Kind.MULTIPLY, a, b) : a;
+        }
+        if (a.isConstant(1)) {
+            return b;
+        }
+        if (a.isConstant(-1)) {
+            return neg(b);
+        }
+        if (a.kind == ExpressionNode.Kind.NEGATE) {
+            return neg(mul(a.args[0], b, strict));
+        }
+        if (b.kind == ExpressionNode.Kind.NEGATE) {
+            return neg(mul(a, b.args[0], strict));
+        }
+        if (a.isConstant() && b.kind == ExpressionNode.Kind.MULTIPLY && b.args[0].isConstant()) {
+            return mul(ExpressionNode.constant(a.value * b.args[0].value), b.args[1], strict);
+        }
+        return ExpressionNode.binary(ExpressionNode.Kind.MULTIPLY, a, b);
+    }
+
+    static ExpressionNode div(ExpressionNode a, ExpressionNode b) {
+        return div(a, b, false);
+    }
+
+    static ExpressionNode div(ExpressionNode a, ExpressionNode b, boolean strict) {
+        if (b.isConstant(0)) {
+            // keep it so evaluation raises exp4j's division by zero
+            return ExpressionNode.binary(ExpressionNode.Kind.DIVIDE, a, b);
+        }
+        if (a.isConstant() && b.isConstant()) {
+            return ExpressionNode.constant(a.value / b.value);
+        }
+        if (b.isConstant(1)) {
+            return a;
+        }
+        if (a.isConstant(0) && !strict) {
+            return a;
+        }
+        if (a.kind == ExpressionNode.Kind.NEGATE) {
+            return neg(div(a.args[0], b, strict));
+        }
+        return ExpressionNode.binary(ExpressionNode.Kind.DIVIDE, a, b);
+    }
+
+    static ExpressionNode pow(ExpressionNode a, ExpressionNode b) {
+        return pow(a, b, false);
+    }
+
+    static ExpressionNode pow(ExpressionNode a, ExpressionNode b, boolean strict) {
+        if (a.isConstant() && b.isConstant()) {
+            return ExpressionNode.constant(Math.pow(a.value, b.value));
+        }
+        if (b.isConstant(0) && !strict) {
+            return ExpressionNode.constant(1);
+        }
+        if (b.isConstant(1)) {
+            return a;
+        }
+        if (a.kind == ExpressionNode.Kind.POWER && a.args[1].isConstant() && b.isConstant()
+                && a.args[1].value == Math.rint(a.args[1].value) && b.value == Math.rint(b.value)) {
+            // (u^m)^n = u^(m*n) holds for integer exponents
+            return pow(a.args[0], ExpressionNode.constant(a.args[1].value * b.value), strict);
+        }
+        return ExpressionNode.binary(ExpressionNode.Kind.POWER, a, b);
+    }
+
+    static ExpressionNode fn(String name, ExpressionNode... args) {
+        boolean constant = true;
+        for (ExpressionNode arg : args) {
+            constant &= arg.isConstant();
+        }
+        Function builtin = Functions.getBuiltinFunction(name);
+        if (constant && builtin != null) {
+            double[] values = new double[args.length];
+            for (int i = 0; i < args.length; i++) {
+                values[i] = args[i].value;
+            }
+            try {
+                return ExpressionNode.constant(builtin.apply(values));
+            } catch (ArithmeticException e) {
+                // leave it for evaluation time
+            }
+        }
+        return ExpressionNode.function(name, args);
+    }
+}
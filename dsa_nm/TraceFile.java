@@ -0,0 +1,402 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+// For Windows:
+// javac -cp ".;lib\exp4j-0.4.8.jar" TraceFile.java
+// java -cp ".;lib\exp4j-0.4.8.jar" TraceFile histories.nmtrace [trace number]
+// Compact binary file of iteration histories: one header naming the method and
+// its columns, then one block per solve. Everything is little-endian.
+//
+//   header  "NMTRACE1", int version, int column count,
+//           method and column names (u2 length + UTF-8 each), zero padding to 8 bytes
+//   block   int rows, int 0, then the doubles column by column (rows values each)
+//
+// Blocks are column-major so a reader can take a whole column (e.g. every error
+// estimate of a solve) as one contiguous DoubleBuffer. Writer appends through a
+// FileChannel; Reader maps the file read-only and serves values straight from
+// the mapping, so paging through millions of solves never loads the file.
+public final class TraceFile {
+    private static final byte[] MAGIC = "NMTRACE1".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int BLOCK_HEADER = 8;
+
+    private TraceFile() {
+    }
+
+    public static Writer create(Path path, String method) throws IOException {
+        return new Writer(path, method);
+    }
+
+    public static Reader open(Path path) throws IOException {
+        return new Reader(path);
+    }
+
+    // Records like IterationRecorder.full() and writes each solve as a block when
+    // the next one starts or the writer is closed. As a recorder it serves one
+    // thread; append() may be called from several threads at once.
+    public static final class Writer implements IterationRecorder, Closeable {
+        private final FileChannel channel;
+        private final String method;
+        private final IterationRecorder.Columnar current = IterationRecorder.full();
+        private String[] columns;
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        private long traces;
+        private boolean pending;
+
+        Writer(Path path, String method) throws IOException {
+            this.method = method;
+            this.channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                                            StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        @Override
+        public void start(String... columns) {
+            flushPending();
+            current.start(columns);
+            pending = true;
+        }
+
+        @Override
+        public void record(double[] row) {
+            current.record(row);
+        }
+
+        @Override
+        public int iterations() {
+            return current.iterations();
+        }
+
+        @Override
+        public int rows() {
+            return current.rows();
+        }
+
+        @Override
+        public double get(int row, int column) {
+            return current.get(row, column);
+        }
+
+        @Override
+        public String[] columns() {
+            return current.columns();
+        }
+
+        // Writes a finished history (of any recorder) as one block
+        public synchronized void append(IterationHistory history) throws IOException {
+            String[] names = history.columns();
+            if (columns == null) {
+                writeHeader(names);
+            } else if (!Arrays.equals(columns, names)) {
+                throw new IllegalArgumentException("Columns " + Arrays.toString(names) + " do not match the file's "
+                                                   + Arrays.toString(columns));
+            }
+            int rows = history.rows();
+            int width = names.length;
+            ensureCapacity(BLOCK_HEADER + (long) rows * width * 8);
+            buffer.putInt(rows).putInt(0);
+            if (history instanceof IterationRecorder.Columnar) {
+                IterationRecorder.Columnar columnar = (IterationRecorder.Columnar) history;
+                for (int c = 0; c < width; c++) {
+                    buffer.asDoubleBuffer().put(columnar.column(c), 0, rows);
+                    buffer.position(buffer.position() + rows * 8);
+                }
+            } else {
+                for (int c = 0; c < width; c++) {
+                    for (int r = 0; r < rows; r++) {
+                        buffer.putDouble(history.get(r, c));
+                    }
+                }
+            }
+            drain();
+            traces++;
+        }
+
+        // Solves written so far
+        public synchronized long traces() {
+            return traces;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (pending) {
+                    pending = false;
+                    append(current);
+                }
+                synchronized (this) {
+                    if (columns == null) {
+                        writeHeader(new String[0]);
+                    }
+                }
+            } finally {
+                channel.close();
+            }
+        }
+
+        private void flushPending() {
+            if (!pending) {
+                return;
+            }
+            pending = false;
+            try {
+                append(current);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not write trace: " + e.getMessage(), e);
+            }
+        }
+
+        private void writeHeader(String[] names) throws IOException {
+            columns = names.clone();
+            byte[][] strings = new byte[names.length + 1][];
+            strings[0] = method.getBytes(StandardCharsets.UTF_8);
+            int length = MAGIC.length + 8;
+            for (int i = 0; i <= names.length; i++) {
+                if (i > 0) {
+                    strings[i] = names[i - 1].getBytes(StandardCharsets.UTF_8);
+                }
+                length += 2 + strings[i].length;
+            }
+            int padded = (length + 7) & ~7;
+            ensureCapacity(padded);
+            buffer.put(MAGIC).putInt(VERSION).putInt(names.length);
+            for (byte[] s : strings) {
+                buffer.putShort((short) s.length).put(s);
+            }
+            while (buffer.position() < padded) {
+                buffer.put((byte) 0);
+            }
+            drain();
+        }
+
+        private void ensureCapacity(long bytes) {
+            if (bytes > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Trace of " + bytes + " bytes is too large for one block");
+            }
+            if (buffer.capacity() < bytes) {
+                buffer = ByteBuffer.allocateDirect((int) Math.max(bytes, 2L * buffer.capacity())).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            buffer.clear();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    // Read-only view of a trace file. The file is mapped in 1 GiB windows;
+    // since every value is 8-byte aligned, no double straddles two windows.
+    public static final class Reader implements Closeable {
+        private static final int WINDOW_BITS = 30;
+        private static final long WINDOW_MASK = (1L << WINDOW_BITS) - 1;
+
+        private final FileChannel channel;
+        private final MappedByteBuffer[] windows;
+        private final String method;
+        private final String[] columns;
+        private long[] offsets = new long[16];
+        private int traceCount;
+        private long totalRows;
+
+        Reader(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                long size = channel.size();
+                windows = new MappedByteBuffer[(int) ((size + WINDOW_MASK) >>> WINDOW_BITS)];
+                for (int i = 0; i < windows.length; i++) {
+                    long start = (long) i << WINDOW_BITS;
+                    windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, 1L << WINDOW_BITS));
+                    windows[i].order(ByteOrder.LITTLE_ENDIAN);
+                }
+
+                ByteBuffer header = windows.length > 0 ? windows[0].duplicate().order(ByteOrder.LITTLE_ENDIAN) : ByteBuffer.allocate(0);
+                byte[] magic = new byte[MAGIC.length];
+                if (header.remaining() < MAGIC.length + 8) {
+                    throw new IllegalArgumentException("Not a trace file: " + path);
+                }
+                header.get(magic);
+                if (!Arrays.equals(magic, MAGIC)) {
+                    throw new IllegalArgumentException("Not a trace file: " + path);
+                }
+                int version = header.getInt();
+                if (version != VERSION) {
+                    throw new IllegalArgumentException("Unsupported trace file version " + version);
+                }
+                columns = new String[header.getInt()];
+                method = readString(header);
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = readString(header);
+                }
+                index((header.position() + 7) & ~7, size);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        private static String readString(ByteBuffer header) {
+            byte[] bytes = new byte[header.getShort() & 0xffff];
+            header.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        // One pass over the block headers; a partly written last block is ignored
+        private void index(long position, long size) {
+            long width = columns.length;
+            while (position + BLOCK_HEADER <= size) {
+                int rows = getInt(position);
+                long end = position + BLOCK_HEADER + rows * width * 8;
+                if (rows < 0 || end > size) {
+                    break;
+                }
+                if (traceCount == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, traceCount * 2);
+                }
+                offsets[traceCount++] = position;
+                totalRows += rows;
+                position = end;
+            }
+        }
+
+        public String method() {
+            return method;
+        }
+
+        public String[] columns() {
+            return columns.clone();
+        }
+
+        public int traceCount() {
+            return traceCount;
+        }
+
+        public long totalRows() {
+            return totalRows;
+        }
+
+        public Trace trace(int index) {
+            if (index < 0 || index >= traceCount) {
+                throw new IndexOutOfBoundsException("Trace " + index + " of " + traceCount);
+            }
+            return new Trace(offsets[index]);
+        }
+
+        private int getInt(long position) {
+            return windows[(int) (position >>> WINDOW_BITS)].getInt((int) (position & WINDOW_MASK));
+        }
+
+        private double getDouble(long position) {
+            return windows[(int) (position >>> WINDOW_BITS)].getDouble((int) (position & WINDOW_MASK));
+        }
+
+        @Override
+        public void close() throws IOException {
+            // The mappings stay valid until they are garbage collected
+            channel.close();
+        }
+
+        // One solve's history, read on demand from the mapping; it can go
+        // wherever a recorded history can (for example HistoryTableModel)
+        public final class Trace implements IterationHistory {
+            private final long data;
+            private final int rows;
+
+            Trace(long offset) {
+                this.rows = getInt(offset);
+                this.data = offset + BLOCK_HEADER;
+            }
+
+            @Override
+            public int rows() {
+                return rows;
+            }
+
+            @Override
+            public double get(int row, int column) {
+                if (row < 0 || row >= rows) {
+                    throw new IndexOutOfBoundsException("Row " + row);
+                }
+                if (column < 0 || column >= columns.length) {
+                    throw new IndexOutOfBoundsException("Column " + column);
+                }
+                return getDouble(data + ((long) column * rows + row) * 8);
+            }
+
+            @Override
+            public String[] columns() {
+                return Reader.this.columns();
+            }
+
+            // The column as a view of the mapping (a copy only if it crosses a window)
+            public DoubleBuffer column(int column) {
+                if (column < 0 || column >= columns.length) {
+                    throw new IndexOutOfBoundsException("Column " + column);
+                }
+                long start = data + (long) column * rows * 8;
+                long end = start + (long) rows * 8;
+                int window = (int) (start >>> WINDOW_BITS);
+                if (rows == 0 || window == (int) ((end - 1) >>> WINDOW_BITS)) {
+                    ByteBuffer view = windows[window].duplicate();
+                    view.position((int) (start & WINDOW_MASK));
+                    view.limit(view.position() + rows * 8);
+                    return view.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+                }
+                double[] copy = new double[rows];
+                for (int r = 0; r < rows; r++) {
+                    copy[r] = getDouble(start + (long) r * 8);
+                }
+                return DoubleBuffer.wrap(copy);
+            }
+        }
+    }
+
+    // Prints the header and iteration statistics, or one trace as a table
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java TraceFile <file> [trace number]");
+            return;
+        }
+        try (Reader reader = open(Paths.get(args[0]))) {
+            System.out.println("Method: " + reader.method());
+            System.out.println("Columns: " + String.join(", ", reader.columns()));
+            System.out.println("Traces: " + reader.traceCount() + ", rows: " + reader.totalRows());
+            if (args.length > 1) {
+                Reader.Trace trace = reader.trace(Integer.parseInt(args[1]) - 1);
+                StringBuilder sb = new StringBuilder(String.format("%-6s", "Iter"));
+                for (String column : reader.columns()) {
+                    sb.append(String.format("%-20s", column));
+                }
+                System.out.println(sb);
+                for (int r = 0; r < trace.rows(); r++) {
+                    sb.setLength(0);
+                    sb.append(String.format("%-6d", r + 1));
+                    for (int c = 0; c < reader.columns().length; c++) {
+                        sb.append(String.format("%-20.12g", trace.get(r, c)));
+                    }
+                    System.out.println(sb);
+                }
+            } else if (reader.traceCount() > 0) {
+                int min = Integer.MAX_VALUE, max = 0;
+                for (int i = 0; i < reader.traceCount(); i++) {
+                    int rows = reader.trace(i).rows();
+                    min = Math.min(min, rows);
+                    max = Math.max(max, rows);
+                }
+                System.out.printf("Iterations per solve: min %d, mean %.2f, max %d%n",
+                                  min, (double) reader.totalRows() / reader.traceCount(), max);
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Runs every benchmark (or those matching args[1]) with the GC profiler and
+// writes JMH's JSON results to args[0] (default bench-results.json), so runs
+// can be diffed across changes for time, allocation rate and iteration counts.
+//
+// Compile from dsa_nm (jmh-core, jmh-generator-annprocess, jopt-simple and
+// commons-math3 jars in lib):
+//javac -cp ".;lib\*" -d bench-classes *.java bench\*.java
+//java -cp "bench-classes;lib\*" bench.BenchmarkRunner bench-results.json
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException {
+        String resultFile = args.length > 0 ? args[0] : "bench-results.json";
+        String include = args.length > 1 ? args[1] : "bench\\..*";
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,67 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleUnaryOperator;
+import net.objecthunter.exp4j.Expression;
+import net.objecthunter.exp4j.ExpressionBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Cost of one f(x) evaluation: raw exp4j setVariable/evaluate against the
+// compiled evaluator, over a fixed grid of x values so branches and Math
+// calls see realistic inputs
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class EvaluatorBenchmark {
+    private static final int POINTS = 1024;
+
+    @Param({"WALLIS", "KEPLER", "COSINE", "EXPONENTIAL", "SQRT2", "LOGARITHM", "QUINTIC"})
+    public TestFunction function;
+
+    private Expression expression;
+    private DoubleUnaryOperator compiled;
+    private final double[] xs = new double[POINTS];
+
+    @Setup
+    public void setup() throws Throwable {
+        expression = new ExpressionBuilder(function.f).variable("x").build();
+        compiled = Solvers.compile(expression);
+        for (int i = 0; i < POINTS; i++) {
+            xs[i] = function.a + (function.b - function.a) * i / (POINTS - 1);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public double exp4jEvaluate() {
+        double sum = 0;
+        for (double x : xs) {
+            sum += expression.setVariable("x", x).evaluate();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public double compiledEvaluate() {
+        double sum = 0;
+        for (double x : xs) {
+            sum += compiled.applyAsDouble(x);
+        }
+        return sum;
+    }
+
+    // Parse + build, i.e. what every solver main pays before its first evaluation
+    @Benchmark
+    public Expression exp4jBuild() {
+        return new ExpressionBuilder(function.f).variable("x").build();
+    }
+}
@@ -0,0 +1,105 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Jacobi solves to 1e-8 on random strictly diagonally dominant dense systems
+// and on tridiagonal CSR systems (diagonal 4, off-diagonals -1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JacobiBenchmark {
+    private static final double TOLERANCE = 1e-8;
+    private static final int MAX_ITERATIONS = 10000;
+
+    @State(Scope.Thread)
+    public static class Dense {
+        @Param({"3", "30", "300"})
+        public int size;
+
+        double[][] matrix;
+        Object recorder;
+
+        @Setup
+        public void setup() throws Throwable {
+            Random random = new Random(42);
+            matrix = new double[size][size + 1];
+            for (int i = 0; i < size; i++) {
+                double offDiagonal = 0;
+                for (int j = 0; j < size; j++) {
+                    if (j != i) {
+                        matrix[i][j] = random.nextDouble() * 2 - 1;
+                        offDiagonal += Math.abs(matrix[i][j]);
+                    }
+                }
+                matrix[i][i] = offDiagonal + 1 + random.nextDouble();
+                matrix[i][size] = random.nextDouble() * 10;
+            }
+            recorder = Solvers.NO_RECORDER.invokeExact();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Equations {
+        String[] equations = {"4x - y + z = 7", "4x - 8y + z = -21", "-2x + y + 5z = 15"};
+    }
+
+    @State(Scope.Thread)
+    public static class Sparse {
+        @Param({"10000", "1000000"})
+        public int size;
+
+        Object matrix;
+        double[] b;
+        Object recorder;
+
+        @Setup
+        public void setup() throws Throwable {
+            Object builder = Solvers.SPARSE_BUILDER.invokeExact(size, size);
+            for (int i = 0; i < size; i++) {
+                Object unused = Solvers.SPARSE_ADD.invokeExact(builder, i, i, 4.0);
+                if (i > 0) {
+                    unused = Solvers.SPARSE_ADD.invokeExact(builder, i, i - 1, -1.0);
+                }
+                if (i < size - 1) {
+                    unused = Solvers.SPARSE_ADD.invokeExact(builder, i, i + 1, -1.0);
+                }
+            }
+            matrix = Solvers.SPARSE_BUILD.invokeExact(builder);
+            b = new double[size];
+            Arrays.fill(b, 1.0);
+            recorder = Solvers.NO_RECORDER.invokeExact();
+        }
+    }
+
+    @Benchmark
+    public Object solveJacobiDense(Dense state) throws Throwable {
+        return Solvers.JACOBI_DENSE.invokeExact((Object) state.matrix, TOLERANCE, MAX_ITERATIONS, state.recorder);
+    }
+
+    // Parsing, dominance check and ArrayList<IterationData> history, as the GUI does
+    @Benchmark
+    public Object solveJacobiEquations(Equations state) throws Throwable {
+        return Solvers.JACOBI_STRINGS.invokeExact((Object) state.equations, TOLERANCE, MAX_ITERATIONS, (Object) new ArrayList<Object>());
+    }
+
+    @Benchmark
+    public Object solveJacobiSparse(Sparse state) throws Throwable {
+        return Solvers.JACOBI_SPARSE.invokeExact(state.matrix, (Object) state.b, TOLERANCE, MAX_ITERATIONS, state.recorder, (Object) null);
+    }
+
+    @Benchmark
+    public Object solveJacobiSparseParallel(Sparse state) throws Throwable {
+        return Solvers.JACOBI_SPARSE.invokeExact(state.matrix, (Object) state.b, TOLERANCE, MAX_ITERATIONS, state.recorder, (Object) ForkJoinPool.commonPool());
+    }
+}
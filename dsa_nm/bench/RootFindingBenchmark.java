@@ -0,0 +1,112 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.Stack;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleUnaryOperator;
+import net.objecthunter.exp4j.Expression;
+import net.objecthunter.exp4j.ExpressionBuilder;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+// One full solve per operation for every method over the TestFunction catalogue.
+// The *Core benchmarks use the allocation-free recorder API; the others go
+// through the original entry points and build their history collections.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class RootFindingBenchmark {
+    private static final double TOLERANCE = 1e-10;
+    private static final int MAX_ITERATIONS = 1000;
+
+    @Param({"WALLIS", "KEPLER", "COSINE", "EXPONENTIAL", "SQRT2", "LOGARITHM", "QUINTIC"})
+    public TestFunction function;
+
+    private Expression fExpression, gExpression;
+    private DoubleUnaryOperator f, df, g;
+    private Object recorder;
+
+    // Solver iterations per operation, reported next to the timings
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Iterations {
+        public long iterations;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            iterations = 0;
+        }
+    }
+
+    @Setup
+    public void setup() throws Throwable {
+        fExpression = new ExpressionBuilder(function.f).variable("x").build();
+        gExpression = new ExpressionBuilder(function.g).variable("x").build();
+        f = Solvers.compile(fExpression);
+        df = Solvers.derivative(fExpression);
+        g = Solvers.compile(gExpression);
+        recorder = Solvers.NO_RECORDER.invokeExact();
+    }
+
+    private double count(Iterations counter, double root) throws Throwable {
+        counter.iterations += (int) Solvers.ITERATIONS.invokeExact(recorder);
+        return root;
+    }
+
+    @Benchmark
+    public double bisectionCore(Iterations counter) throws Throwable {
+        return count(counter, (double) Solvers.BISECTION.invokeExact((Object) f, function.a, function.b, TOLERANCE, MAX_ITERATIONS, recorder));
+    }
+
+    @Benchmark
+    public double secantCore(Iterations counter) throws Throwable {
+        return count(counter, (double) Solvers.SECANT.invokeExact((Object) f, function.a, function.b, TOLERANCE, MAX_ITERATIONS, recorder));
+    }
+
+    @Benchmark
+    public double newtonCore(Iterations counter) throws Throwable {
+        return count(counter, (double) Solvers.NEWTON.invokeExact((Object) f, (Object) df, function.x0, TOLERANCE, MAX_ITERATIONS, recorder));
+    }
+
+    @Benchmark
+    public double fixedPointCore(Iterations counter) throws Throwable {
+        return count(counter, (double) Solvers.FIXED_POINT.invokeExact((Object) g, function.x0, TOLERANCE, MAX_ITERATIONS, recorder));
+    }
+
+    @Benchmark
+    public Object bisectionMethod(Blackhole bh) throws Throwable {
+        Stack<Object> history = new Stack<>();
+        bh.consume((double) Solvers.BISECTION_HISTORY.invokeExact((Object) fExpression, function.a, function.b, TOLERANCE, MAX_ITERATIONS, (Object) history));
+        return history;
+    }
+
+    @Benchmark
+    public Object secantIteration(Blackhole bh) throws Throwable {
+        LinkedList<Object> history = new LinkedList<>();
+        bh.consume((double) Solvers.SECANT_HISTORY.invokeExact((Object) fExpression, function.a, function.b, TOLERANCE, MAX_ITERATIONS, (Object) history));
+        return history;
+    }
+
+    // Includes parsing and compiling the function text on every call
+    @Benchmark
+    public Object newtonRaphson() throws Throwable {
+        return Solvers.NEWTON_STRING.invokeExact((Object) function.f, function.x0, TOLERANCE, MAX_ITERATIONS);
+    }
+
+    @Benchmark
+    public Object fixedPointRecursive(Blackhole bh) throws Throwable {
+        ArrayList<Object> history = new ArrayList<>();
+        bh.consume((double) Solvers.FIXED_POINT_RECURSIVE.invokeExact((Object) gExpression, function.x0, TOLERANCE, MAX_ITERATIONS, 1, (Object) history));
+        return history;
+    }
+}
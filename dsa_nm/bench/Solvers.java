@@ -0,0 +1,114 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.DoubleUnaryOperator;
+import net.objecthunter.exp4j.Expression;
+
+// The solvers live in the default package, which a named package cannot import,
+// and JMH will not generate code for benchmarks in the default package. So the
+// benchmarks call the solvers through method handles. A handle in a static final
+// field is a constant to the JIT and is inlined like a direct call. Every handle
+// is erased to Object so call sites never have to name default-package types.
+final class Solvers {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+    // IterationRecorder.none() / full()
+    static final MethodHandle NO_RECORDER = find("IterationRecorder", "none", type("IterationRecorder$NoOp"));
+    static final MethodHandle FULL_RECORDER = find("IterationRecorder", "full", type("IterationRecorder$Columnar"));
+    static final MethodHandle ITERATIONS = virtual("IterationRecorder", "iterations", int.class);
+
+    // CompiledFunction.of(Expression), SymbolicDerivative.compile(Expression)
+    static final MethodHandle COMPILE = find("CompiledFunction", "of", type("CompiledFunction"), Expression.class);
+    static final MethodHandle DERIVATIVE = find("SymbolicDerivative", "compile", type("CompiledFunction"), Expression.class);
+
+    // Recorder-based solver cores
+    static final MethodHandle BISECTION = find("bisection_method", "bisectionMethod", double.class,
+            DoubleUnaryOperator.class, double.class, double.class, double.class, int.class, type("IterationRecorder"));
+    static final MethodHandle SECANT = find("secant_method", "secantIteration", double.class,
+            DoubleUnaryOperator.class, double.class, double.class, double.class, int.class, type("IterationRecorder"));
+    static final MethodHandle NEWTON = find("newton_raphson", "newtonRaphson", double.class,
+            DoubleUnaryOperator.class, DoubleUnaryOperator.class, double.class, double.class, int.class, type("IterationRecorder"));
+    static final MethodHandle FIXED_POINT = find("fixed_point", "fixedPoint", double.class,
+            DoubleUnaryOperator.class, double.class, double.class, int.class, type("IterationRecorder"));
+
+    // Original entry points with their history collections
+    static final MethodHandle BISECTION_HISTORY = find("bisection_method", "bisectionMethod", double.class,
+            Expression.class, double.class, double.class, double.class, int.class, Stack.class);
+    static final MethodHandle SECANT_HISTORY = find("secant_method", "secantIteration", double.class,
+            Expression.class, double.class, double.class, double.class, int.class, LinkedList.class);
+    static final MethodHandle NEWTON_STRING = find("newton_raphson", "newtonRaphson", Queue.class,
+            String.class, double.class, double.class, int.class);
+    static final MethodHandle FIXED_POINT_RECURSIVE = find("fixed_point", "fixedPointRecursive", double.class,
+            Expression.class, double.class, double.class, int.class, int.class, ArrayList.class);
+
+    // Jacobi on dense augmented matrices and on CSR matrices
+    static final MethodHandle JACOBI_DENSE = find("jacobi_method", "solveJacobi", double[].class,
+            double[][].class, double.class, int.class, type("IterationRecorder"));
+    static final MethodHandle JACOBI_STRINGS = find("jacobi_method", "solveJacobi", double[].class,
+            String[].class, double.class, int.class, ArrayList.class);
+    static final MethodHandle JACOBI_SPARSE = find("jacobi_method", "solveJacobi", double[].class,
+            type("SparseMatrix"), double[].class, double.class, int.class, type("IterationRecorder"),
+            ForkJoinPool.class);
+
+    // new SparseMatrix.Builder(rows, cols), builder.add(row, col, value), builder.build()
+    static final MethodHandle SPARSE_BUILDER = constructor("SparseMatrix$Builder", int.class, int.class);
+    static final MethodHandle SPARSE_ADD = virtual("SparseMatrix$Builder", "add", type("SparseMatrix$Builder"),
+            int.class, int.class, double.class);
+    static final MethodHandle SPARSE_BUILD = virtual("SparseMatrix$Builder", "build", type("SparseMatrix"));
+
+    private Solvers() {
+    }
+
+    static DoubleUnaryOperator compile(Expression expression) throws Throwable {
+        Object f = COMPILE.invokeExact((Object) expression);
+        return (DoubleUnaryOperator) f;
+    }
+
+    // Exact f'(x), or null if it cannot be derived symbolically
+    static DoubleUnaryOperator derivative(Expression expression) throws Throwable {
+        Object df = DERIVATIVE.invokeExact((Object) expression);
+        return (DoubleUnaryOperator) df;
+    }
+
+    static Class<?> type(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Solver class " + name + " is not on the classpath", e);
+        }
+    }
+
+    private static MethodHandle find(String owner, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            MethodHandle mh = LOOKUP.findStatic(type(owner), name, MethodType.methodType(returnType, parameters));
+            return mh.asType(mh.type().erase());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Missing " + owner + "." + name, e);
+        }
+    }
+
+    private static MethodHandle virtual(String owner, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            MethodHandle mh = LOOKUP.findVirtual(type(owner), name, MethodType.methodType(returnType, parameters));
+            return mh.asType(mh.type().erase());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Missing " + owner + "." + name, e);
+        }
+    }
+
+    private static MethodHandle constructor(String owner, Class<?>... parameters) {
+        try {
+            MethodHandle mh = LOOKUP.findConstructor(type(owner), MethodType.methodType(void.class, parameters));
+            return mh.asType(mh.type().erase());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Missing constructor of " + owner, e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package bench;
+
+// Standard root-finding test problems: f(x) = 0 with a sign-changing bracket
+// [a, b], a starting guess x0, and a convergent fixed-point form x = g(x).
+// Public because JMH's generated code in bench.jmh_generated names the
+// benchmarks' @Param fields' type.
+public enum TestFunction {
+    WALLIS("x^3 - 2*x - 5", "(2*x + 5)^(1/3)", 2, 3, 2),
+    KEPLER("x - 0.5*sin(x) - 1", "1 + 0.5*sin(x)", 0, 3, 1),
+    COSINE("cos(x) - x", "cos(x)", 0, 1, 0.5),
+    EXPONENTIAL("exp(-x) - x", "exp(-x)", 0, 1, 0.5),
+    SQRT2("x^2 - 2", "(x + 2/x)/2", 1, 2, 1.5),
+    LOGARITHM("log(x) + x - 2", "2 - log(x)", 1, 2, 1.5),
+    QUINTIC("x^5 - x - 1", "(x + 1)^(1/5)", 1, 2, 1.2);
+
+    final String f;
+    final String g;
+    final double a, b, x0;
+
+    TestFunction(String f, String g, double a, double b, double x0) {
+        this.f = f;
+        this.g = g;
+        this.a = a;
+        this.b = b;
+        this.x0 = x0;
+    }
+}
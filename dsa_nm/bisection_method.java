@@ -1,7 +1,8 @@
 import net.objecthunter.exp4j.Expression;
-import net.objecthunter.exp4j.ExpressionBuilder;
+import java.util.Collections;
 import java.util.Scanner;
 import java.util.Stack;
+import java.util.function.DoubleUnaryOperator;
 
 // javac -cp ".;lib/exp4j-0.4.8.jar" bisection_method.java
 // java -cp ".;lib/exp4j-0.4.8.jar" bisection_method
@@ -19,8 +20,34 @@ public class bisection_method {
     }
 
     public static double bisectionMethod(Expression f, double a, double b, double tolerance, int maxIterations, Stack<IterationData> history) {
-        double fa = evaluate(f, a);
-        double fb = evaluate(f, b);
+        return bisectionMethod(CompiledFunction.of(f), a, b, tolerance, maxIterations, history);
+    }
+
+    public static double bisectionMethod(DoubleUnaryOperator f, double a, double b, double tolerance, int maxIterations, Stack<IterationData> history) {
+        IterationRecorder.Columnar recorder = IterationRecorder.full();
+        try {
+            return bisectionMethod(f, a, b, tolerance, maxIterations, recorder);
+        } finally {
+            for (int i = 0; i < recorder.rows(); i++) {
+                history.push(new IterationData(recorder.get(i, 0), recorder.get(i, 1), recorder.get(i, 2),
+                                               recorder.get(i, 3), recorder.get(i, 4), recorder.get(i, 5)));
+            }
+        }
+    }
+
+    // Core loop; writes one (a, b, c, f(a), f(b), f(c)) row per iteration
+    public static double bisectionMethod(DoubleUnaryOperator f, double a, double b, double tolerance, int maxIterations, IterationRecorder recorder) {
+        if (SolverMetrics.ENABLED) {
+            return SolverMetrics.measure("bisection", f, recorder, counted -> bisectionMethodLoop(counted, a, b, tolerance, maxIterations, recorder));
+        }
+        return bisectionMethodLoop(f, a, b, tolerance, maxIterations, recorder);
+    }
+
+    private static double bisectionMethodLoop(DoubleUnaryOperator f, double a, double b, double tolerance, int maxIterations, IterationRecorder recorder) {
+        recorder.start("a", "b", "c", "f(a)", "f(b)", "f(c)");
+        double[] row = new double[6];
+        double fa = f.applyAsDouble(a);
+        double fb = f.applyAsDouble(b);
 
         if (fa * fb >= 0) {
             throw new IllegalArgumentException("Function must have opposite signs at endpoints.");
@@ -28,9 +55,11 @@ public class bisection_method {
 
         for (int i = 0; i < maxIterations; i++) {
             double c = (a + b) / 2;
-            double fc = evaluate(f, c);
+            double fc = f.applyAsDouble(c);
 
-            history.push(new IterationData(a, b, c, fa, fb, fc));
+            row[0] = a; row[1] = b; row[2] = c;
+            row[3] = fa; row[4] = fb; row[5] = fc;
+            recorder.record(row);
 
             if (Math.abs(fc) < tolerance || (b - a) / 2 < tolerance) {
                 return c;
@@ -45,12 +74,7 @@ public class bisection_method {
             }
         }
 
-        System.out.println("Method did not converge within maximum iterations.");
-        return (a + b) / 2;
-    }
-
-    private static double evaluate(Expression f, double x) {
-        return f.setVariable("x", x).evaluate();
+        throw new NotConvergedException(recorder.iterations(), (a + b) / 2);
     }
 
     public static void main(String[] args) {
@@ -60,9 +84,8 @@ public class bisection_method {
 
         try {
             System.out.println("Enter function f(x) (e.g., x^2 - 4, x^3 - 2*x - 5, sin(x) - x/2):");
-            String funcStr = scanner.nextLine().toLowerCase().trim().replaceAll("\\s+", ""); // Convert input to lowercase
-            
-            Expression expression = new ExpressionBuilder(funcStr).variable("x").build();
+            String function = scanner.nextLine();
+            Expression expression = ExpressionCache.SHARED.expression(function);
 
             System.out.println("Enter first guess (a):");
             double a = Double.parseDouble(scanner.nextLine().trim().replaceAll("\\s+", ""));
@@ -85,13 +108,25 @@ public class bisection_method {
                 return;
             }
             if (tolerance < 1e-6) {
-                System.out.println("Tolerance cannot be smaller than 1e-6.");
+                // Beyond what double iterations can resolve: finish in extended precision
+                IterationRecorder.Columnar iterations = IterationRecorder.full();
+                try {
+                    HighPrecision.print(iterations, HighPrecision.bisection(function, a, b, tolerance, 0, maxIterations, iterations));
+                } catch (NotConvergedException e) {
+                    System.out.println(e.getMessage() + " Last estimate: " + e.estimate());
+                }
                 return;
             }
 
             int decimalPlaces = getDecimalPlaces(tolerance);
 
-            double result = bisectionMethod(expression, a, b, tolerance, maxIterations, history);
+            double result;
+            try {
+                result = bisectionMethod(expression, a, b, tolerance, maxIterations, history);
+            } catch (NotConvergedException e) {
+                System.out.println(e.getMessage());
+                result = e.estimate();
+            }
             
             String formatStr = "%." + decimalPlaces + "f";
             System.out.println("Result: " + String.format(formatStr, result));
@@ -116,7 +151,7 @@ public class bisection_method {
                          (decimalPlaces + 8) + "s %-" + (decimalPlaces + 8) + "s %-" + 
                          (decimalPlaces + 8) + "s%n", 
                          "Iter", "a", "b", "c", "f(c)");
-        System.out.println("-".repeat(60));
+        System.out.println(String.join("", Collections.nCopies(60, "-")));
 
         int iter = 1;
         for (IterationData d : history) {
@@ -0,0 +1,325 @@
+import net.objecthunter.exp4j.Expression;
+import java.util.Scanner;
+import java.util.Stack;
+import java.util.function.DoubleUnaryOperator;
+
+// javac -cp ".;lib/exp4j-0.4.8.jar" bracketing_methods.java
+// java -cp ".;lib/exp4j-0.4.8.jar" bracketing_methods
+// Superlinear methods that, like bisection, always keep the root inside a
+// sign-changing bracket [a, b]: Brent's method, the Illinois variant of
+// regula falsi, and ITP (interpolate, truncate, project). They stop on the
+// same test as bisection (|f(c)| or the bracket half-width below tolerance)
+// and write the same (a, b, c, f(a), f(b), f(c)) rows, so their histories use
+// bisection_method.IterationData.
+public class bracketing_methods {
+    private static final double EPS = Math.ulp(1.0);
+
+    public static double brentMethod(Expression f, double a, double b, double tolerance, int maxIterations, Stack<bisection_method.IterationData> history) {
+        IterationRecorder.Columnar recorder = IterationRecorder.full();
+        try {
+            return brentMethod(CompiledFunction.of(f), a, b, tolerance, maxIterations, recorder);
+        } finally {
+            addHistory(recorder, history);
+        }
+    }
+
+    public static double illinoisMethod(Expression f, double a, double b, double tolerance, int maxIterations, Stack<bisection_method.IterationData> history) {
+        IterationRecorder.Columnar recorder = IterationRecorder.full();
+        try {
+            return illinoisMethod(CompiledFunction.of(f), a, b, tolerance, maxIterations, recorder);
+        } finally {
+            addHistory(recorder, history);
+        }
+    }
+
+    public static double itpMethod(Expression f, double a, double b, double tolerance, int maxIterations, Stack<bisection_method.IterationData> history) {
+        IterationRecorder.Columnar recorder = IterationRecorder.full();
+        try {
+            return itpMethod(CompiledFunction.of(f), a, b, tolerance, maxIterations, recorder);
+        } finally {
+            addHistory(recorder, history);
+        }
+    }
+
+    // Brent's method: inverse quadratic interpolation or secant steps while they
+    // make enough progress, bisection otherwise. Each row's [a, b] is the bracket
+    // the new point c was chosen from.
+    public static double brentMethod(DoubleUnaryOperator f, double a, double b, double tolerance, int maxIterations, IterationRecorder recorder) {
+        if (SolverMetrics.ENABLED) {
+            return SolverMetrics.measure("brent", f, recorder, counted -> brentMethodLoop(counted, a, b, tolerance, maxIterations, recorder));
+        }
+        return brentMethodLoop(f, a, b, tolerance, maxIterations, recorder);
+    }
+
+    private static double brentMethodLoop(DoubleUnaryOperator f, double a, double b, double tolerance, int maxIterations, IterationRecorder recorder) {
+        recorder.start("a", "b", "c", "f(a)", "f(b)", "f(c)");
+        double[] row = new double[6];
+        double fa = f.applyAsDouble(a);
+        double fb = f.applyAsDouble(b);
+        checkBracket(fa, fb);
+
+        double c = b, fc = fb;
+        double d = 0, e = 0;
+        for (int i = 0; i < maxIterations; i++) {
+            // c is the contrapoint: f(b) and f(c) have opposite signs
+            if ((fb > 0) == (fc > 0)) {
+                c = a;
+                fc = fa;
+                d = e = b - a;
+            }
+            // b is always the best estimate
+            if (Math.abs(fc) < Math.abs(fb)) {
+                a = b; b = c; c = a;
+                fa = fb; fb = fc; fc = fa;
+            }
+            double tol1 = 2 * EPS * Math.abs(b) + 0.5 * tolerance;
+            double xm = 0.5 * (c - b);
+            if (Math.abs(xm) <= tol1 || fb == 0) {
+                return b;
+            }
+
+            if (Math.abs(e) >= tol1 && Math.abs(fa) > Math.abs(fb)) {
+                double s = fb / fa;
+                double p, q;
+                if (a == c) {
+                    // Secant step
+                    p = 2 * xm * s;
+                    q = 1 - s;
+                } else {
+                    // Inverse quadratic interpolation
+                    double qa = fa / fc;
+                    double r = fb / fc;
+                    p = s * (2 * xm * qa * (qa - r) - (b - a) * (r - 1));
+                    q = (qa - 1) * (r - 1) * (s - 1);
+                }
+                if (p > 0) q = -q;
+                p = Math.abs(p);
+                // Accept the interpolation only if it stays well inside the bracket
+                // and shrinks faster than bisection would
+                if (2 * p < Math.min(3 * xm * q - Math.abs(tol1 * q), Math.abs(e * q))) {
+                    e = d;
+                    d = p / q;
+                } else {
+                    d = xm;
+                    e = d;
+                }
+            } else {
+                d = xm;
+                e = d;
+            }
+
+            a = b;
+            fa = fb;
+            b += Math.abs(d) > tol1 ? d : Math.copySign(tol1, xm);
+            fb = f.applyAsDouble(b);
+
+            // The bracket this step came from is [a, c] (old best estimate and contrapoint)
+            boolean aLow = a < c;
+            row[0] = aLow ? a : c; row[1] = aLow ? c : a; row[2] = b;
+            row[3] = aLow ? fa : fc; row[4] = aLow ? fc : fa; row[5] = fb;
+            recorder.record(row);
+
+            if (Math.abs(fb) < tolerance || Math.abs(c - a) / 2 < tolerance) {
+                return b;
+            }
+        }
+
+        throw new NotConvergedException(recorder.iterations(), b);
+    }
+
+    // Regula falsi with the Illinois fix: when the same endpoint is kept twice in
+    // a row its function value is halved, so the stale side cannot stall the
+    // bracket. f(a) and f(b) in the rows are these weighted values.
+    public static double illinoisMethod(DoubleUnaryOperator f, double a, double b, double tolerance, int maxIterations, IterationRecorder recorder) {
+        if (SolverMetrics.ENABLED) {
+            return SolverMetrics.measure("illinois", f, recorder, counted -> illinoisMethodLoop(counted, a, b, tolerance, maxIterations, recorder));
+        }
+        return illinoisMethodLoop(f, a, b, tolerance, maxIterations, recorder);
+    }
+
+    private static double illinoisMethodLoop(DoubleUnaryOperator f, double a, double b, double tolerance, int maxIterations, IterationRecorder recorder) {
+        recorder.start("a", "b", "c", "f(a)", "f(b)", "f(c)");
+        double[] row = new double[6];
+        double fa = f.applyAsDouble(a);
+        double fb = f.applyAsDouble(b);
+        checkBracket(fa, fb);
+
+        int side = 0;   // -1 when b was replaced last time, +1 when a was
+        double c = a;
+        for (int i = 0; i < maxIterations; i++) {
+            c = (a * fb - b * fa) / (fb - fa);
+            double fc = f.applyAsDouble(c);
+
+            row[0] = a; row[1] = b; row[2] = c;
+            row[3] = fa; row[4] = fb; row[5] = fc;
+            recorder.record(row);
+
+            if (fc == 0) {
+                return c;
+            }
+            if (Double.isNaN(fc) || Double.isInfinite(fc)) {
+                throw new ArithmeticException("Function evaluated to NaN or Infinity. Try a different interval.");
+            }
+            if (fc * fb > 0) {
+                b = c;
+                fb = fc;
+                if (side == -1) fa /= 2;
+                side = -1;
+            } else {
+                a = c;
+                fa = fc;
+                if (side == 1) fb /= 2;
+                side = 1;
+            }
+
+            if (Math.abs(fc) < tolerance || Math.abs(b - a) / 2 < tolerance) {
+                return c;
+            }
+        }
+
+        throw new NotConvergedException(recorder.iterations(), c);
+    }
+
+    // ITP (Oliveira and Takahashi, 2020): a regula falsi point, truncated towards
+    // the midpoint and projected into a shrinking window around it. Never needs
+    // more evaluations than bisection, and converges superlinearly on smooth f.
+    public static double itpMethod(DoubleUnaryOperator f, double a, double b, double tolerance, int maxIterations, IterationRecorder recorder) {
+        if (SolverMetrics.ENABLED) {
+            return SolverMetrics.measure("itp", f, recorder, counted -> itpMethodLoop(counted, a, b, tolerance, maxIterations, recorder));
+        }
+        return itpMethodLoop(f, a, b, tolerance, maxIterations, recorder);
+    }
+
+    private static double itpMethodLoop(DoubleUnaryOperator f, double a, double b, double tolerance, int maxIterations, IterationRecorder recorder) {
+        recorder.start("a", "b", "c", "f(a)", "f(b)", "f(c)");
+        double[] row = new double[6];
+        if (a > b) {
+            double t = a; a = b; b = t;
+        }
+        double fa = f.applyAsDouble(a);
+        double fb = f.applyAsDouble(b);
+        checkBracket(fa, fb);
+
+        // Recommended hyper-parameters: k1 = 0.2 / (b - a), k2 = 2, n0 = 1
+        double k1 = 0.2 / (b - a);
+        int nMax = (int) Math.ceil(Math.log((b - a) / (2 * tolerance)) / Math.log(2)) + 1;
+        double c = (a + b) / 2;
+        for (int j = 0; j < maxIterations; j++) {
+            double mid = (a + b) / 2;
+            double radius = tolerance * Math.pow(2, nMax - j) - (b - a) / 2;
+            double delta = k1 * (b - a) * (b - a);
+
+            // Interpolate
+            double xf = (fb * a - fa * b) / (fb - fa);
+            // Truncate: nudge towards the midpoint by delta
+            double sigma = Math.signum(mid - xf);
+            double xt = delta <= Math.abs(mid - xf) ? xf + sigma * delta : mid;
+            // Project into the minmax window around the midpoint
+            c = Math.abs(xt - mid) <= radius ? xt : mid - sigma * radius;
+            double fc = f.applyAsDouble(c);
+
+            row[0] = a; row[1] = b; row[2] = c;
+            row[3] = fa; row[4] = fb; row[5] = fc;
+            recorder.record(row);
+
+            if (fc == 0) {
+                return c;
+            }
+            if ((fc > 0) == (fa > 0)) {
+                a = c;
+                fa = fc;
+            } else {
+                b = c;
+                fb = fc;
+            }
+
+            if (Math.abs(fc) < tolerance || (b - a) / 2 < tolerance) {
+                return c;
+            }
+        }
+
+        throw new NotConvergedException(recorder.iterations(), c);
+    }
+
+    private static void checkBracket(double fa, double fb) {
+        if (fa * fb >= 0) {
+            throw new IllegalArgumentException("Function must have opposite signs at endpoints.");
+        }
+    }
+
+    private static void addHistory(IterationRecorder recorder, Stack<bisection_method.IterationData> history) {
+        for (int i = 0; i < recorder.rows(); i++) {
+            history.push(new bisection_method.IterationData(recorder.get(i, 0), recorder.get(i, 1), recorder.get(i, 2),
+                                                            recorder.get(i, 3), recorder.get(i, 4), recorder.get(i, 5)));
+        }
+    }
+
+    public static void main(String[] args) {
+        Scanner scanner = new Scanner(System.in);
+        Stack<bisection_method.IterationData> history = new Stack<>();
+        int maxIterations = 100;
+
+        try {
+            System.out.println("Choose method (brent, illinois or itp):");
+            String method = scanner.nextLine().trim().toLowerCase();
+            if (!method.equals("brent") && !method.equals("illinois") && !method.equals("itp")) {
+                System.out.println("Unknown method. Use brent, illinois or itp.");
+                return;
+            }
+
+            System.out.println("Enter function f(x) (e.g., x^2 - 4, x^3 - 2*x - 5, sin(x) - x/2):");
+            Expression expression = ExpressionCache.SHARED.expression(scanner.nextLine());
+
+            System.out.println("Enter first guess (a):");
+            double a = Double.parseDouble(scanner.nextLine().trim().replaceAll("\\s+", ""));
+
+            System.out.println("Enter second guess (b):");
+            double b = Double.parseDouble(scanner.nextLine().trim().replaceAll("\\s+", ""));
+
+            System.out.println("Enter tolerance (e.g., 0.001 or 1e-3):");
+            String tolInput = scanner.nextLine().replaceAll("\\s+", "").trim();
+            double tolerance;
+            try {
+                tolerance = Double.parseDouble(tolInput);
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid tolerance input. Use formats like 0.001 or 1e-3.");
+                return;
+            }
+
+            if (tolerance <= 0) {
+                System.out.println("Tolerance must be greater than 0.");
+                return;
+            }
+            if (tolerance < 1e-6) {
+                System.out.println("Tolerance cannot be smaller than 1e-6.");
+                return;
+            }
+
+            int decimalPlaces = bisection_method.getDecimalPlaces(tolerance);
+
+            double result;
+            try {
+                if (method.equals("brent")) {
+                    result = brentMethod(expression, a, b, tolerance, maxIterations, history);
+                } else if (method.equals("illinois")) {
+                    result = illinoisMethod(expression, a, b, tolerance, maxIterations, history);
+                } else {
+                    result = itpMethod(expression, a, b, tolerance, maxIterations, history);
+                }
+            } catch (NotConvergedException e) {
+                System.out.println(e.getMessage());
+                result = e.estimate();
+            }
+
+            String formatStr = "%." + decimalPlaces + "f";
+            System.out.println("Result: " + String.format(formatStr, result));
+            System.out.println("Total Iterations: " + history.size());
+
+            bisection_method.printHistory(history, decimalPlaces);
+
+        } catch (Exception e) {
+            System.out.println("An error occurred: " + e.getMessage());
+            System.out.println("Please check your input and try again.");
+        }
+    }
+}
@@ -1,7 +1,7 @@
 import net.objecthunter.exp4j.Expression;
-import net.objecthunter.exp4j.ExpressionBuilder;
 import java.util.Scanner;
 import java.util.ArrayList;
+import java.util.function.DoubleUnaryOperator;
 // For Windows:
 // javac -cp ".;lib\exp4j-0.4.8.jar" fixed_point.java
 // java -cp ".;lib\exp4j-0.4.8.jar" fixed_point
@@ -21,12 +21,7 @@ public class fixed_point {
 
         try {
             System.out.println("Enter g(x) function (e.g., sqrt(x + 1), (x + 5)^(1/3), e^(-x), exp(-x)): ");
-            String user_input = scanner.nextLine()
-                                    .toLowerCase()  // Convert everything to lowercase first
-                                    .replaceAll("\\s+", "")  // Remove all whitespace
-                                    .replaceAll("e\\^([\\w\\-\\+\\(\\)]+)", "exp($1)");  // Convert e^expression to exp(expression)
-            
-            Expression expression = new ExpressionBuilder(user_input).variable("x").build();
+            Expression expression = ExpressionCache.SHARED.expression(scanner.nextLine());
 
             System.out.println("Enter initial guess: ");
             String x0Input = scanner.nextLine().trim().replaceAll("\\s+", "");
@@ -70,9 +65,24 @@ public class fixed_point {
                 return;
             }
 
+            System.out.println("Acceleration (none, aitken or steffensen; blank for none):");
+            String accelInput = scanner.nextLine().trim();
+            Acceleration acceleration;
+            try {
+                acceleration = accelInput.isEmpty() ? Acceleration.NONE : Acceleration.valueOf(accelInput.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.out.println("Unknown acceleration. Use none, aitken or steffensen.");
+                return;
+            }
+
             // Perform fixed-point iteration
-            double result = fixedPointRecursive(expression, x0, tolerance, maxIterations, 1, history);
-            IterationData last = history.get(history.size() - 1);
+            double result;
+            try {
+                result = fixedPoint(CompiledFunction.of(expression), x0, tolerance, maxIterations, acceleration, history);
+            } catch (NotConvergedException e) {
+                System.out.println(e.getMessage());
+                result = e.estimate();
+            }
 
             String formatStr = "%." + decimalPlaces + "f";
             System.out.println("Result: " + String.format(formatStr, result));
@@ -87,37 +97,130 @@ public class fixed_point {
         }
     }
 
-    // Derivative of g(x) (numerical approximation)
+    // Derivative of g(x) (symbolic when possible)
     public static double derive(Expression expression, double x) {
+        CompiledFunction dg = SymbolicDerivative.compile(expression);
+        if (dg != null) {
+            return dg.applyAsDouble(x);
+        }
+        return derive(CompiledFunction.of(expression), x);
+    }
+
+    // Derivative of g(x) (numerical approximation)
+    public static double derive(DoubleUnaryOperator g, double x) {
         double h = 1e-5;
-        double fxh = expression.setVariable("x", x + h).evaluate();
-        double fx = expression.setVariable("x", x).evaluate();
+        double fxh = g.applyAsDouble(x + h);
+        double fx = g.applyAsDouble(x);
         return (fxh - fx) / h;
     }
 
-    // Recursive fixed-point iteration
+    // How each step moves x: plain x = g(x), Aitken's delta-squared extrapolation
+    // of the plain iterates, or Steffensen's method (restart from the extrapolated
+    // value). The accelerated modes turn linear convergence into quadratic.
+    public enum Acceleration { NONE, AITKEN, STEFFENSEN }
+
+    // Fixed-point iteration (iterative despite the name, which existing callers use)
     public static double fixedPointRecursive(Expression expression, double x, double tolerance, int maxIterations, int iter, ArrayList<IterationData> history) {
-        // Check for invalid value
-        if (Double.isInfinite(x) || Double.isNaN(x)) {
-            System.out.println("Invalid value detected. Try a different initial guess.");
-            return x;
+        return fixedPointRecursive(CompiledFunction.of(expression), x, tolerance, maxIterations, iter, history);
+    }
+
+    public static double fixedPointRecursive(DoubleUnaryOperator g, double x, double tolerance, int maxIterations, int iter, ArrayList<IterationData> history) {
+        return fixedPoint(g, x, tolerance, maxIterations, iter, Acceleration.NONE, history);
+    }
+
+    public static double fixedPoint(DoubleUnaryOperator g, double x, double tolerance, int maxIterations, Acceleration acceleration, ArrayList<IterationData> history) {
+        return fixedPoint(g, x, tolerance, maxIterations, 1, acceleration, history);
+    }
+
+    private static double fixedPoint(DoubleUnaryOperator g, double x, double tolerance, int maxIterations, int iter, Acceleration acceleration, ArrayList<IterationData> history) {
+        IterationRecorder.Columnar recorder = IterationRecorder.full();
+        try {
+            return fixedPoint(g, x, tolerance, maxIterations, iter, acceleration, recorder);
+        } finally {
+            for (int i = 0; i < recorder.rows(); i++) {
+                history.add(new IterationData(recorder.get(i, 0), recorder.get(i, 1), recorder.get(i, 2)));
+            }
         }
+    }
 
-        double gx = expression.setVariable("x", x).evaluate();
-        double error = Math.abs(gx - x);
+    // Writes one (x, g(x), error) row per iteration
+    public static double fixedPoint(DoubleUnaryOperator g, double x, double tolerance, int maxIterations, IterationRecorder recorder) {
+        return fixedPoint(g, x, tolerance, maxIterations, 1, Acceleration.NONE, recorder);
+    }
 
-        // Store iteration data
-        history.add(new IterationData(x, gx, error));
+    public static double fixedPoint(DoubleUnaryOperator g, double x, double tolerance, int maxIterations, Acceleration acceleration, IterationRecorder recorder) {
+        return fixedPoint(g, x, tolerance, maxIterations, 1, acceleration, recorder);
+    }
 
-        if (error <= tolerance) {
-            return gx;
+    // error is how far the estimate moved this iteration: |g(x) - x| for plain
+    // iteration, the change in the extrapolated value otherwise
+    private static double fixedPoint(DoubleUnaryOperator g, double x, double tolerance, int maxIterations, int iter, Acceleration acceleration, IterationRecorder recorder) {
+        if (SolverMetrics.ENABLED) {
+            return SolverMetrics.measure("fixed_point", g, recorder,
+                                         counted -> fixedPointLoop(counted, x, tolerance, maxIterations, iter, acceleration, recorder));
         }
-        if (iter >= maxIterations) {
-            System.out.println("Did not converge within the maximum number of iterations.");
-            return gx;
+        return fixedPointLoop(g, x, tolerance, maxIterations, iter, acceleration, recorder);
+    }
+
+    private static double fixedPointLoop(DoubleUnaryOperator g, double x, double tolerance, int maxIterations, int iter, Acceleration acceleration, IterationRecorder recorder) {
+        recorder.start("x", "g(x)", "error");
+        double[] row = new double[3];
+        double estimate = Double.NaN;
+        double xPrev = Double.NaN;       // previous plain iterate (Aitken)
+
+        for (;; iter++) {
+            // Check for invalid value
+            if (Double.isInfinite(x) || Double.isNaN(x)) {
+                throw new ArithmeticException("Invalid value detected. Try a different initial guess.");
+            }
+
+            double gx = g.applyAsDouble(x);
+            double next;
+            switch (acceleration) {
+                case STEFFENSEN:
+                    next = extrapolate(x, gx, g.applyAsDouble(gx));
+                    break;
+                case AITKEN:
+                    next = Double.isNaN(xPrev) ? gx : extrapolate(xPrev, x, gx);
+                    break;
+                default:
+                    next = gx;
+                    break;
+            }
+            double error = (acceleration == Acceleration.AITKEN && !Double.isNaN(estimate))
+                    ? Math.abs(next - estimate)
+                    : Math.abs(next - x);
+
+            // Store iteration data
+            row[0] = x; row[1] = gx; row[2] = error;
+            recorder.record(row);
+
+            if (error <= tolerance) {
+                return next;
+            }
+            if (iter >= maxIterations) {
+                throw new NotConvergedException(recorder.iterations(), next);
+            }
+
+            estimate = next;
+            if (acceleration == Acceleration.AITKEN) {
+                xPrev = x;
+                x = gx;                  // Aitken only extrapolates; the plain sequence continues
+            } else {
+                x = next;
+            }
         }
+    }
 
-        return fixedPointRecursive(expression, gx, tolerance, maxIterations, iter + 1, history);
+    // Aitken's delta-squared from three successive iterates; falls back to the
+    // newest one when the second difference vanishes (already converged)
+    private static double extrapolate(double x0, double x1, double x2) {
+        double secondDifference = x2 - 2 * x1 + x0;
+        if (secondDifference == 0 || Double.isNaN(secondDifference)) {
+            return x2;
+        }
+        double firstDifference = x1 - x0;
+        return x0 - firstDifference * firstDifference / secondDifference;
     }
 
     // Print iteration history with formatting
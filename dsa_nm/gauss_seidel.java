@@ -0,0 +1,296 @@
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+//javac -cp ".;lib\exp4j-0.4.8.jar;lib\flatlaf-3.2.5.jar" *.java
+//java -cp ".;lib\exp4j-0.4.8.jar" gauss_seidel
+// Gauss-Seidel and successive over-relaxation (SOR) on the same systems as
+// jacobi_method. Each update uses the newest values, so these usually need
+// far fewer sweeps than Jacobi; Gauss-Seidel is SOR with omega = 1.
+public class gauss_seidel {
+
+    public static double[] solveGaussSeidel(String[] equations, double tolerance, int maxIterations, ArrayList<jacobi_method.IterationData> history) {
+        return solveSOR(equations, 1.0, tolerance, maxIterations, history);
+    }
+
+    // omega <= 0 (or NaN) picks it automatically with estimateOmega
+    public static double[] solveSOR(String[] equations, double omega, double tolerance, int maxIterations, ArrayList<jacobi_method.IterationData> history) {
+        IterationRecorder.Columnar recorder = IterationRecorder.full();
+        double[] solution = solveSOR(equations, omega, tolerance, maxIterations, recorder);
+        jacobi_method.addHistory(recorder, equations.length, history);
+        return solution;
+    }
+
+    public static double[] solveSOR(String[] equations, double omega, double tolerance, int maxIterations, IterationRecorder recorder) {
+        return solveSOR(jacobi_method.parseSystem(equations), omega, tolerance, maxIterations, recorder);
+    }
+
+    // Core loop on an augmented n x (n+1) matrix; writes one (x..., error) row per iteration
+    public static double[] solveSOR(double[][] matrix, double omega, double tolerance, int maxIterations, IterationRecorder recorder) {
+        if (SolverMetrics.ENABLED) {
+            return SolverMetrics.measure("sor", recorder, () -> sorLoop(matrix, omega, tolerance, maxIterations, recorder));
+        }
+        return sorLoop(matrix, omega, tolerance, maxIterations, recorder);
+    }
+
+    private static double[] sorLoop(double[][] matrix, double omega, double tolerance, int maxIterations, IterationRecorder recorder) {
+        int n = matrix.length;
+        if (!(omega > 0)) {
+            omega = estimateOmega(matrix);
+        }
+        checkOmega(omega);
+        String[] columns = new String[n + 1];
+        for (int i = 0; i < n; i++) {
+            columns[i] = jacobi_method.variableName(i, n);
+        }
+        columns[n] = "error";
+        recorder.start(columns);
+        double[] row = new double[n + 1];
+
+        double[] x = new double[n];
+        for (int iter = 0; iter < maxIterations; iter++) {
+            double maxError = 0;
+            for (int i = 0; i < n; i++) {
+                double sum = matrix[i][n]; // constant term
+                for (int j = 0; j < n; j++) {
+                    if (j != i) {
+                        sum -= matrix[i][j] * x[j]; // x[j] is already updated for j < i
+                    }
+                }
+                double value = (1 - omega) * x[i] + omega * sum / matrix[i][i];
+                maxError = Math.max(maxError, Math.abs(value - x[i]));
+                x[i] = value;
+            }
+
+            System.arraycopy(x, 0, row, 0, n);
+            row[n] = maxError;
+            recorder.record(row);
+
+            if (maxError < tolerance) {
+                return x;
+            }
+        }
+
+        SolverMetrics.notConverged();
+        return x;
+    }
+
+    // Sparse SOR on A x = b; records only the error column, like the sparse Jacobi.
+    // Without a pool rows are swept in natural order. With a pool the rows are
+    // grouped by SparseMatrix.colourRows() (red-black for 5-point stencils) and
+    // the rows of one colour, which do not depend on each other, are updated in
+    // parallel before moving to the next colour.
+    public static double[] solveSOR(SparseMatrix a, double[] b, double omega, double tolerance, int maxIterations,
+                                    IterationRecorder recorder, ForkJoinPool pool) {
+        if (SolverMetrics.ENABLED) {
+            return SolverMetrics.measure("sor_sparse", recorder, () -> sparseSorLoop(a, b, omega, tolerance, maxIterations, recorder, pool));
+        }
+        return sparseSorLoop(a, b, omega, tolerance, maxIterations, recorder, pool);
+    }
+
+    private static double[] sparseSorLoop(SparseMatrix a, double[] b, double omega, double tolerance, int maxIterations,
+                                          IterationRecorder recorder, ForkJoinPool pool) {
+        int n = a.rows;
+        if (a.cols != n || b.length != n) {
+            throw new IllegalArgumentException("System must be square: " + a.rows + "x" + a.cols + " matrix, " + b.length + " right-hand side values");
+        }
+        double[] inverseDiagonal = inverseDiagonal(a);
+        if (!(omega > 0)) {
+            omega = estimateOmega(a);
+        }
+        checkOmega(omega);
+        recorder.start("error");
+        double[] row = new double[1];
+
+        int[][] colours = pool != null ? a.colourRows() : null;
+        double[] blockErrors = new double[jacobi_method.blockCount(n, pool)];
+        int[] rowPtr = a.rowPtr;
+        int[] colIdx = a.colIdx;
+        double[] values = a.values;
+        double[] x = new double[n];
+        final double w = omega;
+
+        for (int iter = 0; iter < maxIterations; iter++) {
+            double maxError = 0;
+            if (colours == null) {
+                for (int i = 0; i < n; i++) {
+                    maxError = Math.max(maxError, relax(i, rowPtr, colIdx, values, b, inverseDiagonal, w, x));
+                }
+            } else {
+                for (int[] colour : colours) {
+                    maxError = Math.max(maxError, jacobi_method.runBlocks((from, to) -> {
+                        double blockError = 0;
+                        for (int r = from; r < to; r++) {
+                            blockError = Math.max(blockError, relax(colour[r], rowPtr, colIdx, values, b, inverseDiagonal, w, x));
+                        }
+                        return blockError;
+                    }, colour.length, pool, blockErrors));
+                }
+            }
+
+            row[0] = maxError;
+            recorder.record(row);
+
+            if (maxError < tolerance) {
+                return x;
+            }
+        }
+
+        SolverMetrics.notConverged();
+        return x;
+    }
+
+    public static double[] solveGaussSeidel(SparseMatrix a, double[] b, double tolerance, int maxIterations,
+                                            IterationRecorder recorder, ForkJoinPool pool) {
+        return solveSOR(a, b, 1.0, tolerance, maxIterations, recorder, pool);
+    }
+
+    // Updates x[i] in place and returns how much it moved
+    private static double relax(int i, int[] rowPtr, int[] colIdx, double[] values, double[] b,
+                                double[] inverseDiagonal, double omega, double[] x) {
+        double sum = b[i];
+        for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+            int j = colIdx[k];
+            if (j != i) {
+                sum -= values[k] * x[j];
+            }
+        }
+        double value = (1 - omega) * x[i] + omega * sum * inverseDiagonal[i];
+        double change = Math.abs(value - x[i]);
+        x[i] = value;
+        return change;
+    }
+
+    // Young's optimal omega, 2 / (1 + sqrt(1 - rho^2)), where rho is the spectral
+    // radius of the Jacobi iteration matrix I - D^-1 A, estimated by power
+    // iteration. Exact for consistently ordered matrices (tridiagonal, 5-point
+    // stencils); a reasonable guess otherwise. Falls back to 1 (Gauss-Seidel)
+    // when Jacobi itself would not converge.
+    public static double estimateOmega(SparseMatrix a) {
+        int n = a.rows;
+        double[] inverseDiagonal = inverseDiagonal(a);
+        double[] v = new double[n];
+        double[] av = new double[n];
+        Random random = new Random(42);
+        for (int i = 0; i < n; i++) {
+            v[i] = random.nextDouble() + 0.5;
+        }
+        normalize(v);
+
+        double rho = 0;
+        for (int k = 0; k < 200; k++) {
+            a.multiply(v, av);
+            for (int i = 0; i < n; i++) {
+                av[i] = v[i] - inverseDiagonal[i] * av[i];    // (I - D^-1 A) v
+            }
+            double next = normalize(av);
+            double[] temp = v;
+            v = av;
+            av = temp;
+            if (next == 0 || Math.abs(next - rho) < 1e-6 * next) {
+                rho = next;
+                break;
+            }
+            rho = next;
+        }
+
+        if (rho >= 1) {
+            return 1.0;
+        }
+        return 2 / (1 + Math.sqrt(1 - rho * rho));
+    }
+
+    public static double estimateOmega(double[][] matrix) {
+        return estimateOmega(SparseMatrix.fromAugmented(matrix));
+    }
+
+    // Scales v to unit length; returns the old length
+    private static double normalize(double[] v) {
+        double sum = 0;
+        for (double value : v) {
+            sum += value * value;
+        }
+        double norm = Math.sqrt(sum);
+        if (norm > 0) {
+            for (int i = 0; i < v.length; i++) {
+                v[i] /= norm;
+            }
+        }
+        return norm;
+    }
+
+    private static double[] inverseDiagonal(SparseMatrix a) {
+        double[] d = a.diagonal();
+        for (int i = 0; i < d.length; i++) {
+            if (d[i] == 0) {
+                throw new ArithmeticException("Zero on the diagonal in row " + (i + 1) + ". The method cannot proceed.");
+            }
+            d[i] = 1.0 / d[i];
+        }
+        return d;
+    }
+
+    private static void checkOmega(double omega) {
+        if (!(omega > 0 && omega < 2)) {
+            throw new IllegalArgumentException("Relaxation factor must be between 0 and 2.");
+        }
+    }
+
+    public static void main(String[] args) {
+        Scanner scanner = new Scanner(System.in);
+        ArrayList<jacobi_method.IterationData> history = new ArrayList<>();
+
+        try {
+            System.out.println("Enter number of equations (2 or more): ");
+            int n = Integer.parseInt(scanner.nextLine().trim());
+
+            if (n < 2) {
+                System.out.println("Please enter at least 2 equations.");
+                return;
+            }
+
+            String[] equations = new String[n];
+            System.out.println("\nEnter the equations (e.g., " + (n <= 3 ? "3x + 2y = 5" : "4x1 - x2 = 3") + "):");
+            for (int i = 0; i < n; i++) {
+                System.out.print("Equation " + (i + 1) + ": ");
+                equations[i] = scanner.nextLine().trim();
+            }
+
+            System.out.println("\nEnter tolerance (e.g., 0.001):");
+            double tolerance = Double.parseDouble(scanner.nextLine().trim());
+
+            if (tolerance <= 0) {
+                System.out.println("Tolerance must be greater than 0.");
+                return;
+            }
+            if (tolerance < 1e-6) {
+                System.out.println("Tolerance cannot be smaller than 1e-6.");
+                return;
+            }
+
+            System.out.println("\nEnter relaxation factor between 0 and 2 (blank for Gauss-Seidel, \"auto\" to estimate):");
+            String omegaInput = scanner.nextLine().trim();
+            double omega;
+            if (omegaInput.isEmpty()) {
+                omega = 1.0;
+            } else if (omegaInput.equalsIgnoreCase("auto")) {
+                omega = estimateOmega(jacobi_method.parseSystem(equations));
+                System.out.printf("Estimated relaxation factor: %.4f\n", omega);
+            } else {
+                omega = Double.parseDouble(omegaInput);
+            }
+
+            double[] solution = solveSOR(equations, omega, tolerance, 100, history);
+
+            System.out.println("\nSolution:");
+            for (int i = 0; i < solution.length; i++) {
+                System.out.printf("%s = %.6f\n", jacobi_method.variableName(i, solution.length), solution[i]);
+            }
+
+            System.out.println("\nIterations: " + history.size());
+
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+}
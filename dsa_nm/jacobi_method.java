@@ -1,5 +1,10 @@
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import net.objecthunter.exp4j.Expression;
 import net.objecthunter.exp4j.ExpressionBuilder;
 //javac -cp ".;lib\exp4j-0.4.8.jar;lib\flatlaf-3.2.5.jar" *.java
@@ -40,39 +45,28 @@ public class jacobi_method {
             term = term.trim();
             if (term.isEmpty()) continue;
 
-            // Find the variable in this term
-            String varPart = term.replaceAll("[-+.0-9]", "");
-            if (varPart.isEmpty()) continue; // Skip constant terms on left side
+            // Find the variable in this term (starts at the first letter, e.g. 3x, -2.5y, 4*x12)
+            int varStart = 0;
+            while (varStart < term.length() && !Character.isLetter(term.charAt(varStart))) varStart++;
+            if (varStart == term.length()) continue; // Skip constant terms on left side
+            String varPart = term.substring(varStart);
 
             // Extract coefficient
             double coef;
-            if (term.matches("^[-+]?" + varPart + "$")) {
-                coef = term.startsWith("-") ? -1 : 1;
-            } else {
-                String coefStr = term.substring(0, term.indexOf(varPart));
-                if (coefStr.equals("+")) coefStr = "1";
-                else if (coefStr.equals("-")) coefStr = "-1";
-                try {
-                    coef = Double.parseDouble(coefStr);
-                } catch (NumberFormatException e) {
-                    throw new IllegalArgumentException("Invalid coefficient format in term: " + term);
-                }
+            String coefStr = term.substring(0, varStart);
+            if (coefStr.endsWith("*")) coefStr = coefStr.substring(0, coefStr.length() - 1);
+            if (coefStr.isEmpty() || coefStr.equals("+")) coefStr = "1";
+            else if (coefStr.equals("-")) coefStr = "-1";
+            try {
+                coef = Double.parseDouble(coefStr);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid coefficient format in term: " + term);
             }
 
-            // Map variable to position (x -> 0, y -> 1, z -> 2) 
-            int varIndex;
-            switch (varPart.toLowerCase()) {
-                case "x":
-                    varIndex = 0;
-                    break;
-                case "y":
-                    varIndex = 1;
-                    break;
-                case "z":
-                    varIndex = 2;
-                    break;
-                default:
-                    throw new IllegalArgumentException("Invalid variable name: " + varPart + ". Use x, y, or z.");
+            // Map variable to position (x -> 0, y -> 1, z -> 2, or x1 -> 0 ... xn -> n-1)
+            int varIndex = variableIndex(varPart, numVars);
+            if (varIndex < 0) {
+                throw new IllegalArgumentException("Invalid variable name: " + varPart + ". Use " + variableNames(numVars) + ".");
             }
 
             // Check if this variable was already found in this equation
@@ -83,10 +77,11 @@ public class jacobi_method {
             coefficients[varIndex] = coef;
         }
         
-        // Verify all variables are present
-        for (int i = 0; i < numVars; i++) {
+        // Verify all variables are present (larger systems are usually sparse,
+        // so there a missing variable just has coefficient 0)
+        for (int i = 0; i < numVars && numVars <= 3; i++) {
             if (coefficients[i] == 0) {
-                String missingVar = (i == 0) ? "x" : (i == 1) ? "y" : "z";
+                String missingVar = variableName(i, numVars);
                 throw new IllegalArgumentException("Missing variable " + missingVar + " in equation: " + equation);
             }
         }
@@ -107,6 +102,43 @@ public class jacobi_method {
     }
 
     public static double[] solveJacobi(String[] equations, double tolerance, int maxIterations, ArrayList<IterationData> history) {
+        IterationRecorder.Columnar recorder = IterationRecorder.full();
+        double[] solution = solveJacobi(equations, tolerance, maxIterations, recorder);
+        addHistory(recorder, equations.length, history);
+        return solution;
+    }
+
+    // Rebuilds IterationData entries from recorded (x..., error) rows
+    static void addHistory(IterationRecorder recorder, int n, ArrayList<IterationData> history) {
+        double[] x = new double[n];
+        for (int i = 0; i < recorder.rows(); i++) {
+            for (int j = 0; j < n; j++) {
+                x[j] = recorder.get(i, j);
+            }
+            history.add(new IterationData(x, recorder.get(i, n)));
+        }
+    }
+
+    public static double[] solveJacobi(String[] equations, double tolerance, int maxIterations, IterationRecorder recorder) {
+        return solveJacobi(parseSystem(equations), tolerance, maxIterations, recorder);
+    }
+
+    // Augmented matrix of the equations, with rows rearranged to be diagonally dominant
+    static double[][] parseSystem(String[] equations) {
+        double[][] matrix = parseMatrix(equations);
+
+        // Try to make matrix diagonally dominant by rearranging rows
+        if (!isDiagonallyDominant(matrix)) {
+            if (!makeMatrixDiagonallyDominant(matrix)) {
+                throw new ArithmeticException("Cannot make system diagonally dominant. The method may not converge.");
+            }       
+        }
+            
+        return matrix;
+    }
+
+    // Augmented matrix of the equations, rows in the order given
+    static double[][] parseMatrix(String[] equations) {
         int n = equations.length;
         double[][] matrix = new double[n][n + 1];
         
@@ -118,25 +150,38 @@ public class jacobi_method {
             }
         } catch (Exception e) {
             throw new IllegalArgumentException("Error parsing equations: " + e.getMessage() + 
-                "\nFormat should be: ax + by = c (for 2 variables) or ax + by + cz = d (for 3 variables)");
+                "\nFormat should be: ax + by = c (for 2 variables), ax + by + cz = d (for 3 variables)" +
+                " or a1x1 + a2x2 + ... + anxn = b (for more)");
         }
-        
-        // Try to make matrix diagonally dominant by rearranging rows
-        if (!isDiagonallyDominant(matrix)) {
-            if (!makeMatrixDiagonallyDominant(matrix)) {
-                throw new ArithmeticException("Cannot make system diagonally dominant. The method may not converge.");
-            }       
+        return matrix;
+    }
+
+    // Core loop on an augmented n x (n+1) matrix; writes one (x..., error) row per iteration
+    public static double[] solveJacobi(double[][] matrix, double tolerance, int maxIterations, IterationRecorder recorder) {
+        return solveJacobi(matrix, tolerance, maxIterations, recorder, null);
+    }
+
+    // Same, with the rows of each sweep split across a pool (null runs serially)
+    public static double[] solveJacobi(double[][] matrix, double tolerance, int maxIterations, IterationRecorder recorder, ForkJoinPool pool) {
+        if (SolverMetrics.ENABLED) {
+            return SolverMetrics.measure("jacobi", recorder, () -> jacobiLoop(matrix, tolerance, maxIterations, recorder, pool));
         }
-            
-        // Initialize solution vector
-        double[] x = new double[n];
-        double[] xNew = new double[n];
-        
-        // Jacobi iteration
-        for (int iter = 0; iter < maxIterations; iter++) {
+        return jacobiLoop(matrix, tolerance, maxIterations, recorder, pool);
+    }
+
+    private static double[] jacobiLoop(double[][] matrix, double tolerance, int maxIterations, IterationRecorder recorder, ForkJoinPool pool) {
+        int n = matrix.length;
+        String[] columns = new String[n + 1];
+        for (int i = 0; i < n; i++) {
+            columns[i] = variableName(i, n);
+        }
+        columns[n] = "error";
+        recorder.start(columns);
+        double[] row = new double[n + 1];
+
+        RowKernel kernel = (x, xNew, from, to) -> {
             double maxError = 0;
-            
-            for (int i = 0; i < n; i++) {
+            for (int i = from; i < to; i++) {
                 double sum = matrix[i][n]; // constant term
                 for (int j = 0; j < n; j++) {
                     if (j != i) {
@@ -144,26 +189,257 @@ public class jacobi_method {
                     }
                 }
                 xNew[i] = sum / matrix[i][i];
+                maxError = Math.max(maxError, Math.abs(xNew[i] - x[i]));
             }
-            
-            // Calculate error and update solution
-            maxError = 0;
-            for (int i = 0; i < n; i++) {
-                double error = Math.abs(xNew[i] - x[i]);
-                maxError = Math.max(maxError, error);
-                x[i] = xNew[i];
+            return maxError;
+        };
+        return iterate(kernel, n, tolerance, maxIterations, recorder, row, true, pool);
+    }
+
+    // Sparse Jacobi on A x = b; each sweep touches only the nonzeros, so a sweep
+    // costs O(nnz). Only the error is recorded per iteration (one column) since
+    // copying x would cost O(n) per row for large systems.
+    public static double[] solveJacobi(SparseMatrix a, double[] b, double tolerance, int maxIterations, IterationRecorder recorder) {
+        return solveJacobi(a, b, tolerance, maxIterations, recorder, null);
+    }
+
+    public static double[] solveJacobi(SparseMatrix a, double[] b, double tolerance, int maxIterations, IterationRecorder recorder, ForkJoinPool pool) {
+        if (SolverMetrics.ENABLED) {
+            return SolverMetrics.measure("jacobi_sparse", recorder, () -> sparseJacobiLoop(a, b, tolerance, maxIterations, recorder, pool));
+        }
+        return sparseJacobiLoop(a, b, tolerance, maxIterations, recorder, pool);
+    }
+
+    private static double[] sparseJacobiLoop(SparseMatrix a, double[] b, double tolerance, int maxIterations, IterationRecorder recorder, ForkJoinPool pool) {
+        int n = a.rows;
+        if (a.cols != n || b.length != n) {
+            throw new IllegalArgumentException("System must be square: " + a.rows + "x" + a.cols + " matrix, " + b.length + " right-hand side values");
+        }
+        double[] inverseDiagonal = a.diagonal();
+        for (int i = 0; i < n; i++) {
+            if (inverseDiagonal[i] == 0) {
+                throw new ArithmeticException("Zero on the diagonal in row " + (i + 1) + ". The method cannot proceed.");
             }
-            
-            history.add(new IterationData(x, maxError));
-            
+            inverseDiagonal[i] = 1.0 / inverseDiagonal[i];
+        }
+        recorder.start("error");
+
+        int[] rowPtr = a.rowPtr;
+        int[] colIdx = a.colIdx;
+        double[] values = a.values;
+        RowKernel kernel = (x, xNew, from, to) -> {
+            double maxError = 0;
+            for (int i = from; i < to; i++) {
+                double sum = b[i];
+                for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                    int j = colIdx[k];
+                    if (j != i) {
+                        sum -= values[k] * x[j];
+                    }
+                }
+                double value = sum * inverseDiagonal[i];
+                maxError = Math.max(maxError, Math.abs(value - x[i]));
+                xNew[i] = value;
+            }
+            return maxError;
+        };
+        return iterate(kernel, n, tolerance, maxIterations, recorder, new double[1], false, pool);
+    }
+
+    // Out-of-core Jacobi: the matrix, b and both iterates stay off the heap
+    // (direct memory, or a mapped .nmcsr file paged in as each sweep walks its
+    // rows), so heap use is the same for 10 unknowns as for 10^7. As for
+    // SparseMatrix, only the error is recorded. Returns the final iterate.
+    public static OffHeapVector solveJacobi(OffHeapMatrix a, OffHeapVector b, double tolerance, int maxIterations, IterationRecorder recorder, ForkJoinPool pool) {
+        if (SolverMetrics.ENABLED) {
+            return SolverMetrics.measure("jacobi_offheap", recorder, () -> offHeapJacobiLoop(a, b, tolerance, maxIterations, recorder, pool));
+        }
+        return offHeapJacobiLoop(a, b, tolerance, maxIterations, recorder, pool);
+    }
+
+    private static OffHeapVector offHeapJacobiLoop(OffHeapMatrix a, OffHeapVector b, double tolerance, int maxIterations, IterationRecorder recorder, ForkJoinPool pool) {
+        int n = a.rows;
+        if (a.cols != n || b.length != n) {
+            throw new IllegalArgumentException("System must be square: " + a.rows + "x" + a.cols + " matrix, " + b.length + " right-hand side values");
+        }
+        OffHeapVector inverseDiagonal = a.diagonal();
+        for (int i = 0; i < n; i++) {
+            if (inverseDiagonal.get(i) == 0) {
+                throw new ArithmeticException("Zero on the diagonal in row " + (i + 1) + ". The method cannot proceed.");
+            }
+            inverseDiagonal.set(i, 1.0 / inverseDiagonal.get(i));
+        }
+        recorder.start("error");
+        double[] row = new double[1];
+
+        OffHeapVector x = OffHeapVector.allocate(n);
+        OffHeapVector xNew = OffHeapVector.allocate(n);
+        double[] blockErrors = new double[blockCount(n, pool)];
+
+        for (int iter = 0; iter < maxIterations; iter++) {
+            OffHeapVector current = x, next = xNew;
+            double maxError = runBlocks((from, to) -> {
+                double blockError = 0;
+                for (int i = from; i < to; i++) {
+                    double sum = b.get(i);
+                    for (long k = a.rowStart(i), end = a.rowStart(i + 1); k < end; k++) {
+                        int j = a.column(k);
+                        if (j != i) {
+                            sum -= a.value(k) * current.get(j);
+                        }
+                    }
+                    double value = sum * inverseDiagonal.get(i);
+                    blockError = Math.max(blockError, Math.abs(value - current.get(i)));
+                    next.set(i, value);
+                }
+                return blockError;
+            }, n, pool, blockErrors);
+
+            x = next;
+            xNew = current;
+
+            row[0] = maxError;
+            recorder.record(row);
+
             if (maxError < tolerance) {
-                break;
+                return x;
             }
         }
-        
+
+        SolverMetrics.notConverged();
+        return x;
+    }
+
+    // Computes xNew[from..to) from x and returns the largest change in that block.
+    // Rows only read x, so blocks can run concurrently.
+    interface RowKernel {
+        double sweep(double[] x, double[] xNew, int from, int to);
+    }
+
+    // Work on the index range [from, to) of a sweep; returns the largest change in it
+    interface Block {
+        double run(int from, int to);
+    }
+
+    // Smallest block worth handing to another thread
+    private static final int MIN_ROWS_PER_TASK = 2048;
+
+    static int blockCount(int rows, ForkJoinPool pool) {
+        if (pool == null || pool.getParallelism() <= 1 || rows < 2 * MIN_ROWS_PER_TASK) {
+            return 1;
+        }
+        return Math.min(pool.getParallelism() * 4, rows / MIN_ROWS_PER_TASK);
+    }
+
+    // Runs block over [0, rows), split across the pool when that pays off;
+    // errors needs blockCount(rows, pool) slots
+    static double runBlocks(Block block, int rows, ForkJoinPool pool, double[] errors) {
+        int blocks = blockCount(rows, pool);
+        if (blocks == 1) {
+            return block.run(0, rows);
+        }
+        pool.invoke(new Sweep(block, rows, blocks, errors, 0, blocks));
+        double maxError = 0;
+        for (int i = 0; i < blocks; i++) {
+            maxError = Math.max(maxError, errors[i]);
+        }
+        return maxError;
+    }
+
+    // Shared Jacobi loop: double-buffered, so x and xNew swap roles every sweep
+    private static double[] iterate(RowKernel kernel, int n, double tolerance, int maxIterations,
+                                    IterationRecorder recorder, double[] row, boolean recordX, ForkJoinPool pool) {
+        double[] x = new double[n];
+        double[] xNew = new double[n];
+        double[] blockErrors = new double[blockCount(n, pool)];
+
+        for (int iter = 0; iter < maxIterations; iter++) {
+            double[] current = x, next = xNew;
+            double maxError = runBlocks((from, to) -> kernel.sweep(current, next, from, to), n, pool, blockErrors);
+
+            // The new iterate becomes the old one; no copy needed
+            x = next;
+            xNew = current;
+
+            if (recordX) {
+                System.arraycopy(x, 0, row, 0, n);
+            }
+            row[row.length - 1] = maxError;
+            recorder.record(row);
+
+            if (maxError < tolerance) {
+                return x;
+            }
+        }
+
+        SolverMetrics.notConverged();
         return x;
     }
 
+    // Splits blocks [fromBlock, toBlock) in half until one block is left; each
+    // block writes its own slot of errors, which the caller reduces
+    private static final class Sweep extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Block block;
+        private final double[] errors;
+        private final int n, blocks, fromBlock, toBlock;
+
+        Sweep(Block block, int n, int blocks, double[] errors, int fromBlock, int toBlock) {
+            this.block = block;
+            this.n = n;
+            this.blocks = blocks;
+            this.errors = errors;
+            this.fromBlock = fromBlock;
+            this.toBlock = toBlock;
+        }
+
+        @Override
+        protected void compute() {
+            if (toBlock - fromBlock == 1) {
+                int from = (int) ((long) n * fromBlock / blocks);
+                int to = (int) ((long) n * toBlock / blocks);
+                errors[fromBlock] = block.run(from, to);
+                return;
+            }
+            int mid = (fromBlock + toBlock) >>> 1;
+            invokeAll(new Sweep(block, n, blocks, errors, fromBlock, mid),
+                      new Sweep(block, n, blocks, errors, mid, toBlock));
+        }
+    }
+
+    // x, y, z for small systems, x1..xn otherwise
+    public static String variableName(int i, int n) {
+        if (n <= 3) {
+            return (i == 0) ? "x" : (i == 1) ? "y" : "z";
+        }
+        return "x" + (i + 1);
+    }
+
+    // Position of a variable name, or -1 if it is not one of variableName(0..n-1, n)
+    private static int variableIndex(String name, int n) {
+        if (n <= 3) {
+            int index = "xyz".indexOf(name);
+            return (name.length() == 1 && index >= 0 && index < n) ? index : -1;
+        }
+        if (name.length() < 2 || name.charAt(0) != 'x') {
+            return -1;
+        }
+        try {
+            int index = Integer.parseInt(name.substring(1)) - 1;
+            return (index >= 0 && index < n) ? index : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String variableNames(int n) {
+        if (n <= 3) {
+            return n == 2 ? "x or y" : "x, y, or z";
+        }
+        return "x1 to x" + n;
+    }
+
     /*private static boolean makeMatrixDiagonallyDominant(double[][] matrix) {
         int n = matrix.length;
         boolean[] used = new boolean[n];
@@ -269,16 +545,21 @@ private static boolean isRowDiagonallyDominant(double[][] matrix, int row) {
         ArrayList<IterationData> history = new ArrayList<>();
         
         try {
-            System.out.println("Enter number of equations (2 or 3): ");
-            int n = Integer.parseInt(scanner.nextLine().trim());
+            System.out.println("Enter number of equations (2 or more), or the path of a Matrix Market (or .nmcsr) file: ");
+            String input = scanner.nextLine().trim();
+            if (!input.matches("\\d+")) {
+                solveMatrixMarket(scanner, input);
+                return;
+            }
+            int n = Integer.parseInt(input);
             
-            if (n < 2 || n > 3) {
-                System.out.println("Please enter either 2 or 3 equations.");
+            if (n < 2) {
+                System.out.println("Please enter at least 2 equations.");
                 return;
             }
             
             String[] equations = new String[n];
-            System.out.println("\nEnter the equations (e.g., 3x + 2y = 5):");
+            System.out.println("\nEnter the equations (e.g., " + (n <= 3 ? "3x + 2y = 5" : "4x1 - x2 = 3") + "):");
             for (int i = 0; i < n; i++) {
                 System.out.print("Equation " + (i + 1) + ": ");
                 equations[i] = scanner.nextLine().trim();
@@ -300,7 +581,7 @@ private static boolean isRowDiagonallyDominant(double[][] matrix, int row) {
             
             System.out.println("\nSolution:");
             for (int i = 0; i < solution.length; i++) {
-                String var = (i == 0) ? "x" : (i == 1) ? "y" : "z";
+                String var = variableName(i, solution.length);
                 System.out.printf("%s = %.6f\n", var, solution[i]);
             }
             
@@ -310,4 +591,74 @@ private static boolean isRowDiagonallyDominant(double[][] matrix, int row) {
             System.out.println("Error: " + e.getMessage());
         }
     }
+    // Sparse path: A from a Matrix Market file, b from a second file (or all ones)
+    private static void solveMatrixMarket(Scanner scanner, String matrixFile) throws IOException {
+        if (matrixFile.endsWith(".nmcsr")) {
+            solveOffHeap(scanner, matrixFile);
+            return;
+        }
+        SparseMatrix a = SparseMatrix.readMatrixMarket(Paths.get(matrixFile));
+        System.out.println("Loaded " + a.rows + "x" + a.cols + " matrix with " + a.nnz() + " nonzeros.");
+
+        System.out.println("\nEnter right-hand side file (leave blank for all ones):");
+        String rhsFile = scanner.nextLine().trim();
+        double[] b;
+        if (rhsFile.isEmpty()) {
+            b = new double[a.rows];
+            Arrays.fill(b, 1.0);
+        } else {
+            b = SparseMatrix.readMatrixMarketVector(Paths.get(rhsFile));
+        }
+
+        System.out.println("\nEnter tolerance (e.g., 0.001):");
+        double tolerance = Double.parseDouble(scanner.nextLine().trim());
+        if (tolerance <= 0) {
+            System.out.println("Tolerance must be greater than 0.");
+            return;
+        }
+
+        IterationRecorder recorder = IterationRecorder.lastRows(1);
+        double[] solution = solveJacobi(a, b, tolerance, 10000, recorder, ForkJoinPool.commonPool());
+
+        System.out.println("\nSolution (first entries):");
+        for (int i = 0; i < Math.min(solution.length, 10); i++) {
+            System.out.printf("%s = %.6f\n", variableName(i, solution.length), solution[i]);
+        }
+        System.out.println("\nIterations: " + recorder.iterations());
+        System.out.printf("Final error: %.3e\n", recorder.get(0, 0));
+    }
+
+    // Out-of-core path: A mapped from an .nmcsr file (see OffHeapMatrix), b
+    // read into direct memory (or all ones)
+    private static void solveOffHeap(Scanner scanner, String matrixFile) throws IOException {
+        OffHeapMatrix a = OffHeapMatrix.open(Paths.get(matrixFile));
+        System.out.println("Mapped " + a.rows + "x" + a.cols + " matrix with " + a.nnz() + " nonzeros.");
+
+        System.out.println("\nEnter right-hand side file (leave blank for all ones):");
+        String rhsFile = scanner.nextLine().trim();
+        OffHeapVector b;
+        if (rhsFile.isEmpty()) {
+            b = OffHeapVector.allocate(a.rows);
+            b.fill(1.0);
+        } else {
+            b = OffHeapVector.readMatrixMarket(Paths.get(rhsFile));
+        }
+
+        System.out.println("\nEnter tolerance (e.g., 0.001):");
+        double tolerance = Double.parseDouble(scanner.nextLine().trim());
+        if (tolerance <= 0) {
+            System.out.println("Tolerance must be greater than 0.");
+            return;
+        }
+
+        IterationRecorder recorder = IterationRecorder.lastRows(1);
+        OffHeapVector solution = solveJacobi(a, b, tolerance, 10000, recorder, ForkJoinPool.commonPool());
+
+        System.out.println("\nSolution (first entries):");
+        for (int i = 0; i < Math.min(solution.length, 10); i++) {
+            System.out.printf("%s = %.6f\n", variableName(i, solution.length), solution.get(i));
+        }
+        System.out.println("\nIterations: " + recorder.iterations());
+        System.out.printf("Final error: %.3e\n", recorder.get(0, 0));
+    }
 }
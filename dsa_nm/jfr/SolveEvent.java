@@ -0,0 +1,43 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JDK Flight Recorder event for one solver run, emitted by SolverMetrics when
+// metrics are enabled. Shows up under "Numerical Methods" in JMC, e.g. after
+// java -Dnm.metrics=true -XX:StartFlightRecording=filename=solves.jfr ...
+//
+// jdk.jfr needs JDK 11+, so this file lives apart from the rest and is compiled
+// on its own (javac -cp . -d . jfr/SolveEvent.java). SolverMetrics loads it by
+// name and runs without events when it is missing.
+@Name("nm.Solve")
+@Label("Solve")
+@Category("Numerical Methods")
+@Description("One run of a numerical method")
+@StackTrace(false)
+public final class SolveEvent extends jdk.jfr.Event implements SolverMetrics.RunEvent {
+    @Label("Method")
+    String method;
+
+    @Label("Iterations")
+    int iterations;
+
+    @Label("Function Evaluations")
+    long evaluations;
+
+    @Label("Failure")
+    @Description("Why the run failed, or null if it converged")
+    String failure;
+
+    @Override
+    public void finish(String method, int iterations, long evaluations, String failure) {
+        if (shouldCommit()) {
+            this.method = method;
+            this.iterations = iterations;
+            this.evaluations = evaluations;
+            this.failure = failure;
+            commit();
+        }
+    }
+}
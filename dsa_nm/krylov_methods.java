@@ -0,0 +1,586 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+//javac -cp ".;lib\exp4j-0.4.8.jar;lib\flatlaf-3.2.5.jar" *.java
+//java -cp ".;lib\exp4j-0.4.8.jar" krylov_methods
+// Krylov subspace methods for A x = b on the same systems as jacobi_method:
+// conjugate gradient (CG) for symmetric positive definite A, and BiCGSTAB and
+// restarted GMRES for general A. All three are preconditioned with the
+// diagonal of A (Jacobi preconditioning; rows without a diagonal entry are
+// left unscaled), and none needs the rows to be diagonally dominant. Each
+// iteration costs one or two products with A, so a sparse system costs O(nnz)
+// per iteration; with a pool the products are split into blocks of rows.
+//
+// The history has the Jacobi layout: (x..., residual) rows for dense systems
+// and a single residual column for sparse ones, where residual is the relative
+// residual |b - A x| / |b| that is compared against the tolerance.
+public class krylov_methods {
+    public static final int DEFAULT_RESTART = 30;
+
+    // y[from..to) = (A x)[from..to)
+    private interface MatVec {
+        void multiply(double[] x, double[] y, int from, int to);
+    }
+
+    // A x = b with A given as a MatVec, for one solve
+    private static final class LinearSystem {
+        final int n;
+        final MatVec a;
+        final double[] b;
+        final double[] inverseDiagonal;
+        final ForkJoinPool pool;
+        final double[] blockErrors;
+        final double bNorm;
+
+        LinearSystem(int n, MatVec a, double[] b, double[] diagonal, ForkJoinPool pool) {
+            this.n = n;
+            this.a = a;
+            this.b = b;
+            this.inverseDiagonal = new double[n];
+            for (int i = 0; i < n; i++) {
+                inverseDiagonal[i] = diagonal[i] != 0 ? 1 / diagonal[i] : 1;
+            }
+            this.pool = pool;
+            this.blockErrors = new double[jacobi_method.blockCount(n, pool)];
+            this.bNorm = norm(b);
+        }
+
+        void multiply(double[] x, double[] y) {
+            jacobi_method.runBlocks((from, to) -> {
+                a.multiply(x, y, from, to);
+                return 0;
+            }, n, pool, blockErrors);
+        }
+
+        // z = M^-1 r
+        void precondition(double[] r, double[] z) {
+            for (int i = 0; i < n; i++) {
+                z[i] = inverseDiagonal[i] * r[i];
+            }
+        }
+    }
+
+    // Records one iteration: x (dense systems only) and the relative residual
+    private static final class History {
+        private final IterationRecorder recorder;
+        private final boolean recordX;
+        private final double[] row;
+
+        History(IterationRecorder recorder, int n, boolean recordX) {
+            this.recorder = recorder;
+            this.recordX = recordX;
+            if (recordX) {
+                String[] columns = new String[n + 1];
+                for (int i = 0; i < n; i++) {
+                    columns[i] = jacobi_method.variableName(i, n);
+                }
+                columns[n] = "residual";
+                recorder.start(columns);
+                row = new double[n + 1];
+            } else {
+                recorder.start("residual");
+                row = new double[1];
+            }
+        }
+
+        void record(double[] x, double residual) {
+            if (recordX) {
+                System.arraycopy(x, 0, row, 0, x.length);
+            }
+            row[row.length - 1] = residual;
+            recorder.record(row);
+        }
+    }
+
+    // Dense and sparse entry points
+
+    public static double[] solveCG(String[] equations, double tolerance, int maxIterations, IterationRecorder recorder) {
+        return solveCG(jacobi_method.parseMatrix(equations), tolerance, maxIterations, recorder);
+    }
+
+    // Augmented n x (n+1) matrix; writes one (x..., residual) row per iteration
+    public static double[] solveCG(double[][] matrix, double tolerance, int maxIterations, IterationRecorder recorder) {
+        checkSymmetric(matrix);
+        LinearSystem system = dense(matrix);
+        if (SolverMetrics.ENABLED) {
+            return SolverMetrics.measure("cg", recorder, () -> cgLoop(system, tolerance, maxIterations, new History(recorder, system.n, true)));
+        }
+        return cgLoop(system, tolerance, maxIterations, new History(recorder, system.n, true));
+    }
+
+    public static double[] solveCG(SparseMatrix a, double[] b, double tolerance, int maxIterations, IterationRecorder recorder, ForkJoinPool pool) {
+        checkSymmetric(a);
+        LinearSystem system = sparse(a, b, pool);
+        if (SolverMetrics.ENABLED) {
+            return SolverMetrics.measure("cg_sparse", recorder, () -> cgLoop(system, tolerance, maxIterations, new History(recorder, system.n, false)));
+        }
+        return cgLoop(system, tolerance, maxIterations, new History(recorder, system.n, false));
+    }
+
+    public static double[] solveBiCGSTAB(String[] equations, double tolerance, int maxIterations, IterationRecorder recorder) {
+        return solveBiCGSTAB(jacobi_method.parseMatrix(equations), tolerance, maxIterations, recorder);
+    }
+
+    public static double[] solveBiCGSTAB(double[][] matrix, double tolerance, int maxIterations, IterationRecorder recorder) {
+        LinearSystem system = dense(matrix);
+        if (SolverMetrics.ENABLED) {
+            return SolverMetrics.measure("bicgstab", recorder, () -> bicgstabLoop(system, tolerance, maxIterations, new History(recorder, system.n, true)));
+        }
+        return bicgstabLoop(system, tolerance, maxIterations, new History(recorder, system.n, true));
+    }
+
+    public static double[] solveBiCGSTAB(SparseMatrix a, double[] b, double tolerance, int maxIterations, IterationRecorder recorder, ForkJoinPool pool) {
+        LinearSystem system = sparse(a, b, pool);
+        if (SolverMetrics.ENABLED) {
+            return SolverMetrics.measure("bicgstab_sparse", recorder, () -> bicgstabLoop(system, tolerance, maxIterations, new History(recorder, system.n, false)));
+        }
+        return bicgstabLoop(system, tolerance, maxIterations, new History(recorder, system.n, false));
+    }
+
+    // restart <= 0 uses DEFAULT_RESTART; one iteration is one Arnoldi step
+    public static double[] solveGMRES(String[] equations, int restart, double tolerance, int maxIterations, IterationRecorder recorder) {
+        return solveGMRES(jacobi_method.parseMatrix(equations), restart, tolerance, maxIterations, recorder);
+    }
+
+    public static double[] solveGMRES(double[][] matrix, int restart, double tolerance, int maxIterations, IterationRecorder recorder) {
+        LinearSystem system = dense(matrix);
+        if (SolverMetrics.ENABLED) {
+            return SolverMetrics.measure("gmres", recorder, () -> gmresLoop(system, restart, tolerance, maxIterations, new History(recorder, system.n, true)));
+        }
+        return gmresLoop(system, restart, tolerance, maxIterations, new History(recorder, system.n, true));
+    }
+
+    public static double[] solveGMRES(SparseMatrix a, double[] b, int restart, double tolerance, int maxIterations, IterationRecorder recorder, ForkJoinPool pool) {
+        LinearSystem system = sparse(a, b, pool);
+        if (SolverMetrics.ENABLED) {
+            return SolverMetrics.measure("gmres_sparse", recorder, () -> gmresLoop(system, restart, tolerance, maxIterations, new History(recorder, system.n, false)));
+        }
+        return gmresLoop(system, restart, tolerance, maxIterations, new History(recorder, system.n, false));
+    }
+
+    private static LinearSystem dense(double[][] matrix) {
+        int n = matrix.length;
+        double[] b = new double[n];
+        double[] diagonal = new double[n];
+        for (int i = 0; i < n; i++) {
+            if (matrix[i].length != n + 1) {
+                throw new IllegalArgumentException("Expected an augmented " + n + "x" + (n + 1) + " matrix, row " + (i + 1) + " has " + matrix[i].length + " entries");
+            }
+            b[i] = matrix[i][n];
+            diagonal[i] = matrix[i][i];
+        }
+        MatVec a = (x, y, from, to) -> {
+            for (int i = from; i < to; i++) {
+                double[] row = matrix[i];
+                double sum = 0;
+                for (int j = 0; j < n; j++) {
+                    sum += row[j] * x[j];
+                }
+                y[i] = sum;
+            }
+        };
+        return new LinearSystem(n, a, b, diagonal, null);
+    }
+
+    private static LinearSystem sparse(SparseMatrix a, double[] b, ForkJoinPool pool) {
+        int n = a.rows;
+        if (a.cols != n || b.length != n) {
+            throw new IllegalArgumentException("System must be square: " + a.rows + "x" + a.cols + " matrix, " + b.length + " right-hand side values");
+        }
+        int[] rowPtr = a.rowPtr;
+        int[] colIdx = a.colIdx;
+        double[] values = a.values;
+        MatVec product = (x, y, from, to) -> {
+            for (int i = from; i < to; i++) {
+                double sum = 0;
+                for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                    sum += values[k] * x[colIdx[k]];
+                }
+                y[i] = sum;
+            }
+        };
+        return new LinearSystem(n, product, b, a.diagonal(), pool);
+    }
+
+    // Solvers. All start from x = 0, so the initial residual is b.
+
+    private static double[] cgLoop(LinearSystem s, double tolerance, int maxIterations, History history) {
+        int n = s.n;
+        double[] x = new double[n];
+        if (s.bNorm == 0) {
+            return x;
+        }
+        for (int i = 0; i < n; i++) {
+            if (!(s.inverseDiagonal[i] > 0)) {
+                throw new ArithmeticException("Matrix is not positive definite (diagonal entry " + (i + 1) + " is not positive). Try BiCGSTAB or GMRES.");
+            }
+        }
+        double[] r = s.b.clone();
+        double[] z = new double[n];
+        double[] p = new double[n];
+        double[] q = new double[n];
+        s.precondition(r, z);
+        System.arraycopy(z, 0, p, 0, n);
+        double rz = dot(r, z);
+
+        for (int iter = 0; iter < maxIterations; iter++) {
+            s.multiply(p, q);
+            double pq = dot(p, q);
+            if (!(pq > 0)) {
+                throw new ArithmeticException("Matrix is not positive definite. Try BiCGSTAB or GMRES.");
+            }
+            double alpha = rz / pq;
+            for (int i = 0; i < n; i++) {
+                x[i] += alpha * p[i];
+                r[i] -= alpha * q[i];
+            }
+            double residual = norm(r) / s.bNorm;
+            history.record(x, residual);
+            if (residual < tolerance) {
+                return x;
+            }
+
+            s.precondition(r, z);
+            double rzNew = dot(r, z);
+            double beta = rzNew / rz;
+            for (int i = 0; i < n; i++) {
+                p[i] = z[i] + beta * p[i];
+            }
+            rz = rzNew;
+        }
+
+        SolverMetrics.notConverged();
+        return x;
+    }
+
+    // Right-preconditioned, so r is the residual of the original system
+    private static double[] bicgstabLoop(LinearSystem s, double tolerance, int maxIterations, History history) {
+        int n = s.n;
+        double[] x = new double[n];
+        if (s.bNorm == 0) {
+            return x;
+        }
+        double[] r = s.b.clone();
+        double[] rHat = s.b.clone();
+        double[] p = new double[n];
+        double[] v = new double[n];
+        double[] pHat = new double[n];
+        double[] sHat = new double[n];
+        double[] t = new double[n];
+        double rho = 1, alpha = 1, omega = 1;
+
+        for (int iter = 0; iter < maxIterations; iter++) {
+            double rhoNew = dot(rHat, r);
+            if (rhoNew == 0 || omega == 0) {
+                throw new ArithmeticException("BiCGSTAB broke down at iteration " + (iter + 1) + ". Try GMRES.");
+            }
+            double beta = (rhoNew / rho) * (alpha / omega);
+            for (int i = 0; i < n; i++) {
+                p[i] = r[i] + beta * (p[i] - omega * v[i]);
+            }
+            s.precondition(p, pHat);
+            s.multiply(pHat, v);
+            double rHatV = dot(rHat, v);
+            if (rHatV == 0) {
+                throw new ArithmeticException("BiCGSTAB broke down at iteration " + (iter + 1) + ". Try GMRES.");
+            }
+            alpha = rhoNew / rHatV;
+            // r now holds s = r - alpha v
+            for (int i = 0; i < n; i++) {
+                r[i] -= alpha * v[i];
+            }
+            double residual = norm(r) / s.bNorm;
+            if (residual < tolerance) {
+                for (int i = 0; i < n; i++) {
+                    x[i] += alpha * pHat[i];
+                }
+                history.record(x, residual);
+                return x;
+            }
+
+            s.precondition(r, sHat);
+            s.multiply(sHat, t);
+            double tt = dot(t, t);
+            omega = tt > 0 ? dot(t, r) / tt : 0;
+            for (int i = 0; i < n; i++) {
+                x[i] += alpha * pHat[i] + omega * sHat[i];
+                r[i] -= omega * t[i];
+            }
+            residual = norm(r) / s.bNorm;
+            history.record(x, residual);
+            if (residual < tolerance) {
+                return x;
+            }
+            rho = rhoNew;
+        }
+
+        SolverMetrics.notConverged();
+        return x;
+    }
+
+    // GMRES(m), right-preconditioned, with Givens rotations keeping the least
+    // squares problem triangular; |g[j + 1]| is then the residual norm after j
+    // + 1 steps without forming x. Memory is (m + 1) vectors of length n.
+    private static double[] gmresLoop(LinearSystem s, int restart, double tolerance, int maxIterations, History history) {
+        int n = s.n;
+        int m = Math.min(restart > 0 ? restart : DEFAULT_RESTART, Math.max(n, 1));
+        double[] x = new double[n];
+        if (s.bNorm == 0) {
+            return x;
+        }
+        double[][] v = new double[m + 1][n];
+        double[][] h = new double[m + 1][m];
+        double[] cs = new double[m];
+        double[] sn = new double[m];
+        double[] g = new double[m + 1];
+        double[] y = new double[m];
+        double[] w = new double[n];
+        double[] z = new double[n];
+        double[] xj = history.recordX ? new double[n] : null;
+
+        int iter = 0;
+        while (iter < maxIterations) {
+            // r = b - A x
+            s.multiply(x, w);
+            for (int i = 0; i < n; i++) {
+                w[i] = s.b[i] - w[i];
+            }
+            double beta = norm(w);
+            if (beta / s.bNorm < tolerance) {
+                return x;
+            }
+            for (int i = 0; i < n; i++) {
+                v[0][i] = w[i] / beta;
+            }
+            Arrays.fill(g, 0);
+            g[0] = beta;
+
+            int j = 0;
+            boolean done = false;
+            while (j < m && iter < maxIterations) {
+                // w = A M^-1 v_j, orthogonalized against v_0..v_j (modified Gram-Schmidt)
+                s.precondition(v[j], z);
+                s.multiply(z, w);
+                for (int i = 0; i <= j; i++) {
+                    double hij = dot(w, v[i]);
+                    h[i][j] = hij;
+                    axpy(-hij, v[i], w);
+                }
+                double next = norm(w);
+                h[j + 1][j] = next;
+                if (next != 0) {
+                    for (int i = 0; i < n; i++) {
+                        v[j + 1][i] = w[i] / next;
+                    }
+                }
+
+                // Apply the earlier rotations to column j, then one that zeroes h[j + 1][j]
+                for (int i = 0; i < j; i++) {
+                    double hi = h[i][j];
+                    h[i][j] = cs[i] * hi + sn[i] * h[i + 1][j];
+                    h[i + 1][j] = -sn[i] * hi + cs[i] * h[i + 1][j];
+                }
+                double radius = Math.hypot(h[j][j], h[j + 1][j]);
+                cs[j] = radius != 0 ? h[j][j] / radius : 1;
+                sn[j] = radius != 0 ? h[j + 1][j] / radius : 0;
+                h[j][j] = radius;
+                h[j + 1][j] = 0;
+                g[j + 1] = -sn[j] * g[j];
+                g[j] = cs[j] * g[j];
+
+                j++;
+                iter++;
+                double residual = Math.abs(g[j]) / s.bNorm;
+                done = residual < tolerance || next == 0;
+                if (xj != null) {
+                    System.arraycopy(x, 0, xj, 0, n);
+                    correct(s, v, h, g, y, z, w, j, xj);
+                    history.record(xj, residual);
+                } else {
+                    history.record(null, residual);
+                }
+                if (done) {
+                    break;
+                }
+            }
+            correct(s, v, h, g, y, z, w, j, x);
+            if (done) {
+                return x;
+            }
+        }
+
+        SolverMetrics.notConverged();
+        return x;
+    }
+
+    // x += M^-1 V_k y, where H_k y = g_k (upper triangular after the rotations);
+    // z and w are scratch
+    private static void correct(LinearSystem s, double[][] v, double[][] h, double[] g, double[] y,
+                                double[] z, double[] w, int k, double[] x) {
+        for (int i = k - 1; i >= 0; i--) {
+            double sum = g[i];
+            for (int l = i + 1; l < k; l++) {
+                sum -= h[i][l] * y[l];
+            }
+            y[i] = h[i][i] != 0 ? sum / h[i][i] : 0;
+        }
+        Arrays.fill(w, 0);
+        for (int i = 0; i < k; i++) {
+            axpy(y[i], v[i], w);
+        }
+        s.precondition(w, z);
+        axpy(1, z, x);
+    }
+
+    private static void checkSymmetric(double[][] matrix) {
+        int n = matrix.length;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (!nearlyEqual(matrix[i][j], matrix[j][i])) {
+                    throw new IllegalArgumentException("Conjugate gradient needs a symmetric matrix. Try BiCGSTAB or GMRES.");
+                }
+            }
+        }
+    }
+
+    private static void checkSymmetric(SparseMatrix a) {
+        for (int i = 0; i < a.rows; i++) {
+            for (int k = a.rowPtr[i]; k < a.rowPtr[i + 1]; k++) {
+                int j = a.colIdx[k];
+                if (j > i && !nearlyEqual(a.values[k], a.get(j, i))) {
+                    throw new IllegalArgumentException("Conjugate gradient needs a symmetric matrix. Try BiCGSTAB or GMRES.");
+                }
+            }
+        }
+    }
+
+    private static boolean nearlyEqual(double a, double b) {
+        return Math.abs(a - b) <= 1e-12 * Math.max(Math.abs(a), Math.abs(b));
+    }
+
+    private static double dot(double[] u, double[] v) {
+        double sum = 0;
+        for (int i = 0; i < u.length; i++) {
+            sum += u[i] * v[i];
+        }
+        return sum;
+    }
+
+    private static double norm(double[] v) {
+        return Math.sqrt(dot(v, v));
+    }
+
+    private static void axpy(double alpha, double[] u, double[] out) {
+        for (int i = 0; i < u.length; i++) {
+            out[i] += alpha * u[i];
+        }
+    }
+
+    public static void main(String[] args) {
+        Scanner scanner = new Scanner(System.in);
+
+        try {
+            System.out.println("Enter number of equations (2 or more), or the path of a Matrix Market file: ");
+            String input = scanner.nextLine().trim();
+            if (!input.matches("\\d+")) {
+                solveMatrixMarket(scanner, input);
+                return;
+            }
+            int n = Integer.parseInt(input);
+
+            if (n < 2) {
+                System.out.println("Please enter at least 2 equations.");
+                return;
+            }
+
+            String[] equations = new String[n];
+            System.out.println("\nEnter the equations (e.g., " + (n <= 3 ? "3x + 2y = 5" : "4x1 - x2 = 3") + "):");
+            for (int i = 0; i < n; i++) {
+                System.out.print("Equation " + (i + 1) + ": ");
+                equations[i] = scanner.nextLine().trim();
+            }
+
+            System.out.println("\nMethod: conjugate gradient (c), BiCGSTAB (b) or GMRES (g)? [g]");
+            String method = scanner.nextLine().trim().toLowerCase();
+
+            System.out.println("\nEnter tolerance (e.g., 0.001):");
+            double tolerance = Double.parseDouble(scanner.nextLine().trim());
+            if (tolerance <= 0) {
+                System.out.println("Tolerance must be greater than 0.");
+                return;
+            }
+
+            double[][] matrix = jacobi_method.parseMatrix(equations);
+            IterationRecorder.Columnar history = IterationRecorder.full();
+            double[] solution;
+            if (method.startsWith("c")) {
+                solution = solveCG(matrix, tolerance, 100, history);
+            } else if (method.startsWith("b")) {
+                solution = solveBiCGSTAB(matrix, tolerance, 100, history);
+            } else {
+                solution = solveGMRES(matrix, DEFAULT_RESTART, tolerance, 100, history);
+            }
+
+            System.out.println("\nSolution:");
+            for (int i = 0; i < solution.length; i++) {
+                System.out.printf("%s = %.6f\n", jacobi_method.variableName(i, solution.length), solution[i]);
+            }
+
+            System.out.println("\nIterations: " + history.rows());
+            if (history.rows() > 0) {
+                System.out.printf("Relative residual: %.3e\n", history.get(history.rows() - 1, n));
+            }
+
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    // Sparse path: A from a Matrix Market file, b from a second file (or all ones)
+    private static void solveMatrixMarket(Scanner scanner, String matrixFile) throws IOException {
+        SparseMatrix a = SparseMatrix.readMatrixMarket(Paths.get(matrixFile));
+        System.out.println("Loaded " + a.rows + "x" + a.cols + " matrix with " + a.nnz() + " nonzeros.");
+
+        System.out.println("\nEnter right-hand side file (leave blank for all ones):");
+        String rhsFile = scanner.nextLine().trim();
+        double[] b;
+        if (rhsFile.isEmpty()) {
+            b = new double[a.rows];
+            Arrays.fill(b, 1.0);
+        } else {
+            b = SparseMatrix.readMatrixMarketVector(Paths.get(rhsFile));
+        }
+
+        System.out.println("\nMethod: conjugate gradient (c), BiCGSTAB (b) or GMRES (g)? [g]");
+        String method = scanner.nextLine().trim().toLowerCase();
+
+        System.out.println("\nEnter tolerance (e.g., 0.001):");
+        double tolerance = Double.parseDouble(scanner.nextLine().trim());
+        if (tolerance <= 0) {
+            System.out.println("Tolerance must be greater than 0.");
+            return;
+        }
+
+        IterationRecorder recorder = IterationRecorder.lastRows(1);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        double[] solution;
+        if (method.startsWith("c")) {
+            solution = solveCG(a, b, tolerance, 10000, recorder, pool);
+        } else if (method.startsWith("b")) {
+            solution = solveBiCGSTAB(a, b, tolerance, 10000, recorder, pool);
+        } else {
+            solution = solveGMRES(a, b, DEFAULT_RESTART, tolerance, 10000, recorder, pool);
+        }
+
+        System.out.println("\nSolution (first entries):");
+        for (int i = 0; i < Math.min(solution.length, 10); i++) {
+            System.out.printf("%s = %.6f\n", jacobi_method.variableName(i, solution.length), solution[i]);
+        }
+        System.out.println("\nIterations: " + recorder.iterations());
+        if (recorder.rows() > 0) {
+            System.out.printf("Relative residual: %.3e\n", recorder.get(0, 0));
+        }
+    }
+}
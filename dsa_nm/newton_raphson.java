@@ -1,8 +1,8 @@
-import net.objecthunter.exp4j.Expression;
-import net.objecthunter.exp4j.ExpressionBuilder;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.Queue;
 import java.util.Scanner;
+import java.util.function.DoubleUnaryOperator;
 // For Windows:
 // javac -cp ".;lib\exp4j-0.4.8.jar" newton_raphson.java
 // java -cp ".;lib\exp4j-0.4.8.jar" newton_raphson
@@ -24,23 +24,59 @@ public class newton_raphson {
     }
 
     public static Queue<IterationData> newtonRaphson(String funcStr, double x0, double tolerance, int maxIterations) throws Exception {
-        final double DEFAULT_H = 1e-5;
-        
-        // Pre-process the input to handle exponential expressions
-        funcStr = funcStr.trim()
-                        .toLowerCase()  // Convert everything to lowercase first
-                        .replaceAll("\\s+", "")  // Remove all whitespace
-                        .replaceAll("e\\^([\\w\\-\\+\\(\\)]+)", "exp($1)");  // Convert e^expression to exp(expression)
-        
-        Expression function = new ExpressionBuilder(funcStr).variable("x").build();
+        // Parsed, compiled and differentiated once per distinct function (see ExpressionCache);
+        // finite differences only if f'(x) cannot be derived
+        ExpressionCache.CachedExpression function = ExpressionCache.SHARED.get(funcStr);
+        return newtonRaphson(function.function(), function.derivative(), x0, tolerance, maxIterations);
+    }
+
+    public static double newtonRaphson(String funcStr, double x0, double tolerance, int maxIterations, IterationRecorder recorder) {
+        ExpressionCache.CachedExpression function = ExpressionCache.SHARED.get(funcStr);
+        return newtonRaphson(function.function(), function.derivative(), x0, tolerance, maxIterations, recorder);
+    }
+
+    public static Queue<IterationData> newtonRaphson(DoubleUnaryOperator function, double x0, double tolerance, int maxIterations) {
+        return newtonRaphson(function, null, x0, tolerance, maxIterations);
+    }
+
+    // derivative may be null, in which case a central difference is used
+    public static Queue<IterationData> newtonRaphson(DoubleUnaryOperator function, DoubleUnaryOperator derivative, double x0, double tolerance, int maxIterations) {
+        IterationRecorder.Columnar recorder = IterationRecorder.full();
+        newtonRaphson(function, derivative, x0, tolerance, maxIterations, recorder);
+        return iterations(recorder);
+    }
 
+    // One IterationData per recorded (x, f(x), f'(x), x_new) row
+    static Queue<IterationData> iterations(IterationRecorder recorder) {
         Queue<IterationData> iterations = new LinkedList<>();
+        for (int i = 0; i < recorder.rows(); i++) {
+            iterations.add(new IterationData(i + 1, recorder.get(i, 0), recorder.get(i, 1), recorder.get(i, 2), recorder.get(i, 3)));
+        }
+        return iterations;
+    }
+
+    // Core loop; writes one (x, f(x), f'(x), x_new) row per iteration and returns the last x_new
+    public static double newtonRaphson(DoubleUnaryOperator function, DoubleUnaryOperator derivative, double x0, double tolerance, int maxIterations, IterationRecorder recorder) {
+        if (SolverMetrics.ENABLED) {
+            return SolverMetrics.measure("newton", function, derivative, recorder,
+                                         (f, df) -> newtonRaphsonLoop(f, df, x0, tolerance, maxIterations, recorder));
+        }
+        return newtonRaphsonLoop(function, derivative, x0, tolerance, maxIterations, recorder);
+    }
+
+    private static double newtonRaphsonLoop(DoubleUnaryOperator function, DoubleUnaryOperator derivative, double x0, double tolerance, int maxIterations, IterationRecorder recorder) {
+        final double DEFAULT_H = 1e-5;
+
+        recorder.start("x", "f(x)", "f'(x)", "x_new");
+        double[] row = new double[4];
         double x = x0;
+        double root = x0;
         double h = DEFAULT_H;
+        double lastStep = Double.POSITIVE_INFINITY;
 
         for (int i = 1; i <= maxIterations; i++) {
-            double fx = evaluate(function, x);
-            double dfx = derivative(function, x, h);
+            double fx = function.applyAsDouble(x);
+            double dfx = derivative != null ? derivative.applyAsDouble(x) : derivative(function, x, h);
 
             if (Double.isNaN(fx) || Double.isNaN(dfx) || Double.isInfinite(fx) || Double.isInfinite(dfx)) {
                 throw new ArithmeticException("Function or derivative evaluated to NaN or Infinity. Try a different initial guess.");
@@ -51,26 +87,29 @@ public class newton_raphson {
             }
 
             double xNew = x - fx / dfx;
+            root = xNew;
 
-            iterations.add(new IterationData(i, x, fx, dfx, xNew));
+            row[0] = x; row[1] = fx; row[2] = dfx; row[3] = xNew;
+            recorder.record(row);
 
-            if (Math.abs(xNew - x) < tolerance || Math.abs(fx) < tolerance) {
-                break;
+            // A small |f(x)| only counts while the steps at least halve: on a
+            // function that flattens out (1/x, x*e^-x) it also holds on the way
+            // to infinity, where the steps stay near constant or grow
+            double step = Math.abs(xNew - x);
+            if (step < tolerance || (Math.abs(fx) < tolerance && step <= lastStep / 2)) {
+                return root;
             }
 
+            lastStep = step;
             x = xNew;
             h = DEFAULT_H * (1 + Math.abs(x));
         }
 
-        return iterations;
-    }
-
-    private static double evaluate(Expression f, double x) {
-        return f.setVariable("x", x).evaluate();
+        throw new NotConvergedException(recorder.iterations(), root);
     }
 
-    private static double derivative(Expression f, double x, double h) {
-        return (evaluate(f, x + h) - evaluate(f, x - h)) / (2 * h);
+    private static double derivative(DoubleUnaryOperator f, double x, double h) {
+        return (f.applyAsDouble(x + h) - f.applyAsDouble(x - h)) / (2 * h);
     }
 
     public static void main(String[] args) {
@@ -106,10 +145,6 @@ public class newton_raphson {
                     System.out.println("Tolerance must be greater than 0. Please enter again:");
                     continue;
                 }
-                if (tolerance < 1e-6) {
-                    System.out.println("Tolerance cannot be smaller than 1e-6. Please enter again:");
-                    continue;
-                }
                 decimalPlaces = getDecimalPlaces(tolerance);
                 break;
             } catch (NumberFormatException e) {
@@ -119,7 +154,23 @@ public class newton_raphson {
 
         try {
             int maxIterations = 100;
-            Queue<IterationData> iterations = newtonRaphson(function, x0, tolerance, maxIterations);
+            if (tolerance < 1e-6) {
+                // Beyond what double iterations can resolve: finish in extended precision
+                IterationRecorder.Columnar history = IterationRecorder.full();
+                try {
+                    HighPrecision.print(history, HighPrecision.newton(function, x0, tolerance, 0, maxIterations, history));
+                } catch (NotConvergedException e) {
+                    System.out.println(e.getMessage() + " Last estimate: " + e.estimate());
+                }
+                return;
+            }
+            IterationRecorder.Columnar recorder = IterationRecorder.full();
+            try {
+                newtonRaphson(function, x0, tolerance, maxIterations, recorder);
+            } catch (NotConvergedException e) {
+                System.out.println(e.getMessage());
+            }
+            Queue<IterationData> iterations = iterations(recorder);
 
             printIterationTable(iterations, decimalPlaces);
             printSolution(iterations, decimalPlaces);
@@ -135,7 +186,7 @@ public class newton_raphson {
         System.out.println("\nIteration Table:");
         System.out.printf("%-4s %-" + (decimals + 12) + "s %-" + (decimals + 12) + "s %-" + (decimals + 12) + "s %-" + (decimals + 12) + "s%n",
                          "Iter", "x", "f(x)", "f'(x)", "x_new");
-        System.out.println("-".repeat(4 + 4*(decimals + 12)));
+        System.out.println(String.join("", Collections.nCopies(4 + 4*(decimals + 12), "-")));
 
         String formatString = "%-4d %" + (decimals + 12) + "." + decimals + "f %" + (decimals + 12) + "." + decimals + "f %" + 
                             (decimals + 12) + "." + decimals + "f %" + (decimals + 12) + "." + decimals + "f%n";
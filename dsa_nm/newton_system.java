@@ -0,0 +1,244 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+// For Windows:
+// javac -cp ".;lib\exp4j-0.4.8.jar" newton_system.java
+// java -cp ".;lib\exp4j-0.4.8.jar" newton_system
+// Newton's method for a nonlinear system F(x) = 0 of n equations (see
+// NonlinearSystem). Each step solves J(x) s = -F(x) with a blocked LU
+// factorization (DenseLU), which costs O(n^3). With BROYDEN the factorization
+// is kept and the inverse Jacobian is corrected by one rank-one (Broyden)
+// update per step instead, so a step costs O(n^2); J is evaluated and factored
+// again only when the updates stop reducing |F| or MAX_UPDATES have piled up.
+public class newton_system {
+    public enum Update { NEWTON, BROYDEN }
+
+    // Rank-one updates kept before refactoring; each costs two n-vectors and
+    // O(n) work per solve
+    static final int MAX_UPDATES = 30;
+
+    // Writes one (residual, step, factorized) row per iteration: max |F(x)|
+    // after the step, max |step|, and 1 if J was evaluated and factored.
+    // Throws NotConvergedException, holding the last iterate, after
+    // maxIterations steps.
+    public static double[] solve(NonlinearSystem system, double[] x0, double tolerance, int maxIterations,
+                                 Update update, IterationRecorder recorder, ForkJoinPool pool) {
+        if (x0.length != system.size()) {
+            throw new IllegalArgumentException("Expected " + system.size() + " initial values, got " + x0.length + ".");
+        }
+        if (SolverMetrics.ENABLED) {
+            return SolverMetrics.measure("newton_system", recorder,
+                                         () -> newtonLoop(system, x0, tolerance, maxIterations, update, recorder, pool));
+        }
+        return newtonLoop(system, x0, tolerance, maxIterations, update, recorder, pool);
+    }
+
+    private static double[] newtonLoop(NonlinearSystem system, double[] x0, double tolerance, int maxIterations,
+                                       Update update, IterationRecorder recorder, ForkJoinPool pool) {
+        recorder.start("residual", "step", "factorized");
+        double[] row = new double[3];
+        int n = system.size();
+
+        double[] x = x0.clone();
+        double[] f = new double[n];
+        double[] fNew = new double[n];
+        double[] xNew = new double[n];
+        double[] s = new double[n];
+        double[] y = new double[n];
+        double[][] j = new double[n][n];
+        double residual = checkFinite(system.evaluate(x, f, pool));
+
+        InverseJacobian inverse = null;
+        for (int iter = 0; iter < maxIterations; iter++) {
+            boolean factorized = inverse == null;
+            if (factorized) {
+                system.jacobian(x, f, j, pool);
+                try {
+                    inverse = new InverseJacobian(DenseLU.factor(j, pool));
+                } catch (ArithmeticException e) {
+                    throw new ArithmeticException("Jacobian is singular at iteration " + (iter + 1) + ". Try a different initial guess.");
+                }
+            }
+
+            // s = -J^-1 F(x)
+            inverse.apply(f, s);
+            double step = 0;
+            for (int i = 0; i < n; i++) {
+                s[i] = -s[i];
+                xNew[i] = x[i] + s[i];
+                step = Math.max(step, Math.abs(s[i]));
+            }
+            double residualNew = checkFinite(system.evaluate(xNew, fNew, pool));
+
+            if (update == Update.NEWTON || inverse.updates() >= MAX_UPDATES || (!factorized && !(residualNew < residual))) {
+                // Start over from a fresh Jacobian at the new point
+                inverse = null;
+            } else {
+                for (int i = 0; i < n; i++) {
+                    y[i] = fNew[i] - f[i];
+                }
+                if (!inverse.broyden(s, y)) {
+                    inverse = null;
+                }
+            }
+
+            row[0] = residualNew; row[1] = step; row[2] = factorized ? 1 : 0;
+            recorder.record(row);
+
+            double[] t = x; x = xNew; xNew = t;
+            t = f; f = fNew; fNew = t;
+            residual = residualNew;
+
+            if (residual < tolerance || step < tolerance) {
+                return x;
+            }
+        }
+
+        throw new NotConvergedException(recorder.iterations(), x);
+    }
+
+    private static double checkFinite(double residual) {
+        if (Double.isNaN(residual) || Double.isInfinite(residual)) {
+            throw new ArithmeticException("The system evaluated to NaN or Infinity. Try a different initial guess.");
+        }
+        return residual;
+    }
+
+    // H = J0^-1 + sum of a_k b_k^T, with J0 = LU. Applying H or H^T costs one
+    // O(n^2) triangular solve pair plus O(n) per update.
+    private static final class InverseJacobian {
+        private final DenseLU lu;
+        private final List<double[]> a = new ArrayList<>();
+        private final List<double[]> b = new ArrayList<>();
+
+        InverseJacobian(DenseLU lu) {
+            this.lu = lu;
+        }
+
+        int updates() {
+            return a.size();
+        }
+
+        // out = H v
+        void apply(double[] v, double[] out) {
+            lu.solve(v, out);
+            for (int k = 0; k < a.size(); k++) {
+                axpy(dot(b.get(k), v), a.get(k), out);
+            }
+        }
+
+        // out = H^T v
+        void applyTransposed(double[] v, double[] out) {
+            lu.solveTransposed(v, out);
+            for (int k = 0; k < a.size(); k++) {
+                axpy(dot(a.get(k), v), b.get(k), out);
+            }
+        }
+
+        // "Good" Broyden update of the inverse (Sherman-Morrison form):
+        // H += (s - H y)(s^T H) / (s^T H y). False if the denominator vanishes.
+        boolean broyden(double[] s, double[] y) {
+            int n = s.length;
+            double[] hy = new double[n];
+            double[] sh = new double[n];
+            apply(y, hy);
+            applyTransposed(s, sh);
+            double denominator = dot(s, hy);
+            if (!(Math.abs(denominator) > 1e-14 * Math.sqrt(dot(s, s) * dot(hy, hy)))) {
+                return false;
+            }
+            for (int i = 0; i < n; i++) {
+                hy[i] = (s[i] - hy[i]) / denominator;
+            }
+            a.add(hy);
+            b.add(sh);
+            return true;
+        }
+
+        private static double dot(double[] u, double[] v) {
+            double sum = 0;
+            for (int i = 0; i < u.length; i++) {
+                sum += u[i] * v[i];
+            }
+            return sum;
+        }
+
+        private static void axpy(double alpha, double[] u, double[] out) {
+            if (alpha == 0) {
+                return;
+            }
+            for (int i = 0; i < u.length; i++) {
+                out[i] += alpha * u[i];
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        Scanner scanner = new Scanner(System.in);
+        try {
+            System.out.println("Enter number of equations (1 or more):");
+            int n = Integer.parseInt(scanner.nextLine().trim());
+            if (n < 1) {
+                System.out.println("Please enter at least 1 equation.");
+                return;
+            }
+
+            String[] equations = new String[n];
+            System.out.println("\nEnter the equations (e.g., x^2 + y^2 = 4 and x*y = 1):");
+            for (int i = 0; i < n; i++) {
+                System.out.print("Equation " + (i + 1) + ": ");
+                equations[i] = scanner.nextLine().trim();
+            }
+
+            System.out.println("\nJacobian: symbolic (s) or finite differences (f)? [s]");
+            String jacobianInput = scanner.nextLine().trim().toLowerCase();
+            NonlinearSystem.Jacobian jacobian = jacobianInput.startsWith("f")
+                    ? NonlinearSystem.Jacobian.FINITE_DIFFERENCE : NonlinearSystem.Jacobian.SYMBOLIC;
+            NonlinearSystem system = new NonlinearSystem(equations, null, jacobian);
+            String[] variables = system.variables();
+
+            double[] x0 = new double[n];
+            System.out.println("\nEnter the initial guesses:");
+            for (int i = 0; i < n; i++) {
+                System.out.print(variables[i] + "0 = ");
+                x0[i] = Double.parseDouble(scanner.nextLine().trim());
+            }
+
+            System.out.println("\nUpdate: full Newton (n) or Broyden (b)? [n]");
+            Update update = scanner.nextLine().trim().toLowerCase().startsWith("b") ? Update.BROYDEN : Update.NEWTON;
+
+            System.out.println("\nEnter tolerance (e.g., 0.001):");
+            double tolerance = Double.parseDouble(scanner.nextLine().trim());
+            if (tolerance <= 0) {
+                System.out.println("Tolerance must be greater than 0.");
+                return;
+            }
+
+            IterationRecorder.Columnar recorder = IterationRecorder.full();
+            double[] solution;
+            try {
+                solution = solve(system, x0, tolerance, 100, update, recorder, ForkJoinPool.commonPool());
+            } catch (NotConvergedException e) {
+                System.out.println(e.getMessage());
+                solution = e.solution();
+            }
+
+            System.out.println("\nIteration Table:");
+            System.out.printf("%-6s %-16s %-16s %s%n", "Iter", "max |F(x)|", "max |step|", "Jacobian");
+            for (int i = 0; i < recorder.rows(); i++) {
+                System.out.printf("%-6d %-16.6e %-16.6e %s%n", i + 1, recorder.get(i, 0), recorder.get(i, 1),
+                                  recorder.get(i, 2) == 1 ? "factored" : "Broyden");
+            }
+
+            System.out.println("\nSolution:");
+            for (int i = 0; i < solution.length; i++) {
+                System.out.printf("%s = %.6f%n", variables[i], solution[i]);
+            }
+            System.out.println("\nIterations: " + recorder.rows());
+
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+}
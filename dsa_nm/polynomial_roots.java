@@ -0,0 +1,81 @@
+import java.util.Scanner;
+// For Windows:
+// javac -cp ".;lib\exp4j-0.4.8.jar" polynomial_roots.java
+// java -cp ".;lib\exp4j-0.4.8.jar" polynomial_roots
+// All roots (real and complex) of a polynomial in one run, with the
+// Aberth-Ehrlich method in Polynomial.roots. No initial guess is needed.
+public class polynomial_roots {
+
+    public static Polynomial.Root[] solve(String funcStr, double tolerance, int maxIterations, IterationRecorder recorder) {
+        return parse(funcStr).roots(tolerance, maxIterations, recorder);
+    }
+
+    public static Polynomial parse(String funcStr) {
+        // Expanded from the parsed tree, whether or not the solvers compile f
+        Polynomial polynomial = Polynomial.of(ExpressionCache.SHARED.expression(funcStr));
+        if (polynomial == null) {
+            throw new IllegalArgumentException("Not a polynomial in x. Use +, -, *, division by numbers and whole powers of x.");
+        }
+        if (polynomial.degree() == 0) {
+            throw new IllegalArgumentException("The polynomial must have degree 1 or more.");
+        }
+        return polynomial;
+    }
+
+    public static void main(String[] args) {
+        Scanner input = new Scanner(System.in);
+
+        System.out.println("Enter the polynomial p(x) (e.g., x^3 - 2*x - 5, (x-1)^2*(x+3), x^5 - 1):");
+        String function = input.nextLine().trim();
+
+        double tolerance;
+        int decimalPlaces;
+        while (true) {
+            System.out.println("Enter the tolerance (e.g., 0.001 or 1e-3):");
+            String tolInput = input.nextLine().replaceAll("\\s+", "").trim();
+            try {
+                tolerance = Double.parseDouble(tolInput);
+                if (tolerance <= 0) {
+                    System.out.println("Tolerance must be greater than 0. Please enter again:");
+                    continue;
+                }
+                if (tolerance < 1e-6) {
+                    System.out.println("Tolerance cannot be smaller than 1e-6. Please enter again:");
+                    continue;
+                }
+                decimalPlaces = newton_raphson.getDecimalPlaces(tolerance);
+                break;
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid input. Please enter a valid number for tolerance (e.g., 0.001 or 1e-3):");
+            }
+        }
+
+        try {
+            Polynomial polynomial = parse(function);
+            IterationRecorder.Columnar recorder = IterationRecorder.full();
+            Polynomial.Root[] roots = polynomial.roots(tolerance, 100, recorder);
+            String formatStr = "%." + decimalPlaces + "f";
+
+            System.out.println("\np(x) = " + polynomial);
+            System.out.println("\nIteration Table:");
+            System.out.printf("%-4s %-" + (decimalPlaces + 12) + "s %s%n", "Iter", "Max Correction", "Converged");
+            for (int i = 0; i < recorder.rows(); i++) {
+                System.out.printf("%-4d %" + (decimalPlaces + 12) + "." + decimalPlaces + "f %d/%d%n",
+                                  i + 1, recorder.get(i, 0), (int) recorder.get(i, 1), roots.length);
+            }
+
+            if (!Polynomial.Root.allConverged(roots)) {
+                System.out.println("\nMethod did not converge within maximum iterations.");
+            }
+            System.out.println("\nRoots:");
+            for (int i = 0; i < roots.length; i++) {
+                System.out.println("x" + (i + 1) + " = " + roots[i].format(formatStr));
+            }
+            System.out.println("Total Iterations: " + recorder.rows());
+
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+            System.out.println("Please check your input and try again.");
+        }
+    }
+}
@@ -1,7 +1,8 @@
 import net.objecthunter.exp4j.Expression;
-import net.objecthunter.exp4j.ExpressionBuilder;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.Scanner;
+import java.util.function.DoubleUnaryOperator;
 // javac -cp ".;lib/exp4j-0.4.8.jar" secant_method.java
 // java -cp ".;lib/exp4j-0.4.8.jar" secant_method   
 public class secant_method {
@@ -24,12 +25,8 @@ public class secant_method {
 
         try {
             System.out.println("Enter function f(x) (e.g., x^3 - x - 2, x^2 - 4*x + 4, sin(x) - x^2): ");
-            String funcInput = scanner.nextLine()
-                                   .toLowerCase()  // Convert everything to lowercase first
-                                   .replaceAll("\\s+", "")  // Remove all whitespace
-                                   .replaceAll("e\\^([\\w\\-\\+\\(\\)]+)", "exp($1)");  // Convert e^expression to exp(expression)
-            
-            Expression expression = new ExpressionBuilder(funcInput).variable("x").build();
+            String function = scanner.nextLine();
+            Expression expression = ExpressionCache.SHARED.expression(function);
 
             System.out.println("Enter first guess (x₀): ");
             String x0Input = scanner.nextLine().trim().replaceAll("\\s+", "");
@@ -76,13 +73,25 @@ public class secant_method {
                 return;
             }
             if (tolerance < 1e-6) {
-                System.out.println("Tolerance cannot be smaller than 1e-6.");
+                // Beyond what double iterations can resolve: finish in extended precision
+                IterationRecorder.Columnar iterations = IterationRecorder.full();
+                try {
+                    HighPrecision.print(iterations, HighPrecision.secant(function, x0, x1, tolerance, 0, maxIterations, iterations));
+                } catch (NotConvergedException e) {
+                    System.out.println(e.getMessage() + " Last estimate: " + e.estimate());
+                }
                 return;
             }
 
             int decimalPlaces = getDecimalPlaces(tolerance);
 
-            double result = secantIteration(expression, x0, x1, tolerance, maxIterations, history);
+            double result;
+            try {
+                result = secantIteration(expression, x0, x1, tolerance, maxIterations, history);
+            } catch (NotConvergedException e) {
+                System.out.println(e.getMessage());
+                result = e.estimate();
+            }
 
             String formatStr = "%." + decimalPlaces + "f";
             System.out.println("Result: " + String.format(formatStr, result));
@@ -99,8 +108,34 @@ public class secant_method {
 
     // Secant method iteration
     public static double secantIteration(Expression expression, double x0, double x1, double tolerance, int maxIterations, LinkedList<IterationData> history) {
-        double fx0 = evaluate(expression, x0);
-        double fx1 = evaluate(expression, x1);
+        return secantIteration(CompiledFunction.of(expression), x0, x1, tolerance, maxIterations, history);
+    }
+
+    public static double secantIteration(DoubleUnaryOperator f, double x0, double x1, double tolerance, int maxIterations, LinkedList<IterationData> history) {
+        IterationRecorder.Columnar recorder = IterationRecorder.full();
+        try {
+            return secantIteration(f, x0, x1, tolerance, maxIterations, recorder);
+        } finally {
+            for (int i = 0; i < recorder.rows(); i++) {
+                history.add(new IterationData(recorder.get(i, 0), recorder.get(i, 1), recorder.get(i, 2),
+                                              recorder.get(i, 3), recorder.get(i, 4), recorder.get(i, 5)));
+            }
+        }
+    }
+
+    // Core loop; writes one (x0, x1, x2, f(x0), f(x1), error) row per iteration
+    public static double secantIteration(DoubleUnaryOperator f, double x0, double x1, double tolerance, int maxIterations, IterationRecorder recorder) {
+        if (SolverMetrics.ENABLED) {
+            return SolverMetrics.measure("secant", f, recorder, counted -> secantIterationLoop(counted, x0, x1, tolerance, maxIterations, recorder));
+        }
+        return secantIterationLoop(f, x0, x1, tolerance, maxIterations, recorder);
+    }
+
+    private static double secantIterationLoop(DoubleUnaryOperator f, double x0, double x1, double tolerance, int maxIterations, IterationRecorder recorder) {
+        recorder.start("x0", "x1", "x2", "f(x0)", "f(x1)", "error");
+        double[] row = new double[6];
+        double fx0 = f.applyAsDouble(x0);
+        double fx1 = f.applyAsDouble(x1);
 
         for (int i = 0; i < maxIterations; i++) {
             if (Math.abs(fx1 - fx0) < 1e-12) {
@@ -114,23 +149,23 @@ public class secant_method {
             double x2 = x1 - fx1 * (x1 - x0) / (fx1 - fx0);
             double error = Math.abs(x2 - x1);
 
-            history.add(new IterationData(x0, x1, x2, fx0, fx1, error));
+            row[0] = x0; row[1] = x1; row[2] = x2;
+            row[3] = fx0; row[4] = fx1; row[5] = error;
+            recorder.record(row);
 
-            if (error < tolerance || Math.abs(fx1) < tolerance) {
+            // A small |f(x1)| only counts while the steps at least halve: on a
+            // function that flattens out (1/x) it also holds on the way to
+            // infinity, where the steps stay near constant or grow
+            if (error < tolerance || (Math.abs(fx1) < tolerance && error <= Math.abs(x1 - x0) / 2)) {
                 return x2;
             }
 
             x0 = x1;
             fx0 = fx1;
             x1 = x2;
-            fx1 = evaluate(expression, x1);
+            fx1 = f.applyAsDouble(x1);
         }
-        System.out.println("Warning: Did not converge within the maximum number of iterations.");
-        return x1;
-    }
-
-    private static double evaluate(Expression f, double x) {
-        return f.setVariable("x", x).evaluate();
+        throw new NotConvergedException(recorder.iterations(), x1);
     }
 
     // Print iteration history with formatting
@@ -147,7 +182,7 @@ public class secant_method {
                          (decimalPlaces+8)+"s %-"+(decimalPlaces+10)+"s %-"+
                          (decimalPlaces+10)+"s %-"+(decimalPlaces+10)+"s%n", 
                          "Iter", "x0", "x1", "x2", "f(x0)", "f(x1)", "Error");
-        System.out.println("-".repeat(80));
+        System.out.println(String.join("", Collections.nCopies(80, "-")));
 
         int i = 1;
         for (IterationData d : history) {
@@ -0,0 +1,77 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// The non-interactive CSV and NDJSON front end, fed from memory
+final class BatchSolverTest {
+    private static String[] run(boolean json, String input) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (RootSolverBatch batch = new RootSolverBatch(2)) {
+            new BatchSolver(json).run(Channels.newChannel(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8))),
+                                      Channels.newChannel(out), batch, 2);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+    }
+
+    static void testCsv() throws IOException {
+        String[] lines = run(false, "method,function,a,b,tolerance,maxIterations\n"
+                + "newton,x^2 - p,1,,1e-12,50,p=2\n"
+                + "# a comment\n"
+                + "brent,\"pow(x,3) - 2\",0,2,1e-12\n"
+                + "secant,x^2 - 2\n"
+                + "bisection,x^2 + 1,-1,1,1e-6\n");
+        Check.equal("header and one line per problem", 5, lines.length);
+        Check.equal("header", "line,root,iterations,error", lines[0]);
+        List<String> newton = BatchSolver.splitCsv(lines[1]);
+        Check.equal("input line number", "2", newton.get(0));
+        Check.close("newton", Math.sqrt(2), Double.parseDouble(newton.get(1)), 1e-12);
+        Check.equal("no error", "", newton.get(3));
+        List<String> brent = BatchSolver.splitCsv(lines[2]);
+        Check.equal("comment skipped", "4", brent.get(0));
+        Check.close("brent", Math.cbrt(2), Double.parseDouble(brent.get(1)), 1e-11);
+        Check.isTrue("malformed line reported: " + lines[3], lines[3].startsWith("5,,0,\"Expected"));
+        Check.isTrue("solver error reported: " + lines[4], lines[4].startsWith("6,,") && lines[4].contains("\""));
+    }
+
+    static void testNdjson() throws IOException {
+        String[] lines = run(true, "{\"method\": \"secant\", \"function\": \"cos(x) - x\", \"x0\": 0, \"x1\": 1, \"tolerance\": 1e-12}\n"
+                + "{\"method\": \"newton\", \"function\": \"x^2 - p\", \"x0\": 1, \"tolerance\": 1e-12, \"parameters\": {\"p\": 9}}\n"
+                + "{\"method\": \"halley\", \"function\": \"x\", \"x0\": 1}\n"
+                + "{\"method\": \n");
+        Check.equal("one line per problem", 4, lines.length);
+        Map<String, Object> secant = Json.parseObject(lines[0]);
+        Check.close("secant", 0.7390851332151607, (Double) secant.get("root"), 1e-12);
+        Check.isTrue("no error", secant.get("error") == null);
+        Check.close("parameters", 3, (Double) Json.parseObject(lines[1]).get("root"), 1e-12);
+        Map<String, Object> unknown = Json.parseObject(lines[2]);
+        Check.equal("unknown method", "Unknown method: halley", unknown.get("error"));
+        Check.isTrue("no root", unknown.get("root") == null);
+        Check.equal("malformed JSON line", 4.0, Json.parseObject(lines[3]).get("line"));
+        Check.isTrue("malformed JSON error", Json.parseObject(lines[3]).get("error") instanceof String);
+    }
+
+    static void testOrderIsKeptAcrossBlocks() throws IOException {
+        StringBuilder input = new StringBuilder();
+        int n = 10_000;
+        for (int i = 1; i <= n; i++) {
+            input.append("newton,x^2 - p,1,,1e-10,50,p=").append(i).append('\n');
+        }
+        String[] lines = run(false, input.toString());
+        Check.equal("every line written", n + 1, lines.length);
+        for (int i = 1; i <= n; i += 997) {
+            List<String> fields = BatchSolver.splitCsv(lines[i]);
+            Check.equal("line " + i, String.valueOf(i), fields.get(0));
+            Check.close("root " + i, Math.sqrt(i), Double.parseDouble(fields.get(1)), 1e-8 * Math.sqrt(i));
+        }
+    }
+
+    static void testSplitCsv() {
+        Check.equal("quoted commas and quotes", Arrays.asList("a", "b,\"c\"", ""), BatchSolver.splitCsv("a,\"b,\"\"c\"\"\","));
+        Check.fails("unterminated", IllegalArgumentException.class, () -> BatchSolver.splitCsv("a,\"b"));
+    }
+}
@@ -0,0 +1,23 @@
+import java.lang.reflect.Method;
+import java.util.function.DoubleUnaryOperator;
+import net.objecthunter.exp4j.Expression;
+import net.objecthunter.exp4j.ExpressionBuilder;
+
+// The benchmarks reach the solvers through method handles looked up by name
+// (see bench/Solvers), so a changed solver signature only shows up when the
+// benchmarks run. Loading bench.Solvers looks every handle up; the JMH
+// benchmarks themselves need the jars in lib and are not run here.
+final class BenchmarkHandlesTest {
+    static void testEveryHandleResolves() throws Exception {
+        Class<?> solvers;
+        try {
+            solvers = Class.forName("bench.Solvers");
+        } catch (ExceptionInInitializerError e) {
+            throw new AssertionError("bench.Solvers: " + e.getCause().getMessage(), e.getCause());
+        }
+        Method compile = solvers.getDeclaredMethod("compile", Expression.class);
+        compile.setAccessible(true);
+        DoubleUnaryOperator f = (DoubleUnaryOperator) compile.invoke(null, new ExpressionBuilder("x^2 - 2").variables("x").build());
+        Check.close("compiled through a handle", 2, f.applyAsDouble(2), 0);
+    }
+}
@@ -0,0 +1,61 @@
+import java.util.function.DoubleUnaryOperator;
+
+// Brent, Illinois and ITP: the root to tolerance, inside the bracket, in
+// fewer evaluations than bisection
+final class BracketingTest {
+    interface Solver {
+        double solve(DoubleUnaryOperator f, double a, double b, double tolerance, int maxIterations, IterationRecorder recorder);
+    }
+
+    private static final String[] NAMES = {"brent", "illinois", "itp"};
+    private static final Solver[] SOLVERS = {
+        bracketing_methods::brentMethod, bracketing_methods::illinoisMethod, bracketing_methods::itpMethod,
+    };
+
+    private static void solves(String name, DoubleUnaryOperator f, double a, double b, double root) {
+        IterationRecorder.NoOp bisection = IterationRecorder.none();
+        bisection_method.bisectionMethod(f, a, b, 1e-12, 200, bisection);
+        for (int s = 0; s < SOLVERS.length; s++) {
+            IterationRecorder.Columnar recorder = IterationRecorder.full();
+            double x = SOLVERS[s].solve(f, a, b, 1e-12, 200, recorder);
+            Check.close(NAMES[s] + " on " + name, root, x, 1e-10);
+            Check.isTrue(NAMES[s] + " on " + name + " beats bisection", recorder.iterations() < bisection.iterations());
+            for (int i = 0; i < recorder.rows(); i++) {
+                double c = recorder.get(i, 2);
+                Check.isTrue(NAMES[s] + " point " + c + " inside [" + a + ", " + b + "]", c >= Math.min(a, b) && c <= Math.max(a, b));
+            }
+        }
+    }
+
+    static void testKnownRoots() {
+        solves("x^3 - 2x - 5", x -> x * x * x - 2 * x - 5, 2, 3, 2.0945514815423265);
+        solves("cos(x) - x", x -> Math.cos(x) - x, 0, 1, 0.7390851332151607);
+        solves("exp(x) - 10", x -> Math.exp(x) - 10, 0, 5, Math.log(10));
+    }
+
+    static void testReversedBracket() {
+        for (int s = 0; s < SOLVERS.length; s++) {
+            double x = SOLVERS[s].solve(v -> v * v - 2, 2, 0, 1e-12, 200, IterationRecorder.none());
+            Check.close(NAMES[s] + " on [2, 0]", Math.sqrt(2), x, 1e-10);
+        }
+    }
+
+    static void testFailures() {
+        for (int s = 0; s < SOLVERS.length; s++) {
+            Solver solver = SOLVERS[s];
+            Check.fails(NAMES[s] + " without a sign change", IllegalArgumentException.class,
+                () -> solver.solve(x -> x * x + 1, -1, 1, 1e-10, 100, IterationRecorder.none()));
+            NotConvergedException e = Check.fails(NAMES[s] + " out of iterations", NotConvergedException.class,
+                () -> solver.solve(x -> Math.cos(x) - x, 0, 1, 1e-15, 2, IterationRecorder.none()));
+            Check.close(NAMES[s] + " estimate in the bracket", 0.5, e.estimate(), 0.5);
+        }
+    }
+
+    // f is NaN on [0.2, 0.4]; the regula falsi point 0.343 lands in that gap
+    static void testNaNIsNotARoot() {
+        DoubleUnaryOperator f = x -> x * x * x - 0.343 + 0 * Math.sqrt((x - 0.3) * (x - 0.3) - 0.01);
+        ArithmeticException e = Check.fails("illinois", ArithmeticException.class,
+            () -> bracketing_methods.illinoisMethod(f, 0, 1, 1e-12, 200, IterationRecorder.none()));
+        Check.isTrue(e.getMessage(), e.getMessage().startsWith("Function evaluated to NaN or Infinity."));
+    }
+}
@@ -0,0 +1,37 @@
+import java.util.concurrent.CancellationException;
+
+// The GUI cancels a background solve by throwing CancellationException from
+// the recorder; every solver has to let it out
+final class CancellationTest {
+    // Lets a few iterations through, then cancels
+    private static final class Cancelling extends IterationRecorder.Columnar {
+        @Override
+        public void record(double[] row) {
+            if (rows() == 3) {
+                throw new CancellationException("Calculation cancelled.");
+            }
+            super.record(row);
+        }
+    }
+
+    private static void cancels(String solver, Check.Action solve) {
+        Check.fails(solver, CancellationException.class, solve);
+    }
+
+    static void testRootFindersStop() {
+        cancels("bisection", () -> bisection_method.bisectionMethod(x -> x * x - 2, 0, 2, 1e-15, 100, new Cancelling()));
+        cancels("secant", () -> secant_method.secantIteration(Math::cos, 0, 1, 1e-15, 100, new Cancelling()));
+        cancels("newton", () -> newton_raphson.newtonRaphson("x - cos(x)", 5, 1e-15, 100, new Cancelling()));
+        cancels("fixed point", () -> fixed_point.fixedPoint(Math::cos, 1, 1e-15, 100, new Cancelling()));
+        cancels("brent", () -> bracketing_methods.brentMethod(Math::cos, 0, 3, 1e-15, 100, new Cancelling()));
+    }
+
+    static void testJacobiStops() {
+        double[][] augmented = {{4, 1, 1, 6}, {1, 5, 2, 8}, {1, 2, 6, 9}};
+        cancels("jacobi", () -> jacobi_method.solveJacobi(augmented, 1e-15, 1000, new Cancelling()));
+    }
+
+    static void testHighPrecisionStops() {
+        cancels("extended newton", () -> HighPrecision.newton("x^2 - 2", 1, 1e-40, 0, 100, new Cancelling()));
+    }
+}
@@ -0,0 +1,60 @@
+// Assertions for the tests in this folder; lib has no test library, so a
+// failed check throws AssertionError and RunTests reports it.
+final class Check {
+    private Check() {
+    }
+
+    static void isTrue(String what, boolean condition) {
+        if (!condition) {
+            throw new AssertionError(what);
+        }
+    }
+
+    static void equal(String what, Object expected, Object actual) {
+        if (expected == null ? actual != null : !expected.equals(actual)) {
+            throw new AssertionError(what + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    // |expected - actual| <= tolerance, with NaN and the infinities equal to
+    // themselves
+    static void close(String what, double expected, double actual, double tolerance) {
+        if (Double.isNaN(expected) || Double.isInfinite(expected)) {
+            if (Double.compare(expected, actual) != 0) {
+                throw new AssertionError(what + ": expected " + expected + " but was " + actual);
+            }
+        } else if (!(Math.abs(expected - actual) <= tolerance)) {
+            throw new AssertionError(what + ": expected " + expected + " but was " + actual
+                                     + " (tolerance " + tolerance + ")");
+        }
+    }
+
+    // Relative tolerance, for values of any size
+    static void relative(String what, double expected, double actual, double tolerance) {
+        close(what, expected, actual, tolerance * Math.max(1, Math.abs(expected)));
+    }
+
+    static void close(String what, double[] expected, double[] actual, double tolerance) {
+        equal(what + " length", expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            close(what + "[" + i + "]", expected[i], actual[i], tolerance);
+        }
+    }
+
+    interface Action {
+        void run() throws Exception;
+    }
+
+    // Runs action and returns what it threw, which must be a type
+    static <E extends Throwable> E fails(String what, Class<E> type, Action action) {
+        try {
+            action.run();
+        } catch (Throwable e) {
+            if (type.isInstance(e)) {
+                return type.cast(e);
+            }
+            throw new AssertionError(what + ": expected " + type.getSimpleName() + " but got " + e, e);
+        }
+        throw new AssertionError(what + ": expected " + type.getSimpleName() + " but nothing was thrown");
+    }
+}
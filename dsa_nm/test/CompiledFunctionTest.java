@@ -0,0 +1,132 @@
+import net.objecthunter.exp4j.Expression;
+import net.objecthunter.exp4j.ExpressionBuilder;
+import net.objecthunter.exp4j.function.Function;
+
+// Generated functions against exp4j, which stays the reference for every
+// value and every error
+final class CompiledFunctionTest {
+    private static final double[] XS = {-3.5, -1, -0.25, 0, 0.5, 1, 2, 7.25, 1e6, Double.NaN};
+
+    private static Expression parse(String function) {
+        return new ExpressionBuilder(function).variables("x").build();
+    }
+
+    // Same value, or same exception message, at every x
+    private static void matchesExp4j(String function, CompiledFunction compiled) {
+        Expression expression = parse(function);
+        for (double x : XS) {
+            String what = function + " at x = " + x;
+            double expected;
+            try {
+                expected = expression.setVariable("x", x).evaluate();
+            } catch (ArithmeticException e) {
+                ArithmeticException thrown = Check.fails(what, ArithmeticException.class, () -> compiled.applyAsDouble(x));
+                Check.equal(what, e.getMessage(), thrown.getMessage());
+                continue;
+            }
+            Check.relative(what, expected, compiled.applyAsDouble(x), 1e-14);
+        }
+    }
+
+    private static void matchesExp4j(String function) {
+        CompiledFunction compiled = CompiledFunction.of(parse(function));
+        Check.isTrue(function + " compiled", compiled.isCompiled());
+        matchesExp4j(function, compiled);
+    }
+
+    static void testElementaryFunctions() {
+        matchesExp4j("sin(x) * exp(-x) + cos(2*x)");
+        matchesExp4j("sqrt(abs(x)) - cbrt(x)");
+        matchesExp4j("log(x) + log10(x) + log2(x)");
+        matchesExp4j("log1p(x) - expm1(x)");
+        matchesExp4j("atan(x) + asin(x / 8) - acos(x / 8)");
+        matchesExp4j("tanh(x) + sinh(x) / cosh(x)");
+        matchesExp4j("ceil(x) + floor(x) - signum(x)");
+        matchesExp4j("-x^2 + 2^-x + x^0.5");
+        matchesExp4j("pi * x - e");
+    }
+
+    static void testPolynomialPath() {
+        matchesExp4j("x^3 - 2*x + 1");
+        matchesExp4j("(x - 1)*(x + 2)*(x - 3)");
+    }
+
+    static void testErrorsMatch() {
+        matchesExp4j("1 / x");
+        matchesExp4j("x % (x - 1)");
+        matchesExp4j("cot(x)");
+        matchesExp4j("sin(x) / (x - 0.5)");
+    }
+
+    static void testParameters() {
+        Expression expression = new ExpressionBuilder("a*sin(x) + b").variables("x", "a", "b").build();
+        expression.setVariable("a", 3).setVariable("b", -1);
+        CompiledFunction f = CompiledFunction.of(expression);
+        Check.close("a*sin(x) + b", 3 * Math.sin(2) - 1, f.applyAsDouble(2), 1e-15);
+
+        CompiledFunction g = f.copy().setParameter("b", 10).setParameter("unused", 1);
+        Check.close("copy with b = 10", 3 * Math.sin(2) + 10, g.applyAsDouble(2), 1e-15);
+        Check.close("original keeps b", 3 * Math.sin(2) - 1, f.applyAsDouble(2), 1e-15);
+    }
+
+    static void testCustomFunctionFallsBackToExp4j() {
+        Function twice = new Function("twice", 1) {
+            @Override
+            public double apply(double... args) {
+                return 2 * args[0];
+            }
+        };
+        Expression expression = new ExpressionBuilder("twice(x) + 1").variables("x").function(twice).build();
+        CompiledFunction f = CompiledFunction.of(expression);
+        for (double x : XS) {
+            Check.close("twice(x) + 1 at " + x, 2 * x + 1, f.applyAsDouble(x), 0);
+        }
+    }
+
+    static void testBatchMatchesScalar() {
+        CompiledFunction f = CompiledFunction.of(parse("exp(-x^2) * cos(3*x)"));
+        double[] xs = {-2, -1, 0, 0.5, 3};
+        double[] out = new double[xs.length];
+        f.evaluateBatch(xs, out);
+        for (int i = 0; i < xs.length; i++) {
+            Check.close("batch[" + i + "]", f.applyAsDouble(xs[i]), out[i], 0);
+        }
+        Check.fails("short output", IndexOutOfBoundsException.class, () -> f.evaluateBatch(xs, new double[2]));
+    }
+
+    // Generated loop, Horner loop and the exp4j fallback, over a batch large
+    // enough to be vectorized, written back into the input array
+    static void testBatchOnEveryPath() {
+        Function twice = new Function("twice", 1) {
+            @Override
+            public double apply(double... args) {
+                return 2 * args[0];
+            }
+        };
+        CompiledFunction[] functions = {
+            CompiledFunction.of(parse("sqrt(x^2 + 1) * sin(x)")),
+            CompiledFunction.of(parse("3*x^4 - x + 0.5")),
+            CompiledFunction.of(new ExpressionBuilder("twice(x) - 1").variables("x").function(twice).build()),
+        };
+        for (CompiledFunction f : functions) {
+            double[] xs = new double[10_000];
+            for (int i = 0; i < xs.length; i++) {
+                xs[i] = -5 + i * 1e-3;
+            }
+            double[] expected = new double[xs.length];
+            for (int i = 0; i < xs.length; i++) {
+                expected[i] = f.applyAsDouble(xs[i]);
+            }
+            f.evaluateBatch(xs, xs);
+            Check.close(f.getClass().getSimpleName() + " in place", expected, xs, 0);
+        }
+    }
+
+    static void testBatchErrorsMatchScalar() {
+        CompiledFunction f = CompiledFunction.of(parse("1 / (x - 2)"));
+        double[] xs = {0, 1, 2, 3};
+        ArithmeticException e = Check.fails("division by zero in a batch", ArithmeticException.class,
+            () -> f.evaluateBatch(xs, new double[xs.length]));
+        Check.equal("message", "Division by zero!", e.getMessage());
+    }
+}
@@ -0,0 +1,70 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Keys, eviction and copies of the expression cache
+final class ExpressionCacheTest {
+    static void testNormalizedTextSharesAnEntry() {
+        ExpressionCache cache = new ExpressionCache(16);
+        ExpressionCache.CachedExpression first = cache.get("X^2 + 1");
+        Check.isTrue("same entry", first == cache.get("x^2+1"));
+        Check.equal("hits", 1L, cache.hits());
+        Check.equal("misses", 1L, cache.misses());
+        Check.isTrue("other variables, other entry", first != cache.get("x^2+1", "x", "a"));
+        Check.equal("normalized", "2*exp(x)", ExpressionCache.normalize(" 2 * E^X "));
+    }
+
+    static void testLeastRecentlyUsedIsEvicted() {
+        ExpressionCache cache = new ExpressionCache(1);
+        cache.get("x + 1");
+        cache.get("x + 1");
+        cache.get("x + 2");
+        Check.equal("evictions", 1L, cache.evictions());
+        cache.get("x + 1");
+        Check.equal("evicted entry is a miss", 3L, cache.misses());
+
+        ExpressionCache bounded = new ExpressionCache(100);
+        for (int i = 0; i < 1000; i++) {
+            bounded.get("x + " + i);
+        }
+        Check.equal("size", 100, bounded.size());
+        Check.equal("evictions", 900L, bounded.evictions());
+        bounded.clear();
+        Check.equal("cleared", 0, bounded.size());
+    }
+
+    static void testCallersGetCopies() {
+        ExpressionCache cache = new ExpressionCache(16);
+        CompiledFunction a = cache.function("x + p", "x", "p").setParameter("p", 1);
+        CompiledFunction b = cache.function("x + p", "x", "p").setParameter("p", 100);
+        Check.close("first copy", 3, a.applyAsDouble(2), 0);
+        Check.close("second copy", 102, b.applyAsDouble(2), 0);
+        Check.close("derivative", 3, cache.derivative("x^3 / 3").applyAsDouble(Math.sqrt(3)), 1e-14);
+    }
+
+    static void testParseErrorsAreNotCached() {
+        ExpressionCache cache = new ExpressionCache(16);
+        Check.fails("unbalanced", IllegalArgumentException.class, () -> cache.get("(x + 1"));
+        Check.equal("nothing stored", 0, cache.size());
+    }
+
+    static void testConcurrentLookups() throws Exception {
+        ExpressionCache cache = new ExpressionCache(64);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Double>> results = new ArrayList<>();
+            for (int t = 0; t < 64; t++) {
+                int offset = t % 4;
+                results.add(pool.submit(() -> cache.function("sin(x) + " + offset).applyAsDouble(0)));
+            }
+            for (int t = 0; t < results.size(); t++) {
+                Check.close("thread " + t, t % 4, results.get(t).get(), 0);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        Check.equal("one entry per function", 4, cache.size());
+    }
+}
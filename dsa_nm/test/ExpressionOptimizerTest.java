@@ -0,0 +1,87 @@
+import net.objecthunter.exp4j.Expression;
+import net.objecthunter.exp4j.ExpressionBuilder;
+
+// Rewrites of the optimizer, checked against exp4j on the original text for
+// every value and every error
+final class ExpressionOptimizerTest {
+    private static final double[] XS = {-3.5, -1, -0.25, 0, 0.5, 1, 2, 7.25, 1e6, Double.NaN,
+                                        Double.POSITIVE_INFINITY, Double.MIN_VALUE};
+
+    private static String optimized(String function) {
+        return ExpressionOptimizer.optimize(ExpressionNode.parse(function, "x")).toString();
+    }
+
+    private static void rewrites(String function, String expected) {
+        Check.equal(function, expected, optimized(function));
+    }
+
+    // The optimized tree, both printed and parsed again by exp4j and compiled,
+    // gives exp4j's value or exception on the original text
+    private static void matchesExp4j(String function) {
+        Expression original = new ExpressionBuilder(function).variables("x").build();
+        Expression reparsed = new ExpressionBuilder(optimized(function)).variables("x").build();
+        CompiledFunction compiled = ExpressionCompiler.compile(ExpressionNode.parse(function, "x"), "x");
+        for (double x : XS) {
+            String what = function + " at x = " + x;
+            double expected;
+            try {
+                expected = original.setVariable("x", x).evaluate();
+            } catch (ArithmeticException e) {
+                ArithmeticException thrown = Check.fails(what + ", reparsed", ArithmeticException.class,
+                                                         () -> reparsed.setVariable("x", x).evaluate());
+                Check.equal(what + ", reparsed", e.getMessage(), thrown.getMessage());
+                thrown = Check.fails(what + ", compiled", ArithmeticException.class, () -> compiled.applyAsDouble(x));
+                Check.equal(what + ", compiled", e.getMessage(), thrown.getMessage());
+                continue;
+            }
+            Check.relative(what + ", reparsed", expected, reparsed.setVariable("x", x).evaluate(), 1e-14);
+            Check.relative(what + ", compiled", expected, compiled.applyAsDouble(x), 1e-14);
+        }
+    }
+
+    static void testRewrites() {
+        rewrites("2*3 + x", "(6 + x)");
+        rewrites("sin(0) + x", "x");
+        rewrites("x*1 + 0", "x");
+        rewrites("x^1", "x");
+        rewrites("-(-x)", "x");
+        rewrites("2*(3*x)", "(6 * x)");
+        rewrites("x^2", "(x * x)");
+        rewrites("pow(x, 3)", "((x * x) * x)");
+        rewrites("x^4", "((x * x) * (x * x))");
+        rewrites("x^0.5", "sqrt(x)");
+        rewrites("e^x", "exp(x)");
+        rewrites("x/4", "(0.25 * x)");
+        rewrites("x/3", "(x / 3)");
+    }
+
+    // u*0, 0/u, u^0 and u-u keep u, so its errors and NaNs survive
+    static void testStrictModeKeepsOperands() {
+        rewrites("(1/x)*0", "(0 * (1 / x))");
+        rewrites("0/x", "(0 / x)");
+        rewrites("x^0", "(x)^(0)");
+        rewrites("x - x", "(x - x)");
+        matchesExp4j("(1/x)*0");
+        matchesExp4j("0/x");
+        matchesExp4j("x^0");
+        matchesExp4j("x - x");
+        matchesExp4j("log(x)*0 + 1");
+    }
+
+    static void testValuesMatch() {
+        matchesExp4j("2*3 + x*1 + 0");
+        matchesExp4j("x^2 + x^3 - x^4");
+        matchesExp4j("sin(x)^2 + sin(x)*cos(x)");
+        matchesExp4j("x^0.5 + e^x");
+        matchesExp4j("x/4 + x/3 - x/0.1");
+        matchesExp4j("2^(3*x) - pow(x, 2)");
+        matchesExp4j("-(-x) * (1 + 1)");
+    }
+
+    static void testErrorsMatch() {
+        matchesExp4j("1 / (x - x)");
+        matchesExp4j("(x % 0) * 0");
+        matchesExp4j("x / (2 - 2)");
+        matchesExp4j("cot(x) + 0");
+    }
+}
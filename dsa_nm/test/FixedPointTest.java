@@ -0,0 +1,37 @@
+// Fixed-point iteration is a loop now, and optionally accelerated
+final class FixedPointTest {
+    private static final double DOTTIE = 0.7390851332151607;
+
+    static void testAccelerationSavesIterations() {
+        IterationRecorder.NoOp plain = IterationRecorder.none();
+        Check.close("plain", DOTTIE, fixed_point.fixedPoint(Math::cos, 1, 1e-12, 200, plain), 1e-11);
+        for (fixed_point.Acceleration acceleration : new fixed_point.Acceleration[] {
+                fixed_point.Acceleration.AITKEN, fixed_point.Acceleration.STEFFENSEN}) {
+            IterationRecorder.NoOp recorder = IterationRecorder.none();
+            double root = fixed_point.fixedPoint(Math::cos, 1, 1e-12, 200, acceleration, recorder);
+            Check.close(acceleration.toString(), DOTTIE, root, 1e-11);
+            Check.isTrue(acceleration + " in fewer iterations", recorder.iterations() < plain.iterations());
+        }
+    }
+
+    static void testLongRunsDoNotOverflowTheStack() {
+        // Contraction factor 0.9999: a few hundred thousand iterations
+        IterationRecorder.NoOp recorder = IterationRecorder.none();
+        double root = fixed_point.fixedPoint(x -> 0.9999 * x + 1e-4, 0, 1e-12, 1_000_000, recorder);
+        Check.close("slow contraction", 1, root, 1e-7);
+        Check.isTrue("many iterations", recorder.iterations() > 100_000);
+    }
+
+    static void testHistoryList() {
+        java.util.ArrayList<fixed_point.IterationData> history = new java.util.ArrayList<>();
+        double root = fixed_point.fixedPoint(Math::cos, 1, 1e-10, 200, fixed_point.Acceleration.STEFFENSEN, history);
+        Check.close("root", DOTTIE, root, 1e-9);
+        Check.isTrue("history kept", !history.isEmpty());
+    }
+
+    static void testInvalidValue() {
+        ArithmeticException e = Check.fails("x^2 from 10", ArithmeticException.class,
+            () -> fixed_point.fixedPoint(x -> x * x, 10, 1e-10, 100, IterationRecorder.none()));
+        Check.isTrue("not a convergence failure", !(e instanceof NotConvergedException));
+    }
+}
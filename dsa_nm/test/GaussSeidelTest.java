@@ -0,0 +1,59 @@
+import java.util.concurrent.ForkJoinPool;
+
+// Gauss-Seidel and SOR against the known solution, and against Jacobi's
+// iteration count
+final class GaussSeidelTest {
+    private static final int K = 30;
+
+    static void testFasterThanJacobi() {
+        SparseMatrix a = TestSystems.poisson(K, 0.01);
+        double[] expected = TestSystems.solution(a.rows);
+        double[] b = TestSystems.rightHandSide(a, expected);
+
+        IterationRecorder.NoOp jacobi = IterationRecorder.none();
+        jacobi_method.solveJacobi(a, b, 1e-10, 100_000, jacobi);
+        IterationRecorder.NoOp gaussSeidel = IterationRecorder.none();
+        Check.close("Gauss-Seidel", expected, gauss_seidel.solveGaussSeidel(a, b, 1e-10, 100_000, gaussSeidel, null), 1e-7);
+        IterationRecorder.NoOp sor = IterationRecorder.none();
+        Check.close("SOR", expected, gauss_seidel.solveSOR(a, b, 0, 1e-10, 100_000, sor, null), 1e-7);
+
+        Check.isTrue("Gauss-Seidel beats Jacobi", gaussSeidel.iterations() < jacobi.iterations());
+        Check.isTrue("SOR beats Gauss-Seidel several times over", 4 * sor.iterations() < gaussSeidel.iterations());
+    }
+
+    static void testEstimatedOmega() {
+        // Young's optimal factor for the 5-point Laplacian
+        double young = 2 / (1 + Math.sin(Math.PI / (K + 1)));
+        Check.close("omega", young, gauss_seidel.estimateOmega(TestSystems.poisson(K, 0)), 0.01);
+        Check.fails("omega of 2", IllegalArgumentException.class,
+            () -> gauss_seidel.solveSOR(TestSystems.poisson(3, 0), new double[9], 2, 1e-10, 10, IterationRecorder.none(), null));
+    }
+
+    static void testRedBlackOrdering() {
+        SparseMatrix a = TestSystems.poisson(K, 0.01);
+        int[][] colours = a.colourRows();
+        Check.equal("red and black", 2, colours.length);
+        for (int[] colour : colours) {
+            for (int i : colour) {
+                for (int j : colour) {
+                    Check.isTrue("rows " + i + " and " + j + " independent", i == j || a.get(i, j) == 0);
+                }
+            }
+        }
+
+        double[] expected = TestSystems.solution(a.rows);
+        double[] b = TestSystems.rightHandSide(a, expected);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Check.close("multicolour SOR", expected, gauss_seidel.solveSOR(a, b, 0, 1e-10, 100_000, IterationRecorder.none(), pool), 1e-7);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    static void testDenseEquations() {
+        String[] equations = {"4x - y + z = 1", "-2x + 6y + z = 9", "x + y + 5z = -2"};
+        double[] x = gauss_seidel.solveSOR(equations, 1.1, 1e-12, 500, IterationRecorder.none());
+        Check.close("3 unknowns", new double[] {1, 2, -1}, x, 1e-10);
+    }
+}
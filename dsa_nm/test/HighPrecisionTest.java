@@ -0,0 +1,57 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Roots to more digits than a double holds, against reference values
+final class HighPrecisionTest {
+    private static final BigDecimal SQRT_2 = new BigDecimal("1.41421356237309504880168872420969807856967187537694807317668");
+    private static final BigDecimal THIRD = BigDecimal.ONE.divide(new BigDecimal(3), 60, RoundingMode.HALF_EVEN);
+    // First positive root of tan(x) = x
+    private static final BigDecimal TAN_X_X = new BigDecimal("4.49340945790906417530788092728032208221558387229009");
+
+    private static void within(String what, BigDecimal expected, HighPrecision.Result result, double tolerance) {
+        BigDecimal error = result.root.subtract(expected).abs();
+        Check.isTrue(what + ": " + result + " is " + error + " off", error.compareTo(new BigDecimal(tolerance)) <= 0);
+    }
+
+    static void testDigitsAndTiers() {
+        Check.equal("1e-10 at 1", 12, HighPrecision.digitsFor(1e-10, 1));
+        Check.equal("1e-30 at 100", 34, HighPrecision.digitsFor(1e-30, 100));
+        Check.equal("double", HighPrecision.Tier.DOUBLE, HighPrecision.tier(15));
+        Check.equal("double-double", HighPrecision.Tier.DOUBLE_DOUBLE, HighPrecision.tier(30));
+        Check.equal("decimal", HighPrecision.Tier.DECIMAL, HighPrecision.tier(31));
+        Check.fails("zero tolerance", IllegalArgumentException.class, () -> HighPrecision.digitsFor(0, 1));
+    }
+
+    static void testEveryMethod() {
+        within("newton", SQRT_2, HighPrecision.newton("x^2 - 2", 1, 1e-30, 0, 100, IterationRecorder.none()), 1e-30);
+        within("secant", THIRD, HighPrecision.secant("3*x - 1", 0, 1, 1e-40, 0, 100, IterationRecorder.none()), 1e-40);
+        within("bisection", THIRD, HighPrecision.bisection("3*x - 1", 0, 1, 1e-25, 0, 1000, IterationRecorder.none()), 1e-25);
+        within("double-double", SQRT_2, HighPrecision.newton("x^2 - 2", 1, 1e-26, 29, 100, IterationRecorder.none()), 1e-26);
+
+        HighPrecision.Result plain = HighPrecision.newton("x^2 - 2", 1, 1e-10, 0, 100, IterationRecorder.none());
+        Check.equal("stays in double", HighPrecision.Tier.DOUBLE, plain.tier);
+        Check.equal("no refinements", 0, plain.refinements);
+        within("double", SQRT_2, plain, 1e-10);
+    }
+
+    static void testTranscendentalRoot() {
+        IterationRecorder.Columnar recorder = IterationRecorder.full();
+        HighPrecision.Result result = HighPrecision.newton("tan(x) - x", 4.5, 1e-45, 0, 100, recorder);
+        within("tan(x) - x", TAN_X_X, result, 1e-45);
+        Check.equal("decimal", HighPrecision.Tier.DECIMAL, result.tier);
+        Check.isTrue("a few extended iterations", result.refinements > 0 && result.refinements < 10);
+        Check.isTrue("recorded after the double phase", recorder.rows() > result.refinements);
+    }
+
+    static void testCancellationAddsDigits() {
+        // f cancels 40 digits, far more than the guard digits cover
+        HighPrecision.Result result = HighPrecision.newton("(1e40 + x) - (1e40 + 1.5)", 1, 1e-20, 0, 100, IterationRecorder.none());
+        within("root", new BigDecimal("1.5"), result, 1e-20);
+        Check.isTrue("digits escalated to " + result.digits, result.digits > HighPrecision.digitsFor(1e-20, 1.5));
+    }
+
+    static void testNotConverged() {
+        Check.fails("x^2 + 1", NotConvergedException.class,
+            () -> HighPrecision.newton("x^2 + 1", 0.5, 1e-30, 0, 20, IterationRecorder.none()));
+    }
+}
@@ -0,0 +1,67 @@
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.event.TableModelEvent;
+
+// The table model over a history that is still being recorded
+final class HistoryTableModelTest {
+    static void testRowsAppearAsTheyArrive() {
+        IterationRecorder.Columnar history = IterationRecorder.full();
+        history.start("x", "f(x)");
+        HistoryTableModel model = new HistoryTableModel(new String[] {"Iteration", "x", "f(x)"});
+        List<TableModelEvent> events = new ArrayList<>();
+        model.addTableModelListener(events::add);
+
+        model.attach(history, (h, row, column) -> h.get(row, column - 1));
+        for (int i = 0; i < 10; i++) {
+            history.record(new double[] {i, i * i});
+        }
+        Check.equal("rows before rowsAvailable", 0, model.getRowCount());
+        model.rowsAvailable(4);
+        Check.equal("rows shown", 4, model.getRowCount());
+        TableModelEvent inserted = events.get(events.size() - 1);
+        Check.equal("insert event", TableModelEvent.INSERT, inserted.getType());
+        Check.equal("first inserted row", 0, inserted.getFirstRow());
+        Check.equal("last inserted row", 3, inserted.getLastRow());
+
+        model.rowsAvailable(2);
+        Check.equal("fewer rows are ignored", 4, model.getRowCount());
+        model.complete();
+        Check.equal("complete shows every row", 10, model.getRowCount());
+        Check.equal("iteration number", 10, model.getValueAt(9, 0));
+        Check.equal("cell", 81.0, model.getValueAt(9, 2));
+        Check.equal("column name", "f(x)", model.getColumnName(2));
+    }
+
+    static void testCellsAreFormattedOnDemand() {
+        IterationRecorder.Columnar history = IterationRecorder.full();
+        history.start("x");
+        for (int i = 0; i < 100_000; i++) {
+            history.record(new double[] {i});
+        }
+        int[] formatted = new int[1];
+        HistoryTableModel model = new HistoryTableModel(new String[] {"Iteration", "x"});
+        model.attach(history, (h, row, column) -> {
+            formatted[0]++;
+            return String.format("%.2f", h.get(row, column - 1));
+        });
+        model.complete();
+        Check.equal("rows", 100_000, model.getRowCount());
+        Check.equal("nothing formatted yet", 0, formatted[0]);
+        Check.equal("one cell", "99999.00", model.getValueAt(99_999, 1));
+        Check.equal("only that cell formatted", 1, formatted[0]);
+    }
+
+    static void testSetColumnsClears() {
+        IterationRecorder.Columnar history = IterationRecorder.full();
+        history.start("x");
+        history.record(new double[] {1});
+        HistoryTableModel model = new HistoryTableModel(new String[] {"Iteration", "x"});
+        model.attach(history, (h, row, column) -> h.get(row, column - 1));
+        model.complete();
+        model.setColumns(new String[] {"Iteration", "a", "b"});
+        Check.equal("no rows", 0, model.getRowCount());
+        Check.equal("new columns", 3, model.getColumnCount());
+        model.complete();
+        Check.equal("nothing attached", 0, model.getRowCount());
+    }
+}
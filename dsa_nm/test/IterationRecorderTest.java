@@ -0,0 +1,65 @@
+import java.util.Stack;
+
+// What each recorder keeps of the rows written into it
+final class IterationRecorderTest {
+    // Records n rows (i, 10 i) through one reused array, as the solvers do
+    private static void fill(IterationRecorder recorder, int n) {
+        recorder.start("i", "10i");
+        double[] row = new double[2];
+        for (int i = 0; i < n; i++) {
+            row[0] = i;
+            row[1] = 10 * i;
+            recorder.record(row);
+        }
+    }
+
+    static void testColumnarKeepsEveryRow() {
+        IterationRecorder.Columnar recorder = IterationRecorder.full();
+        fill(recorder, 1000);
+        Check.equal("rows", 1000, recorder.rows());
+        Check.equal("iterations", 1000, recorder.iterations());
+        Check.equal("columns", "10i", recorder.columns()[1]);
+        for (int i = 0; i < 1000; i++) {
+            Check.close("row " + i, 10 * i, recorder.get(i, 1), 0);
+        }
+        Check.close("column array", 999, recorder.column(0)[999], 0);
+        Check.fails("row past the end", IndexOutOfBoundsException.class, () -> recorder.get(1000, 0));
+
+        fill(recorder, 3);
+        Check.equal("start resets", 3, recorder.rows());
+    }
+
+    static void testRingBufferKeepsLastRows() {
+        IterationRecorder.RingBuffer recorder = IterationRecorder.lastRows(8);
+        fill(recorder, 20);
+        Check.equal("rows", 8, recorder.rows());
+        Check.equal("iterations", 20, recorder.iterations());
+        for (int row = 0; row < 8; row++) {
+            Check.equal("iteration of row " + row, 13 + row, recorder.iterationOf(row));
+            Check.close("row " + row, 12 + row, recorder.get(row, 0), 0);
+        }
+        fill(recorder, 5);
+        Check.equal("fewer rows than capacity", 5, recorder.rows());
+        Check.close("first row after restart", 0, recorder.get(0, 0), 0);
+        Check.fails("zero capacity", IllegalArgumentException.class, () -> IterationRecorder.lastRows(0));
+    }
+
+    static void testNoOpOnlyCounts() {
+        IterationRecorder.NoOp recorder = IterationRecorder.none();
+        fill(recorder, 42);
+        Check.equal("iterations", 42, recorder.iterations());
+        Check.equal("rows", 0, recorder.rows());
+        Check.equal("columns", 2, recorder.columns().length);
+    }
+
+    static void testHistoryListMatchesRecorder() {
+        Stack<bisection_method.IterationData> history = new Stack<>();
+        double root = bisection_method.bisectionMethod(x -> x * x - 2, 1, 2, 1e-9, 100, history);
+        IterationRecorder.Columnar recorder = IterationRecorder.full();
+        Check.close("same root", root, bisection_method.bisectionMethod(x -> x * x - 2, 1, 2, 1e-9, 100, recorder), 0);
+        Check.equal("same number of rows", recorder.rows(), history.size());
+        for (int i = 0; i < history.size(); i++) {
+            Check.close("midpoint " + i, recorder.get(i, 2), history.get(i).c, 0);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Parsing and writing the JSON the service and batch front ends use
+final class JsonTest {
+    static void testParse() {
+        Map<String, Object> o = Json.parseObject(
+                " {\"s\": \"a\\\"b\\\\c\\n\\u00e9\", \"n\": -1.5e3, \"i\": 42, \"t\": true, \"f\": false,"
+                + " \"z\": null, \"a\": [1, [2], {}], \"o\": {\"k\": \"v\"}} ");
+        Check.equal("string escapes", "a\"b\\c\n\u00e9", o.get("s"));
+        Check.equal("number", -1500.0, o.get("n"));
+        Check.equal("integers are doubles", 42.0, o.get("i"));
+        Check.equal("true", Boolean.TRUE, o.get("t"));
+        Check.equal("false", Boolean.FALSE, o.get("f"));
+        Check.isTrue("null kept", o.containsKey("z") && o.get("z") == null);
+        Check.equal("array", 3, ((List<?>) o.get("a")).size());
+        Check.equal("nested object", "v", ((Map<?, ?>) o.get("o")).get("k"));
+        Check.equal("key order", Arrays.asList("s", "n", "i", "t", "f", "z", "a", "o"), Arrays.asList(o.keySet().toArray()));
+    }
+
+    static void testMalformedInput() {
+        String[] bad = {"", "{", "{\"a\" 1}", "{\"a\": 1,}", "[1 2]", "{\"a\": tru}", "\"open", "{} x", "01x"};
+        for (String text : bad) {
+            Check.fails("'" + text + "'", IllegalArgumentException.class, () -> Json.parse(text));
+        }
+        Check.fails("array is not an object", IllegalArgumentException.class, () -> Json.parseObject("[1]"));
+
+        String arrays = "1", objects = "1";
+        for (int i = 0; i < Json.MAX_DEPTH; i++) {
+            arrays = "[" + arrays + "]";
+            objects = "{\"a\": " + objects + "}";
+        }
+        Check.isTrue("deepest arrays", Json.parse(arrays) instanceof List);
+        Check.isTrue("deepest objects", Json.parse(objects) instanceof Map);
+        String deeperArrays = "[" + arrays + "]", deeperObjects = "[" + objects + "]";
+        Check.fails("one level more", IllegalArgumentException.class, () -> Json.parse(deeperArrays));
+        Check.fails("one level more", IllegalArgumentException.class, () -> Json.parse(deeperObjects));
+    }
+
+    static void testWrite() {
+        Map<String, Object> o = new LinkedHashMap<>();
+        o.put("root", 1.5);
+        o.put("whole", 3.0);
+        o.put("nan", Double.NaN);
+        o.put("ok", true);
+        o.put("text", "tab\there \"quoted\"\u0001");
+        o.put("vector", new double[] {1, 0.25});
+        o.put("rows", new double[][] {{1, 2}, {3, 4}});
+        o.put("names", new String[] {"x", "f(x)"});
+        o.put("none", null);
+        Check.equal("written", "{\"root\":1.5,\"whole\":3,\"nan\":null,\"ok\":true,"
+                + "\"text\":\"tab\\there \\\"quoted\\\"\\u0001\",\"vector\":[1,0.25],\"rows\":[[1,2],[3,4]],"
+                + "\"names\":[\"x\",\"f(x)\"],\"none\":null}", Json.write(o));
+    }
+
+    static void testRoundTrip() {
+        Map<String, Object> o = new LinkedHashMap<>();
+        o.put("pi", Math.PI);
+        o.put("tiny", 1e-300);
+        o.put("list", Arrays.asList("a", 2.5, Boolean.FALSE));
+        Check.equal("round trip", o, Json.parse(Json.write(o)));
+    }
+}
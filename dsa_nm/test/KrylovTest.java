@@ -0,0 +1,84 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+// CG, BiCGSTAB and GMRES against the known solution, and against Jacobi's
+// iteration count
+final class KrylovTest {
+    private static final int K = 30;
+
+    // Convection-diffusion on a k x k grid: the Poisson stencil with the
+    // horizontal neighbours weighted unevenly, so A is not symmetric
+    private static SparseMatrix convectionDiffusion(int k) {
+        int n = k * k;
+        SparseMatrix.Builder builder = new SparseMatrix.Builder(n, n);
+        for (int i = 0; i < k; i++) {
+            for (int j = 0; j < k; j++) {
+                int row = i * k + j;
+                builder.add(row, row, 4);
+                if (i > 0) builder.add(row, row - k, -1);
+                if (i < k - 1) builder.add(row, row + k, -1);
+                if (j > 0) builder.add(row, row - 1, -1.6);
+                if (j < k - 1) builder.add(row, row + 1, -0.4);
+            }
+        }
+        return builder.build();
+    }
+
+    static void testSymmetricSystem() {
+        SparseMatrix a = TestSystems.poisson(K, 0);
+        double[] expected = TestSystems.solution(a.rows);
+        double[] b = TestSystems.rightHandSide(a, expected);
+
+        IterationRecorder.NoOp cg = IterationRecorder.none();
+        Check.close("CG", expected, krylov_methods.solveCG(a, b, 1e-12, 1000, cg, null), 1e-9);
+        Check.close("CG on a pool", expected, krylov_methods.solveCG(a, b, 1e-12, 1000, IterationRecorder.none(),
+                                                                      ForkJoinPool.commonPool()), 1e-9);
+        Check.close("BiCGSTAB", expected, krylov_methods.solveBiCGSTAB(a, b, 1e-12, 1000, IterationRecorder.none(), null), 1e-9);
+        Check.close("GMRES", expected, krylov_methods.solveGMRES(a, b, 0, 1e-12, 1000, IterationRecorder.none(), null), 1e-9);
+
+        // Without a diagonal shift Jacobi needs thousands of sweeps; CG about
+        // as many iterations as the grid is wide
+        IterationRecorder.NoOp jacobi = IterationRecorder.none();
+        jacobi_method.solveJacobi(TestSystems.poisson(K, 0.01), TestSystems.rightHandSide(TestSystems.poisson(K, 0.01), expected),
+                                  1e-10, 100_000, jacobi);
+        Check.isTrue("CG took " + cg.iterations(), cg.iterations() < 4 * K);
+        Check.isTrue("CG beats Jacobi", 10 * cg.iterations() < jacobi.iterations());
+    }
+
+    static void testNonsymmetricSystem() {
+        SparseMatrix a = convectionDiffusion(K);
+        double[] expected = TestSystems.solution(a.rows);
+        double[] b = TestSystems.rightHandSide(a, expected);
+
+        Check.close("BiCGSTAB", expected, krylov_methods.solveBiCGSTAB(a, b, 1e-12, 1000, IterationRecorder.none(), null), 1e-9);
+        Check.close("GMRES(30)", expected, krylov_methods.solveGMRES(a, b, 30, 1e-12, 2000, IterationRecorder.none(), null), 1e-9);
+        Check.close("GMRES(10)", expected, krylov_methods.solveGMRES(a, b, 10, 1e-12, 5000, IterationRecorder.none(), null), 1e-9);
+        Check.fails("CG", IllegalArgumentException.class,
+            () -> krylov_methods.solveCG(a, b, 1e-12, 1000, IterationRecorder.none(), null));
+    }
+
+    static void testDenseEquations() {
+        String[] equations = {"4x - y + z = 1", "-2x + 6y + z = 9", "x + y + 5z = -2"};
+        double[] expected = {1, 2, -1};
+        IterationRecorder.Columnar history = IterationRecorder.full();
+        Check.close("BiCGSTAB", expected, krylov_methods.solveBiCGSTAB(equations, 1e-12, 100, history), 1e-10);
+        Check.equal("columns", "[x, y, z, residual]", Arrays.toString(history.columns()));
+        Check.isTrue("last residual", history.get(history.rows() - 1, 3) < 1e-12);
+        Check.close("GMRES", expected, krylov_methods.solveGMRES(equations, 0, 1e-12, 100, IterationRecorder.none()), 1e-10);
+        Check.close("CG", new double[] {1, 2}, krylov_methods.solveCG(new String[] {"2x + y = 4", "x + 3y = 7"}, 1e-12, 10,
+                                                                      IterationRecorder.none()), 1e-10);
+    }
+
+    static void testFailures() {
+        SparseMatrix a = TestSystems.poisson(K, 0);
+        double[] b = TestSystems.rightHandSide(a, TestSystems.solution(a.rows));
+        IterationRecorder.NoOp recorder = IterationRecorder.none();
+        krylov_methods.solveCG(a, b, 1e-12, 5, recorder, null);
+        Check.equal("stops at maxIterations", 5, recorder.iterations());
+
+        Check.fails("negative diagonal", ArithmeticException.class,
+            () -> krylov_methods.solveCG(new String[] {"-x + y = 1", "x + 2y = 1"}, 1e-12, 10, IterationRecorder.none()));
+        Check.fails("right-hand side", IllegalArgumentException.class,
+            () -> krylov_methods.solveGMRES(a, new double[3], 0, 1e-12, 10, IterationRecorder.none(), null));
+    }
+}
@@ -0,0 +1,110 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+// Newton and Broyden on nonlinear systems with known solutions, and the dense
+// LU factorization under them
+final class NewtonSystemTest {
+    private static final String[] CIRCLE_AND_HYPERBOLA = {"x^2 + y^2 = 4", "x*y = 1"};
+
+    private static int factorizations(IterationRecorder.Columnar recorder) {
+        int count = 0;
+        for (int i = 0; i < recorder.rows(); i++) {
+            count += (int) recorder.get(i, 2);
+        }
+        return count;
+    }
+
+    // Broyden's tridiagonal function (3 - 2x_i) x_i - x_{i-1} - 2 x_{i+1} + 1 = 0
+    private static NonlinearSystem tridiagonal(int n, NonlinearSystem.Jacobian mode) {
+        String[] equations = new String[n];
+        String[] variables = new String[n];
+        for (int i = 0; i < n; i++) {
+            variables[i] = "x" + i;
+            equations[i] = "(3 - 2*x" + i + ")*x" + i + (i > 0 ? " - x" + (i - 1) : "")
+                    + (i < n - 1 ? " - 2*x" + (i + 1) : "") + " + 1 = 0";
+        }
+        return new NonlinearSystem(equations, variables, mode);
+    }
+
+    static void testCircleAndHyperbola() {
+        double x = Math.sqrt(2 + Math.sqrt(3));
+        double[] expected = {x, 1 / x};
+        for (NonlinearSystem.Jacobian mode : NonlinearSystem.Jacobian.values()) {
+            NonlinearSystem system = new NonlinearSystem(CIRCLE_AND_HYPERBOLA, null, mode);
+            Check.equal("variables", "[x, y]", Arrays.toString(system.variables()));
+            for (newton_system.Update update : newton_system.Update.values()) {
+                double[] solution = newton_system.solve(system, new double[] {2, 0.5}, 1e-12, 50, update,
+                                                        IterationRecorder.none(), null);
+                Check.close(mode + ", " + update, expected, solution, 1e-10);
+            }
+        }
+    }
+
+    static void testBroydenFactorsLessOften() {
+        int n = 200;
+        NonlinearSystem system = tridiagonal(n, NonlinearSystem.Jacobian.SYMBOLIC);
+        double[] x0 = new double[n];
+        Arrays.fill(x0, -1);
+        IterationRecorder.Columnar newton = IterationRecorder.full();
+        IterationRecorder.Columnar broyden = IterationRecorder.full();
+        double[] a = newton_system.solve(system, x0, 1e-12, 50, newton_system.Update.NEWTON, newton, ForkJoinPool.commonPool());
+        double[] b = newton_system.solve(system, x0, 1e-12, 50, newton_system.Update.BROYDEN, broyden, ForkJoinPool.commonPool());
+
+        double[] f = new double[n];
+        Check.isTrue("Newton residual", system.evaluate(a, f, null) < 1e-10);
+        Check.isTrue("Broyden residual", system.evaluate(b, f, null) < 1e-10);
+        Check.close("same solution", a, b, 1e-9);
+        Check.equal("Newton factors every step", newton.rows(), factorizations(newton));
+        Check.isTrue("Broyden factors fewer times", factorizations(broyden) < factorizations(newton));
+    }
+
+    static void testFailures() {
+        NonlinearSystem noRealRoot = new NonlinearSystem(new String[] {"x^2 + 1 = 0"}, null, NonlinearSystem.Jacobian.SYMBOLIC);
+        NotConvergedException e = Check.fails("x^2 + 1", NotConvergedException.class,
+            () -> newton_system.solve(noRealRoot, new double[] {0.5}, 1e-12, 10, newton_system.Update.NEWTON,
+                                      IterationRecorder.none(), null));
+        Check.equal("iterations", 10, e.iterations());
+        Check.equal("last iterate", 1, e.solution().length);
+
+        NonlinearSystem square = new NonlinearSystem(new String[] {"x^2 = 2"}, null, NonlinearSystem.Jacobian.SYMBOLIC);
+        Check.fails("singular Jacobian", ArithmeticException.class,
+            () -> newton_system.solve(square, new double[] {0}, 1e-12, 10, newton_system.Update.NEWTON, IterationRecorder.none(), null));
+        Check.fails("initial values", IllegalArgumentException.class,
+            () -> newton_system.solve(square, new double[] {1, 2}, 1e-12, 10, newton_system.Update.NEWTON, IterationRecorder.none(), null));
+        Check.fails("not square", IllegalArgumentException.class,
+            () -> new NonlinearSystem(new String[] {"x + y = 1"}, null, NonlinearSystem.Jacobian.SYMBOLIC));
+    }
+
+    static void testDenseLU() {
+        // Larger than one 64-column panel, so the blocked update and the pool are used
+        int n = 150;
+        Random random = new Random(7);
+        double[][] a = new double[n][n];
+        double[] expected = new double[n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                a[i][j] = random.nextDouble() - 0.5;
+            }
+            expected[i] = i % 7 - 3;
+        }
+        double[] b = new double[n];
+        double[] bt = new double[n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                b[i] += a[i][j] * expected[j];
+                bt[i] += a[j][i] * expected[j];
+            }
+        }
+
+        DenseLU lu = DenseLU.factor(a, ForkJoinPool.commonPool());
+        double[] x = new double[n];
+        lu.solve(b, x);
+        Check.close("A x = b", expected, x, 1e-9);
+        lu.solveTransposed(bt, bt);
+        Check.close("A^T x = b in place", expected, bt, 1e-9);
+
+        Check.fails("singular", ArithmeticException.class, () -> DenseLU.factor(new double[][] {{1, 2}, {2, 4}}, null));
+        Check.fails("not square", IllegalArgumentException.class, () -> DenseLU.factor(new double[][] {{1, 2}}, null));
+    }
+}
@@ -0,0 +1,127 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+// .nmcsr conversion and mapping, off-heap vectors and the out-of-core Jacobi
+final class OffHeapTest {
+    private static final int K = 20;
+
+    // The lower triangle of a, as a symmetric coordinate file, in reverse order
+    // and with every diagonal entry split in two so rows need sorting and merging
+    private static Path writeSymmetric(Path directory, SparseMatrix a) throws IOException {
+        Path file = directory.resolve("a.mtx");
+        int lower = 0;
+        for (int i = 0; i < a.rows; i++) {
+            for (int k = a.rowPtr[i]; k < a.rowPtr[i + 1]; k++) {
+                lower += a.colIdx[k] < i ? 1 : a.colIdx[k] == i ? 2 : 0;
+            }
+        }
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.US_ASCII))) {
+            out.println("%%MatrixMarket matrix coordinate real symmetric");
+            out.println("% written by OffHeapTest");
+            out.println(a.rows + " " + a.cols + " " + lower);
+            for (int i = a.rows - 1; i >= 0; i--) {
+                for (int k = a.rowPtr[i + 1] - 1; k >= a.rowPtr[i]; k--) {
+                    int j = a.colIdx[k];
+                    if (j == i) {
+                        out.println((i + 1) + " " + (j + 1) + " " + a.values[k] / 2);
+                        out.println((i + 1) + " " + (j + 1) + " " + a.values[k] / 2);
+                    } else if (j < i) {
+                        out.println((i + 1) + " " + (j + 1) + " " + a.values[k]);
+                    }
+                }
+            }
+        }
+        return file;
+    }
+
+    private static void sameMatrix(String what, SparseMatrix expected, OffHeapMatrix actual) {
+        Check.equal(what + " rows", expected.rows, actual.rows);
+        Check.equal(what + " nnz", (long) expected.nnz(), actual.nnz());
+        for (int i = 0; i < expected.rows; i++) {
+            for (int j = 0; j < expected.cols; j++) {
+                if (expected.get(i, j) != actual.get(i, j)) {
+                    Check.close(what + " (" + i + ", " + j + ")", expected.get(i, j), actual.get(i, j), 0);
+                }
+            }
+        }
+    }
+
+    static void testConvertAndReopen() throws IOException {
+        SparseMatrix a = TestSystems.poisson(K, 0.01);
+        Path directory = Files.createTempDirectory("nm-offheap");
+        Path mtx = writeSymmetric(directory, a);
+        Path nmcsr = directory.resolve("a.nmcsr");
+        try {
+            sameMatrix("converted", a, OffHeapMatrix.convert(mtx, nmcsr));
+            sameMatrix("reopened", a, OffHeapMatrix.open(nmcsr));
+            sameMatrix("copied", a, OffHeapMatrix.copyOf(a));
+
+            Files.write(mtx, "NMCSR001 but far too short".getBytes(StandardCharsets.US_ASCII));
+            Check.fails("truncated", IOException.class, () -> OffHeapMatrix.open(mtx));
+        } finally {
+            Files.delete(mtx);
+            Files.delete(nmcsr);
+            Files.delete(directory);
+        }
+    }
+
+    static void testVectors() throws IOException {
+        Path directory = Files.createTempDirectory("nm-offheap");
+        Path array = directory.resolve("b.mtx");
+        Path coordinate = directory.resolve("c.mtx");
+        Path mapped = directory.resolve("x.bin");
+        try {
+            Files.write(array, ("%%MatrixMarket matrix array real general\n3 1\n1.5\n-2\n1e3\n").getBytes(StandardCharsets.US_ASCII));
+            Check.close("array", new double[] {1.5, -2, 1000}, OffHeapVector.readMatrixMarket(array).toArray(3), 0);
+            Files.write(coordinate, ("%%MatrixMarket matrix coordinate real general\n4 1 3\n4 1 2\n1 1 1\n4 1 0.5\n")
+                                    .getBytes(StandardCharsets.US_ASCII));
+            Check.close("coordinate, duplicates summed", new double[] {1, 0, 0, 2.5},
+                        OffHeapVector.readMatrixMarket(coordinate).toArray(4), 0);
+            Files.write(coordinate, "%%MatrixMarket matrix array real general\n2 2\n1\n2\n3\n4\n".getBytes(StandardCharsets.US_ASCII));
+            Check.fails("two columns", IOException.class, () -> OffHeapVector.readMatrixMarket(coordinate));
+
+            OffHeapVector x = OffHeapVector.map(mapped, 1000);
+            x.fill(0.25);
+            x.set(999, -1);
+            x.force();
+            Check.equal("file size", 8000L, Files.size(mapped));
+            OffHeapVector again = OffHeapVector.map(mapped, 1000);
+            Check.close("kept on remapping", 0.25, again.get(0), 0);
+            Check.close("last entry", -1, again.get(999), 0);
+        } finally {
+            Files.delete(array);
+            Files.delete(coordinate);
+            Files.delete(mapped);
+            Files.delete(directory);
+        }
+    }
+
+    static void testOutOfCoreJacobi() throws IOException {
+        SparseMatrix a = TestSystems.poisson(K, 0.01);
+        double[] expected = TestSystems.solution(a.rows);
+        double[] b = TestSystems.rightHandSide(a, expected);
+        Path directory = Files.createTempDirectory("nm-offheap");
+        Path mtx = writeSymmetric(directory, a);
+        Path nmcsr = directory.resolve("a.nmcsr");
+        try {
+            OffHeapMatrix m = OffHeapMatrix.convert(mtx, nmcsr);
+            IterationRecorder.NoOp offHeap = IterationRecorder.none();
+            OffHeapVector x = jacobi_method.solveJacobi(m, OffHeapVector.of(b), 1e-10, 100_000, offHeap, ForkJoinPool.commonPool());
+            Check.close("solution", expected, x.toArray(a.rows), 1e-7);
+
+            IterationRecorder.NoOp inHeap = IterationRecorder.none();
+            jacobi_method.solveJacobi(a, b, 1e-10, 100_000, inHeap);
+            Check.equal("same sweeps as in the heap", inHeap.iterations(), offHeap.iterations());
+            Check.fails("right-hand side", IllegalArgumentException.class,
+                () -> jacobi_method.solveJacobi(m, OffHeapVector.allocate(3), 1e-10, 10, IterationRecorder.none(), null));
+        } finally {
+            Files.delete(mtx);
+            Files.delete(nmcsr);
+            Files.delete(directory);
+        }
+    }
+}
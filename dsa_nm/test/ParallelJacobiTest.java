@@ -0,0 +1,39 @@
+import java.util.concurrent.ForkJoinPool;
+
+// Row-partitioned sweeps read only the previous iterate, so they must give
+// exactly the serial result
+final class ParallelJacobiTest {
+    static void testSameResultAsSerial() {
+        // 6400 rows, enough to be split into blocks
+        SparseMatrix a = TestSystems.poisson(80, 1);
+        double[] expected = TestSystems.solution(a.rows);
+        double[] b = TestSystems.rightHandSide(a, expected);
+
+        IterationRecorder.Columnar serialHistory = IterationRecorder.full();
+        double[] serial = jacobi_method.solveJacobi(a, b, 1e-12, 10_000, serialHistory);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            IterationRecorder.Columnar parallelHistory = IterationRecorder.full();
+            double[] parallel = jacobi_method.solveJacobi(a, b, 1e-12, 10_000, parallelHistory, pool);
+            Check.close("parallel iterate", serial, parallel, 0);
+            Check.equal("iterations", serialHistory.rows(), parallelHistory.rows());
+            for (int i = 0; i < serialHistory.rows(); i++) {
+                Check.close("error " + i, serialHistory.get(i, 0), parallelHistory.get(i, 0), 0);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        Check.close("solution", expected, serial, 1e-9);
+    }
+
+    static void testSmallSystemsStaySerial() {
+        Check.equal("no pool", 1, jacobi_method.blockCount(100_000, null));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Check.equal("too few rows to split", 1, jacobi_method.blockCount(1000, pool));
+            Check.isTrue("large systems split", jacobi_method.blockCount(100_000, pool) > 1);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+import net.objecthunter.exp4j.ExpressionBuilder;
+
+// Polynomial detection, Horner evaluation and the all-roots solver
+final class PolynomialTest {
+    private static Polynomial of(String function) {
+        return Polynomial.of(new ExpressionBuilder(function).variables("x").build());
+    }
+
+    static void testDetection() {
+        Check.close("expanded", new double[] {-6, 11, -6, 1}, of("(x - 1)*(x - 2)*(x - 3)").coefficients(), 1e-15);
+        Check.close("powers and constant division", new double[] {1, 0, 2, 0, 1.0 / 3},
+                    of("x^4 / 3 + 2*x^2 + 1").coefficients(), 1e-15);
+        Check.equal("leading zeros dropped", 1, of("x^2 - x*x + 2*x").degree());
+        Check.isTrue("sin(x) is not a polynomial", of("sin(x) + x") == null);
+        Check.isTrue("x^0.5 is not a polynomial", of("x^0.5") == null);
+        Check.isTrue("1/x is not a polynomial", of("1/x + 1") == null);
+    }
+
+    static void testEvaluationAndDerivative() {
+        Polynomial p = new Polynomial(1, -3, 0, 2);     // 2x^3 - 3x + 1
+        for (double x : new double[] {-2, 0, 0.5, 3}) {
+            Check.close("p(" + x + ")", 2 * x * x * x - 3 * x + 1, p.applyAsDouble(x), 1e-13);
+            Check.close("p'(" + x + ")", 6 * x * x - 3, p.derivativeAt(x), 1e-13);
+            Check.close("derivative() at " + x, 6 * x * x - 3, p.derivative().applyAsDouble(x), 1e-13);
+        }
+        Check.close("deflate by the root 1", new double[] {-1, 2, 2}, p.deflate(1).coefficients(), 1e-15);
+    }
+
+    static void testRealRoots() {
+        Polynomial.Root[] roots = of("(x - 1)*(x + 2)*(x - 3)*(x + 4)").roots(1e-12, 100, IterationRecorder.none());
+        Check.isTrue("converged", Polynomial.Root.allConverged(roots));
+        double[] expected = {-4, -2, 1, 3};
+        for (int i = 0; i < expected.length; i++) {
+            Check.isTrue("root " + i + " real", roots[i].isReal());
+            Check.close("root " + i, expected[i], roots[i].re, 1e-10);
+        }
+    }
+
+    static void testComplexRoots() {
+        // x^4 - 1: -1, -i, i, 1
+        Polynomial.Root[] roots = new Polynomial(-1, 0, 0, 0, 1).roots(1e-12, 100, IterationRecorder.none());
+        Check.equal("count", 4, roots.length);
+        Check.close("-1", -1, roots[0].re, 1e-10);
+        Check.close("-i", -1, roots[1].im, 1e-10);
+        Check.close("i", 1, roots[2].im, 1e-10);
+        Check.close("1", 1, roots[3].re, 1e-10);
+        Check.equal("format", "0.000 - 1.000i", roots[1].format("%.3f"));
+    }
+
+    static void testWilkinson() {
+        // (x - 1)(x - 2)...(x - 10): ill-conditioned, yet every root to 1e-6
+        Polynomial p = new Polynomial(1);
+        for (int k = 1; k <= 10; k++) {
+            double[] c = p.coefficients();
+            double[] next = new double[c.length + 1];
+            for (int i = 0; i < c.length; i++) {
+                next[i + 1] += c[i];
+                next[i] -= k * c[i];
+            }
+            p = new Polynomial(next);
+        }
+        Polynomial.Root[] roots = p.roots(1e-12, 500, IterationRecorder.none());
+        for (int k = 1; k <= 10; k++) {
+            Check.close("root " + k, k, roots[k - 1].re, 1e-6);
+        }
+    }
+
+    // Multiplied out, (x - 2)^30 is 3^30 times less accurate near x = 2 than as
+    // written, so factored high powers keep the generated code for f and f'
+    static void testFactoredInputIsNotExpanded() {
+        CompiledFunction f = CompiledFunction.of(new ExpressionBuilder("(x - 2)^30").variables("x").build());
+        Check.isTrue("(x - 2)^30 is not expanded", !(f instanceof Polynomial));
+        Check.relative("(x - 2)^30 at 2.5", Math.pow(0.5, 30), f.applyAsDouble(2.5), 1e-14);
+        CompiledFunction df = SymbolicDerivative.compile(new ExpressionBuilder("(x - 2)^30").variables("x").build());
+        Check.relative("derivative at 2.5", 30 * Math.pow(0.5, 29), df.applyAsDouble(2.5), 1e-14);
+
+        double root = 3 + Math.sqrt(0.1);
+        String g = "(x - 3)^12 - 1e-6";
+        // Bisection stops once |f| < tolerance, and f' is only 4e-5 at the root
+        Check.close("bisection", root, bisection_method.bisectionMethod(ExpressionCache.SHARED.function(g), 3, 4, 1e-13, 100,
+                                                                            IterationRecorder.none()), 1e-8);
+        Check.close("newton", root, newton_raphson.newtonRaphson(g, 4, 1e-9, 100, IterationRecorder.none()), 1e-8);
+
+        Check.isTrue("sum of terms", CompiledFunction.of(new ExpressionBuilder("3*x^4 - x/8 + 0.5").variables("x").build())
+                                     instanceof Polynomial);
+        Check.isTrue("short product", of("(x - 1)*(x + 2)*(x - 3)") != null
+                     && Polynomial.forEvaluation(ExpressionNode.parse("(x - 1)*(x + 2)*(x - 3)", "x"), "x") != null);
+    }
+
+    // Parsed from the expression itself, so it also works with -Dnm.interpret=true
+    static void testConsoleParse() {
+        Check.close("factored", new double[] {3, -5, 1, 1}, polynomial_roots.parse("(x - 1)^2*(x + 3)").coefficients(), 0);
+        Polynomial.Root[] roots = polynomial_roots.solve("x^2 - 2", 1e-12, 100, IterationRecorder.none());
+        Check.close("sqrt(2)", Math.sqrt(2), roots[1].re, 1e-12);
+        Check.fails("sin(x)", IllegalArgumentException.class, () -> polynomial_roots.parse("sin(x)"));
+        Check.fails("constant", IllegalArgumentException.class, () -> polynomial_roots.parse("3 + 0*x"));
+    }
+
+    static void testNotConverged() {
+        Polynomial.Root[] roots = new Polynomial(-6, 11, -6, 1).roots(1e-15, 1, IterationRecorder.none());
+        Check.isTrue("one sweep is not enough", !Polynomial.Root.allConverged(roots));
+    }
+}
@@ -0,0 +1,58 @@
+import java.util.function.DoubleUnaryOperator;
+
+// The four single-root solvers on roots known in closed form, and their
+// failures
+final class RootFindingTest {
+    private static final DoubleUnaryOperator CUBIC = x -> x * x * x - 2 * x - 5;
+    private static final double CUBIC_ROOT = 2.0945514815423265;
+
+    static void testBisection() {
+        IterationRecorder.Columnar recorder = IterationRecorder.full();
+        double root = bisection_method.bisectionMethod(CUBIC, 2, 3, 1e-10, 100, recorder);
+        Check.close("bisection", CUBIC_ROOT, root, 1e-10);
+        Check.equal("bisection columns", 6, recorder.columns().length);
+        Check.isTrue("bisection halves the bracket", recorder.iterations() >= 30 && recorder.iterations() <= 40);
+    }
+
+    static void testSecant() {
+        double root = secant_method.secantIteration(CUBIC, 2, 3, 1e-12, 100, IterationRecorder.none());
+        Check.close("secant", CUBIC_ROOT, root, 1e-12);
+    }
+
+    static void testNewton() {
+        double root = newton_raphson.newtonRaphson(Math::cos, x -> -Math.sin(x), 1, 1e-14, 50, IterationRecorder.none());
+        Check.close("newton on cos", Math.PI / 2, root, 1e-14);
+        Check.close("newton from a string", Math.sqrt(2),
+                    newton_raphson.newtonRaphson("x^2 - 2", 1, 1e-14, 50, IterationRecorder.none()), 1e-14);
+    }
+
+    static void testFixedPoint() {
+        // x = cos(x), the Dottie number
+        double root = fixed_point.fixedPoint(Math::cos, 1, 1e-12, 200, IterationRecorder.none());
+        Check.close("fixed point of cos", 0.7390851332151607, root, 1e-10);
+    }
+
+    static void testNotConverged() {
+        NotConvergedException e = Check.fails("newton on x^2 + 1", NotConvergedException.class,
+            () -> newton_raphson.newtonRaphson("x^2 + 1", 0.5, 1e-12, 20, IterationRecorder.none()));
+        Check.equal("iterations", 20, e.iterations());
+        Check.equal("message", NotConvergedException.MESSAGE, e.getMessage());
+
+        e = Check.fails("bisection out of iterations", NotConvergedException.class,
+            () -> bisection_method.bisectionMethod(CUBIC, 2, 3, 1e-15, 5, IterationRecorder.none()));
+        Check.close("bisection estimate", CUBIC_ROOT, e.estimate(), 1.0 / 32);
+
+        // Heading to infinity must not pass for convergence
+        Check.fails("secant on 1/x", ArithmeticException.class,
+            () -> secant_method.secantIteration(x -> 1 / x, 1, 2, 1e-10, 100, IterationRecorder.none()));
+        Check.fails("fixed point of x + 1", NotConvergedException.class,
+            () -> fixed_point.fixedPoint(x -> x + 1, 0, 1e-10, 50, IterationRecorder.none()));
+    }
+
+    static void testInvalidInput() {
+        Check.fails("bracket without a sign change", IllegalArgumentException.class,
+            () -> bisection_method.bisectionMethod(CUBIC, 3, 4, 1e-10, 100, IterationRecorder.none()));
+        Check.fails("fixed point overflowing", ArithmeticException.class,
+            () -> fixed_point.fixedPoint(x -> x * x, 10, 1e-10, 100, IterationRecorder.none()));
+    }
+}
@@ -0,0 +1,51 @@
+import java.util.List;
+
+// Every root in an interval, with no bracket given
+final class RootScannerTest {
+    private static void roots(String function, double a, double b, double... expected) {
+        roots(1e-9, function, a, b, expected);
+    }
+
+    // Within accuracy of the roots; the solvers also stop once |f| < 1e-12,
+    // which leaves a root where f is flat further off
+    private static void roots(double accuracy, String function, double a, double b, double... expected) {
+        for (RootSolverBatch.Method method : new RootSolverBatch.Method[] {
+                RootSolverBatch.Method.BRENT, RootSolverBatch.Method.NEWTON, RootSolverBatch.Method.SECANT}) {
+            List<Double> found = RootScanner.findRoots(function, a, b, 1e-12, method);
+            String what = function + " on [" + a + ", " + b + "] with " + method;
+            Check.equal(what + ": " + found, expected.length, found.size());
+            for (int i = 0; i < expected.length; i++) {
+                Check.close(what + ", root " + i, expected[i], found.get(i), accuracy);
+            }
+        }
+    }
+
+    static void testSignChanges() {
+        roots("sin(x)", -1, 10, 0, Math.PI, 2 * Math.PI, 3 * Math.PI);
+        roots("x^3 - x", -2, 2, -1, 0, 1);
+    }
+
+    static void testCloseAndTangentRoots() {
+        // Two roots 1e-4 apart, far closer than the 1000-point grid; |f'| is
+        // only 1e-4 there
+        roots(1e-7, "(x - 1)*(x - 1.0001)", 0, 10, 1, 1.0001);
+        // Touches zero without a sign change
+        roots("(x - 2)^2", 0, 5, 2);
+    }
+
+    static void testPolesAreNotRoots() {
+        roots("1/x", -1, 1);
+        roots("tan(x)", -1, 4, 0, Math.PI);
+    }
+
+    static void testLogOutsideItsDomain() {
+        roots("log(x) - 1", -5, 5, Math.E);
+    }
+
+    static void testInvalidInput() {
+        Check.fails("empty interval", IllegalArgumentException.class,
+            () -> RootScanner.findRoots("x", 1, 1, 1e-6, RootSolverBatch.Method.BRENT));
+        Check.fails("fixed point", IllegalArgumentException.class,
+            () -> RootScanner.findRoots("x", 0, 1, 1e-6, RootSolverBatch.Method.FIXED_POINT));
+    }
+}
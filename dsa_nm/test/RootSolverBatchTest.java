@@ -0,0 +1,79 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// A parameter sweep across the pool: sqrt(p) as the root of x^2 - p
+final class RootSolverBatchTest {
+    static void testSweepKeepsJobOrder() {
+        List<RootSolverBatch.Job> jobs = new ArrayList<>();
+        for (int p = 1; p <= 500; p++) {
+            switch (p % 5) {
+                case 0:  jobs.add(RootSolverBatch.Job.bisection("x^2 - p", 0, p + 1, 1e-10)); break;
+                case 1:  jobs.add(RootSolverBatch.Job.brent("x^2 - p", 0, p + 1, 1e-12)); break;
+                case 2:  jobs.add(RootSolverBatch.Job.secant("x^2 - p", 1, p, 1e-12)); break;
+                case 3:  jobs.add(RootSolverBatch.Job.newton("x^2 - p", p, 1e-12)); break;
+                default: jobs.add(RootSolverBatch.Job.itp("x^2 - p", 0, p + 1, 1e-12)); break;
+            }
+            jobs.get(jobs.size() - 1).parameter("p", p);
+        }
+        try (RootSolverBatch batch = new RootSolverBatch(4)) {
+            List<RootSolverBatch.Result> results = batch.solve(jobs);
+            Check.equal("result count", jobs.size(), results.size());
+            for (int i = 0; i < results.size(); i++) {
+                RootSolverBatch.Result r = results.get(i);
+                Check.isTrue("job " + i + " succeeded: " + r.error, r.isSuccess());
+                Check.relative("sqrt(" + (i + 1) + ")", Math.sqrt(i + 1), r.root, 1e-9);
+                Check.isTrue("job " + i + " counted iterations", r.iterations > 0);
+            }
+        }
+    }
+
+    static void testFixedPoint() {
+        try (RootSolverBatch batch = new RootSolverBatch(2)) {
+            RootSolverBatch.Result r = batch.solve(listOf(RootSolverBatch.Job.fixedPoint("cos(x)", 1, 1e-12))).get(0);
+            Check.close("x = cos(x)", 0.7390851332151607, r.root, 1e-10);
+        }
+    }
+
+    static void testFailuresAreResults() {
+        try (RootSolverBatch batch = new RootSolverBatch(2)) {
+            List<RootSolverBatch.Result> results = batch.solve(listOf(
+                    RootSolverBatch.Job.bisection("x^2 + 1", -1, 1, 1e-10),
+                    RootSolverBatch.Job.newton("x^2 + 1", 0.5, 1e-12).maxIterations(10),
+                    RootSolverBatch.Job.newton("x^2 - 4", 3, 1e-12)));
+            Check.isTrue("no sign change", !results.get(0).isSuccess());
+            RootSolverBatch.Result notConverged = results.get(1);
+            Check.equal("not converged", NotConvergedException.MESSAGE, notConverged.error);
+            Check.isTrue("no root when not converged", Double.isNaN(notConverged.root));
+            Check.equal("iterations when not converged", 10, notConverged.iterations);
+            Check.close("later jobs still solved", 2, results.get(2).root, 1e-12);
+        }
+    }
+
+    static void testTraceFiles() throws IOException {
+        Path directory = Files.createTempDirectory("nm-batch");
+        try (RootSolverBatch batch = new RootSolverBatch(2)) {
+            batch.traceTo(directory).solve(listOf(RootSolverBatch.Job.newton("x^2 - 2", 1, 1e-12),
+                                                  RootSolverBatch.Job.newton("x^2 - 3", 1, 1e-12)));
+        }
+        Path trace = directory.resolve("newton.nmtrace");
+        Check.isTrue("trace written", Files.size(trace) > 0);
+        try (TraceFile.Reader reader = TraceFile.open(trace)) {
+            Check.equal("one trace per solve", 2, reader.traceCount());
+        } finally {
+            Files.delete(trace);
+            Files.delete(directory);
+        }
+    }
+
+    @SafeVarargs
+    private static <T> List<T> listOf(T... items) {
+        List<T> list = new ArrayList<>();
+        for (T item : items) {
+            list.add(item);
+        }
+        return list;
+    }
+}
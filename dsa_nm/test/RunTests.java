@@ -0,0 +1,73 @@
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Comparator;
+
+// Runs every static no-argument method whose name starts with "test" in the
+// classes below and exits with status 1 if any of them fails.
+//
+// Compile and run from dsa_nm:
+//javac -cp ".;lib\*" -d test-classes *.java bench\Solvers.java test\*.java
+//java -cp "test-classes;lib\*" RunTests
+public class RunTests {
+    private static final Class<?>[] TESTS = {
+        CompiledFunctionTest.class,
+        SymbolicDerivativeTest.class,
+        RootFindingTest.class,
+        RootSolverBatchTest.class,
+        IterationRecorderTest.class,
+        CancellationTest.class,
+        HistoryTableModelTest.class,
+        SparseMatrixTest.class,
+        ParallelJacobiTest.class,
+        GaussSeidelTest.class,
+        BenchmarkHandlesTest.class,
+        FixedPointTest.class,
+        BracketingTest.class,
+        RootScannerTest.class,
+        PolynomialTest.class,
+        ExpressionCacheTest.class,
+        JsonTest.class,
+        SolverServiceTest.class,
+        BatchSolverTest.class,
+        TraceFileTest.class,
+        SolverMetricsTest.class,
+        NewtonSystemTest.class,
+        ExpressionOptimizerTest.class,
+        HighPrecisionTest.class,
+        KrylovTest.class,
+        OffHeapTest.class,
+    };
+
+    public static void main(String[] args) {
+        int run = 0, failed = 0;
+        for (Class<?> test : TESTS) {
+            Method[] methods = test.getDeclaredMethods();
+            Arrays.sort(methods, Comparator.comparing(Method::getName));
+            for (Method method : methods) {
+                if (!method.getName().startsWith("test") || !Modifier.isStatic(method.getModifiers())
+                        || method.getParameterCount() != 0) {
+                    continue;
+                }
+                run++;
+                String name = test.getSimpleName() + "." + method.getName();
+                try {
+                    method.setAccessible(true);
+                    method.invoke(null);
+                    System.out.println("ok   " + name);
+                } catch (InvocationTargetException e) {
+                    failed++;
+                    System.out.println("FAIL " + name + ": " + e.getCause());
+                } catch (IllegalAccessException e) {
+                    failed++;
+                    System.out.println("FAIL " + name + ": " + e);
+                }
+            }
+        }
+        System.out.println(run + " tests, " + failed + " failed");
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+}
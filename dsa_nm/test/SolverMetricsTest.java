@@ -0,0 +1,81 @@
+import java.util.Map;
+import java.util.function.DoubleUnaryOperator;
+
+// Counts, failure reasons and exposition of the per-method metrics. The
+// solvers only report when the JVM runs with -Dnm.metrics=true; measure()
+// itself works either way.
+final class SolverMetricsTest {
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> method(String name) {
+        return (Map<String, Object>) SolverMetrics.snapshot().get(name);
+    }
+
+    private static double solveCounting(DoubleUnaryOperator f, IterationRecorder recorder) {
+        recorder.start("x");
+        double x = 0;
+        for (int i = 0; i < 3; i++) {
+            x += f.applyAsDouble(x) + f.applyAsDouble(x + 1);
+            recorder.record(new double[] {x});
+        }
+        return x;
+    }
+
+    static void testMeasuredRuns() {
+        SolverMetrics.reset();
+        for (int run = 0; run < 2; run++) {
+            IterationRecorder.NoOp recorder = IterationRecorder.none();
+            SolverMetrics.measure("test_scalar", x -> 1, recorder, f -> solveCounting(f, recorder));
+        }
+        Map<String, Object> m = method("test_scalar");
+        Check.equal("runs", 2L, m.get("runs"));
+        Check.equal("evaluations", 12L, m.get("evaluations"));
+        Check.equal("iterations", 6L, m.get("iterations"));
+        Check.equal("no failures", "{}", m.get("failures").toString());
+
+        IterationRecorder.NoOp recorder = IterationRecorder.none();
+        SolverMetrics.measure("test_newton", x -> x, x -> 1, recorder, (f, df) -> f.applyAsDouble(1) + df.applyAsDouble(1));
+        Check.equal("f and f' counted", 2L, method("test_newton").get("evaluations"));
+        SolverMetrics.reset();
+        Check.isTrue("reset", SolverMetrics.snapshot().isEmpty());
+    }
+
+    static void testFailureReasons() {
+        SolverMetrics.reset();
+        for (int tolerance = 1; tolerance <= 3; tolerance++) {
+            String message = "Tolerance " + tolerance + " is too large.";
+            Check.fails("rethrown", IllegalArgumentException.class, () -> SolverMetrics.measure(
+                "test_failing", IterationRecorder.none(), () -> { throw new IllegalArgumentException(message); }));
+        }
+        Check.fails("not converged", NotConvergedException.class, () -> SolverMetrics.measure(
+            "test_failing", IterationRecorder.none(), () -> { throw new NotConvergedException(10, 1.5); }));
+        Map<String, Object> m = method("test_failing");
+        Check.equal("runs", 4L, m.get("runs"));
+        Check.equal("numbers do not split reasons",
+                    "{IllegalArgumentException: Tolerance=3, did not converge within the maximum iterations=1}",
+                    m.get("failures").toString());
+        Check.equal("no message", "ArithmeticException", SolverMetrics.reason(new ArithmeticException()));
+
+        String text = SolverMetrics.text();
+        Check.isTrue(text, text.contains("nm_solver_runs_total{method=\"test_failing\"} 4\n"));
+        Check.isTrue(text, text.contains("nm_solver_failures_total{method=\"test_failing\",reason=\"IllegalArgumentException: Tolerance\"} 3\n"));
+        Check.isTrue(text, text.contains("nm_solver_seconds_count{method=\"test_failing\"} 4\n"));
+        SolverMetrics.reset();
+    }
+
+    static void testSolversReportOnlyWhenEnabled() {
+        SolverMetrics.reset();
+        double[][] system = jacobi_method.parseSystem(new String[] {"4x - y = 3", "x - 5y = -4"});
+        gauss_seidel.solveSOR(system, 1, 1e-12, 100, IterationRecorder.none());
+        gauss_seidel.solveSOR(system, 1, 1e-12, 2, IterationRecorder.none());
+        bisection_method.bisectionMethod(x -> x * x - 2, 0, 2, 1e-10, 100, IterationRecorder.none());
+        if (!SolverMetrics.ENABLED) {
+            Check.isTrue("nothing recorded", SolverMetrics.snapshot().isEmpty());
+            return;
+        }
+        Map<String, Object> sor = method("sor");
+        Check.equal("runs", 2L, sor.get("runs"));
+        Check.equal("flagged by notConverged()", "{did not converge within the maximum iterations=1}", sor.get("failures").toString());
+        Check.isTrue("bisection evaluations", (Long) method("bisection").get("evaluations") > 30);
+        SolverMetrics.reset();
+    }
+}
@@ -0,0 +1,123 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+// Each endpoint over HTTP on a free local port, and the responses for bad
+// input and non-convergence
+final class SolverServiceTest {
+    private static final class Response {
+        final int status;
+        final Map<String, Object> body;
+
+        Response(int status, Map<String, Object> body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private static Response post(SolverService service, String path, String json) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + service.port() + path).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(json.getBytes(StandardCharsets.UTF_8));
+        }
+        int status = connection.getResponseCode();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int n; (n = in.read(buffer)) > 0; ) {
+                bytes.write(buffer, 0, n);
+            }
+            return new Response(status, Json.parseObject(new String(bytes.toByteArray(), StandardCharsets.UTF_8)));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static double number(Response r, String key) {
+        return ((Number) r.body.get(key)).doubleValue();
+    }
+
+    static void testEveryEndpoint() throws IOException {
+        SolverService service = new SolverService(0, 2, 8);
+        service.start();
+        try {
+            Response r = post(service, "/solve/bisection", "{\"function\": \"x^3-x-2\", \"a\": 1, \"b\": 2, \"tolerance\": 1e-10}");
+            Check.equal("bisection status", 200, r.status);
+            Check.close("bisection", 1.5213797068045676, number(r, "root"), 1e-9);
+            Check.equal("converged", Boolean.TRUE, r.body.get("converged"));
+
+            r = post(service, "/solve/newton", "{\"function\": \"x^2-2\", \"x0\": 1, \"tolerance\": 1e-12}");
+            Check.close("newton", Math.sqrt(2), number(r, "root"), 1e-12);
+
+            r = post(service, "/solve/secant", "{\"function\": \"x^2-2\", \"x0\": 1, \"x1\": 2, \"tolerance\": 1e-12}");
+            Check.close("secant", Math.sqrt(2), number(r, "root"), 1e-12);
+
+            r = post(service, "/solve/fixed-point", "{\"function\": \"cos(x)\", \"x0\": 1, \"acceleration\": \"steffensen\", \"tolerance\": 1e-12}");
+            Check.close("fixed point", 0.7390851332151607, number(r, "root"), 1e-10);
+
+            r = post(service, "/solve/jacobi", "{\"equations\": [\"4x - y = 3\", \"x - 5y = -4\"], \"tolerance\": 1e-12}");
+            List<?> solution = (List<?>) r.body.get("solution");
+            Check.close("jacobi x", 1, ((Number) solution.get(0)).doubleValue(), 1e-10);
+            Check.close("jacobi y", 1, ((Number) solution.get(1)).doubleValue(), 1e-10);
+            Check.equal("jacobi converged", Boolean.TRUE, r.body.get("converged"));
+        } finally {
+            service.stop(0);
+        }
+    }
+
+    static void testErrors() throws IOException {
+        SolverService service = new SolverService(0, 1, 4);
+        service.start();
+        try {
+            Response r = post(service, "/solve/newton", "{\"function\": \"x^2+1\", \"x0\": 0.5, \"maxIterations\": 20}");
+            Check.equal("not converged", 422, r.status);
+            Check.equal("converged flag", Boolean.FALSE, r.body.get("converged"));
+            Check.equal("error", NotConvergedException.MESSAGE, r.body.get("error"));
+            Check.isTrue("last estimate", r.body.get("root") instanceof Number);
+
+            r = post(service, "/solve/bisection", "{\"function\": \"x^2+1\", \"a\": -1, \"b\": 1}");
+            Check.equal("no sign change", 400, r.status);
+            r = post(service, "/solve/newton", "{\"function\": \"x^2\"");
+            Check.equal("malformed JSON", 400, r.status);
+            r = post(service, "/solve/newton", "{\"x0\": 1}");
+            Check.equal("missing function", 400, r.status);
+            r = post(service, "/solve/newton", "{\"function\": \"x\", \"x0\": 1, \"tolerance\": 0}");
+            Check.equal("zero tolerance", 400, r.status);
+
+            // Under the body limit, but far deeper than any stack
+            StringBuilder deep = new StringBuilder();
+            for (int i = 0; i < 30_000; i++) {
+                deep.append('[');
+            }
+            r = post(service, "/solve/newton", deep.toString());
+            Check.equal("deeply nested JSON", 400, r.status);
+            String function = deep.toString().replace("[", "-(").substring(0, 20_000) + "x" + deep.toString().replace('[', ')').substring(0, 10_000);
+            r = post(service, "/solve/newton", "{\"function\": \"" + function + "\", \"x0\": 1}");
+            Check.equal("deeply nested function", 400, r.status);
+            r = post(service, "/solve/newton", "{\"function\": \"x^2 - 2\", \"x0\": 1}");
+            Check.equal("the worker survived", 200, r.status);
+        } finally {
+            service.stop(0);
+        }
+    }
+
+    static void testTraceIsBounded() {
+        Map<String, Object> request = Json.parseObject(
+                "{\"function\": \"x + 1\", \"x0\": 0, \"tolerance\": 1e-10, \"maxIterations\": 1e9, \"trace\": true}");
+        Map<String, Object> response = SolverService.solve("fixed-point", request);
+        Check.equal("iterations capped", SolverService.MAX_ITERATIONS, response.get("iterations"));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> trace = (Map<String, Object>) response.get("trace");
+        Check.equal("rows kept", SolverService.MAX_TRACE_ROWS, ((double[][]) trace.get("rows")).length);
+        Check.equal("first kept iteration", SolverService.MAX_ITERATIONS - SolverService.MAX_TRACE_ROWS + 1,
+                    trace.get("firstIteration"));
+    }
+}
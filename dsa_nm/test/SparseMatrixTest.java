@@ -0,0 +1,79 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// CSR storage, Matrix Market input and the N-variable Jacobi solvers
+final class SparseMatrixTest {
+    static void testBuilder() {
+        SparseMatrix m = new SparseMatrix.Builder(3, 4)
+                .add(2, 3, 5).add(0, 1, 2).add(2, 0, 1).add(0, 1, 3).add(1, 1, -4)
+                .build();
+        Check.equal("duplicates summed", 4, m.nnz());
+        Check.close("a[0][1]", 5, m.get(0, 1), 0);
+        Check.close("a[2][3]", 5, m.get(2, 3), 0);
+        Check.close("missing entry", 0, m.get(1, 3), 0);
+        Check.close("diagonal", new double[] {0, -4, 0}, m.diagonal(), 0);
+
+        double[] y = new double[3];
+        m.multiply(new double[] {1, 2, 3, 4}, y);
+        Check.close("A x", new double[] {10, -8, 21}, y, 0);
+    }
+
+    static void testFromAugmented() {
+        SparseMatrix m = SparseMatrix.fromAugmented(new double[][] {{2, 0, 7}, {1, 3, 8}});
+        Check.equal("zeros dropped", 3, m.nnz());
+        Check.close("a[1][0]", 1, m.get(1, 0), 0);
+    }
+
+    static void testMatrixMarket() throws IOException {
+        Path file = Files.createTempFile("nm", ".mtx");
+        try {
+            Files.write(file, ("%%MatrixMarket matrix coordinate real symmetric\n"
+                    + "% lower triangle only\n"
+                    + "3 3 4\n"
+                    + "1 1 4\n2 1 -1\n2 2 4\n3 3 2.5\n").getBytes(StandardCharsets.US_ASCII));
+            SparseMatrix m = SparseMatrix.readMatrixMarket(file);
+            Check.equal("mirrored entries", 5, m.nnz());
+            Check.close("a[0][1]", -1, m.get(0, 1), 0);
+            Check.close("a[2][2]", 2.5, m.get(2, 2), 0);
+
+            Files.write(file, "%%MatrixMarket matrix array real general\n3 1\n1\n-2\n3.5\n".getBytes(StandardCharsets.US_ASCII));
+            Check.close("vector", new double[] {1, -2, 3.5}, SparseMatrix.readMatrixMarketVector(file), 0);
+
+            Files.write(file, "3 3 1\n1 1 1\n".getBytes(StandardCharsets.US_ASCII));
+            Check.fails("no header", IOException.class, () -> SparseMatrix.readMatrixMarket(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    static void testJacobiOnEquations() {
+        String[] equations = {
+            "10x1 - x2 + 2x3 = 6",
+            "-x1 + 11x2 - x3 + 3x4 = 25",
+            "2x1 - x2 + 10x3 - x4 = -11",
+            "3x2 - x3 + 8x4 = 15",
+        };
+        double[] x = jacobi_method.solveJacobi(equations, 1e-12, 500, IterationRecorder.none());
+        Check.close("4 unknowns", new double[] {1, 2, -1, 1}, x, 1e-10);
+    }
+
+    static void testSparseJacobi() {
+        SparseMatrix a = TestSystems.poisson(20, 0.5);
+        double[] expected = TestSystems.solution(a.rows);
+        double[] b = TestSystems.rightHandSide(a, expected);
+        IterationRecorder.Columnar recorder = IterationRecorder.full();
+        double[] x = jacobi_method.solveJacobi(a, b, 1e-12, 10_000, recorder);
+        Check.close("400 unknowns", expected, x, 1e-9);
+        Check.equal("only the error is recorded", 1, recorder.columns().length);
+    }
+
+    static void testSparseJacobiErrors() {
+        SparseMatrix zeroDiagonal = new SparseMatrix.Builder(2, 2).add(0, 1, 1).add(1, 0, 1).build();
+        Check.fails("zero diagonal", ArithmeticException.class,
+            () -> jacobi_method.solveJacobi(zeroDiagonal, new double[2], 1e-10, 10, IterationRecorder.none()));
+        Check.fails("not square", IllegalArgumentException.class,
+            () -> jacobi_method.solveJacobi(TestSystems.poisson(2, 0), new double[3], 1e-10, 10, IterationRecorder.none()));
+    }
+}
@@ -0,0 +1,59 @@
+import net.objecthunter.exp4j.Expression;
+import net.objecthunter.exp4j.ExpressionBuilder;
+import net.objecthunter.exp4j.function.Function;
+import java.util.function.DoubleUnaryOperator;
+
+// Derivatives against hand-written ones
+final class SymbolicDerivativeTest {
+    private static final double[] XS = {-2, -0.5, 0.25, 1, 3};
+
+    private static void derivative(String function, DoubleUnaryOperator expected) {
+        CompiledFunction df = SymbolicDerivative.compile(new ExpressionBuilder(function).variables("x").build());
+        Check.isTrue(function + " has a symbolic derivative", df != null);
+        for (double x : XS) {
+            Check.relative("d/dx " + function + " at " + x, expected.applyAsDouble(x), df.applyAsDouble(x), 1e-13);
+        }
+    }
+
+    static void testElementaryFunctions() {
+        derivative("x^3 * sin(x) + exp(2*x)",
+                   x -> 3 * x * x * Math.sin(x) + x * x * x * Math.cos(x) + 2 * Math.exp(2 * x));
+        derivative("cos(x) / (1 + x^2)",
+                   x -> (-Math.sin(x) * (1 + x * x) - 2 * x * Math.cos(x)) / ((1 + x * x) * (1 + x * x)));
+        derivative("atan(x) - sqrt(x^2 + 1)", x -> 1 / (1 + x * x) - x / Math.sqrt(x * x + 1));
+        derivative("2^x + tanh(x)",
+                   x -> Math.log(2) * Math.pow(2, x) + 1 / (Math.cosh(x) * Math.cosh(x)));
+        derivative("log(x^2 + 1)", x -> 2 * x / (x * x + 1));
+    }
+
+    static void testPolynomial() {
+        derivative("x^4 - 3*x^2 + x - 7", x -> 4 * x * x * x - 6 * x + 1);
+    }
+
+    static void testParameters() {
+        Expression expression = new ExpressionBuilder("a*x^2 + b*x").variables("x", "a", "b").build();
+        expression.setVariable("a", 2).setVariable("b", 5);
+        CompiledFunction df = SymbolicDerivative.compile(expression);
+        Check.close("d/dx a*x^2 + b*x at 3", 17, df.applyAsDouble(3), 1e-15);
+    }
+
+    static void testUserFunctionUsesNumericPartial() {
+        Function cube = new Function("cube", 1) {
+            @Override
+            public double apply(double... args) {
+                return args[0] * args[0] * args[0];
+            }
+        };
+        Expression expression = new ExpressionBuilder("cube(2*x)").variables("x").function(cube).build();
+        CompiledFunction df = SymbolicDerivative.compile(expression);
+        // d/dx (2x)^3 = 24 x^2, through a central difference
+        Check.relative("d/dx cube(2x) at 1.5", 54, df.applyAsDouble(1.5), 1e-8);
+    }
+
+    static void testNewtonUsesDerivative() {
+        IterationRecorder.Columnar recorder = IterationRecorder.full();
+        double root = newton_raphson.newtonRaphson("x^3 - 2*x - 5", 2, 1e-12, 50, recorder);
+        Check.close("root of x^3 - 2x - 5", 2.0945514815423265, root, 1e-12);
+        Check.isTrue("quadratic convergence", recorder.iterations() <= 6);
+    }
+}
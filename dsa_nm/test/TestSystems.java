@@ -0,0 +1,51 @@
+// Linear systems with a known solution, shared by the linear solver tests
+final class TestSystems {
+    private TestSystems() {
+    }
+
+    // 2D Poisson matrix (5-point stencil, 4 on the diagonal) on a k x k grid,
+    // shifted by `shift` on the diagonal; symmetric positive definite, and
+    // strictly diagonally dominant when shift > 0
+    static SparseMatrix poisson(int k, double shift) {
+        int n = k * k;
+        SparseMatrix.Builder builder = new SparseMatrix.Builder(n, n);
+        for (int i = 0; i < k; i++) {
+            for (int j = 0; j < k; j++) {
+                int row = i * k + j;
+                builder.add(row, row, 4 + shift);
+                if (i > 0) builder.add(row, row - k, -1);
+                if (i < k - 1) builder.add(row, row + k, -1);
+                if (j > 0) builder.add(row, row - 1, -1);
+                if (j < k - 1) builder.add(row, row + 1, -1);
+            }
+        }
+        return builder.build();
+    }
+
+    // x[i] = 1 + i / n, a solution with no special structure
+    static double[] solution(int n) {
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = 1 + (double) i / n;
+        }
+        return x;
+    }
+
+    static double[] rightHandSide(SparseMatrix a, double[] x) {
+        double[] b = new double[a.rows];
+        a.multiply(x, b);
+        return b;
+    }
+
+    // The same matrix as an augmented n x (n+1) array
+    static double[][] augmented(SparseMatrix a, double[] b) {
+        double[][] m = new double[a.rows][a.cols + 1];
+        for (int i = 0; i < a.rows; i++) {
+            for (int j = 0; j < a.cols; j++) {
+                m[i][j] = a.get(i, j);
+            }
+            m[i][a.cols] = b[i];
+        }
+        return m;
+    }
+}
@@ -0,0 +1,86 @@
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Writing .nmtrace files and reading them back through the mapping
+final class TraceFileTest {
+    private static void solve(IterationRecorder recorder, int rows, double offset) {
+        recorder.start("iteration", "x", "error");
+        double[] row = new double[3];
+        for (int i = 0; i < rows; i++) {
+            row[0] = i + 1;
+            row[1] = offset + i;
+            row[2] = Math.pow(0.5, i);
+            recorder.record(row);
+        }
+    }
+
+    static void testRoundTrip() throws IOException {
+        Path path = Files.createTempFile("nm-trace", ".nmtrace");
+        try {
+            IterationRecorder.RingBuffer lastRows = IterationRecorder.lastRows(4);
+            solve(lastRows, 10, 100);
+            try (TraceFile.Writer writer = TraceFile.create(path, "newton")) {
+                solve(writer, 3, 0);
+                solve(writer, 5000, 10);
+                // Written at once, ahead of the solve still being recorded
+                writer.append(lastRows);
+                IterationRecorder.Columnar other = IterationRecorder.full();
+                other.start("x");
+                Check.fails("other columns", IllegalArgumentException.class, () -> writer.append(other));
+            }
+            try (TraceFile.Reader reader = TraceFile.open(path)) {
+                Check.equal("method", "newton", reader.method());
+                Check.equal("columns", "[iteration, x, error]", Arrays.toString(reader.columns()));
+                Check.equal("traces", 3, reader.traceCount());
+                Check.equal("total rows", 3L + 5000 + 4, reader.totalRows());
+
+                TraceFile.Reader.Trace first = reader.trace(0);
+                Check.equal("rows", 3, first.rows());
+                Check.close("x", 2, first.get(2, 1), 0);
+                Check.close("error", 0.25, first.get(2, 2), 0);
+
+                DoubleBuffer x = reader.trace(2).column(1);
+                Check.equal("column length", 5000, x.remaining());
+                Check.close("column start", 10, x.get(0), 0);
+                Check.close("column end", 5009, x.get(4999), 0);
+
+                TraceFile.Reader.Trace ring = reader.trace(1);
+                Check.equal("ring rows", 4, ring.rows());
+                Check.close("oldest kept row", 7, ring.get(0, 0), 0);
+                Check.close("ring x", 109, ring.get(3, 1), 0);
+
+                Check.fails("trace index", IndexOutOfBoundsException.class, () -> reader.trace(3));
+                Check.fails("row index", IndexOutOfBoundsException.class, () -> first.get(3, 0));
+                Check.fails("column index", IndexOutOfBoundsException.class, () -> first.column(3));
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    static void testEmptyFile() throws IOException {
+        Path path = Files.createTempFile("nm-trace", ".nmtrace");
+        try {
+            TraceFile.create(path, "brent").close();
+            try (TraceFile.Reader reader = TraceFile.open(path)) {
+                Check.equal("method", "brent", reader.method());
+                Check.equal("no traces", 0, reader.traceCount());
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    static void testNotATraceFile() throws IOException {
+        Path path = Files.createTempFile("nm-trace", ".txt");
+        try {
+            Files.write(path, "line,root,iterations,error\n".getBytes("UTF-8"));
+            Check.fails("wrong magic", IllegalArgumentException.class, () -> TraceFile.open(path).close());
+        } finally {
+            Files.delete(path);
+        }
+    }
+}